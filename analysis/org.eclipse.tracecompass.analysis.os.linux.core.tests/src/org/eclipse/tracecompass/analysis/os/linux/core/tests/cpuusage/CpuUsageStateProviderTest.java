@@ -12,6 +12,7 @@
 
 package org.eclipse.tracecompass.analysis.os.linux.core.tests.cpuusage;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -329,6 +330,64 @@ public class CpuUsageStateProviderTest {
 
     }
 
+    /**
+     * Tests the cpu usage for consecutive samples, computed in one pass
+     */
+    @Test
+    public void testUsageSamples() {
+        fModule.schedule();
+        fModule.waitForCompletion();
+
+        long[] startTimes = { 4L, 13L, 22L };
+        long[] endTimes = { 13L, 22L, 25L };
+        Map<String, long[]> resultMap = fModule.getCpuUsageSamples(Collections.EMPTY_SET, startTimes, endTimes);
+        assertEquals(5, resultMap.size());
+        assertArrayEquals(new long[] { 0L, 5L, 0L }, resultMap.get("1"));
+        assertArrayEquals(new long[] { 9L, 7L, 0L }, resultMap.get("2"));
+        assertArrayEquals(new long[] { 5L, 2L, 3L }, resultMap.get("3"));
+        assertArrayEquals(new long[] { 4L, 4L, 3L }, resultMap.get("4"));
+        assertArrayEquals(new long[] { 18L, 18L, 6L }, resultMap.get("total"));
+
+        /* The samples should match the usage in range for those ranges */
+        Map<String, Long> rangeMap = fModule.getCpuUsageInRange(Collections.EMPTY_SET, 4L, 13L);
+        for (String tid : ImmutableSet.of("2", "3", "4")) {
+            assertEquals(rangeMap.get("total/" + tid), Long.valueOf(resultMap.get(tid)[0]));
+        }
+
+        /* Verify with a cpu subset */
+        resultMap = fModule.getCpuUsageSamples(Collections.<@NonNull Integer> singleton(1), startTimes, endTimes);
+        assertArrayEquals(new long[] { 4L, 4L, 3L }, resultMap.get("4"));
+        assertArrayEquals(new long[] { 9L, 9L, 3L }, resultMap.get("total"));
+        assertNull(resultMap.get("2"));
+    }
+
+    /**
+     * Tests the cpu usage for samples at the same time, as when the chart is
+     * zoomed in to less than one time unit per sample. Each sample has the
+     * usage of the time unit ending at its time.
+     */
+    @Test
+    public void testUsageSamplesRepeatedTimes() {
+        fModule.schedule();
+        fModule.waitForCompletion();
+
+        long[] startTimes = { 11L, 12L, 12L, 12L };
+        long[] endTimes = { 12L, 13L, 13L, 13L };
+        Map<String, long[]> resultMap = fModule.getCpuUsageSamples(Collections.EMPTY_SET, startTimes, endTimes);
+        Map<String, Long> rangeMap = fModule.getCpuUsageInRange(Collections.EMPTY_SET, 12L, 13L);
+        long[] total = resultMap.get("total");
+        assertNotNull(total);
+        assertTrue(total[1] > 0);
+        assertEquals(total[1], total[2]);
+        assertEquals(total[1], total[3]);
+        for (String tid : ImmutableSet.of("1", "2", "3", "4")) {
+            Long expected = rangeMap.get("total/" + tid);
+            long[] samples = resultMap.get(tid);
+            long actual = (samples == null) ? 0L : samples[3];
+            assertEquals(expected == null ? 0L : expected.longValue(), actual);
+        }
+    }
+
     /**
      * Test the requirements of the analysis module
      */
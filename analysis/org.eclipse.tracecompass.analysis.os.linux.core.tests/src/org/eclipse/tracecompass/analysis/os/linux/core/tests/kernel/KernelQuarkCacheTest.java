@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.analysis.os.linux.core.tests.kernel;
+
+import static org.junit.Assert.assertEquals;
+
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.KernelQuarkCache;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link KernelQuarkCache} class. The cached quarks must be the ones
+ * of the attribute paths used by the kernel analysis.
+ */
+public class KernelQuarkCacheTest {
+
+    private ITmfStateSystemBuilder fSs;
+    private KernelQuarkCache fQuarks;
+
+    /**
+     * Create the state system
+     */
+    @Before
+    public void setUp() {
+        fSs = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend("test", 0));
+        fQuarks = new KernelQuarkCache();
+    }
+
+    /**
+     * Dispose the state system
+     */
+    @After
+    public void tearDown() {
+        fSs.dispose();
+    }
+
+    /**
+     * Test the CPU attributes
+     */
+    @Test
+    public void testCpuNodes() {
+        for (int i = 0; i < 2; i++) {
+            assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.CPUS), fQuarks.getNodeCPUs(fSs));
+            assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.CPUS, "3"), fQuarks.getCpuNode(fSs, 3));
+            assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.CPUS, "3", Attributes.IRQS), fQuarks.getNodeIRQs(fSs, 3));
+            assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.CPUS, "0", Attributes.SOFT_IRQS), fQuarks.getNodeSoftIRQs(fSs, 0));
+        }
+    }
+
+    /**
+     * Test the thread attributes, including the idle thread of each CPU
+     */
+    @Test
+    public void testThreadNodes() {
+        for (int i = 0; i < 2; i++) {
+            assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.THREADS), fQuarks.getNodeThreads(fSs));
+            assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.THREADS, "1234"), fQuarks.getThreadNode(fSs, 1234, 1));
+            assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.THREADS, "1234"), fQuarks.getThreadNode(fSs, 1234, null));
+            assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.THREADS, "-1"), fQuarks.getThreadNode(fSs, -1, 1));
+            assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.THREADS, "0_1"), fQuarks.getThreadNode(fSs, 0, 1));
+            assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.THREADS, "0_2"), fQuarks.getThreadNode(fSs, 0, 2));
+            assertEquals(ITmfStateSystem.INVALID_ATTRIBUTE, fQuarks.getThreadNode(fSs, 0, null));
+        }
+        int threadNode = fQuarks.getThreadNode(fSs, 1234, null);
+        assertEquals(fSs.getQuarkRelativeAndAdd(threadNode, Attributes.SYSTEM_CALL), fQuarks.getChildQuark(fSs, threadNode, Attributes.SYSTEM_CALL));
+        assertEquals(fSs.getQuarkRelativeAndAdd(threadNode, Attributes.PRIO), fQuarks.getChildQuark(fSs, threadNode, Attributes.PRIO));
+    }
+
+    /**
+     * Test the current thread of a CPU
+     */
+    @Test
+    public void testCurrentThreadNode() {
+        assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.THREADS, "-1"), fQuarks.getCurrentThreadNode(fSs, 0));
+        int quark = fSs.getQuarkAbsoluteAndAdd(Attributes.CPUS, "0", Attributes.CURRENT_THREAD);
+        fSs.modifyAttribute(1, TmfStateValue.newValueInt(42), quark);
+        assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.THREADS, "42"), fQuarks.getCurrentThreadNode(fSs, 0));
+        fSs.modifyAttribute(2, TmfStateValue.newValueInt(0), quark);
+        assertEquals(fSs.getQuarkAbsoluteAndAdd(Attributes.THREADS, "0_0"), fQuarks.getCurrentThreadNode(fSs, 0));
+    }
+
+    /**
+     * Test that looking up a missing attribute does not add it
+     */
+    @Test
+    public void testOptChildQuark() {
+        int threads = fQuarks.getNodeThreads(fSs);
+        assertEquals(ITmfStateSystem.INVALID_ATTRIBUTE, fQuarks.optChildQuark(fSs, threads, 12));
+        assertEquals(ITmfStateSystem.INVALID_ATTRIBUTE, fSs.optQuarkRelative(threads, "12"));
+        int quark = fSs.getQuarkRelativeAndAdd(threads, "12");
+        assertEquals(quark, fQuarks.optChildQuark(fSs, threads, 12));
+        assertEquals(quark, fQuarks.getChildQuark(fSs, threads, 12));
+    }
+
+    /**
+     * Test many numbered attributes, to grow the cache
+     */
+    @Test
+    public void testManyThreads() {
+        int threads = fQuarks.getNodeThreads(fSs);
+        for (int tid = 1; tid < 5000; tid += 3) {
+            fQuarks.getThreadNode(fSs, tid, null);
+        }
+        for (int tid = 1; tid < 5000; tid++) {
+            assertEquals(fSs.getQuarkRelativeAndAdd(threads, String.valueOf(tid)), fQuarks.getThreadNode(fSs, tid, null));
+        }
+    }
+}
@@ -16,6 +16,7 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -32,11 +33,13 @@ import org.eclipse.tracecompass.common.core.NonNullUtils;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.Activator;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.StateSystemUtils.QuarkIterator;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.tracecompass.tmf.core.analysis.IAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.analysis.requirements.TmfAbstractAnalysisRequirement;
 import org.eclipse.tracecompass.tmf.core.analysis.requirements.TmfAbstractAnalysisRequirement.PriorityLevel;
@@ -298,6 +301,117 @@ public class KernelCpuUsageAnalysis extends TmfStateSystemAnalysisModule {
         return map;
     }
 
+    /**
+     * Get the time spent on CPU by the threads in each sample time range. This
+     * gives the same information as calling
+     * {@link #getCpuUsageInRange(Set, long, long)} for each sample, but it is
+     * computed in a single forward pass over the intervals of the running
+     * thread of each CPU, instead of querying the full states at every sample.
+     *
+     * Time during which the thread running on a CPU is not known yet (at the
+     * beginning of the trace) is not accounted for.
+     *
+     * @param cpus
+     *            A set of the desired CPUs to get. An empty set gets all the
+     *            cores
+     * @param startTimes
+     *            The start time of each sample, in increasing order
+     * @param endTimes
+     *            The end time of each sample, in increasing order. It must
+     *            have the same length as startTimes.
+     * @return A map of TID -> array of startTimes.length values, where the
+     *         value at index i is the time spent on CPU by this thread between
+     *         startTimes[i] and endTimes[i]. The {@link #TOTAL} entry contains
+     *         the time spent on CPU by all threads.
+     * @since 2.2
+     */
+    public Map<String, long[]> getCpuUsageSamples(Set<@NonNull Integer> cpus, long[] startTimes, long[] endTimes) {
+        Map<String, long[]> map = new HashMap<>();
+        if (startTimes.length == 0 || startTimes.length != endTimes.length) {
+            return map;
+        }
+
+        ITmfTrace trace = getTrace();
+        if (trace == null) {
+            return map;
+        }
+        ITmfStateSystem kernelSs = TmfStateSystemAnalysisModule.getStateSystem(trace, KernelAnalysisModule.ID);
+        if (kernelSs == null) {
+            return map;
+        }
+
+        /* Only the range covered by the kernel state system can be queried */
+        int nbSamples = startTimes.length;
+        long startTime = Math.max(startTimes[0], kernelSs.getStartTime());
+        long endTime = Math.min(endTimes[nbSamples - 1], kernelSs.getCurrentEndTime());
+        if (endTime <= startTime) {
+            return map;
+        }
+
+        Map<Integer, long[]> usagePerTid = new HashMap<>();
+        long[] total = new long[nbSamples];
+        try {
+            int cpusNode = kernelSs.getQuarkAbsolute(Attributes.CPUS);
+            for (int cpuNode : kernelSs.getSubAttributes(cpusNode, false)) {
+                if (!cpus.isEmpty() && !cpus.contains(Integer.parseInt(kernelSs.getAttributeName(cpuNode)))) {
+                    continue;
+                }
+                int currentThreadQuark = kernelSs.optQuarkRelative(cpuNode, Attributes.CURRENT_THREAD);
+                if (currentThreadQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+                    continue;
+                }
+
+                /*
+                 * The intervals are returned in order and the sample times are
+                 * increasing, so the index of the first sample that can
+                 * overlap an interval only ever moves forward.
+                 */
+                int bucket = 0;
+                Iterator<ITmfStateInterval> iterator = new QuarkIterator(kernelSs, currentThreadQuark, startTime);
+                while (iterator.hasNext()) {
+                    ITmfStateInterval interval = iterator.next();
+                    if (interval.getStartTime() >= endTime) {
+                        break;
+                    }
+                    ITmfStateValue value = interval.getStateValue();
+                    if (value.isNull()) {
+                        continue;
+                    }
+                    /* The thread runs until the next thread is scheduled */
+                    long runningStart = Math.max(interval.getStartTime(), startTime);
+                    long runningEnd = Math.min(interval.getEndTime() + 1, endTime);
+                    long[] usage = usagePerTid.computeIfAbsent(value.unboxInt(), tid -> new long[nbSamples]);
+
+                    while (bucket < nbSamples - 1 && endTimes[bucket] <= runningStart) {
+                        bucket++;
+                    }
+                    for (int i = bucket; i < nbSamples && startTimes[i] < runningEnd; i++) {
+                        long overlap = Math.min(runningEnd, endTimes[i]) - Math.max(runningStart, startTimes[i]);
+                        if (overlap > 0) {
+                            usage[i] += overlap;
+                            total[i] += overlap;
+                        }
+                    }
+                }
+            }
+        } catch (AttributeNotFoundException e) {
+            /*
+             * Assume there is no events or the attribute does not exist yet,
+             * nothing will be put in the map.
+             */
+            return map;
+        } catch (StateValueTypeException e) {
+            Activator.getDefault().logError("Error getting CPU usage samples", e); //$NON-NLS-1$
+            return map;
+        }
+
+        for (Entry<Integer, long[]> entry : usagePerTid.entrySet()) {
+            map.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        map.put(TOTAL, total);
+        return map;
+    }
+
     private static long interpolateCount(long count, long ts, long runningEnd, long runningTime) {
         long newCount = count;
 
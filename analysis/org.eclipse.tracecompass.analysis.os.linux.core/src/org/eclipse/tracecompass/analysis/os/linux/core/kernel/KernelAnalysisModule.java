@@ -40,6 +40,13 @@ public class KernelAnalysisModule extends TmfStateSystemAnalysisModule {
     /** The ID of this analysis module */
     public static final String ID = "org.eclipse.tracecompass.analysis.os.linux.kernel"; //$NON-NLS-1$
 
+    /**
+     * System property setting the number of time partitions of the trace to
+     * process concurrently when building the state system. It is built
+     * sequentially by default.
+     */
+    private static final String BUILD_PARTITIONS_PROPERTY = ID + ".partitions"; //$NON-NLS-1$
+
     /*
      * TODO: Decide which events should be mandatory for the analysis, once the
      * appropriate error messages and session setup are in place.
@@ -97,6 +104,11 @@ public class KernelAnalysisModule extends TmfStateSystemAnalysisModule {
         return new KernelStateProvider(trace, layout);
     }
 
+    @Override
+    protected int getBuildPartitions() {
+        return Integer.getInteger(BUILD_PARTITIONS_PROPERTY, 1);
+    }
+
     @Override
     protected String getFullHelpText() {
         return NonNullUtils.nullToEmptyString(Messages.LttngKernelAnalysisModule_Help);
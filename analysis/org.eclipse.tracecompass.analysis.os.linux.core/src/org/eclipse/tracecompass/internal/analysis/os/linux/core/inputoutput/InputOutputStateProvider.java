@@ -15,7 +15,6 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.Nullable;
-import org.eclipse.tracecompass.analysis.os.linux.core.inputoutput.Attributes;
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.Activator;
@@ -28,6 +27,7 @@ import org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.hand
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.handlers.SysEntryHandler;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.handlers.SysExitHandler;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.KernelEventHandler;
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.KernelQuarkCache;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
@@ -96,8 +96,9 @@ public class InputOutputStateProvider extends AbstractTmfStateProvider {
         super(trace, "Input Output Analysis");//$NON-NLS-1$
         fLayout = layout;
         fEventNames = buildEventNames(layout);
-        fSysEntryHandler = new SysEntryHandler(layout);
-        fSysExitHandler = new SysExitHandler(layout);
+        KernelQuarkCache quarks = new KernelQuarkCache();
+        fSysEntryHandler = new SysEntryHandler(layout, quarks);
+        fSysExitHandler = new SysExitHandler(layout, quarks);
     }
 
     private Map<String, KernelEventHandler> buildEventNames(IKernelAnalysisEventLayout layout) {
@@ -185,26 +186,4 @@ public class InputOutputStateProvider extends AbstractTmfStateProvider {
                 eventName.startsWith(fLayout.eventCompatSyscallExitPrefix()));
     }
 
-    /**
-     * Return the quark corresponding to the threads attributes
-     *
-     * @param ssb
-     *            the state system builder
-     * @return The quark of the {@link Attributes#THREADS} node
-     */
-    public static int getNodeThreads(ITmfStateSystemBuilder ssb) {
-        return ssb.getQuarkAbsoluteAndAdd(Attributes.THREADS);
-    }
-
-    /**
-     * Return the quark corresponding to the system call root attributes
-     *
-     * @param ssb
-     *            the state system builder
-     * @return The quark of the {@link Attributes#SYSTEM_CALLS_ROOT} node
-     */
-    public static int getNodeSyscalls(ITmfStateSystemBuilder ssb) {
-        return ssb.getQuarkAbsoluteAndAdd(Attributes.SYSTEM_CALLS_ROOT);
-    }
-
 }
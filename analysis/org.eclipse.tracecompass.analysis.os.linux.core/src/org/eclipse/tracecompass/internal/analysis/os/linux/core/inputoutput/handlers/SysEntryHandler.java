@@ -10,9 +10,11 @@
 package org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.handlers;
 
 import org.eclipse.tracecompass.analysis.os.linux.core.event.aspect.LinuxTidAspect;
+import org.eclipse.tracecompass.analysis.os.linux.core.inputoutput.Attributes;
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
-import org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.InputOutputStateProvider;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.KernelEventHandler;
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.KernelQuarkCache;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
@@ -31,9 +33,11 @@ public class SysEntryHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public SysEntryHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SysEntryHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -45,7 +49,8 @@ public class SysEntryHandler extends KernelEventHandler {
         if (tid == null) {
             return;
         }
-        int threadSyscallQuark = ss.getQuarkRelativeAndAdd(InputOutputStateProvider.getNodeSyscalls(ss), String.valueOf(tid));
+        int syscallsNode = getQuarks().getChildQuark(ss, ITmfStateSystem.ROOT_ATTRIBUTE, Attributes.SYSTEM_CALLS_ROOT);
+        int threadSyscallQuark = getQuarks().getChildQuark(ss, syscallsNode, tid);
         TmfStateValue value = TmfStateValue.newValueString(eventName);
         ss.modifyAttribute(ts, value, threadSyscallQuark);
     }
@@ -16,8 +16,8 @@ import java.util.regex.Pattern;
 import org.eclipse.tracecompass.analysis.os.linux.core.event.aspect.LinuxTidAspect;
 import org.eclipse.tracecompass.analysis.os.linux.core.inputoutput.Attributes;
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
-import org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.InputOutputStateProvider;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.KernelEventHandler;
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.KernelQuarkCache;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.StateSystemBuilderUtils;
@@ -46,9 +46,11 @@ public class SysExitHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public SysExitHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SysExitHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
         fSyscallReadPattern = checkNotNull(Pattern.compile('(' + layout.eventSyscallEntryPrefix() + '|' + layout.eventCompatSyscallEntryPrefix() + ')' + SYSCALL_READ_PATTERN));
         fSyscallWritePattern = checkNotNull(Pattern.compile('(' + layout.eventSyscallEntryPrefix() + '|' + layout.eventCompatSyscallEntryPrefix() + ')' + SYSCALL_WRITE_PATTERN));
     }
@@ -64,7 +66,8 @@ public class SysExitHandler extends KernelEventHandler {
         }
 
         /* TODO: Why save the syscall before if we have it in the sys_exit? */
-        int syscallQuark = ss.optQuarkRelative(InputOutputStateProvider.getNodeSyscalls(ss), String.valueOf(tid));
+        int syscallsNode = getQuarks().getChildQuark(ss, ITmfStateSystem.ROOT_ATTRIBUTE, Attributes.SYSTEM_CALLS_ROOT);
+        int syscallQuark = getQuarks().optChildQuark(ss, syscallsNode, tid);
         if (syscallQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return;
         }
@@ -75,14 +78,14 @@ public class SysExitHandler extends KernelEventHandler {
             int ret = retValue.intValue();
             if (ret >= 0) {
                 if (fSyscallReadPattern.matcher(syscallValue).matches()) {
-                    int currentProcessNode = ss.getQuarkRelativeAndAdd(InputOutputStateProvider.getNodeThreads(ss), String.valueOf(tid));
-                    int readQuark = ss.getQuarkRelativeAndAdd(currentProcessNode, Attributes.BYTES_READ);
-                    ss.getQuarkRelativeAndAdd(currentProcessNode, Attributes.BYTES_WRITTEN);
+                    int currentProcessNode = getThreadNode(ss, tid);
+                    int readQuark = getQuarks().getChildQuark(ss, currentProcessNode, Attributes.BYTES_READ);
+                    getQuarks().getChildQuark(ss, currentProcessNode, Attributes.BYTES_WRITTEN);
                     StateSystemBuilderUtils.incrementAttributeInt(ss, ts, readQuark, ret);
                 } else if (fSyscallWritePattern.matcher(syscallValue).matches()) {
-                    int currentProcessNode = ss.getQuarkRelativeAndAdd(InputOutputStateProvider.getNodeThreads(ss), String.valueOf(tid));
-                    ss.getQuarkRelativeAndAdd(currentProcessNode, Attributes.BYTES_READ);
-                    int writtenQuark = ss.getQuarkRelativeAndAdd(currentProcessNode, Attributes.BYTES_WRITTEN);
+                    int currentProcessNode = getThreadNode(ss, tid);
+                    getQuarks().getChildQuark(ss, currentProcessNode, Attributes.BYTES_READ);
+                    int writtenQuark = getQuarks().getChildQuark(ss, currentProcessNode, Attributes.BYTES_WRITTEN);
                     StateSystemBuilderUtils.incrementAttributeInt(ss, ts, writtenQuark, ret);
                 }
             }
@@ -91,4 +94,9 @@ public class SysExitHandler extends KernelEventHandler {
         ss.modifyAttribute(ts, value, syscallQuark);
     }
 
+    private int getThreadNode(ITmfStateSystemBuilder ss, int tid) {
+        int threadsNode = getQuarks().getChildQuark(ss, ITmfStateSystem.ROOT_ATTRIBUTE, Attributes.THREADS);
+        return getQuarks().getChildQuark(ss, threadsNode, tid);
+    }
+
 }
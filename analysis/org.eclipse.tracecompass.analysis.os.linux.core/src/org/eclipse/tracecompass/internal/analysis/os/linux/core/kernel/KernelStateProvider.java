@@ -23,6 +23,7 @@ import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.IrqEntryHandler;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.IrqExitHandler;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.KernelEventHandler;
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.KernelQuarkCache;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.PiSetprioHandler;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.ProcessExitHandler;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers.ProcessForkHandler;
@@ -107,45 +108,47 @@ public class KernelStateProvider extends AbstractTmfStateProvider {
     public KernelStateProvider(ITmfTrace trace, IKernelAnalysisEventLayout layout) {
         super(trace, "Kernel"); //$NON-NLS-1$
         fLayout = layout;
-        fEventNames = buildEventNames(layout);
+        /* The handlers share the quarks they resolve */
+        KernelQuarkCache quarks = new KernelQuarkCache();
+        fEventNames = buildEventNames(layout, quarks);
 
-        fSysEntryHandler = new SysEntryHandler(fLayout);
-        fSysExitHandler = new SysExitHandler(fLayout);
+        fSysEntryHandler = new SysEntryHandler(fLayout, quarks);
+        fSysExitHandler = new SysExitHandler(fLayout, quarks);
     }
 
     // ------------------------------------------------------------------------
     // Event names management
     // ------------------------------------------------------------------------
 
-    private static Map<String, KernelEventHandler> buildEventNames(IKernelAnalysisEventLayout layout) {
+    private static Map<String, KernelEventHandler> buildEventNames(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
         ImmutableMap.Builder<String, KernelEventHandler> builder = ImmutableMap.builder();
 
-        builder.put(layout.eventIrqHandlerEntry(), new IrqEntryHandler(layout));
-        builder.put(layout.eventIrqHandlerExit(), new IrqExitHandler(layout));
-        builder.put(layout.eventSoftIrqEntry(), new SoftIrqEntryHandler(layout));
-        builder.put(layout.eventSoftIrqExit(), new SoftIrqExitHandler(layout));
-        builder.put(layout.eventSoftIrqRaise(), new SoftIrqRaiseHandler(layout));
-        builder.put(layout.eventSchedSwitch(), new SchedSwitchHandler(layout));
-        builder.put(layout.eventSchedPiSetprio(), new PiSetprioHandler(layout));
-        builder.put(layout.eventSchedProcessFork(), new ProcessForkHandler(layout));
-        builder.put(layout.eventSchedProcessExit(), new ProcessExitHandler(layout));
-        builder.put(layout.eventSchedProcessFree(), new ProcessFreeHandler(layout));
-        builder.put(layout.eventSchedProcessWaking(), new SchedWakeupHandler(layout));
+        builder.put(layout.eventIrqHandlerEntry(), new IrqEntryHandler(layout, quarks));
+        builder.put(layout.eventIrqHandlerExit(), new IrqExitHandler(layout, quarks));
+        builder.put(layout.eventSoftIrqEntry(), new SoftIrqEntryHandler(layout, quarks));
+        builder.put(layout.eventSoftIrqExit(), new SoftIrqExitHandler(layout, quarks));
+        builder.put(layout.eventSoftIrqRaise(), new SoftIrqRaiseHandler(layout, quarks));
+        builder.put(layout.eventSchedSwitch(), new SchedSwitchHandler(layout, quarks));
+        builder.put(layout.eventSchedPiSetprio(), new PiSetprioHandler(layout, quarks));
+        builder.put(layout.eventSchedProcessFork(), new ProcessForkHandler(layout, quarks));
+        builder.put(layout.eventSchedProcessExit(), new ProcessExitHandler(layout, quarks));
+        builder.put(layout.eventSchedProcessFree(), new ProcessFreeHandler(layout, quarks));
+        builder.put(layout.eventSchedProcessWaking(), new SchedWakeupHandler(layout, quarks));
 
         for (String s : layout.getIPIIrqVectorsEntries()) {
-            builder.put(s, new IPIEntryHandler(layout));
+            builder.put(s, new IPIEntryHandler(layout, quarks));
         }
         for (String s : layout.getIPIIrqVectorsExits()) {
-            builder.put(s, new IPIExitHandler(layout));
+            builder.put(s, new IPIExitHandler(layout, quarks));
         }
 
         final String eventStatedumpProcessState = layout.eventStatedumpProcessState();
         if (eventStatedumpProcessState != null) {
-            builder.put(eventStatedumpProcessState, new StateDumpHandler(layout));
+            builder.put(eventStatedumpProcessState, new StateDumpHandler(layout, quarks));
         }
 
         for (String eventSchedWakeup : layout.eventsSchedWakeup()) {
-            builder.put(eventSchedWakeup, new SchedWakeupHandler(layout));
+            builder.put(eventSchedWakeup, new SchedWakeupHandler(layout, quarks));
         }
 
         return builder.build();
@@ -29,9 +29,11 @@ public class IPIEntryHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public IPIEntryHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public IPIEntryHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -47,19 +49,19 @@ public class IPIEntryHandler extends KernelEventHandler {
          * Mark this IRQ as active in the resource tree. The state value = the
          * CPU on which this IRQ is sitting
          */
-        int quark = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeIRQs(cpu, ss), irqId.toString());
+        int quark = getQuarks().getChildQuark(ss, getQuarks().getNodeIRQs(ss, cpu), irqId);
 
         ITmfStateValue value = TmfStateValue.newValueInt(cpu.intValue());
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         ss.modifyAttribute(timestamp, value, quark);
 
         /* Change the status of the running process to interrupted */
-        quark = KernelEventHandlerUtils.getCurrentThreadNode(cpu, ss);
+        quark = getQuarks().getCurrentThreadNode(ss, cpu);
         value = StateValues.PROCESS_STATUS_INTERRUPTED_VALUE;
         ss.modifyAttribute(timestamp, value, quark);
 
         /* Change the status of the CPU to interrupted */
-        quark = KernelEventHandlerUtils.getCurrentCPUNode(cpu, ss);
+        quark = getQuarks().getCpuNode(ss, cpu);
         value = StateValues.CPU_STATUS_IRQ_VALUE;
         ss.modifyAttribute(timestamp, value, quark);
     }
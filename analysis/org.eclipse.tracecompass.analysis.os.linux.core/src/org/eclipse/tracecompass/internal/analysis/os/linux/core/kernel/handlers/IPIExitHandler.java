@@ -27,9 +27,11 @@ public class IPIExitHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public IPIExitHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public IPIExitHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -38,18 +40,18 @@ public class IPIExitHandler extends KernelEventHandler {
         if (cpu == null) {
             return;
         }
-        int currentThreadNode = KernelEventHandlerUtils.getCurrentThreadNode(cpu, ss);
+        int currentThreadNode = getQuarks().getCurrentThreadNode(ss, cpu);
         Integer irqId = ((Long) event.getContent().getField(getLayout().fieldIPIVector()).getValue()).intValue();
         /* Put this IRQ back to inactive in the resource tree */
-        int quark = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeIRQs(cpu, ss), irqId.toString());
+        int quark = getQuarks().getChildQuark(ss, getQuarks().getNodeIRQs(ss, cpu), irqId);
         TmfStateValue value = TmfStateValue.nullValue();
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         ss.modifyAttribute(timestamp, value, quark);
 
         /* Set the previous process back to running */
-        KernelEventHandlerUtils.setProcessToRunning(timestamp, currentThreadNode, ss);
+        KernelEventHandlerUtils.setProcessToRunning(timestamp, currentThreadNode, ss, getQuarks());
 
         /* Set the CPU status back to running or "idle" */
-        KernelEventHandlerUtils.cpuExitInterrupt(timestamp, cpu, ss);
+        KernelEventHandlerUtils.cpuExitInterrupt(timestamp, cpu, ss, getQuarks());
     }
 }
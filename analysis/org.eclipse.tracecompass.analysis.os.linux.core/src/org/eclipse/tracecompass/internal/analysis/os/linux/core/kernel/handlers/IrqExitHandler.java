@@ -28,9 +28,11 @@ public class IrqExitHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public IrqExitHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public IrqExitHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -39,18 +41,18 @@ public class IrqExitHandler extends KernelEventHandler {
         if (cpu == null) {
             return;
         }
-        int currentThreadNode = KernelEventHandlerUtils.getCurrentThreadNode(cpu, ss);
+        int currentThreadNode = getQuarks().getCurrentThreadNode(ss, cpu);
         Integer irqId = ((Long) event.getContent().getField(getLayout().fieldIrq()).getValue()).intValue();
         /* Put this IRQ back to inactive in the resource tree */
-        int quark = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeIRQs(cpu, ss), irqId.toString());
+        int quark = getQuarks().getChildQuark(ss, getQuarks().getNodeIRQs(ss, cpu), irqId);
         TmfStateValue value = TmfStateValue.nullValue();
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         ss.modifyAttribute(timestamp, value, quark);
 
         /* Set the previous process back to running */
-        KernelEventHandlerUtils.setProcessToRunning(timestamp, currentThreadNode, ss);
+        KernelEventHandlerUtils.setProcessToRunning(timestamp, currentThreadNode, ss, getQuarks());
 
         /* Set the CPU status back to running or "idle" */
-        KernelEventHandlerUtils.cpuExitInterrupt(timestamp, cpu, ss);
+        KernelEventHandlerUtils.cpuExitInterrupt(timestamp, cpu, ss, getQuarks());
     }
 }
@@ -23,6 +23,7 @@ import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 public abstract class KernelEventHandler {
 
     private final IKernelAnalysisEventLayout fLayout;
+    private final KernelQuarkCache fQuarks;
 
     /**
      * Constructor
@@ -31,7 +32,20 @@ public abstract class KernelEventHandler {
      *            the analysis layout
      */
     public KernelEventHandler(IKernelAnalysisEventLayout layout) {
+        this(layout, new KernelQuarkCache());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param layout
+     *            the analysis layout
+     * @param quarks
+     *            the quark cache, shared by the handlers of a state provider
+     */
+    public KernelEventHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
         fLayout = layout;
+        fQuarks = quarks;
     }
 
     /**
@@ -43,6 +57,15 @@ public abstract class KernelEventHandler {
         return fLayout;
     }
 
+    /**
+     * Get the quark cache
+     *
+     * @return the quark cache
+     */
+    protected KernelQuarkCache getQuarks() {
+        return fQuarks;
+    }
+
     /**
      * Handle a specific kernel event.
      *
@@ -52,20 +52,6 @@ public final class KernelEventHandlerUtils {
         return cpuObj;
     }
 
-    /**
-     * Gets the current CPU quark
-     *
-     * @param cpuNumber
-     *            The cpu number
-     * @param ss
-     *            the state system
-     *
-     * @return the current CPU quark -1 for not set
-     */
-    public static int getCurrentCPUNode(Integer cpuNumber, ITmfStateSystemBuilder ss) {
-        return ss.getQuarkRelativeAndAdd(getNodeCPUs(ss), cpuNumber.toString());
-    }
-
     /**
      * Get the timestamp of the event
      *
@@ -78,27 +64,6 @@ public final class KernelEventHandlerUtils {
         return event.getTimestamp().toNanos();
     }
 
-    /**
-     * Get the current thread node
-     *
-     * @param cpuNumber
-     *            The cpu number
-     * @param ss
-     *            the state system
-     *
-     * @return the current thread node quark
-     */
-    public static int getCurrentThreadNode(Integer cpuNumber, ITmfStateSystemBuilder ss) {
-        /*
-         * Shortcut for the "current thread" attribute node. It requires
-         * querying the current CPU's current thread.
-         */
-        int quark = ss.getQuarkRelativeAndAdd(getCurrentCPUNode(cpuNumber, ss), Attributes.CURRENT_THREAD);
-        ITmfStateValue value = ss.queryOngoingState(quark);
-        int thread = value.isNull() ? -1 : value.unboxInt();
-        return ss.getQuarkRelativeAndAdd(getNodeThreads(ss), Attributes.buildThreadAttributeName(thread, cpuNumber));
-    }
-
     /**
      * When we want to set a process back to a "running" state, first check its
      * current System_call attribute. If there is a system call active, we put
@@ -111,18 +76,20 @@ public final class KernelEventHandlerUtils {
      *            The current thread node
      * @param ssb
      *            the state system
+     * @param quarks
+     *            the quark cache
      * @throws TimeRangeException
      *             the time is out of range
      * @throws StateValueTypeException
      *             the attribute was not set with int values
      */
-    public static void setProcessToRunning(long timestamp, int currentThreadNode, ITmfStateSystemBuilder ssb)
+    public static void setProcessToRunning(long timestamp, int currentThreadNode, ITmfStateSystemBuilder ssb, KernelQuarkCache quarks)
             throws TimeRangeException,
             StateValueTypeException {
         int quark;
         ITmfStateValue value;
 
-        quark = ssb.getQuarkRelativeAndAdd(currentThreadNode, Attributes.SYSTEM_CALL);
+        quark = quarks.getChildQuark(ssb, currentThreadNode, Attributes.SYSTEM_CALL);
         if (ssb.queryOngoingState(quark).isNull()) {
             /* We were in user mode before the interruption */
             value = StateValues.PROCESS_STATUS_RUN_USERMODE_VALUE;
@@ -133,54 +100,6 @@ public final class KernelEventHandlerUtils {
         ssb.modifyAttribute(timestamp, value, currentThreadNode);
     }
 
-    /**
-     * Get the IRQs node
-     *
-     * @param cpuNumber
-     *            the cpu core
-     * @param ss
-     *            the state system
-     * @return the IRQ node quark
-     */
-    public static int getNodeIRQs(int cpuNumber, ITmfStateSystemBuilder ss) {
-        return ss.getQuarkAbsoluteAndAdd(Attributes.CPUS, Integer.toString(cpuNumber), Attributes.IRQS);
-    }
-
-    /**
-     * Get the CPUs node
-     *
-     * @param ss
-     *            the state system
-     * @return the CPU node quark
-     */
-    public static int getNodeCPUs(ITmfStateSystemBuilder ss) {
-        return ss.getQuarkAbsoluteAndAdd(Attributes.CPUS);
-    }
-
-    /**
-     * Get the Soft IRQs node
-     *
-     * @param cpuNumber
-     *            the cpu core
-     * @param ss
-     *            the state system
-     * @return the Soft IRQ node quark
-     */
-    public static int getNodeSoftIRQs(int cpuNumber, ITmfStateSystemBuilder ss) {
-        return ss.getQuarkAbsoluteAndAdd(Attributes.CPUS, Integer.toString(cpuNumber), Attributes.SOFT_IRQS);
-    }
-
-    /**
-     * Get the threads node
-     *
-     * @param ss
-     *            the state system
-     * @return the threads quark
-     */
-    public static int getNodeThreads(ITmfStateSystemBuilder ss) {
-        return ss.getQuarkAbsoluteAndAdd(Attributes.THREADS);
-    }
-
     /**
      * Reset the CPU's status when it's coming out of an interruption.
      *
@@ -191,16 +110,18 @@ public final class KernelEventHandlerUtils {
      *
      * @param ssb
      *            State system
+     * @param quarks
+     *            the quark cache
      * @throws StateValueTypeException
      *             the attribute is not set as an int
      * @throws TimeRangeException
      *             the time is out of range
      */
-    public static void cpuExitInterrupt(long timestamp, Integer cpuNumber, ITmfStateSystemBuilder ssb)
+    public static void cpuExitInterrupt(long timestamp, Integer cpuNumber, ITmfStateSystemBuilder ssb, KernelQuarkCache quarks)
             throws StateValueTypeException, TimeRangeException {
-        int currentCPUNode = getCurrentCPUNode(cpuNumber, ssb);
+        int currentCPUNode = quarks.getCpuNode(ssb, cpuNumber);
 
-        ITmfStateValue value = getCpuStatus(ssb, currentCPUNode);
+        ITmfStateValue value = getCpuStatus(ssb, quarks, currentCPUNode);
         ssb.modifyAttribute(timestamp, value, currentCPUNode);
     }
 
@@ -220,15 +141,17 @@ public final class KernelEventHandlerUtils {
      *
      * @param ssb
      *            The state system
+     * @param quarks
+     *            The quark cache
      * @param cpuQuark
      *            The *quark* of the CPU we are looking for. Careful, this is
      *            NOT the CPU number (or attribute name)!
      * @return The state value that represents the status of the given CPU
      */
-    private static ITmfStateValue getCpuStatus(ITmfStateSystemBuilder ssb, int cpuQuark) {
+    private static ITmfStateValue getCpuStatus(ITmfStateSystemBuilder ssb, KernelQuarkCache quarks, int cpuQuark) {
 
         /* Check if there is a IRQ running */
-        int irqQuarks = ssb.getQuarkRelativeAndAdd(cpuQuark, Attributes.IRQS);
+        int irqQuarks = quarks.getChildQuark(ssb, cpuQuark, Attributes.IRQS);
         List<Integer> irqs = ssb.getSubAttributes(irqQuarks, false);
         for (Integer quark : irqs) {
             final ITmfStateValue irqState = ssb.queryOngoingState(quark.intValue());
@@ -238,7 +161,7 @@ public final class KernelEventHandlerUtils {
         }
 
         /* Check if there is a soft IRQ running */
-        int softIrqQuarks = ssb.getQuarkRelativeAndAdd(cpuQuark, Attributes.SOFT_IRQS);
+        int softIrqQuarks = quarks.getChildQuark(ssb, cpuQuark, Attributes.SOFT_IRQS);
         List<Integer> softIrqs = ssb.getSubAttributes(softIrqQuarks, false);
         for (Integer quark : softIrqs) {
             final ITmfStateValue softIrqState = ssb.queryOngoingState(quark.intValue());
@@ -251,7 +174,7 @@ public final class KernelEventHandlerUtils {
          * Check if there is a thread running. If not, report IDLE. If there is,
          * report the running state of the thread (usermode or system call).
          */
-        int currentThreadQuark = ssb.getQuarkRelativeAndAdd(cpuQuark, Attributes.CURRENT_THREAD);
+        int currentThreadQuark = quarks.getChildQuark(ssb, cpuQuark, Attributes.CURRENT_THREAD);
         ITmfStateValue currentThreadState = ssb.queryOngoingState(currentThreadQuark);
         if (currentThreadState.isNull()) {
             return TmfStateValue.nullValue();
@@ -260,7 +183,7 @@ public final class KernelEventHandlerUtils {
         if (tid == 0) {
             return StateValues.CPU_STATUS_IDLE_VALUE;
         }
-        int threadSystemCallQuark = ssb.getQuarkAbsoluteAndAdd(Attributes.THREADS, Integer.toString(tid), Attributes.SYSTEM_CALL);
+        int threadSystemCallQuark = quarks.getChildQuark(ssb, quarks.getThreadNode(ssb, tid, null), Attributes.SYSTEM_CALL);
         return (ssb.queryOngoingState(threadSystemCallQuark).isNull() ? StateValues.CPU_STATUS_RUN_USERMODE_VALUE : StateValues.CPU_STATUS_RUN_SYSCALL_VALUE);
     }
 }
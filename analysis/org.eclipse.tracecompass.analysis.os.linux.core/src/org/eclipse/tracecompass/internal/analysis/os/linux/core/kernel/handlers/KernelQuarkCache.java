@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers;
+
+import static org.eclipse.tracecompass.statesystem.core.ITmfStateSystem.INVALID_ATTRIBUTE;
+import static org.eclipse.tracecompass.statesystem.core.ITmfStateSystem.ROOT_ATTRIBUTE;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+
+/**
+ * Cache of the quarks used by the kernel event handlers, keyed on the numeric
+ * values found in the events (thread ID, CPU number, ...) instead of their
+ * attribute names.
+ * <p>
+ * The attribute tree is only queried the first time an attribute is needed,
+ * afterwards the common path of the handlers neither builds attribute names
+ * nor goes through the attribute tree. Quarks never change once attributed,
+ * even when the attribute is removed, so the cached values are never
+ * invalidated.
+ * <p>
+ * One cache is created per state provider and shared by all its handlers. It
+ * must only be used with the state system of that provider, and is not thread
+ * safe, like the provider's event handling.
+ */
+public final class KernelQuarkCache {
+
+    private final Map<String, NamedChildren> fNamedChildren = new HashMap<>();
+    private final QuarkMap fNumberedChildren = new QuarkMap();
+    private final QuarkMap fIdleThreads = new QuarkMap();
+
+    /**
+     * Get the quark of a child attribute with a constant name, adding it if
+     * needed
+     *
+     * @param ss
+     *            The state system
+     * @param parent
+     *            The quark of the parent attribute, or
+     *            {@link org.eclipse.tracecompass.statesystem.core.ITmfStateSystem#ROOT_ATTRIBUTE}
+     * @param name
+     *            The name of the child attribute
+     * @return The quark of the child attribute
+     */
+    public int getChildQuark(ITmfStateSystemBuilder ss, int parent, String name) {
+        NamedChildren children = fNamedChildren.get(name);
+        if (children == null) {
+            children = new NamedChildren(name);
+            fNamedChildren.put(name, children);
+        }
+        return children.get(ss, parent);
+    }
+
+    /**
+     * Get the quark of a child attribute whose name is a number, adding it if
+     * needed
+     *
+     * @param ss
+     *            The state system
+     * @param parent
+     *            The quark of the parent attribute, or
+     *            {@link org.eclipse.tracecompass.statesystem.core.ITmfStateSystem#ROOT_ATTRIBUTE}
+     * @param number
+     *            The number that is the name of the child attribute
+     * @return The quark of the child attribute
+     */
+    public int getChildQuark(ITmfStateSystemBuilder ss, int parent, int number) {
+        long key = ((long) parent << 32) | (number & 0xffffffffL);
+        int quark = fNumberedChildren.get(key);
+        if (quark == INVALID_ATTRIBUTE) {
+            quark = ss.getQuarkRelativeAndAdd(parent, String.valueOf(number));
+            fNumberedChildren.put(key, quark);
+        }
+        return quark;
+    }
+
+    /**
+     * Get the quark of a child attribute whose name is a number, without
+     * adding it
+     *
+     * @param ss
+     *            The state system
+     * @param parent
+     *            The quark of the parent attribute, or
+     *            {@link org.eclipse.tracecompass.statesystem.core.ITmfStateSystem#ROOT_ATTRIBUTE}
+     * @param number
+     *            The number that is the name of the child attribute
+     * @return The quark of the child attribute, or
+     *         {@link org.eclipse.tracecompass.statesystem.core.ITmfStateSystem#INVALID_ATTRIBUTE}
+     *         if it does not exist
+     */
+    public int optChildQuark(ITmfStateSystemBuilder ss, int parent, int number) {
+        long key = ((long) parent << 32) | (number & 0xffffffffL);
+        int quark = fNumberedChildren.get(key);
+        if (quark == INVALID_ATTRIBUTE) {
+            quark = ss.optQuarkRelative(parent, String.valueOf(number));
+            if (quark != INVALID_ATTRIBUTE) {
+                fNumberedChildren.put(key, quark);
+            }
+        }
+        return quark;
+    }
+
+    /**
+     * Get the CPUs node
+     *
+     * @param ss
+     *            the state system
+     * @return the CPU node quark
+     */
+    public int getNodeCPUs(ITmfStateSystemBuilder ss) {
+        return getChildQuark(ss, ROOT_ATTRIBUTE, Attributes.CPUS);
+    }
+
+    /**
+     * Get the threads node
+     *
+     * @param ss
+     *            the state system
+     * @return the threads quark
+     */
+    public int getNodeThreads(ITmfStateSystemBuilder ss) {
+        return getChildQuark(ss, ROOT_ATTRIBUTE, Attributes.THREADS);
+    }
+
+    /**
+     * Gets the current CPU quark
+     *
+     * @param ss
+     *            the state system
+     * @param cpuNumber
+     *            The cpu number
+     * @return the current CPU quark
+     */
+    public int getCpuNode(ITmfStateSystemBuilder ss, int cpuNumber) {
+        return getChildQuark(ss, getNodeCPUs(ss), cpuNumber);
+    }
+
+    /**
+     * Get the IRQs node
+     *
+     * @param ss
+     *            the state system
+     * @param cpuNumber
+     *            the cpu core
+     * @return the IRQ node quark
+     */
+    public int getNodeIRQs(ITmfStateSystemBuilder ss, int cpuNumber) {
+        return getChildQuark(ss, getCpuNode(ss, cpuNumber), Attributes.IRQS);
+    }
+
+    /**
+     * Get the Soft IRQs node
+     *
+     * @param ss
+     *            the state system
+     * @param cpuNumber
+     *            the cpu core
+     * @return the Soft IRQ node quark
+     */
+    public int getNodeSoftIRQs(ITmfStateSystemBuilder ss, int cpuNumber) {
+        return getChildQuark(ss, getCpuNode(ss, cpuNumber), Attributes.SOFT_IRQS);
+    }
+
+    /**
+     * Get the node of a thread
+     *
+     * @param ss
+     *            the state system
+     * @param threadId
+     *            the thread ID
+     * @param cpuNumber
+     *            the cpu of the event, only used to distinguish the idle
+     *            threads (thread 0) of each CPU
+     * @return the thread node quark, or
+     *         {@link org.eclipse.tracecompass.statesystem.core.ITmfStateSystem#INVALID_ATTRIBUTE}
+     *         if the thread ID is zero and the cpu is null, see
+     *         {@link Attributes#buildThreadAttributeName}
+     */
+    public int getThreadNode(ITmfStateSystemBuilder ss, int threadId, @Nullable Integer cpuNumber) {
+        if (threadId != 0) {
+            return getChildQuark(ss, getNodeThreads(ss), threadId);
+        }
+        if (cpuNumber == null) {
+            return INVALID_ATTRIBUTE;
+        }
+        int quark = fIdleThreads.get(cpuNumber);
+        if (quark == INVALID_ATTRIBUTE) {
+            quark = ss.getQuarkRelativeAndAdd(getNodeThreads(ss), Attributes.THREAD_0_PREFIX + String.valueOf(cpuNumber));
+            fIdleThreads.put(cpuNumber, quark);
+        }
+        return quark;
+    }
+
+    /**
+     * Get the current thread node
+     *
+     * @param ss
+     *            the state system
+     * @param cpuNumber
+     *            The cpu number
+     * @return the current thread node quark
+     */
+    public int getCurrentThreadNode(ITmfStateSystemBuilder ss, int cpuNumber) {
+        /*
+         * Shortcut for the "current thread" attribute node. It requires
+         * querying the current CPU's current thread.
+         */
+        int quark = getChildQuark(ss, getCpuNode(ss, cpuNumber), Attributes.CURRENT_THREAD);
+        ITmfStateValue value = ss.queryOngoingState(quark);
+        int thread = value.isNull() ? -1 : value.unboxInt();
+        return getThreadNode(ss, thread, cpuNumber);
+    }
+
+    /**
+     * Quarks of the children having a given name, indexed by the quark of
+     * their parent
+     */
+    private static final class NamedChildren {
+        private final String fName;
+        /* Index 0 is the root attribute */
+        private int[] fQuarks = new int[0];
+
+        public NamedChildren(String name) {
+            fName = name;
+        }
+
+        public int get(ITmfStateSystemBuilder ss, int parent) {
+            int index = parent - ROOT_ATTRIBUTE;
+            if (index >= fQuarks.length) {
+                int length = fQuarks.length;
+                fQuarks = Arrays.copyOf(fQuarks, Math.max(index + 1, length * 2));
+                Arrays.fill(fQuarks, length, fQuarks.length, INVALID_ATTRIBUTE);
+            }
+            int quark = fQuarks[index];
+            if (quark == INVALID_ATTRIBUTE) {
+                quark = ss.getQuarkRelativeAndAdd(parent, fName);
+                fQuarks[index] = quark;
+            }
+            return quark;
+        }
+    }
+
+    /**
+     * Open addressing hash map of long keys to quarks, to avoid boxing the
+     * keys and values
+     */
+    private static final class QuarkMap {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] fKeys = new long[INITIAL_CAPACITY];
+        private int[] fValues = new int[INITIAL_CAPACITY];
+        private int fSize = 0;
+
+        public QuarkMap() {
+            Arrays.fill(fValues, INVALID_ATTRIBUTE);
+        }
+
+        public int get(long key) {
+            int mask = fKeys.length - 1;
+            for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+                int value = fValues[i];
+                if (value == INVALID_ATTRIBUTE || fKeys[i] == key) {
+                    return value;
+                }
+            }
+        }
+
+        public void put(long key, int value) {
+            if (2 * (fSize + 1) > fKeys.length) {
+                long[] keys = fKeys;
+                int[] values = fValues;
+                fKeys = new long[keys.length * 2];
+                fValues = new int[keys.length * 2];
+                Arrays.fill(fValues, INVALID_ATTRIBUTE);
+                fSize = 0;
+                for (int i = 0; i < keys.length; i++) {
+                    if (values[i] != INVALID_ATTRIBUTE) {
+                        put(keys[i], values[i]);
+                    }
+                }
+            }
+            int mask = fKeys.length - 1;
+            int i = hash(key) & mask;
+            while (fValues[i] != INVALID_ATTRIBUTE && fKeys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (fValues[i] == INVALID_ATTRIBUTE) {
+                fSize++;
+            }
+            fKeys[i] = key;
+            fValues[i] = value;
+        }
+
+        private static int hash(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+}
@@ -14,6 +14,7 @@ package org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers
 
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
@@ -29,9 +30,10 @@ public class PiSetprioHandler extends KernelEventHandler {
     /**
      * Constructor
      * @param layout event layout
+     * @param quarks the quark cache
      */
-    public PiSetprioHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public PiSetprioHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -41,15 +43,13 @@ public class PiSetprioHandler extends KernelEventHandler {
         Integer tid = ((Long) content.getField(getLayout().fieldTid()).getValue()).intValue();
         Integer prio = ((Long) content.getField(getLayout().fieldNewPrio()).getValue()).intValue();
 
-        String threadAttributeName = Attributes.buildThreadAttributeName(tid, cpu);
-        if (threadAttributeName == null) {
+        int updateThreadNode = getQuarks().getThreadNode(ss, tid, cpu);
+        if (updateThreadNode == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return;
         }
 
-        Integer updateThreadNode = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeThreads(ss), threadAttributeName);
-
         /* Set the current prio for the new process */
-        int quark = ss.getQuarkRelativeAndAdd(updateThreadNode, Attributes.PRIO);
+        int quark = getQuarks().getChildQuark(ss, updateThreadNode, Attributes.PRIO);
         ITmfStateValue value = TmfStateValue.newValueInt(prio);
         ss.modifyAttribute(KernelEventHandlerUtils.getTimestamp(event), value, quark);
     }
@@ -27,9 +27,11 @@ public class ProcessExitHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public ProcessExitHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public ProcessExitHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
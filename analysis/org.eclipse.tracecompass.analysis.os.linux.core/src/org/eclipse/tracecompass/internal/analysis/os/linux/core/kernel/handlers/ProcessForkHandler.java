@@ -15,6 +15,7 @@ package org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers
 import org.eclipse.tracecompass.analysis.os.linux.core.kernel.StateValues;
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
@@ -32,9 +33,11 @@ public class ProcessForkHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public ProcessForkHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public ProcessForkHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -46,29 +49,24 @@ public class ProcessForkHandler extends KernelEventHandler {
         Integer parentTid = ((Long) content.getField(getLayout().fieldParentTid()).getValue()).intValue();
         Integer childTid = ((Long) content.getField(getLayout().fieldChildTid()).getValue()).intValue();
 
-        String parentThreadAttributeName = Attributes.buildThreadAttributeName(parentTid, cpu);
-        if (parentThreadAttributeName == null) {
+        int parentTidNode = getQuarks().getThreadNode(ss, parentTid, cpu);
+        if (parentTidNode == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return;
         }
 
-        String childThreadAttributeName = Attributes.buildThreadAttributeName(childTid, cpu);
-        if (childThreadAttributeName == null) {
+        int childTidNode = getQuarks().getThreadNode(ss, childTid, cpu);
+        if (childTidNode == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return;
         }
 
-        final int threadsNode = KernelEventHandlerUtils.getNodeThreads(ss);
-        Integer parentTidNode = ss.getQuarkRelativeAndAdd(threadsNode, parentThreadAttributeName);
-        Integer childTidNode = ss.getQuarkRelativeAndAdd(threadsNode, childThreadAttributeName);
-
-
         /* Assign the PPID to the new process */
-        int quark = ss.getQuarkRelativeAndAdd(childTidNode, Attributes.PPID);
+        int quark = getQuarks().getChildQuark(ss, childTidNode, Attributes.PPID);
         ITmfStateValue value = TmfStateValue.newValueInt(parentTid);
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         ss.modifyAttribute(timestamp, value, quark);
 
         /* Set the new process' exec_name */
-        quark = ss.getQuarkRelativeAndAdd(childTidNode, Attributes.EXEC_NAME);
+        quark = getQuarks().getChildQuark(ss, childTidNode, Attributes.EXEC_NAME);
         value = TmfStateValue.newValueString(childProcessName);
         ss.modifyAttribute(timestamp, value, quark);
 
@@ -77,10 +75,10 @@ public class ProcessForkHandler extends KernelEventHandler {
         ss.modifyAttribute(timestamp, value, childTidNode);
 
         /* Set the process' syscall name, to be the same as the parent's */
-        quark = ss.getQuarkRelativeAndAdd(parentTidNode, Attributes.SYSTEM_CALL);
+        quark = getQuarks().getChildQuark(ss, parentTidNode, Attributes.SYSTEM_CALL);
         value = ss.queryOngoingState(quark);
         if (!value.isNull()) {
-            quark = ss.getQuarkRelativeAndAdd(childTidNode, Attributes.SYSTEM_CALL);
+            quark = getQuarks().getChildQuark(ss, childTidNode, Attributes.SYSTEM_CALL);
             ss.modifyAttribute(timestamp, value, quark);
         }
 
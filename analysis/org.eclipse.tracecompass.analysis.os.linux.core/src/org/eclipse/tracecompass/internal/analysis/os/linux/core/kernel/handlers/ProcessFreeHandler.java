@@ -13,7 +13,7 @@
 package org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers;
 
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
-import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
@@ -28,9 +28,11 @@ public class ProcessFreeHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public ProcessFreeHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public ProcessFreeHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -39,15 +41,14 @@ public class ProcessFreeHandler extends KernelEventHandler {
         Integer cpu = KernelEventHandlerUtils.getCpu(event);
         Integer tid = ((Long) event.getContent().getField(getLayout().fieldTid()).getValue()).intValue();
 
-        String threadAttributeName = Attributes.buildThreadAttributeName(tid, cpu);
-        if (threadAttributeName == null) {
+        int quark = getQuarks().getThreadNode(ss, tid, cpu);
+        if (quark == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return;
         }
 
         /*
          * Remove the process and all its sub-attributes from the current state
          */
-        int quark = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeThreads(ss), threadAttributeName);
         ss.removeAttribute(KernelEventHandlerUtils.getTimestamp(event), quark);
     }
 }
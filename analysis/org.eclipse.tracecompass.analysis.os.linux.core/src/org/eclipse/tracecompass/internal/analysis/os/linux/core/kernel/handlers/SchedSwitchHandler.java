@@ -35,9 +35,11 @@ public class SchedSwitchHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public SchedSwitchHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SchedSwitchHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -56,20 +58,16 @@ public class SchedSwitchHandler extends KernelEventHandler {
         Integer nextTid = ((Long) content.getField(getLayout().fieldNextTid()).getValue()).intValue();
         Integer nextPrio = ((Long) content.getField(getLayout().fieldNextPrio()).getValue()).intValue();
 
-        /* Will never return null since "cpu" is null checked */
-        String formerThreadAttributeName = Attributes.buildThreadAttributeName(prevTid, cpu);
-        String currenThreadAttributeName = Attributes.buildThreadAttributeName(nextTid, cpu);
-
-        int nodeThreads = KernelEventHandlerUtils.getNodeThreads(ss);
-        int formerThreadNode = ss.getQuarkRelativeAndAdd(nodeThreads, formerThreadAttributeName);
-        int newCurrentThreadNode = ss.getQuarkRelativeAndAdd(nodeThreads, currenThreadAttributeName);
+        /* Will never be invalid since "cpu" is null checked */
+        int formerThreadNode = getQuarks().getThreadNode(ss, prevTid, cpu);
+        int newCurrentThreadNode = getQuarks().getThreadNode(ss, nextTid, cpu);
 
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         /* Set the status of the process that got scheduled out. */
         setOldProcessStatus(ss, prevState, formerThreadNode, timestamp);
 
         /* Set the status of the new scheduled process */
-        KernelEventHandlerUtils.setProcessToRunning(timestamp, newCurrentThreadNode, ss);
+        KernelEventHandlerUtils.setProcessToRunning(timestamp, newCurrentThreadNode, ss, getQuarks());
 
         /* Set the exec name of the former process */
         setProcessExecName(ss, prevProcessName, formerThreadNode, timestamp);
@@ -84,7 +82,7 @@ public class SchedSwitchHandler extends KernelEventHandler {
         setProcessPrio(ss, nextPrio, newCurrentThreadNode, timestamp);
 
         /* Set the current scheduled process on the relevant CPU */
-        int currentCPUNode = KernelEventHandlerUtils.getCurrentCPUNode(cpu, ss);
+        int currentCPUNode = getQuarks().getCpuNode(ss, cpu);
         setCpuProcess(ss, nextTid, timestamp, currentCPUNode);
 
         /* Set the status of the CPU itself */
@@ -132,12 +130,12 @@ public class SchedSwitchHandler extends KernelEventHandler {
         return state == 0;
     }
 
-    private static void setCpuStatus(ITmfStateSystemBuilder ss, Integer nextTid, Integer newCurrentThreadNode, long timestamp, int currentCPUNode) {
+    private void setCpuStatus(ITmfStateSystemBuilder ss, Integer nextTid, Integer newCurrentThreadNode, long timestamp, int currentCPUNode) {
         int quark;
         ITmfStateValue value;
         if (nextTid > 0) {
             /* Check if the entering process is in kernel or user mode */
-            quark = ss.getQuarkRelativeAndAdd(newCurrentThreadNode, Attributes.SYSTEM_CALL);
+            quark = getQuarks().getChildQuark(ss, newCurrentThreadNode, Attributes.SYSTEM_CALL);
             ITmfStateValue queryOngoingState = ss.queryOngoingState(quark);
             if (queryOngoingState.isNull()) {
                 value = StateValues.CPU_STATUS_RUN_USERMODE_VALUE;
@@ -150,26 +148,26 @@ public class SchedSwitchHandler extends KernelEventHandler {
         ss.modifyAttribute(timestamp, value, currentCPUNode);
     }
 
-    private static void setCpuProcess(ITmfStateSystemBuilder ss, Integer nextTid, long timestamp, int currentCPUNode) {
+    private void setCpuProcess(ITmfStateSystemBuilder ss, Integer nextTid, long timestamp, int currentCPUNode) {
         int quark;
         ITmfStateValue value;
-        quark = ss.getQuarkRelativeAndAdd(currentCPUNode, Attributes.CURRENT_THREAD);
+        quark = getQuarks().getChildQuark(ss, currentCPUNode, Attributes.CURRENT_THREAD);
         value = TmfStateValue.newValueInt(nextTid);
         ss.modifyAttribute(timestamp, value, quark);
     }
 
-    private static void setProcessPrio(ITmfStateSystemBuilder ss, Integer prio, Integer threadNode, long timestamp) {
+    private void setProcessPrio(ITmfStateSystemBuilder ss, Integer prio, Integer threadNode, long timestamp) {
         int quark;
         ITmfStateValue value;
-        quark = ss.getQuarkRelativeAndAdd(threadNode, Attributes.PRIO);
+        quark = getQuarks().getChildQuark(ss, threadNode, Attributes.PRIO);
         value = TmfStateValue.newValueInt(prio);
         ss.modifyAttribute(timestamp, value, quark);
     }
 
-    private static void setProcessExecName(ITmfStateSystemBuilder ss, String processName, Integer threadNode, long timestamp) {
+    private void setProcessExecName(ITmfStateSystemBuilder ss, String processName, Integer threadNode, long timestamp) {
         int quark;
         ITmfStateValue value;
-        quark = ss.getQuarkRelativeAndAdd(threadNode, Attributes.EXEC_NAME);
+        quark = getQuarks().getChildQuark(ss, threadNode, Attributes.EXEC_NAME);
         value = TmfStateValue.newValueString(processName);
         ss.modifyAttribute(timestamp, value, quark);
     }
@@ -15,6 +15,7 @@ package org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.handlers
 import org.eclipse.tracecompass.analysis.os.linux.core.kernel.StateValues;
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
@@ -33,9 +34,10 @@ public class SchedWakeupHandler extends KernelEventHandler {
     /**
      * Constructor
      * @param layout event layout
+     * @param quarks the quark cache
      */
-    public SchedWakeupHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SchedWakeupHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -44,13 +46,11 @@ public class SchedWakeupHandler extends KernelEventHandler {
         final int tid = ((Long) event.getContent().getField(getLayout().fieldTid()).getValue()).intValue();
         final int prio = ((Long) event.getContent().getField(getLayout().fieldPrio()).getValue()).intValue();
 
-        String threadAttributeName = Attributes.buildThreadAttributeName(tid, cpu);
-        if (threadAttributeName == null) {
+        final int threadNode = getQuarks().getThreadNode(ss, tid, cpu);
+        if (threadNode == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return;
         }
 
-        final int threadNode = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeThreads(ss), threadAttributeName);
-
         /*
          * The process indicated in the event's payload is now ready to run.
          * Assign it to the "wait for cpu" state, but only if it was not already
@@ -69,7 +69,7 @@ public class SchedWakeupHandler extends KernelEventHandler {
          * When a user changes a threads prio (e.g. with pthread_setschedparam),
          * it shows in ftrace with a sched_wakeup.
          */
-        int quark = ss.getQuarkRelativeAndAdd(threadNode, Attributes.PRIO);
+        int quark = getQuarks().getChildQuark(ss, threadNode, Attributes.PRIO);
         value = TmfStateValue.newValueInt(prio);
         ss.modifyAttribute(timestamp, value, quark);
     }
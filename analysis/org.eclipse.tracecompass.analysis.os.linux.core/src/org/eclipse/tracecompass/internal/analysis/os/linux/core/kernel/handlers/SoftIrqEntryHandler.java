@@ -29,9 +29,11 @@ public class SoftIrqEntryHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public SoftIrqEntryHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SoftIrqEntryHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -43,13 +45,13 @@ public class SoftIrqEntryHandler extends KernelEventHandler {
 
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         Integer softIrqId = ((Long) event.getContent().getField(getLayout().fieldVec()).getValue()).intValue();
-        int currentCPUNode = KernelEventHandlerUtils.getCurrentCPUNode(cpu, ss);
-        int currentThreadNode = KernelEventHandlerUtils.getCurrentThreadNode(cpu, ss);
+        int currentCPUNode = getQuarks().getCpuNode(ss, cpu);
+        int currentThreadNode = getQuarks().getCurrentThreadNode(ss, cpu);
 
         /*
          * Mark this SoftIRQ as active in the resource tree.
          */
-        int quark = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeSoftIRQs(cpu, ss), softIrqId.toString());
+        int quark = getQuarks().getChildQuark(ss, getQuarks().getNodeSoftIRQs(ss, cpu), softIrqId);
         ITmfStateValue value = StateValues.CPU_STATUS_SOFTIRQ_VALUE;
         ss.modifyAttribute(timestamp, value, quark);
 
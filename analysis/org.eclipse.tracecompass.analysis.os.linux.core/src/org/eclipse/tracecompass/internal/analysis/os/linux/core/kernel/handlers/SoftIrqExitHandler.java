@@ -33,9 +33,11 @@ public class SoftIrqExitHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public SoftIrqExitHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SoftIrqExitHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -46,9 +48,9 @@ public class SoftIrqExitHandler extends KernelEventHandler {
         }
 
         Integer softIrqId = ((Long) event.getContent().getField(getLayout().fieldVec()).getValue()).intValue();
-        int currentThreadNode = KernelEventHandlerUtils.getCurrentThreadNode(cpu, ss);
+        int currentThreadNode = getQuarks().getCurrentThreadNode(ss, cpu);
         /* Put this SoftIRQ back to inactive (= -1) in the resource tree */
-        int quark = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeSoftIRQs(cpu, ss), softIrqId.toString());
+        int quark = getQuarks().getChildQuark(ss, getQuarks().getNodeSoftIRQs(ss, cpu), softIrqId);
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         if (isSoftIrqRaised(ss.queryOngoingState(quark))) {
             ss.modifyAttribute(timestamp, StateValues.SOFT_IRQ_RAISED_VALUE, quark);
@@ -63,10 +65,10 @@ public class SoftIrqExitHandler extends KernelEventHandler {
             }
         }
         /* Set the previous process back to running */
-        KernelEventHandlerUtils.setProcessToRunning(timestamp, currentThreadNode, ss);
+        KernelEventHandlerUtils.setProcessToRunning(timestamp, currentThreadNode, ss, getQuarks());
 
         /* Set the CPU status back to "busy" or "idle" */
-        KernelEventHandlerUtils.cpuExitInterrupt(timestamp, cpu, ss);
+        KernelEventHandlerUtils.cpuExitInterrupt(timestamp, cpu, ss, getQuarks());
     }
 
     /**
@@ -30,9 +30,11 @@ public class SoftIrqRaiseHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public SoftIrqRaiseHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SoftIrqRaiseHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -45,7 +47,7 @@ public class SoftIrqRaiseHandler extends KernelEventHandler {
         /*
          * Mark this SoftIRQ as *raised* in the resource tree.
          */
-        int quark = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeSoftIRQs(cpu, ss), softIrqId.toString());
+        int quark = getQuarks().getChildQuark(ss, getQuarks().getNodeSoftIRQs(ss, cpu), softIrqId);
 
         ITmfStateValue value = (isInSoftirq(ss.queryOngoingState(quark)) ?
                 StateValues.SOFT_IRQ_RAISED_RUNNING_VALUE :
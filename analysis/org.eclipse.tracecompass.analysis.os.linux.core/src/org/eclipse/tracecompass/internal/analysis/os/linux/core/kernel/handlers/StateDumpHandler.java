@@ -18,6 +18,7 @@ import org.eclipse.tracecompass.analysis.os.linux.core.kernel.LinuxValues;
 import org.eclipse.tracecompass.analysis.os.linux.core.kernel.StateValues;
 import org.eclipse.tracecompass.analysis.os.linux.core.trace.IKernelAnalysisEventLayout;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.kernel.Attributes;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
@@ -35,9 +36,11 @@ public class StateDumpHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public StateDumpHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public StateDumpHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -54,12 +57,10 @@ public class StateDumpHandler extends KernelEventHandler {
          * with anything relevant for now.
          */
 
-        String threadAttributeName = Attributes.buildThreadAttributeName(tid, cpu);
-        if (threadAttributeName == null) {
+        int curThreadNode = getQuarks().getThreadNode(ss, tid, cpu);
+        if (curThreadNode == ITmfStateSystem.INVALID_ATTRIBUTE) {
             return;
         }
-
-        int curThreadNode = ss.getQuarkRelativeAndAdd(KernelEventHandlerUtils.getNodeThreads(ss), threadAttributeName);
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         /* Set the process' name */
         setProcessName(ss, name, curThreadNode, timestamp);
@@ -94,10 +95,10 @@ public class StateDumpHandler extends KernelEventHandler {
         }
     }
 
-    private static void setPpid(ITmfStateSystemBuilder ss, int tid, int pid, int ppid, int curThreadNode, long timestamp) {
+    private void setPpid(ITmfStateSystemBuilder ss, int tid, int pid, int ppid, int curThreadNode, long timestamp) {
         ITmfStateValue value;
         int quark;
-        quark = ss.getQuarkRelativeAndAdd(curThreadNode, Attributes.PPID);
+        quark = getQuarks().getChildQuark(ss, curThreadNode, Attributes.PPID);
         if (ss.queryOngoingState(quark).isNull()) {
             if (pid == tid) {
                 /* We have a process. Use the 'PPID' field. */
@@ -110,9 +111,9 @@ public class StateDumpHandler extends KernelEventHandler {
         }
     }
 
-    private static void setProcessName(ITmfStateSystemBuilder ss, String name, int curThreadNode, long timestamp) {
+    private void setProcessName(ITmfStateSystemBuilder ss, String name, int curThreadNode, long timestamp) {
         ITmfStateValue value;
-        int quark = ss.getQuarkRelativeAndAdd(curThreadNode, Attributes.EXEC_NAME);
+        int quark = getQuarks().getChildQuark(ss, curThreadNode, Attributes.EXEC_NAME);
         if (ss.queryOngoingState(quark).isNull()) {
             /* If the value didn't exist previously, set it */
             value = TmfStateValue.newValueString(name);
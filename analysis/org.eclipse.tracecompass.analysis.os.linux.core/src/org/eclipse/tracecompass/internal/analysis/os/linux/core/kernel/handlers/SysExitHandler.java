@@ -31,9 +31,11 @@ public class SysExitHandler extends KernelEventHandler {
      *
      * @param layout
      *            event layout
+     * @param quarks
+     *            the quark cache
      */
-    public SysExitHandler(IKernelAnalysisEventLayout layout) {
-        super(layout);
+    public SysExitHandler(IKernelAnalysisEventLayout layout, KernelQuarkCache quarks) {
+        super(layout, quarks);
     }
 
     @Override
@@ -43,8 +45,8 @@ public class SysExitHandler extends KernelEventHandler {
             return;
         }
         /* Assign the new system call to the process */
-        int currentThreadNode = KernelEventHandlerUtils.getCurrentThreadNode(cpu, ss);
-        int quark = ss.getQuarkRelativeAndAdd(currentThreadNode, Attributes.SYSTEM_CALL);
+        int currentThreadNode = getQuarks().getCurrentThreadNode(ss, cpu);
+        int quark = getQuarks().getChildQuark(ss, currentThreadNode, Attributes.SYSTEM_CALL);
         ITmfStateValue value = TmfStateValue.nullValue();
         long timestamp = KernelEventHandlerUtils.getTimestamp(event);
         ss.modifyAttribute(timestamp, value, quark);
@@ -54,7 +56,7 @@ public class SysExitHandler extends KernelEventHandler {
         ss.modifyAttribute(timestamp, value, currentThreadNode);
 
         /* Put the CPU in system call (kernel) mode */
-        int currentCPUNode = KernelEventHandlerUtils.getCurrentCPUNode(cpu, ss);
+        int currentCPUNode = getQuarks().getCpuNode(ss, cpu);
         value = StateValues.CPU_STATUS_RUN_USERMODE_VALUE;
         ss.modifyAttribute(timestamp, value, currentCPUNode);
     }
@@ -79,6 +79,7 @@ import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeEvent;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeGraphEntry;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.NullTimeEvent;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeEvent;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeEventList;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeGraphEntry;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeLinkEvent;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.widgets.TimeGraphControl;
@@ -858,7 +859,7 @@ public class ControlFlowView extends AbstractStateSystemTimeGraphView {
         ControlFlowEntry entry = (ControlFlowEntry) tgentry;
         try {
             int statusQuark = entry.getThreadQuark();
-            eventList = new ArrayList<>(fullStates.size());
+            eventList = new TimeEventList(entry, fullStates.size());
             ITmfStateInterval lastInterval = prevFullState == null || statusQuark >= prevFullState.size() ? null : prevFullState.get(statusQuark);
             long lastStartTime = lastInterval == null ? -1 : lastInterval.getStartTime();
             long lastEndTime = lastInterval == null ? -1 : lastInterval.getEndTime() + 1;
@@ -12,10 +12,7 @@
 
 package org.eclipse.tracecompass.internal.analysis.os.linux.ui.views.cpuusage;
 
-import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
-
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -132,53 +129,21 @@ public class CpuUsageXYViewer extends TmfCommonXLineChartViewer {
                 complete = ss.waitUntilBuilt(BUILD_UPDATE_TIMEOUT);
                 currentEnd = ss.getCurrentEndTime();
 
-                /* Initialize the data */
-                Map<String, Long> cpuUsageMap = fModule.getCpuUsageInRange(fCpus, Math.max(start, traceStart), Math.min(end, traceEnd));
-                Map<String, String> totalEntries = new HashMap<>();
-                fYValues.clear();
-                fYValues.put(Messages.CpuUsageXYViewer_Total, zeroFill(xvalues.length));
-                String stringSelectedThread = Long.toString(selectedThread);
-                if (selectedThread != NOT_SELECTED) {
-                    fYValues.put(stringSelectedThread, zeroFill(xvalues.length));
-                }
-
-                for (Entry<String, Long> entry : cpuUsageMap.entrySet()) {
-                    /*
-                     * Process only entries representing the total of all CPUs
-                     * and that have time on CPU
-                     */
-                    if (entry.getValue() == 0) {
-                        continue;
-                    }
-                    if (!entry.getKey().startsWith(KernelCpuUsageAnalysis.TOTAL)) {
-                        continue;
-                    }
-                    String[] strings = entry.getKey().split(KernelCpuUsageAnalysis.SPLIT_STRING, 2);
-
-                    if ((strings.length > 1) && !(strings[1].equals(KernelCpuUsageAnalysis.TID_ZERO))) {
-                        /* This is the total cpu usage for a thread */
-                        totalEntries.put(strings[1], entry.getKey());
-                    }
-                }
-
-                double prevX = xvalues[0] - 1;
-                long prevTime = (long) prevX + offset;
                 /*
-                 * make sure that time is in the trace range after double to
-                 * long conversion
+                 * Compute the time range of each sample, making sure that time
+                 * is in the trace range after double to long conversion. Each
+                 * sample starts where the previous one ends.
                  */
+                long[] startTimes = new long[xvalues.length];
+                long[] endTimes = new long[xvalues.length];
+                long prevTime = (long) (xvalues[0] - 1) + offset;
                 prevTime = Math.max(traceStart, prevTime);
                 prevTime = Math.min(traceEnd, prevTime);
-                /* Get CPU usage statistics for each x value */
                 for (int i = 0; i < xvalues.length; i++) {
-                    if (monitor.isCanceled()) {
-                        return;
-                    }
-                    long totalCpu = 0;
-                    double x = xvalues[i];
-                    long time = (long) x + offset;
+                    long time = (long) xvalues[i] + offset;
                     time = Math.max(traceStart, time);
                     time = Math.min(traceEnd, time);
+                    time = Math.max(prevTime, time);
                     if (time == prevTime) {
                         /*
                          * we need at least 1 time unit to be able to get cpu
@@ -186,29 +151,39 @@ public class CpuUsageXYViewer extends TmfCommonXLineChartViewer {
                          */
                         prevTime = time - 1;
                     }
+                    startTimes[i] = prevTime;
+                    endTimes[i] = time;
+                    prevTime = time;
+                }
 
-                    cpuUsageMap = fModule.getCpuUsageInRange(fCpus, prevTime, time);
-
-                    /*
-                     * Calculate the sum of all total entries, and add a data
-                     * point to the selected one
-                     */
-                    for (Entry<String, String> entry : totalEntries.entrySet()) {
-                        Long cpuEntry = cpuUsageMap.get(entry.getValue());
-                        cpuEntry = cpuEntry != null ? cpuEntry : 0L;
-
-                        totalCpu += cpuEntry;
-
-                        if (entry.getKey().equals(stringSelectedThread)) {
-                            /* This is the total cpu usage for a thread */
-                            double[] key = checkNotNull(fYValues.get(entry.getKey()));
-                            key[i] = (double) cpuEntry / (double) (time - prevTime) * 100;
-                        }
+                /* Get CPU usage statistics for all x values in one pass */
+                Map<String, long[]> cpuUsageMap = fModule.getCpuUsageSamples(fCpus, startTimes, endTimes);
+                if (monitor.isCanceled()) {
+                    return;
+                }
+                fYValues.clear();
+                double[] totalValues = zeroFill(xvalues.length);
+                fYValues.put(Messages.CpuUsageXYViewer_Total, totalValues);
+                String stringSelectedThread = Long.toString(selectedThread);
+                double[] selectedValues = null;
+                if (selectedThread != NOT_SELECTED) {
+                    selectedValues = zeroFill(xvalues.length);
+                    fYValues.put(stringSelectedThread, selectedValues);
+                }
 
+                /* The total does not include the idle threads */
+                long[] totalUsage = cpuUsageMap.get(KernelCpuUsageAnalysis.TOTAL);
+                long[] idleUsage = cpuUsageMap.get(KernelCpuUsageAnalysis.TID_ZERO);
+                long[] selectedUsage = cpuUsageMap.get(stringSelectedThread);
+                for (int i = 0; i < xvalues.length; i++) {
+                    double duration = endTimes[i] - startTimes[i];
+                    if (totalUsage != null) {
+                        long totalCpu = totalUsage[i] - (idleUsage != null ? idleUsage[i] : 0);
+                        totalValues[i] = totalCpu / duration * 100;
+                    }
+                    if (selectedValues != null && selectedUsage != null) {
+                        selectedValues[i] = selectedUsage[i] / duration * 100;
                     }
-                    double[] key = checkNotNull(fYValues.get(Messages.CpuUsageXYViewer_Total));
-                    key[i] = (double) totalCpu / (double) (time - prevTime) * 100;
-                    prevTime = time;
                 }
                 for (Entry<String, double[]> entry : fYValues.entrySet()) {
                     setSeries(entry.getKey(), entry.getValue());
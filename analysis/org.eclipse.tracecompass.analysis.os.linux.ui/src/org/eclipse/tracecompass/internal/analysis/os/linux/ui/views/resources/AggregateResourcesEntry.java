@@ -90,6 +90,12 @@ class AggregateResourcesEntry extends ResourcesEntry {
     public void addZoomedEvent(ITimeEvent event) {
     }
 
+    @Override
+    public long getTimeEventsRevision() {
+        /* The time events are those of the contributors */
+        return -1;
+    }
+
     @Override
     public Iterator<@NonNull ITimeEvent> getTimeEventsIterator() {
         return new AggregateEventIterator(fContributors, COMPARATOR);
@@ -13,7 +13,6 @@
 
 package org.eclipse.tracecompass.internal.analysis.os.linux.ui.views.resources;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -47,6 +46,7 @@ import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeEvent;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeGraphEntry;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.NullTimeEvent;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeEvent;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeEventList;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeGraphEntry;
 
 /**
@@ -347,7 +347,7 @@ public class ResourcesView extends AbstractStateSystemTimeGraphView {
     private static List<ITimeEvent> createCpuEventsList(ITimeGraphEntry entry, List<List<ITmfStateInterval>> fullStates, List<ITmfStateInterval> prevFullState, IProgressMonitor monitor, int quark) {
         List<ITimeEvent> eventList;
         boolean isZoomThread = Thread.currentThread() instanceof ZoomThread;
-        eventList = new ArrayList<>(fullStates.size());
+        eventList = new TimeEventList(entry, fullStates.size());
         ITmfStateInterval lastInterval = prevFullState == null || quark >= prevFullState.size() ? null : prevFullState.get(quark);
         long lastStartTime = lastInterval == null ? -1 : lastInterval.getStartTime();
         long lastEndTime = lastInterval == null ? -1 : lastInterval.getEndTime() + 1;
@@ -383,7 +383,7 @@ public class ResourcesView extends AbstractStateSystemTimeGraphView {
     private static List<ITimeEvent> createIrqEventsList(ITimeGraphEntry entry, List<List<ITmfStateInterval>> fullStates, List<ITmfStateInterval> prevFullState, IProgressMonitor monitor, int quark) {
         List<ITimeEvent> eventList;
         boolean isZoomThread = Thread.currentThread() instanceof ZoomThread;
-        eventList = new ArrayList<>(fullStates.size());
+        eventList = new TimeEventList(entry, fullStates.size());
         ITmfStateInterval lastInterval = prevFullState == null || quark >= prevFullState.size() ? null : prevFullState.get(quark);
         long lastStartTime = lastInterval == null ? -1 : lastInterval.getStartTime();
         long lastEndTime = lastInterval == null ? -1 : lastInterval.getEndTime() + 1;
@@ -15,12 +15,16 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.analysis.timing.core.segmentstore.statistics.AbstractSegmentStatisticsAnalysis;
 import org.eclipse.tracecompass.analysis.timing.core.statistics.IStatistics;
+import org.eclipse.tracecompass.analysis.timing.core.statistics.Statistics;
+import org.eclipse.tracecompass.segmentstore.core.BasicSegment;
 import org.eclipse.tracecompass.segmentstore.core.ISegment;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
@@ -172,6 +176,58 @@ public class AbstractStatsAnalysisTest {
         fixture.dispose();
     }
 
+    /**
+     * Test the statistics of ranges against statistics computed on every
+     * segment of the ranges
+     *
+     * @throws TmfAnalysisException
+     *             should not happen
+     */
+    @Test
+    public void testRangeStatsMatchSegments() throws TmfAnalysisException {
+        TmfXmlTraceStub trace = new TmfXmlTraceStubNs();
+        StubSegmentStatisticsAnalysis fixture = getValidSegmentStats(trace);
+        long[][] ranges = { { 0, 0 }, { 1, 1 }, { 100, 1100 }, { 5000, 5000 }, { 12345, 54321 },
+                { 0, StubSegmentStatisticsAnalysis.SIZE }, { 70000, 130000 }, { 130000, 200000 }, { -10, 10 } };
+        for (long[] range : ranges) {
+            long start = range[0];
+            long end = range[1];
+            IStatistics<@NonNull ISegment> expected = new Statistics<>(ISegment::getLength);
+            Map<String, IStatistics<@NonNull ISegment>> expectedPerType = new HashMap<>();
+            for (int i = 0; i < StubSegmentStatisticsAnalysis.SIZE; i++) {
+                ISegment segment = new BasicSegment(i, i + i);
+                if (segment.getStart() <= end && segment.getEnd() >= start) {
+                    expected.update(segment);
+                    String type = segment.getLength() % 2 == 0 ? "even" : "odd";
+                    expectedPerType.computeIfAbsent(type, t -> new Statistics<>(ISegment::getLength)).update(segment);
+                }
+            }
+            IStatistics<@NonNull ISegment> stats = fixture.getStatsForRange(start, end, new NullProgressMonitor());
+            assertNotNull(stats);
+            assertStatsEquals(expected, stats);
+            Map<@NonNull String, IStatistics<@NonNull ISegment>> perTypeStats = fixture.getStatsPerTypeForRange(start, end, new NullProgressMonitor());
+            assertEquals(expectedPerType.keySet(), perTypeStats.keySet());
+            for (Entry<String, IStatistics<@NonNull ISegment>> entry : expectedPerType.entrySet()) {
+                IStatistics<@NonNull ISegment> typeStats = perTypeStats.get(entry.getKey());
+                assertNotNull(typeStats);
+                assertStatsEquals(entry.getValue(), typeStats);
+            }
+        }
+        trace.dispose();
+        fixture.dispose();
+    }
+
+    private static void assertStatsEquals(IStatistics<@NonNull ISegment> expected, IStatistics<@NonNull ISegment> actual) {
+        assertEquals(expected.getNbElements(), actual.getNbElements());
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+        assertEquals(expected.getTotal(), actual.getTotal(), 0.000001 * Math.abs(expected.getTotal()));
+        assertEquals(expected.getMean(), actual.getMean(), 0.000001 * Math.abs(expected.getMean()));
+        if (expected.getNbElements() > 2) {
+            assertEquals(expected.getStdDev(), actual.getStdDev(), 0.000001 * expected.getStdDev());
+        }
+    }
+
     /**
      * Test the cancel operation
      *
@@ -58,6 +58,8 @@ public abstract class AbstractStatisticsTest<@NonNull E> {
 
     private static final double ERROR = 0.000001;
     private static final double APPROX_ERROR = 0.0001;
+    private static final double PERCENTILE_ERROR = 1.0 / 64;
+    private static final double[] PERCENTILES = { 0, 1, 50, 90, 99, 99.9, 100 };
 
     private final @Nullable Function<@NonNull E, @NonNull Long> fMapper;
 
@@ -109,6 +111,10 @@ public abstract class AbstractStatisticsTest<@NonNull E> {
         assertEquals("Min Element", expected.getMinObject(), toBeTested.getMinObject());
         assertEquals("Max Element", expected.getMaxObject(), toBeTested.getMaxObject());
         assertEquals("Standard Deviation", expected.getStdDev(), toBeTested.getStdDev(), APPROX_ERROR * expected.getStdDev());
+        for (double percentile : PERCENTILES) {
+            double value = expected.getPercentile(percentile);
+            assertEquals("Percentile " + percentile, value, toBeTested.getPercentile(percentile), PERCENTILE_ERROR * Math.abs(value) + 1);
+        }
     }
 
     /**
@@ -150,6 +156,7 @@ public abstract class AbstractStatisticsTest<@NonNull E> {
         assertNull(stats.getMaxObject());
         assertEquals("Nb objects", 0, stats.getNbElements());
         assertEquals("Total", 0, stats.getTotal(), ERROR);
+        assertEquals("Median", Double.NaN, stats.getPercentile(50), ERROR);
     }
 
     /**
@@ -171,6 +178,8 @@ public abstract class AbstractStatisticsTest<@NonNull E> {
         assertEquals("Min", 0, sss.getMin());
         assertEquals("Max", MEDIUM_AMOUNT_OF_SEGMENTS, sss.getMax());
         assertEquals("Standard Deviation", 29.3, sss.getStdDev(), 0.02);
+        assertEquals("Median", 50, sss.getPercentile(50), ERROR);
+        assertEquals("90th percentile", 90, sss.getPercentile(90), 1);
 
         // Compare with an offline algorithm
         testOnlineVsOffline(fixture);
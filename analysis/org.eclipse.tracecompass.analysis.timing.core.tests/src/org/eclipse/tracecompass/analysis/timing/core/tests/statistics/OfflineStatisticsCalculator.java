@@ -9,6 +9,7 @@
 
 package org.eclipse.tracecompass.analysis.timing.core.tests.statistics;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.NoSuchElementException;
 import java.util.function.Function;
@@ -159,6 +160,26 @@ public class OfflineStatisticsCalculator<@NonNull E> implements IStatistics<E> {
         return total;
     }
 
+    /**
+     * Get the exact value at a percentile, using the nearest rank
+     *
+     * @return the value at the percentile
+     */
+    @Override
+    public double getPercentile(double percentile) {
+        if (fElements.isEmpty()) {
+            return Double.NaN;
+        }
+        long[] values = new long[fElements.size()];
+        int i = 0;
+        for (E element : fElements) {
+            values[i++] = fMapper.apply(element);
+        }
+        Arrays.sort(values);
+        int rank = (int) Math.ceil(percentile / 100 * values.length);
+        return values[Math.max(0, Math.min(values.length - 1, rank - 1))];
+    }
+
     @Override
     public long getNbElements() {
         return fElements.size();
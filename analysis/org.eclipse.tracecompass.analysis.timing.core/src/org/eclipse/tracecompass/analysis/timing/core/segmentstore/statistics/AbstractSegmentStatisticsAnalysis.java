@@ -23,6 +23,7 @@ import org.eclipse.tracecompass.analysis.timing.core.statistics.IStatistics;
 import org.eclipse.tracecompass.analysis.timing.core.statistics.Statistics;
 import org.eclipse.tracecompass.segmentstore.core.ISegment;
 import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+import org.eclipse.tracecompass.segmentstore.core.SegmentStoreFactory;
 import org.eclipse.tracecompass.tmf.core.analysis.IAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.analysis.TmfAbstractAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
@@ -46,6 +47,8 @@ public abstract class AbstractSegmentStatisticsAnalysis extends TmfAbstractAnaly
 
     private Map<String, IStatistics<ISegment>> fPerSegmentTypeStats = new HashMap<>();
 
+    private @Nullable SegmentStatisticsIndex fIndex;
+
     @Override
     protected Iterable<IAnalysisModule> getDependentAnalyses() {
         ITmfTrace trace = getTrace();
@@ -65,19 +68,35 @@ public abstract class AbstractSegmentStatisticsAnalysis extends TmfAbstractAnaly
             return false;
         }
 
-        IStatistics<ISegment> totalStats = getTotalStats(TmfTimeRange.ETERNITY.getStartTime().toNanos(), TmfTimeRange.ETERNITY.getEndTime().toNanos(), monitor);
-        if (totalStats == null) {
+        if (fSegmentStoreProviderModule == null) {
             return false;
         }
+        ISegmentStore<@NonNull ISegment> store = getSegmentStore();
+        if (store == null) {
+            /* No segments, the statistics are empty */
+            store = SegmentStoreFactory.createSegmentStore();
+        }
 
-        Map<String, IStatistics<ISegment>> perTypeStats = getPerTypeStats(TmfTimeRange.ETERNITY.getStartTime().toNanos(), TmfTimeRange.ETERNITY.getEndTime().toNanos(), monitor);
-        fTotalStats = totalStats;
-        fPerSegmentTypeStats = perTypeStats;
+        /*
+         * Compute the statistics of the whole segment store, and the index
+         * used for the statistics of time ranges, in a single pass
+         */
+        SegmentStatisticsIndex index = SegmentStatisticsIndex.build(store, this::getSegmentType, FCT_LENGTH, monitor);
+        if (index == null) {
+            return false;
+        }
+        fTotalStats = index.getTotalStats();
+        fPerSegmentTypeStats = index.getPerTypeStats();
+        fIndex = index;
 
         return true;
     }
 
     private @Nullable IStatistics<ISegment> getTotalStats(long start, long end, IProgressMonitor monitor) {
+        SegmentStatisticsIndex index = fIndex;
+        if (index != null && start <= end) {
+            return index.getTotalStats(start, end, monitor);
+        }
         Iterable<@NonNull ISegment> store = getSegmentStore(start, end);
         if (store == null) {
             return null;
@@ -137,6 +156,11 @@ public abstract class AbstractSegmentStatisticsAnalysis extends TmfAbstractAnaly
     }
 
     private Map<@NonNull String, org.eclipse.tracecompass.analysis.timing.core.statistics.IStatistics<ISegment>> getPerTypeStats(long start, long end, IProgressMonitor monitor) {
+        SegmentStatisticsIndex index = fIndex;
+        if (index != null && start <= end) {
+            Map<String, IStatistics<ISegment>> stats = index.getPerTypeStats(start, end, monitor);
+            return (stats == null ? Collections.EMPTY_MAP : stats);
+        }
         Iterable<@NonNull ISegment> store = getSegmentStore(start, end);
         if (monitor.isCanceled() || store == null) {
             return Collections.EMPTY_MAP;
@@ -202,6 +226,20 @@ public abstract class AbstractSegmentStatisticsAnalysis extends TmfAbstractAnaly
      * @return The segment store
      */
     private @Nullable Iterable<@NonNull ISegment> getSegmentStore(long start, long end) {
+        if (fSegmentStoreProviderModule == null) {
+            return null;
+        }
+        ISegmentStore<@NonNull ISegment> segmentStore = getSegmentStore();
+        return segmentStore != null ? start != TmfTimeRange.ETERNITY.getStartTime().toNanos() || end != TmfTimeRange.ETERNITY.getEndTime().toNanos() ? (Iterable<@NonNull ISegment>) segmentStore.getIntersectingElements(start, end) : segmentStore
+                : Collections.EMPTY_LIST;
+    }
+
+    /**
+     * Get the complete segment store, once its analysis is completed
+     *
+     * @return The segment store, or null if there is none
+     */
+    private @Nullable ISegmentStore<@NonNull ISegment> getSegmentStore() {
         ISegmentStoreProvider segmentStoreProviderModule = fSegmentStoreProviderModule;
         if (segmentStoreProviderModule == null) {
             return null;
@@ -209,10 +247,7 @@ public abstract class AbstractSegmentStatisticsAnalysis extends TmfAbstractAnaly
         if (segmentStoreProviderModule instanceof IAnalysisModule) {
             ((IAnalysisModule) segmentStoreProviderModule).waitForCompletion();
         }
-
-        ISegmentStore<@NonNull ISegment> segmentStore = segmentStoreProviderModule.getSegmentStore();
-        return segmentStore != null ? start != TmfTimeRange.ETERNITY.getStartTime().toNanos() || end != TmfTimeRange.ETERNITY.getEndTime().toNanos() ? (Iterable<@NonNull ISegment>) segmentStore.getIntersectingElements(start, end) : segmentStore
-                : Collections.EMPTY_LIST;
+        return segmentStoreProviderModule.getSegmentStore();
     }
 
     private static @Nullable IStatistics<ISegment> calculateTotalManual(Iterable<@NonNull ISegment> segments, IProgressMonitor monitor) {
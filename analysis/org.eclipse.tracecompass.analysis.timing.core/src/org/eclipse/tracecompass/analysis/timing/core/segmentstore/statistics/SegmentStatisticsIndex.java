@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.analysis.timing.core.segmentstore.statistics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.analysis.timing.core.statistics.IStatistics;
+import org.eclipse.tracecompass.analysis.timing.core.statistics.Statistics;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+
+/**
+ * Index of the statistics of a complete segment store, to compute the
+ * statistics of a time range without going through every segment of the
+ * range.
+ * <p>
+ * The segments are grouped in buckets of equal duration according to their
+ * start time, and the statistics of each bucket are kept, along with merged
+ * statistics for groups of {@link #FANOUT} buckets at each upper level. Only
+ * these statistics are kept, not the segments. A range query merges the few
+ * summaries that cover the buckets completely inside the range, and reads
+ * back from the segment store only the segments at the edges of the range:
+ * those starting in the two partial buckets, or before the range but
+ * overlapping it.
+ */
+final class SegmentStatisticsIndex {
+
+    private static final int MAX_BUCKETS = 4096;
+    private static final int SEGMENTS_PER_BUCKET = 1024;
+    private static final int FANOUT = 8;
+
+    private final ISegmentStore<ISegment> fStore;
+    private final Function<ISegment, @Nullable String> fTypeFunction;
+    private final Function<ISegment, Long> fMapper;
+    private final Summary fTotal;
+    private final long fMinStart;
+    private final long fMaxStart;
+    private final long fBucketWidth;
+    private final int fNbBuckets;
+    /* Level 0 has the buckets, level n + 1 merges FANOUT nodes of level n */
+    private final List<Summary[]> fLevels = new ArrayList<>();
+
+    private SegmentStatisticsIndex(ISegmentStore<ISegment> store, Function<ISegment, @Nullable String> typeFunction, Function<ISegment, Long> mapper,
+            Summary total, long nbSegments, long minStart, long maxStart) {
+        fStore = store;
+        fTypeFunction = typeFunction;
+        fMapper = mapper;
+        fTotal = total;
+        fMinStart = minStart;
+        fMaxStart = maxStart;
+        int nbBuckets = (int) Math.max(1, Math.min(MAX_BUCKETS, nbSegments / SEGMENTS_PER_BUCKET));
+        fBucketWidth = (nbSegments == 0 ? 1 : (maxStart - minStart) / nbBuckets + 1);
+        fNbBuckets = (nbSegments == 0 ? 0 : bucketOf(maxStart) + 1);
+    }
+
+    /**
+     * Build the index of a complete segment store
+     *
+     * @param store
+     *            The segment store, which is read again for the segments at
+     *            the edges of the range queries
+     * @param typeFunction
+     *            The function returning the type of a segment, segments
+     *            without type are only counted in the total statistics
+     * @param mapper
+     *            The function returning the value to compute statistics on
+     * @param monitor
+     *            The progress monitor
+     * @return The index, or null if the monitor was canceled
+     */
+    public static @Nullable SegmentStatisticsIndex build(ISegmentStore<ISegment> store, Function<ISegment, @Nullable String> typeFunction, Function<ISegment, Long> mapper, IProgressMonitor monitor) {
+        /*
+         * The statistics of the whole store are computed in the same pass
+         * that finds the bounds of the buckets
+         */
+        Summary total = new Summary(mapper, true);
+        long nbSegments = 0;
+        long minStart = Long.MAX_VALUE;
+        long maxStart = Long.MIN_VALUE;
+        for (ISegment segment : store) {
+            if (monitor.isCanceled()) {
+                return null;
+            }
+            total.update(segment, typeFunction.apply(segment));
+            nbSegments++;
+            minStart = Math.min(minStart, segment.getStart());
+            maxStart = Math.max(maxStart, segment.getStart());
+        }
+        SegmentStatisticsIndex index = new SegmentStatisticsIndex(store, typeFunction, mapper, total, nbSegments, minStart, maxStart);
+        return (index.buildLevels(monitor) ? index : null);
+    }
+
+    /**
+     * Compute the statistics of the buckets, then of the upper levels
+     *
+     * @return false if the monitor was canceled
+     */
+    private boolean buildLevels(IProgressMonitor monitor) {
+        Summary[] buckets = new Summary[fNbBuckets];
+        for (int i = 0; i < fNbBuckets; i++) {
+            buckets[i] = new Summary(fMapper, true);
+        }
+        if (fNbBuckets > 0) {
+            for (ISegment segment : fStore) {
+                if (monitor.isCanceled()) {
+                    return false;
+                }
+                buckets[bucketOf(segment.getStart())].update(segment, fTypeFunction.apply(segment));
+            }
+        }
+        fLevels.add(buckets);
+
+        Summary[] level = buckets;
+        while (level.length > 1) {
+            Summary[] upper = new Summary[(level.length + FANOUT - 1) / FANOUT];
+            for (int i = 0; i < upper.length; i++) {
+                Summary summary = new Summary(fMapper, true);
+                for (int j = i * FANOUT; j < Math.min(level.length, (i + 1) * FANOUT); j++) {
+                    summary.merge(level[j]);
+                }
+                upper[i] = summary;
+            }
+            fLevels.add(upper);
+            level = upper;
+        }
+        return true;
+    }
+
+    /**
+     * Get the statistics of all the segments
+     *
+     * @return The total statistics
+     */
+    public IStatistics<ISegment> getTotalStats() {
+        return fTotal.fTotal;
+    }
+
+    /**
+     * Get the statistics of all the segments, per type
+     *
+     * @return The statistics per segment type
+     */
+    public Map<String, IStatistics<ISegment>> getPerTypeStats() {
+        return fTotal.fPerType;
+    }
+
+    /**
+     * Get the statistics of the segments intersecting a time range
+     *
+     * @param start
+     *            The start of the range
+     * @param end
+     *            The end of the range, must not be smaller than start
+     * @param monitor
+     *            The progress monitor
+     * @return The total statistics, or null if the monitor was canceled
+     */
+    public @Nullable IStatistics<ISegment> getTotalStats(long start, long end, IProgressMonitor monitor) {
+        Summary summary = query(start, end, false, monitor);
+        return (summary == null ? null : summary.fTotal);
+    }
+
+    /**
+     * Get the statistics per type of the segments intersecting a time range
+     *
+     * @param start
+     *            The start of the range
+     * @param end
+     *            The end of the range, must not be smaller than start
+     * @param monitor
+     *            The progress monitor
+     * @return The statistics per segment type, or null if the monitor was
+     *         canceled
+     */
+    public @Nullable Map<String, IStatistics<ISegment>> getPerTypeStats(long start, long end, IProgressMonitor monitor) {
+        Summary summary = query(start, end, true, monitor);
+        return (summary == null ? null : summary.fPerType);
+    }
+
+    private @Nullable Summary query(long start, long end, boolean perType, IProgressMonitor monitor) {
+        if (monitor.isCanceled()) {
+            return null;
+        }
+        Summary result = new Summary(fMapper, perType);
+        if (fNbBuckets == 0 || end < fMinStart) {
+            return result;
+        }
+
+        /* The buckets whose segments all start in the range */
+        int first = 0;
+        if (start > fMinStart) {
+            first = bucketOf(Math.min(start, fMaxStart));
+            if (start > bucketStart(first)) {
+                first++;
+            }
+        }
+        int last = fNbBuckets - 1;
+        if (end < fMaxStart) {
+            last = bucketOf(end);
+            if (end < bucketStart(last + 1) - 1) {
+                last--;
+            }
+        }
+        if (first > last) {
+            scan(result, fStore.getIntersectingElements(start, end), Long.MIN_VALUE, Long.MAX_VALUE, monitor);
+            return (monitor.isCanceled() ? null : result);
+        }
+        long lo = bucketStart(first);
+        long hi = (last == fNbBuckets - 1 ? fMaxStart : bucketStart(last + 1) - 1);
+
+        /*
+         * The segments starting before these buckets, in the range or
+         * overlapping its start, and the segments starting after them in the
+         * range
+         */
+        if (start > fMinStart) {
+            scan(result, fStore.getIntersectingElements(start, Math.max(start, lo - 1)), Long.MIN_VALUE, lo - 1, monitor);
+        }
+        if (end > hi) {
+            scan(result, fStore.getIntersectingElements(hi + 1, end), hi + 1, Long.MAX_VALUE, monitor);
+        }
+        if (monitor.isCanceled()) {
+            return null;
+        }
+        mergeBuckets(result, first, last);
+        return result;
+    }
+
+    /**
+     * Merge the summaries of the buckets [first, last], using the largest
+     * nodes of the upper levels that cover them
+     */
+    private void mergeBuckets(Summary result, int first, int last) {
+        int level = 0;
+        int lo = first;
+        int hi = last;
+        while (lo <= hi) {
+            Summary[] nodes = fLevels.get(level);
+            while (lo <= hi && lo % FANOUT != 0) {
+                result.merge(nodes[lo++]);
+            }
+            while (lo <= hi && (hi + 1) % FANOUT != 0) {
+                result.merge(nodes[hi--]);
+            }
+            if (lo > hi) {
+                break;
+            }
+            lo /= FANOUT;
+            hi = (hi + 1) / FANOUT - 1;
+            level++;
+        }
+    }
+
+    private void scan(Summary result, Iterable<ISegment> segments, long minStart, long maxStart, IProgressMonitor monitor) {
+        for (ISegment segment : segments) {
+            if (monitor.isCanceled()) {
+                return;
+            }
+            long segmentStart = segment.getStart();
+            if (segmentStart >= minStart && segmentStart <= maxStart) {
+                result.update(segment, fTypeFunction.apply(segment));
+            }
+        }
+    }
+
+    private int bucketOf(long time) {
+        return (int) ((time - fMinStart) / fBucketWidth);
+    }
+
+    private long bucketStart(int bucket) {
+        return fMinStart + bucket * fBucketWidth;
+    }
+
+    /**
+     * Total and per type statistics of a group of segments
+     */
+    private static final class Summary {
+        private final Function<ISegment, Long> fMapper;
+        private final boolean fWithTypes;
+        private final IStatistics<ISegment> fTotal;
+        private final Map<String, IStatistics<ISegment>> fPerType = new HashMap<>();
+
+        public Summary(Function<ISegment, Long> mapper, boolean withTypes) {
+            fMapper = mapper;
+            fWithTypes = withTypes;
+            fTotal = new Statistics<>(mapper);
+        }
+
+        public void update(ISegment segment, @Nullable String type) {
+            fTotal.update(segment);
+            if (fWithTypes && type != null) {
+                fPerType.computeIfAbsent(type, t -> new Statistics<>(fMapper)).update(segment);
+            }
+        }
+
+        public void merge(Summary other) {
+            fTotal.merge(other.fTotal);
+            if (fWithTypes) {
+                for (Entry<String, IStatistics<ISegment>> entry : other.fPerType.entrySet()) {
+                    fPerType.computeIfAbsent(entry.getKey(), t -> new Statistics<>(fMapper)).merge(entry.getValue());
+                }
+            }
+        }
+    }
+}
@@ -85,6 +85,21 @@ public interface IStatistics<@NonNull E> {
      */
     double getTotal();
 
+    /**
+     * Gets the value at a given percentile, for instance 50 for the median or
+     * 99 for the value that is greater than or equal to 99% of the values.
+     * Implementations may return an estimate.
+     *
+     * @param percentile
+     *            The percentile, between 0 and 100
+     * @return The value at this percentile, or NaN if there are no elements or
+     *         if the implementation does not compute percentiles
+     * @since 1.4
+     */
+    default double getPercentile(double percentile) {
+        return Double.NaN;
+    }
+
     /**
      * Update the statistics based on a given object
      * <p>
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.analysis.timing.core.statistics;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable histogram of long values, used to estimate percentiles.
+ * <p>
+ * Like an HDR histogram, each power of two is divided in {@link #SUB_BUCKETS}
+ * buckets of equal width, so the middle of a bucket is within 1/64 of any
+ * value of the bucket. Values smaller than {@link #SUB_BUCKETS} are exact.
+ * Negative values use the mirrored buckets. Only the non-empty buckets are
+ * kept, sorted by index, so the memory used is bounded by the number of
+ * buckets covering the range of values (less than 4000) and is much smaller
+ * for small sets of values.
+ */
+final class QuantileSketch {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private int[] fIndexes;
+    private long[] fCounts;
+    private int fSize;
+
+    /**
+     * Constructor
+     */
+    public QuantileSketch() {
+        fIndexes = new int[INITIAL_CAPACITY];
+        fCounts = new long[INITIAL_CAPACITY];
+        fSize = 0;
+    }
+
+    private QuantileSketch(QuantileSketch other) {
+        fIndexes = Arrays.copyOf(other.fIndexes, Math.max(INITIAL_CAPACITY, other.fSize));
+        fCounts = Arrays.copyOf(other.fCounts, Math.max(INITIAL_CAPACITY, other.fSize));
+        fSize = other.fSize;
+    }
+
+    /**
+     * Get a copy of this sketch
+     *
+     * @return A new sketch with the same values
+     */
+    public QuantileSketch copy() {
+        return new QuantileSketch(this);
+    }
+
+    /**
+     * Add a value
+     *
+     * @param value
+     *            The value
+     */
+    public void add(long value) {
+        int index = indexOf(value);
+        int pos = Arrays.binarySearch(fIndexes, 0, fSize, index);
+        if (pos >= 0) {
+            fCounts[pos]++;
+            return;
+        }
+        pos = -pos - 1;
+        if (fSize == fIndexes.length) {
+            fIndexes = Arrays.copyOf(fIndexes, fSize * 2);
+            fCounts = Arrays.copyOf(fCounts, fSize * 2);
+        }
+        System.arraycopy(fIndexes, pos, fIndexes, pos + 1, fSize - pos);
+        System.arraycopy(fCounts, pos, fCounts, pos + 1, fSize - pos);
+        fIndexes[pos] = index;
+        fCounts[pos] = 1;
+        fSize++;
+    }
+
+    /**
+     * Add the values of another sketch to this one
+     *
+     * @param other
+     *            The other sketch
+     */
+    public void merge(QuantileSketch other) {
+        int[] indexes = new int[fSize + other.fSize];
+        long[] counts = new long[fSize + other.fSize];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < fSize || j < other.fSize) {
+            if (j == other.fSize || (i < fSize && fIndexes[i] < other.fIndexes[j])) {
+                indexes[size] = fIndexes[i];
+                counts[size++] = fCounts[i++];
+            } else if (i == fSize || other.fIndexes[j] < fIndexes[i]) {
+                indexes[size] = other.fIndexes[j];
+                counts[size++] = other.fCounts[j++];
+            } else {
+                indexes[size] = fIndexes[i];
+                counts[size++] = fCounts[i++] + other.fCounts[j++];
+            }
+        }
+        fIndexes = indexes;
+        fCounts = counts;
+        fSize = size;
+    }
+
+    /**
+     * Estimate the value at a percentile, using the nearest rank
+     *
+     * @param percentile
+     *            The percentile, between 0 and 100
+     * @param min
+     *            The minimum value added
+     * @param max
+     *            The maximum value added
+     * @return The estimated value, or NaN if there are no values
+     */
+    public double getPercentile(double percentile, long min, long max) {
+        long nbElements = 0;
+        for (int i = 0; i < fSize; i++) {
+            nbElements += fCounts[i];
+        }
+        if (nbElements == 0) {
+            return Double.NaN;
+        }
+        if (percentile <= 0) {
+            return min;
+        }
+        if (percentile >= 100) {
+            return max;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * nbElements));
+        long count = 0;
+        for (int i = 0; i < fSize; i++) {
+            count += fCounts[i];
+            if (count >= rank) {
+                double value = getMidpoint(fIndexes[i]);
+                return Math.max(min, Math.min(max, value));
+            }
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < 0) {
+            /* ~value is -value - 1, which does not overflow */
+            return -indexOf(~value) - 1;
+        }
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    private static double getMidpoint(int index) {
+        if (index < 0) {
+            /* Mirror of the bucket of the non-negative values */
+            return -getMidpoint(-index - 1) - 1;
+        }
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        long low = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        long width = 1L << shift;
+        return low + (width - 1) / 2.0;
+    }
+}
@@ -40,6 +40,7 @@ public class Statistics<@NonNull E> implements IStatistics<E> {
      */
     private double fVariance;
     private double fTotal;
+    private QuantileSketch fSketch = new QuantileSketch();
 
     /**
      * Constructor
@@ -127,6 +128,22 @@ public class Statistics<@NonNull E> implements IStatistics<E> {
         return fTotal;
     }
 
+    /**
+     * Gets an estimate of a percentile of the values. The values are kept in
+     * a histogram that divides each power of two in 32 buckets, and the
+     * estimate is the middle of a bucket, so it is within 1/64 of the real
+     * value. The 0 and 100 percentiles are the exact minimum and maximum.
+     *
+     * @since 1.4
+     */
+    @Override
+    public double getPercentile(double percentile) {
+        if (fNbElements == 0) {
+            return Double.NaN;
+        }
+        return fSketch.getPercentile(percentile, getMin(), getMax());
+    }
+
     @Override
     public void update(E object) {
         Long value = NonNullUtils.checkNotNull(fMapper.apply(object));
@@ -146,6 +163,7 @@ public class Statistics<@NonNull E> implements IStatistics<E> {
         fMean += delta / fNbElements;
         fVariance += delta * (value - fMean);
         fTotal += value;
+        fSketch.add(value);
     }
 
     @Override
@@ -187,6 +205,7 @@ public class Statistics<@NonNull E> implements IStatistics<E> {
         double otherAverage = other.getMean();
         fNbElements += otherSegments;
         fTotal += other.getTotal();
+        fSketch.merge(other.fSketch);
 
         /*
          * Average is a weighted average
@@ -194,25 +213,13 @@ public class Statistics<@NonNull E> implements IStatistics<E> {
         fMean = ((oldNbSeg * oldAverage) + (otherAverage * otherSegments)) / fNbElements;
 
         /*
-         * This one is a bit tricky.
-         *
-         * The variance is the sum of the deltas from a mean squared.
-         *
-         * So if we add the old mean squared back to to variance and remove the
-         * new mean, the standard deviation can be easily calculated.
-         */
-        double avg1Sq = oldAverage * oldAverage;
-        double avg2sq = otherAverage * otherAverage;
-        double avgtSq = fMean * fMean;
-        /*
-         * This is a tricky part, bear in mind that the set is not continuous
-         * but discrete, Therefore, we have for n elements, n-1 intervals
-         * between them. Ergo, n-1 intervals are used for divisions and
-         * multiplications.
+         * The variance (times the number of elements) of the union is the sum
+         * of the variances of both sets, plus a correction for the difference
+         * between their means. This is exact, so merging partial statistics
+         * gives the same result as updating with every element.
          */
-        double variance1 = fVariance / (oldNbSeg - 1);
-        double variance2 = other.fVariance / (otherSegments - 1);
-        fVariance = ((variance1 + avg1Sq - avgtSq) * (oldNbSeg - 1) + (variance2 + avg2sq - avgtSq) * (otherSegments - 1));
+        double delta = otherAverage - oldAverage;
+        fVariance = fVariance + other.fVariance + delta * delta * ((double) oldNbSeg * otherSegments / fNbElements);
     }
 
     private void copy(Statistics<E> copyOther) {
@@ -222,6 +229,7 @@ public class Statistics<@NonNull E> implements IStatistics<E> {
         fNbElements = copyOther.fNbElements;
         fTotal = copyOther.fTotal;
         fVariance = copyOther.fVariance;
+        fSketch = copyOther.fSketch.copy();
     }
 
     @Override
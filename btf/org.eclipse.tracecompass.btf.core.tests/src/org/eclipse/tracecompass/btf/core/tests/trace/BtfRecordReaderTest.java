@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.btf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.tracecompass.internal.btf.core.trace.BtfRecordReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link BtfRecordReader}
+ */
+public class BtfRecordReaderTest {
+
+    private static final int BUFFER_SIZE = 16;
+
+    private Path fFile;
+
+    /**
+     * Create the file to read
+     *
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fFile = Files.createTempFile("btf", ".btf");
+    }
+
+    /**
+     * Delete the file
+     *
+     * @throws IOException
+     *             if the file cannot be deleted
+     */
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(fFile);
+    }
+
+    private BtfRecordReader open(String content) throws IOException {
+        Files.write(fFile, content.getBytes(StandardCharsets.ISO_8859_1));
+        return new BtfRecordReader(fFile, BUFFER_SIZE);
+    }
+
+    /**
+     * Test reading the lines and their offsets, with both line terminators
+     * and a last line without one
+     *
+     * @throws IOException
+     *             if the test fails
+     */
+    @Test
+    public void testLines() throws IOException {
+        try (BtfRecordReader reader = open("a,b\r\nc\n\nlast")) {
+            assertEquals(12, reader.length());
+            assertTrue(reader.nextLine());
+            assertEquals("a,b", reader.getLine());
+            assertEquals(0, reader.getLineOffset());
+            assertEquals(5, reader.getFilePointer());
+            assertTrue(reader.nextLine());
+            assertEquals("c", reader.getLine());
+            assertEquals(5, reader.getLineOffset());
+            assertTrue(reader.nextLine());
+            assertEquals("", reader.getLine());
+            assertEquals(7, reader.getLineOffset());
+            assertTrue(reader.nextLine());
+            assertEquals("last", reader.getLine());
+            assertEquals(8, reader.getLineOffset());
+            assertEquals(12, reader.getFilePointer());
+            assertFalse(reader.nextLine());
+        }
+    }
+
+    /**
+     * Test lines longer than the buffer, which makes it grow
+     *
+     * @throws IOException
+     *             if the test fails
+     */
+    @Test
+    public void testGrow() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10 * BUFFER_SIZE; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        String longLine = sb.toString();
+        try (BtfRecordReader reader = open("short\n" + longLine + '\n' + longLine + longLine + "\nend\n")) {
+            assertTrue(reader.nextLine());
+            assertEquals("short", reader.getLine());
+            assertTrue(reader.nextLine());
+            assertEquals(longLine, reader.getLine());
+            assertEquals(6, reader.getLineOffset());
+            assertTrue(reader.nextLine());
+            assertEquals(longLine + longLine, reader.getLine());
+            assertTrue(reader.nextLine());
+            assertEquals("end", reader.getLine());
+            assertFalse(reader.nextLine());
+        }
+    }
+
+    /**
+     * Test seeking in the file, in and out of the buffer
+     *
+     * @throws IOException
+     *             if the test fails
+     */
+    @Test
+    public void testSeek() throws IOException {
+        try (BtfRecordReader reader = open("line0\nline1\nline2\nline3\nline4\n")) {
+            reader.seek(18);
+            assertTrue(reader.nextLine());
+            assertEquals("line3", reader.getLine());
+            assertEquals(18, reader.getLineOffset());
+
+            /* In the middle of a line */
+            reader.seek(2);
+            assertTrue(reader.nextLine());
+            assertEquals("ne0", reader.getLine());
+            assertEquals('l', reader.read());
+            assertEquals(7, reader.getFilePointer());
+
+            reader.seek(30);
+            assertFalse(reader.nextLine());
+            assertEquals(-1, reader.read());
+        }
+    }
+
+    /**
+     * Test splitting a line, the last field containing the rest of the line
+     *
+     * @throws IOException
+     *             if the test fails
+     */
+    @Test
+    public void testSplit() throws IOException {
+        try (BtfRecordReader reader = open("0,src,,T,tgt,2,event,with,commas\r\na,b\n")) {
+            assertTrue(reader.nextLine());
+            assertEquals(7, reader.split(',', 7));
+            assertEquals("0", reader.getField(0));
+            assertEquals("src", reader.getField(1));
+            assertEquals("", reader.getField(2));
+            assertEquals("T", reader.getField(3));
+            assertEquals("event,with,commas", reader.getField(6));
+
+            assertEquals(2, reader.split(',', 2));
+            assertEquals("src,,T,tgt,2,event,with,commas", reader.getField(1));
+
+            assertTrue(reader.nextLine());
+            assertEquals(2, reader.split(',', 7));
+            assertEquals("b", reader.getField(1));
+            try {
+                reader.getField(2);
+                fail();
+            } catch (IndexOutOfBoundsException e) {
+                /* Expected */
+            }
+        }
+    }
+
+    /**
+     * Test parsing numeric fields, which should give the same values and
+     * errors as {@link Long#parseLong(String)}
+     *
+     * @throws IOException
+     *             if the test fails
+     */
+    @Test
+    public void testParseLong() throws IOException {
+        String[] fields = { "0", "123", "-45", "+6", "007", "999999999999999999",
+                "9223372036854775807", "-9223372036854775808", "9223372036854775808",
+                "", "-", "x1", "1x", "1.5", " 1" };
+        try (BtfRecordReader reader = open(String.join(",", fields) + '\n')) {
+            assertTrue(reader.nextLine());
+            assertEquals(fields.length, reader.split(',', fields.length));
+            for (int i = 0; i < fields.length; i++) {
+                Long expected;
+                try {
+                    expected = Long.parseLong(fields[i]);
+                } catch (NumberFormatException e) {
+                    expected = null;
+                }
+                try {
+                    long actual = reader.parseLong(i);
+                    assertEquals(fields[i], expected, Long.valueOf(actual));
+                } catch (NumberFormatException e) {
+                    assertEquals(fields[i], null, expected);
+                }
+            }
+        }
+    }
+}
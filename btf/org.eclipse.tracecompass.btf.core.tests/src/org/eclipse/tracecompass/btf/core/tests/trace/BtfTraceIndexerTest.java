@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.btf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.tracecompass.btf.core.tests.utils.BtfTestTrace;
+import org.eclipse.tracecompass.btf.core.trace.BtfTrace;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test that the BTF trace indexer gives the same index when it reads the trace
+ * in chunks as when it reads the events in order.
+ */
+public class BtfTraceIndexerTest {
+
+    private static final String CHUNK_SIZE_PROPERTY = "org.eclipse.tracecompass.btf.core.indexer.chunkSize";
+    /* The test trace is about 2 MB, so it is read in about 20 chunks */
+    private static final long CHUNK_SIZE = 100000;
+    /* Larger than the test trace, so that it is read in order */
+    private static final long NO_CHUNKS = Long.MAX_VALUE;
+
+    /**
+     * Dispose the trace and reset the chunk size
+     */
+    @After
+    public void tearDown() {
+        BtfTestTrace.BTF_TEST.dispose();
+        System.clearProperty(CHUNK_SIZE_PROPERTY);
+    }
+
+    /**
+     * Test that the index built from chunks has the same events, time range
+     * and checkpoints as the index built by reading the events
+     *
+     * @throws IOException
+     *             if the trace file cannot be read
+     */
+    @Test
+    public void testChunkedIndex() throws IOException {
+        IndexContent expected = index(NO_CHUNKS);
+        IndexContent actual = index(CHUNK_SIZE);
+
+        assertTrue(expected.fNbEvents > 0);
+        assertEquals(expected.fNbEvents, actual.fNbEvents);
+        assertEquals(expected.fStartTime, actual.fStartTime);
+        assertEquals(expected.fEndTime, actual.fEndTime);
+        assertEquals(expected.fLocations, actual.fLocations);
+        assertEquals(expected.fTimestamps, actual.fTimestamps);
+        assertEquals(expected.fRanksAtTime, actual.fRanksAtTime);
+    }
+
+    /**
+     * Test that the chunk bounds are moved to the start of the lines, so that
+     * the checkpoints are at the start of the lines of their events
+     *
+     * @throws IOException
+     *             if the trace file cannot be read
+     */
+    @Test
+    public void testLineBoundaries() throws IOException {
+        /* A chunk size that does not match the lines */
+        IndexContent content = index(CHUNK_SIZE + 7);
+        try (RandomAccessFile file = new RandomAccessFile(content.fPath, "r")) {
+            for (long location : content.fLocations) {
+                file.seek(location - 1);
+                assertEquals("Location " + location, '\n', file.read());
+            }
+        }
+    }
+
+    /**
+     * Index the test trace from scratch, then read the events at the ranks of
+     * the checkpoints and the ranks of their timestamps
+     */
+    private static IndexContent index(long chunkSize) {
+        System.setProperty(CHUNK_SIZE_PROPERTY, Long.toString(chunkSize));
+        /* Delete the index of a previous test, so that it is built from scratch */
+        BtfTrace trace = BtfTestTrace.BTF_TEST.getTrace();
+        BtfTestTrace.BTF_TEST.dispose();
+        TmfTraceManager.deleteSupplementaryFiles(trace);
+        trace = BtfTestTrace.BTF_TEST.getTrace();
+
+        trace.indexTrace(true);
+        IndexContent content = new IndexContent();
+        content.fPath = trace.getPath();
+        content.fNbEvents = trace.getNbEvents();
+        content.fStartTime = trace.getStartTime();
+        content.fEndTime = trace.getEndTime();
+        int interval = trace.getCacheSize();
+        for (long rank = 0; rank < content.fNbEvents; rank += interval) {
+            ITmfContext context = trace.seekEvent(rank);
+            assertEquals(rank, context.getRank());
+            content.fLocations.add((Long) context.getLocation().getLocationInfo());
+            ITmfEvent event = trace.getNext(context);
+            assertNotNull(event);
+            content.fTimestamps.add(event.getTimestamp());
+            content.fRanksAtTime.add(trace.seekEvent(event.getTimestamp()).getRank());
+        }
+        BtfTestTrace.BTF_TEST.dispose();
+        return content;
+    }
+
+    private static final class IndexContent {
+        private String fPath;
+        private long fNbEvents;
+        private ITmfTimestamp fStartTime;
+        private ITmfTimestamp fEndTime;
+        private final List<Long> fLocations = new ArrayList<>();
+        private final List<ITmfTimestamp> fTimestamps = new ArrayList<>();
+        private final List<Long> fRanksAtTime = new ArrayList<>();
+    }
+}
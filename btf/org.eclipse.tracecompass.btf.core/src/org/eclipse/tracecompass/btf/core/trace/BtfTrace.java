@@ -14,9 +14,7 @@
 package org.eclipse.tracecompass.btf.core.trace;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -33,15 +31,16 @@ import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.btf.core.Activator;
 import org.eclipse.tracecompass.btf.core.event.BtfEvent;
 import org.eclipse.tracecompass.btf.core.event.BtfEventType;
+import org.eclipse.tracecompass.internal.btf.core.trace.BtfRecordReader;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
-import org.eclipse.tracecompass.tmf.core.io.BufferedRandomAccessFile;
 import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTxtTraceContext;
 import org.eclipse.tracecompass.tmf.core.project.model.ITmfPropertiesProvider;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalHandler;
 import org.eclipse.tracecompass.tmf.core.signal.TmfTraceRangeUpdatedSignal;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.TmfContext;
@@ -50,7 +49,6 @@ import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
 import org.eclipse.tracecompass.tmf.core.trace.TraceValidationStatus;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfPersistentlyIndexable;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
-import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
@@ -66,6 +64,8 @@ import com.google.common.collect.ImmutableMap;
 public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITmfPropertiesProvider {
 
     private static final int MAX_FIELDS = 7;
+    private static final int TIMESTAMP_FIELD = 0;
+    private static final int TYPE_FIELD = 3;
 
     private static final long MICROSECONDS_IN_A_SECOND = 1000000L;
 
@@ -91,6 +91,7 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
     private static final int CACHE_SIZE = 256;
     private static final int MAX_CONFIDENCE = 100;
     private static final int MAX_LINES = 100;
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     private static int fCheckpointSize = -1;
 
@@ -108,7 +109,7 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
     private BtfTimestampFormat fTsFormat = BtfTimestampFormat.NS;
 
     private File fFile;
-    private RandomAccessFile fFileInput;
+    private BtfRecordReader fFileInput;
     private long fDataOffset;
     private long fTsOffset = 0;
 
@@ -121,8 +122,8 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
         fProperties.put(TIMESCALE, fTsFormat.toString());
     }
 
-    private void parseHeader(RandomAccessFile input) throws IOException {
-        String line = input.readLine();
+    private void parseHeader(BtfRecordReader input) throws IOException {
+        String line = readLine(input);
         long pos = 0;
         while (line != null && line.startsWith("#")) { //$NON-NLS-1$
             String[] tokens = line.split(" ", 2); //$NON-NLS-1$
@@ -163,39 +164,39 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
                 break;
             case lENTITYTYPE:
                 pos = fFileInput.getFilePointer();
-                line = fFileInput.readLine();
+                line = readLine(fFileInput);
                 while (line.startsWith("#-")) { //$NON-NLS-1$
                     String tempLine = line.substring(1);
                     String[] elements = tempLine.split(" ", 2); //$NON-NLS-1$
                     fEntityTypes.put(Integer.parseInt(elements[0]), BtfEventTypeFactory.parse(elements[1]));
                     pos = fFileInput.getFilePointer();
-                    line = fFileInput.readLine();
+                    line = readLine(fFileInput);
                 }
                 fFileInput.seek(pos);
                 fProperties.put(ENTITYTYPE, fEntityTypes.toString());
                 break;
             case lENTITYTABLE:
                 pos = fFileInput.getFilePointer();
-                line = fFileInput.readLine();
+                line = readLine(fFileInput);
                 while (line.startsWith("#-")) { //$NON-NLS-1$
                     String tempLine = line.substring(1);
                     String[] elements = tempLine.split(" ", 2); //$NON-NLS-1$
                     fEntityTable.put(Integer.parseInt(elements[0]), elements[1]);
                     pos = fFileInput.getFilePointer();
-                    line = fFileInput.readLine();
+                    line = readLine(fFileInput);
                 }
                 fProperties.put(ENTITYTABLE, fEntityTable.toString());
                 fFileInput.seek(pos);
                 break;
             case lENTITYTYPETABLE:
                 pos = fFileInput.getFilePointer();
-                line = fFileInput.readLine();
+                line = readLine(fFileInput);
                 while (line.startsWith("#-")) { //$NON-NLS-1$
                     String tempLine = line.substring(1);
                     String[] elements = tempLine.split(" ", 2); //$NON-NLS-1$
                     fEntityTypeTable.put(BtfEventTypeFactory.parse(elements[0]), elements[1]);
                     pos = fFileInput.getFilePointer();
-                    line = fFileInput.readLine();
+                    line = readLine(fFileInput);
                 }
                 fFileInput.seek(pos);
                 fProperties.put(ENTITYTYPETABLE, fEntityTypeTable.toString());
@@ -204,17 +205,21 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
                 break;
             }
             fDataOffset = input.getFilePointer();
-            line = input.readLine();
+            line = readLine(input);
         }
         fTsOffset = (long) (fTsOffset * fTsFormat.getScaleFactor());
     }
 
+    private static String readLine(BtfRecordReader input) throws IOException {
+        return input.nextLine() ? input.getLine() : null;
+    }
+
     @Override
     public void initTrace(IResource resource, String path, Class<? extends ITmfEvent> type) throws TmfTraceException {
         super.initTrace(resource, path, type);
         fFile = new File(path);
         try {
-            fFileInput = new RandomAccessFile(fFile, "r"); //$NON-NLS-1$
+            fFileInput = new BtfRecordReader(fFile.toPath(), BUFFER_SIZE);
             parseHeader(fFileInput);
         } catch (IOException e) {
             throw new TmfTraceException(e.getMessage(), e);
@@ -225,7 +230,7 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
     private void initFile() throws TmfTraceException {
         closeFile();
         try {
-            fFileInput = new BufferedRandomAccessFile(getPath(), "r"); //$NON-NLS-1$
+            fFileInput = new BtfRecordReader(fFile.toPath(), BUFFER_SIZE);
         } catch (IOException e) {
             throw new TmfTraceException(e.getMessage(), e);
         }
@@ -260,16 +265,16 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
             Activator.logError("Error validating file: " + path, e); //$NON-NLS-1$
             return new Status(IStatus.ERROR, Activator.PLUGIN_ID, "IOException validating file: " + path, e); //$NON-NLS-1$
         }
-        try (BufferedRandomAccessFile rafile = new BufferedRandomAccessFile(path, "r")) { //$NON-NLS-1$
+        try (BtfRecordReader reader = new BtfRecordReader(file.toPath(), BUFFER_SIZE)) {
             int lineCount = 0;
             int matches = 0;
-            String line = rafile.getNextLine();
-            while ((line != null) && line.startsWith("#")) { //$NON-NLS-1$
-                line = rafile.getNextLine();
+            boolean hasLine = reader.nextLine();
+            while (hasLine && reader.startsWith('#')) {
+                hasLine = reader.nextLine();
             }
-            while ((line != null) && (lineCount++ < MAX_LINES)) {
+            while (hasLine && (lineCount++ < MAX_LINES)) {
                 try {
-                    ITmfEvent event = parseLine(0, line);
+                    ITmfEvent event = parseRecord(0, reader);
                     if (event != null) {
                         matches++;
                     }
@@ -278,7 +283,7 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
                 }
 
                 confidence = MAX_CONFIDENCE * matches / lineCount;
-                line = rafile.getNextLine();
+                hasLine = reader.nextLine();
             }
         } catch (IOException e) {
             Activator.logError("Error validating file: " + path, e); //$NON-NLS-1$
@@ -290,23 +295,13 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
 
     @Override
     public ITmfLocation getCurrentLocation() {
-        long temp = -1;
-        try {
-            temp = fFileInput.getFilePointer();
-        } catch (IOException e) {
-        }
-        return new TmfLongLocation(temp);
+        return new TmfLongLocation(fFileInput.getFilePointer());
     }
 
     @Override
     public double getLocationRatio(ITmfLocation location) {
         long size = fFile.length() - fDataOffset;
-        long pos;
-        try {
-            pos = fFileInput.getFilePointer() - fDataOffset;
-        } catch (IOException e) {
-            pos = 0;
-        }
+        long pos = fFileInput.getFilePointer() - fDataOffset;
         return 1.0 / size * pos;
     }
 
@@ -316,21 +311,13 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
         if (NULL_LOCATION.equals(location) || fFile == null) {
             return context;
         }
-        try {
-            if (location == null) {
-                fFileInput.seek(fDataOffset);
-            } else if (location.getLocationInfo() instanceof Long) {
-                fFileInput.seek((Long) location.getLocationInfo());
-            }
-            context.setLocation(new TmfLongLocation(fFileInput.getFilePointer()));
-            return context;
-        } catch (final FileNotFoundException e) {
-            Activator.logError("Error seeking event. File not found: " + getPath(), e); //$NON-NLS-1$
-            return context;
-        } catch (final IOException e) {
-            Activator.logError("Error seeking event. File: " + getPath(), e); //$NON-NLS-1$
-            return context;
+        if (location == null) {
+            fFileInput.seek(fDataOffset);
+        } else if (location.getLocationInfo() instanceof Long) {
+            fFileInput.seek((Long) location.getLocationInfo());
         }
+        context.setLocation(new TmfLongLocation(fFileInput.getFilePointer()));
+        return context;
     }
 
     @Override
@@ -385,17 +372,14 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
     private ITmfEvent parseLine(TmfContext context) {
         ITmfLocation location = context.getLocation();
         if (location != null) {
-            try {
-                if (!location.getLocationInfo().equals(fFileInput.getFilePointer())) {
-                    seekEvent(location);
-                }
-            } catch (IOException e1) {
+            if (!location.getLocationInfo().equals(fFileInput.getFilePointer())) {
                 seekEvent(location);
             }
-            String line;
             try {
-                line = fFileInput.readLine();
-                return parseLine(context.getRank(), line);
+                if (!fFileInput.nextLine()) {
+                    return null;
+                }
+                return parseRecord(context.getRank(), fFileInput);
 
             } catch (IOException e) {
                 Activator.logError(e.getMessage(), e);
@@ -405,45 +389,34 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
     }
 
     /**
-     * Parse a line of text and make an event using it.
+     * Parse the current line of a reader and make an event using it.
      *
      * @param rank
      *            the rank of the event
-     * @param line
-     *            the raw string of the event
-     * @return the event
+     * @param reader
+     *            the reader, positioned on the line of the event
+     * @return the event, or null if the line is not an event
      */
-    private ITmfEvent parseLine(long rank, String line) {
-        if (line == null) {
-            return null;
-        }
-        String[] tokens = line.split(",", MAX_FIELDS); //$NON-NLS-1$
-        if (tokens.length < MAX_FIELDS) {
+    private ITmfEvent parseRecord(long rank, BtfRecordReader reader) {
+        if (reader.split(',', MAX_FIELDS) < MAX_FIELDS) {
             return null;
         }
         int i = 0;
-        long timestamp = Long.parseLong(tokens[i++]);
-        String source = tokens[i++];
-        long sourceInstance = -1;
-        try {
-            sourceInstance = Long.parseLong(tokens[i++]);
-        } catch (NumberFormatException e) {
-            // this field can be empty
-        }
-        BtfEventType type = BtfEventTypeFactory.parse(tokens[i++]);
-        String target = tokens[i++];
-        long targetInstance = -1;
-        try {
-            targetInstance = Long.parseLong(tokens[i++]);
-        } catch (NumberFormatException e) {
-            // this field can be empty
+        long timestamp = reader.parseLong(i++);
+        String source = reader.getField(i++);
+        long sourceInstance = parseInstance(reader, i++);
+        BtfEventType type = BtfEventTypeFactory.parse(reader.getField(i++));
+        if (type == null) {
+            return null;
         }
-        String event = tokens[i++];
+        String target = reader.getField(i++);
+        long targetInstance = parseInstance(reader, i++);
+        String event = reader.getField(i++);
 
         ITmfEventField content = type.generateContent(event, sourceInstance, targetInstance);
 
         return new BtfEvent(this, rank,
-                getTimestampTransform().transform(fTsFormat.createTimestamp(timestamp + fTsOffset)),
+                createTimestamp(timestamp),
                 source,
                 type,
                 type.getDescription(),
@@ -451,6 +424,67 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
                 target);
     }
 
+    private static long parseInstance(BtfRecordReader reader, int field) {
+        try {
+            return reader.parseLong(field);
+        } catch (NumberFormatException e) {
+            // this field can be empty
+            return -1;
+        }
+    }
+
+    /**
+     * Check if the current line of a reader is an event, without making the
+     * event.
+     *
+     * @param reader
+     *            the reader, positioned on a line
+     * @return true if the line is an event
+     */
+    static boolean isEventRecord(BtfRecordReader reader) {
+        if (reader.split(',', MAX_FIELDS) < MAX_FIELDS) {
+            return false;
+        }
+        try {
+            reader.parseLong(TIMESTAMP_FIELD);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return BtfEventTypeFactory.parse(reader.getField(TYPE_FIELD)) != null;
+    }
+
+    /**
+     * Get the timestamp of an event line, as written in the trace
+     *
+     * @param reader
+     *            the reader, positioned on an event line
+     * @return the raw timestamp
+     */
+    static long getRawTimestamp(BtfRecordReader reader) {
+        reader.split(',', TIMESTAMP_FIELD + 2);
+        return reader.parseLong(TIMESTAMP_FIELD);
+    }
+
+    /**
+     * Create the timestamp of an event from its raw timestamp
+     *
+     * @param timestamp
+     *            the timestamp, as written in the trace
+     * @return the event timestamp
+     */
+    @NonNull ITmfTimestamp createTimestamp(long timestamp) {
+        return getTimestampTransform().transform(fTsFormat.createTimestamp(timestamp + fTsOffset));
+    }
+
+    /**
+     * Get the offset of the first event in the file, after the header
+     *
+     * @return the file offset
+     */
+    long getDataOffset() {
+        return fDataOffset;
+    }
+
     @Override
     public int getCheckpointSize() {
         synchronized (BtfTrace.class) {
@@ -473,7 +507,7 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
 
     @Override
     protected ITmfTraceIndexer createIndexer(int interval) {
-        return new TmfBTreeTraceIndexer(this, interval);
+        return new BtfTraceIndexer(this, interval);
     }
 
     /**
@@ -491,7 +525,7 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
 
     @Override
     public synchronized void dispose() {
-        RandomAccessFile raf = fFileInput;
+        BtfRecordReader raf = fFileInput;
         if (raf != null) {
             try {
                 raf.close();
@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.btf.core.trace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.btf.core.Activator;
+import org.eclipse.tracecompass.internal.btf.core.trace.BtfRecordReader;
+import org.eclipse.tracecompass.tmf.core.signal.TmfTraceUpdatedSignal;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
+import org.eclipse.tracecompass.tmf.core.trace.location.TmfLongLocation;
+
+/**
+ * Indexer of BTF traces. When a trace is indexed for the first time, its file
+ * is split in chunks of whole lines that are read concurrently, directly from
+ * the bytes of the file, to find the checkpoints. This is done in two passes:
+ * the events of each chunk are counted, which gives the rank of the first
+ * event of each chunk, then the checkpoints of each chunk are read.
+ * <p>
+ * The trace then has its number of events and time range, and the regular
+ * indexing request only has to read the events after the last checkpoint.
+ * <p>
+ * Traces smaller than two chunks are indexed by reading their events. The
+ * minimum chunk size can be set with the system property
+ * {@value #MIN_CHUNK_SIZE_PROPERTY}, in bytes.
+ */
+final class BtfTraceIndexer extends TmfBTreeTraceIndexer {
+
+    /**
+     * System property for the minimum size of the chunks, in bytes
+     */
+    static final String MIN_CHUNK_SIZE_PROPERTY = "org.eclipse.tracecompass.btf.core.indexer.chunkSize"; //$NON-NLS-1$
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long DEFAULT_MIN_CHUNK_SIZE = 16 * 1024 * 1024;
+    /* Larger traces have larger chunks */
+    private static final int MAX_CHUNKS = 1024;
+    /* The bytes read for each unit of work of the progress monitor */
+    private static final int PROGRESS_UNIT = 64 * 1024;
+    /* The number of events read between progress updates and cancel checks */
+    private static final int PROGRESS_EVENTS = 64 * 1024;
+    private static final long PROGRESS_UPDATE_MS = 250;
+
+    private final BtfTrace fBtfTrace;
+    private final int fInterval;
+    private final long fMinChunkSize;
+
+    /* The bytes read and the events counted by the chunks, for the progress */
+    private final AtomicLong fBytesRead = new AtomicLong();
+    private final AtomicLong fNbEventsRead = new AtomicLong();
+    /* The work reported to the progress monitor */
+    private long fProgressDone = 0;
+
+    private volatile boolean fPreIndexing = false;
+    private volatile boolean fDisposed = false;
+
+    /**
+     * Constructor, with the minimum chunk size of the system property
+     * {@value #MIN_CHUNK_SIZE_PROPERTY}, or 16 MB
+     *
+     * @param trace
+     *            the trace to index
+     * @param interval
+     *            the checkpoints interval
+     */
+    public BtfTraceIndexer(BtfTrace trace, int interval) {
+        this(trace, interval, Long.getLong(MIN_CHUNK_SIZE_PROPERTY, DEFAULT_MIN_CHUNK_SIZE));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param trace
+     *            the trace to index
+     * @param interval
+     *            the checkpoints interval
+     * @param minChunkSize
+     *            the minimum size of the chunks read concurrently, in bytes
+     */
+    public BtfTraceIndexer(BtfTrace trace, int interval, long minChunkSize) {
+        super(trace, interval);
+        if (minChunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size: " + minChunkSize); //$NON-NLS-1$
+        }
+        fBtfTrace = trace;
+        fInterval = interval;
+        fMinChunkSize = minChunkSize;
+    }
+
+    @Override
+    public void dispose() {
+        fDisposed = true;
+        super.dispose();
+    }
+
+    @Override
+    public boolean isIndexing() {
+        return fPreIndexing || super.isIndexing();
+    }
+
+    @Override
+    public void buildIndex(long offset, TmfTimeRange range, boolean waitForCompletion) {
+        synchronized (fTraceIndex) {
+            if (fPreIndexing) {
+                return;
+            }
+            fPreIndexing = offset == 0 && !super.isIndexing() && fTraceIndex.isCreatedFromScratch() && fTraceIndex.isEmpty();
+        }
+        if (!fPreIndexing) {
+            super.buildIndex(offset, range, waitForCompletion);
+            return;
+        }
+        if (waitForCompletion) {
+            preIndexAndBuild(range, true, new NullProgressMonitor());
+            return;
+        }
+        new BtfPreIndexingJob(range).schedule();
+    }
+
+    /**
+     * Pre-index the trace, then read the events after the last checkpoint
+     *
+     * @return the error, if the pre-indexing failed
+     */
+    private @Nullable Exception preIndexAndBuild(TmfTimeRange range, boolean waitForCompletion, IProgressMonitor monitor) {
+        Exception error = null;
+        try {
+            long nbEvents = 0;
+            try {
+                nbEvents = preIndex(monitor);
+            } catch (IOException | ExecutionException e) {
+                Activator.logError("Error indexing trace: " + fTrace.getPath(), e); //$NON-NLS-1$
+                error = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (isCancelled(monitor)) {
+                return null;
+            }
+            /* Read the events after the last checkpoint */
+            super.buildIndex(nbEvents, range, waitForCompletion);
+        } finally {
+            fPreIndexing = false;
+        }
+        return error;
+    }
+
+    /**
+     * Find the checkpoints of the trace, and update the trace with its number
+     * of events and its time range
+     *
+     * @return the number of events, or 0 if the trace was not indexed
+     */
+    private long preIndex(IProgressMonitor monitor) throws IOException, InterruptedException, ExecutionException {
+        Path path = Paths.get(fTrace.getPath());
+        long start = fBtfTrace.getDataOffset();
+        long[] bounds;
+        try (BtfRecordReader reader = new BtfRecordReader(path, BUFFER_SIZE)) {
+            long size = reader.length() - start;
+            int nbChunks = (int) Math.min(MAX_CHUNKS, size / fMinChunkSize);
+            if (nbChunks < 2) {
+                return 0;
+            }
+            bounds = new long[nbChunks + 1];
+            bounds[0] = start;
+            bounds[nbChunks] = start + size;
+            for (int i = 1; i < nbChunks; i++) {
+                /* Move the bound to the start of the next line */
+                reader.seek(start + size * i / nbChunks - 1);
+                reader.nextLine();
+                bounds[i] = Math.max(bounds[i - 1], reader.getFilePointer());
+            }
+        }
+
+        int nbChunks = bounds.length - 1;
+        /* Each chunk is read twice */
+        long totalBytes = 2 * (bounds[nbChunks] - bounds[0]);
+        SubMonitor subMonitor = SubMonitor.convert(monitor, (int) Math.min(Integer.MAX_VALUE, totalBytes / PROGRESS_UNIT));
+        fBytesRead.set(0);
+        fNbEventsRead.set(0);
+        fProgressDone = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(nbChunks, Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<Chunk>> counts = new ArrayList<>();
+            for (int i = 0; i < nbChunks; i++) {
+                Chunk chunk = new Chunk(bounds[i], bounds[i + 1]);
+                counts.add(executor.submit(() -> countEvents(path, chunk, monitor)));
+            }
+            /* The trace ends at the first line that is not an event */
+            List<Chunk> chunks = new ArrayList<>();
+            long rank = 0;
+            for (Future<Chunk> future : counts) {
+                Chunk chunk = waitFor(future, subMonitor);
+                chunk.fFirstRank = rank;
+                rank += chunk.fNbEvents;
+                chunks.add(chunk);
+                if (chunk.fEnded) {
+                    break;
+                }
+            }
+            if (rank == 0 || isCancelled(monitor)) {
+                return 0;
+            }
+
+            List<Future<List<ITmfCheckpoint>>> checkpoints = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                checkpoints.add(executor.submit(() -> readCheckpoints(path, chunk, monitor)));
+            }
+            for (Future<List<ITmfCheckpoint>> future : checkpoints) {
+                List<ITmfCheckpoint> chunkCheckpoints = waitFor(future, subMonitor);
+                synchronized (fTraceIndex) {
+                    if (isCancelled(monitor)) {
+                        return 0;
+                    }
+                    chunkCheckpoints.forEach(fTraceIndex::insert);
+                }
+            }
+
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (Chunk chunk : chunks) {
+                min = Math.min(min, chunk.fMinTimestamp);
+                max = Math.max(max, chunk.fMaxTimestamp);
+            }
+            TmfTimeRange range = new TmfTimeRange(fBtfTrace.createTimestamp(min), fBtfTrace.createTimestamp(max));
+            fTrace.broadcast(new TmfTraceUpdatedSignal(this, fTrace, range, rank));
+            return rank;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean isCancelled(IProgressMonitor monitor) {
+        return fDisposed || monitor.isCanceled();
+    }
+
+    /**
+     * Wait for the result of a chunk, updating the progress of the chunks
+     * being read in the meantime
+     */
+    private <T> T waitFor(Future<T> future, SubMonitor subMonitor) throws InterruptedException, ExecutionException {
+        while (true) {
+            try {
+                T result = future.get(PROGRESS_UPDATE_MS, TimeUnit.MILLISECONDS);
+                updateProgress(subMonitor);
+                return result;
+            } catch (TimeoutException e) {
+                updateProgress(subMonitor);
+            }
+        }
+    }
+
+    private void updateProgress(SubMonitor subMonitor) {
+        long done = fBytesRead.get() / PROGRESS_UNIT;
+        if (done > fProgressDone) {
+            subMonitor.worked((int) (done - fProgressDone));
+            fProgressDone = done;
+        }
+        subMonitor.setTaskName(String.format("%,d", fNbEventsRead.get()) + " events"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Count the events of a chunk, and find their time range
+     */
+    private Chunk countEvents(Path path, Chunk chunk, IProgressMonitor monitor) throws IOException {
+        try (BtfRecordReader reader = new BtfRecordReader(path, BUFFER_SIZE)) {
+            reader.seek(chunk.fStart);
+            long nbEvents = 0;
+            long reported = chunk.fStart;
+            while (reader.getFilePointer() < chunk.fEnd && reader.nextLine()) {
+                if (!BtfTrace.isEventRecord(reader)) {
+                    chunk.fEnded = true;
+                    break;
+                }
+                long timestamp = BtfTrace.getRawTimestamp(reader);
+                chunk.fMinTimestamp = Math.min(chunk.fMinTimestamp, timestamp);
+                chunk.fMaxTimestamp = Math.max(chunk.fMaxTimestamp, timestamp);
+                nbEvents++;
+                if (nbEvents % PROGRESS_EVENTS == 0) {
+                    fNbEventsRead.addAndGet(PROGRESS_EVENTS);
+                    fBytesRead.addAndGet(reader.getFilePointer() - reported);
+                    reported = reader.getFilePointer();
+                    if (isCancelled(monitor)) {
+                        break;
+                    }
+                }
+            }
+            chunk.fNbEvents = nbEvents;
+            fNbEventsRead.addAndGet(nbEvents % PROGRESS_EVENTS);
+            fBytesRead.addAndGet(chunk.fEnd - reported);
+        }
+        return chunk;
+    }
+
+    /**
+     * Read the checkpoints of a chunk whose events were counted. The location
+     * of a checkpoint is the offset of the line of its event.
+     */
+    private List<ITmfCheckpoint> readCheckpoints(Path path, Chunk chunk, IProgressMonitor monitor) throws IOException {
+        List<ITmfCheckpoint> checkpoints = new ArrayList<>();
+        try (BtfRecordReader reader = new BtfRecordReader(path, BUFFER_SIZE)) {
+            reader.seek(chunk.fStart);
+            long next = (fInterval - chunk.fFirstRank % fInterval) % fInterval;
+            long reported = chunk.fStart;
+            for (long i = 0; i < chunk.fNbEvents && reader.nextLine(); i++) {
+                if (i == next) {
+                    long rank = chunk.fFirstRank + i;
+                    checkpoints.add(new TmfCheckpoint(fBtfTrace.createTimestamp(BtfTrace.getRawTimestamp(reader)),
+                            new TmfLongLocation(reader.getLineOffset()), rank / fInterval));
+                    next += fInterval;
+                    fBytesRead.addAndGet(reader.getFilePointer() - reported);
+                    reported = reader.getFilePointer();
+                    if (isCancelled(monitor)) {
+                        break;
+                    }
+                }
+            }
+            fBytesRead.addAndGet(chunk.fEnd - reported);
+        }
+        return checkpoints;
+    }
+
+    /**
+     * Job that pre-indexes the trace then starts the indexing request, showing
+     * the progress of the chunks being read
+     */
+    private final class BtfPreIndexingJob extends Job {
+
+        private final TmfTimeRange fRange;
+
+        public BtfPreIndexingJob(TmfTimeRange range) {
+            super("Indexing " + fTrace.getName() + "..."); //$NON-NLS-1$ //$NON-NLS-2$
+            fRange = range;
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            Exception error = preIndexAndBuild(fRange, false, monitor);
+            monitor.done();
+            return (error != null) ? new Status(IStatus.ERROR, Activator.PLUGIN_ID, error.getMessage(), error) : Status.OK_STATUS;
+        }
+    }
+
+    /**
+     * A chunk of lines of the trace file
+     */
+    private static final class Chunk {
+        private final long fStart;
+        private final long fEnd;
+        private long fNbEvents = 0;
+        private long fMinTimestamp = Long.MAX_VALUE;
+        private long fMaxTimestamp = Long.MIN_VALUE;
+        /* Whether a line that is not an event ends the trace in this chunk */
+        private boolean fEnded = false;
+        private long fFirstRank = 0;
+
+        public Chunk(long start, long end) {
+            fStart = start;
+            fEnd = end;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.btf.core.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Buffered reader of the lines of a BTF file. The file is read in large
+ * blocks, and the lines and their fields are sliced directly in the buffer:
+ * strings are only created for the fields that are actually read as strings,
+ * and numeric fields are parsed from the bytes.
+ * <p>
+ * Like {@link java.io.RandomAccessFile#readLine()}, each byte is read as one
+ * ISO-8859-1 character, and lines end with "\n" or "\r\n".
+ */
+public final class BtfRecordReader implements Closeable {
+
+    private static final int MAX_DIGITS = 18;
+
+    private final FileChannel fChannel;
+    private byte[] fBuffer;
+    /* The file offset of the first byte of the buffer */
+    private long fBufferOffset = 0;
+    /* The number of valid bytes in the buffer */
+    private int fLimit = 0;
+    /* The position of the next byte to read in the buffer */
+    private int fPosition = 0;
+    private boolean fEndOfFile = false;
+
+    private long fLineOffset = -1;
+    private int fLineStart = 0;
+    private int fLineEnd = 0;
+
+    private int[] fFieldStarts = new int[0];
+    private int[] fFieldEnds = new int[0];
+    private int fNbFields = 0;
+
+    /**
+     * Constructor
+     *
+     * @param path
+     *            The file to read
+     * @param bufferSize
+     *            The size of the read buffer, which grows if a line is longer
+     * @throws IOException
+     *             If the file can not be opened
+     */
+    public BtfRecordReader(Path path, int bufferSize) throws IOException {
+        fChannel = FileChannel.open(path, StandardOpenOption.READ);
+        fBuffer = new byte[bufferSize];
+    }
+
+    @Override
+    public void close() throws IOException {
+        fChannel.close();
+    }
+
+    /**
+     * Get the size of the file
+     *
+     * @return The size of the file
+     * @throws IOException
+     *             If the size can not be read
+     */
+    public long length() throws IOException {
+        return fChannel.size();
+    }
+
+    /**
+     * Get the offset in the file of the next byte or line to read
+     *
+     * @return The file offset
+     */
+    public long getFilePointer() {
+        return fBufferOffset + fPosition;
+    }
+
+    /**
+     * Move to an offset in the file. The buffer is kept if the offset is in
+     * it.
+     *
+     * @param offset
+     *            The file offset
+     */
+    public void seek(long offset) {
+        if (offset >= fBufferOffset && offset <= fBufferOffset + fLimit) {
+            fPosition = (int) (offset - fBufferOffset);
+            return;
+        }
+        fBufferOffset = offset;
+        fLimit = 0;
+        fPosition = 0;
+        fEndOfFile = false;
+    }
+
+    /**
+     * Read the next byte
+     *
+     * @return The byte, or -1 at the end of the file
+     * @throws IOException
+     *             If the file could not be read
+     */
+    public int read() throws IOException {
+        if (fPosition == fLimit && !fill()) {
+            return -1;
+        }
+        return fBuffer[fPosition++] & 0xff;
+    }
+
+    /**
+     * Read the next line, which becomes the current line
+     *
+     * @return False if the end of the file is reached
+     * @throws IOException
+     *             If the file could not be read
+     */
+    public boolean nextLine() throws IOException {
+        fNbFields = 0;
+        int index = fPosition;
+        while (true) {
+            while (index < fLimit && fBuffer[index] != '\n') {
+                index++;
+            }
+            if (index < fLimit) {
+                setLine(index, index + 1);
+                return true;
+            }
+            int scanned = index - fPosition;
+            if (!fill()) {
+                if (fPosition == fLimit) {
+                    return false;
+                }
+                /* Last line, without a line feed */
+                setLine(fLimit, fLimit);
+                return true;
+            }
+            index = fPosition + scanned;
+        }
+    }
+
+    private void setLine(int end, int next) {
+        fLineOffset = fBufferOffset + fPosition;
+        fLineStart = fPosition;
+        fLineEnd = (end > fLineStart && fBuffer[end - 1] == '\r') ? end - 1 : end;
+        fPosition = next;
+    }
+
+    /**
+     * Read more bytes from the file, keeping the bytes after the current
+     * position
+     *
+     * @return False if the end of the file is reached
+     */
+    private boolean fill() throws IOException {
+        if (fEndOfFile) {
+            return false;
+        }
+        int remaining = fLimit - fPosition;
+        if (remaining == fBuffer.length) {
+            /* The line is longer than the buffer */
+            fBuffer = Arrays.copyOf(fBuffer, fBuffer.length * 2);
+        } else if (fPosition > 0) {
+            System.arraycopy(fBuffer, fPosition, fBuffer, 0, remaining);
+        }
+        fBufferOffset += fPosition;
+        fPosition = 0;
+        fLimit = remaining;
+        ByteBuffer buffer = ByteBuffer.wrap(fBuffer, fLimit, fBuffer.length - fLimit);
+        int read = fChannel.read(buffer, fBufferOffset + fLimit);
+        if (read <= 0) {
+            fEndOfFile = true;
+            return false;
+        }
+        fLimit += read;
+        return true;
+    }
+
+    /**
+     * Get the file offset of the current line
+     *
+     * @return The file offset of the current line
+     */
+    public long getLineOffset() {
+        return fLineOffset;
+    }
+
+    /**
+     * Get the current line
+     *
+     * @return The current line, without its line terminator
+     */
+    public String getLine() {
+        return new String(fBuffer, fLineStart, fLineEnd - fLineStart, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Check if the current line starts with a character
+     *
+     * @param c
+     *            The character
+     * @return True if the line starts with the character
+     */
+    public boolean startsWith(char c) {
+        return fLineEnd > fLineStart && fBuffer[fLineStart] == c;
+    }
+
+    /**
+     * Split the current line in fields, like {@link String#split(String, int)}
+     * with a single character separator and a positive limit: the last field
+     * contains the rest of the line.
+     *
+     * @param separator
+     *            The field separator
+     * @param maxFields
+     *            The maximum number of fields
+     * @return The number of fields
+     */
+    public int split(char separator, int maxFields) {
+        if (fFieldStarts.length < maxFields) {
+            fFieldStarts = new int[maxFields];
+            fFieldEnds = new int[maxFields];
+        }
+        int nbFields = 0;
+        int start = fLineStart;
+        for (int i = fLineStart; i < fLineEnd && nbFields < maxFields - 1; i++) {
+            if (fBuffer[i] == separator) {
+                fFieldStarts[nbFields] = start;
+                fFieldEnds[nbFields] = i;
+                nbFields++;
+                start = i + 1;
+            }
+        }
+        fFieldStarts[nbFields] = start;
+        fFieldEnds[nbFields] = fLineEnd;
+        fNbFields = nbFields + 1;
+        return fNbFields;
+    }
+
+    /**
+     * Get a field of the current line as a string
+     *
+     * @param field
+     *            The index of the field
+     * @return The field
+     */
+    public String getField(int field) {
+        checkField(field);
+        return new String(fBuffer, fFieldStarts[field], fFieldEnds[field] - fFieldStarts[field], StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Parse a field of the current line as a long, like
+     * {@link Long#parseLong(String)}, without creating a string
+     *
+     * @param field
+     *            The index of the field
+     * @return The value of the field
+     * @throws NumberFormatException
+     *             If the field is not a number
+     */
+    public long parseLong(int field) {
+        checkField(field);
+        int start = fFieldStarts[field];
+        int end = fFieldEnds[field];
+        boolean negative = false;
+        if (start < end && (fBuffer[start] == '-' || fBuffer[start] == '+')) {
+            negative = fBuffer[start] == '-';
+            start++;
+        }
+        if (start == end || end - start > MAX_DIGITS) {
+            /* Let Long handle the errors and the overflows */
+            return Long.parseLong(getField(field));
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = fBuffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + getField(field) + '"'); //$NON-NLS-1$
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= fNbFields) {
+            throw new IndexOutOfBoundsException("Field: " + field + ", fields: " + fNbFields); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+}
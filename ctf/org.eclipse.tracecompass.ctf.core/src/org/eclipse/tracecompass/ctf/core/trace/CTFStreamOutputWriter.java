@@ -16,9 +16,7 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -27,7 +25,6 @@ import java.nio.file.StandardOpenOption;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.ctf.core.CTFException;
-import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
 import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndex;
 
 /**
@@ -48,8 +45,6 @@ public class CTFStreamOutputWriter {
     @Nullable
     private final CTFStreamInput fStreamInput;
     @NonNull
-    private final CTFStreamPacketOutputWriter fStreamPacketOutputWriter;
-    @NonNull
     private final File fOutFile;
 
     // ------------------------------------------------------------------------
@@ -76,8 +71,6 @@ public class CTFStreamOutputWriter {
         } catch (IOException e) {
             throw new CTFIOException("Output file can't be created: " + outFilePath, e); //$NON-NLS-1$
         }
-
-        fStreamPacketOutputWriter = new CTFStreamPacketOutputWriter();
     }
 
     /**
@@ -87,6 +80,9 @@ public class CTFStreamOutputWriter {
      *
      * startTime <= packet.getTimestampEnd() && packet.getTimestampStart() <= endTime
      *
+     * Consecutive packets that are written are copied together, from file to
+     * file, without going through a buffer.
+     *
      * @param startTime
      *            the start time for packets to be written
      * @param endTime
@@ -105,14 +101,23 @@ public class CTFStreamOutputWriter {
             StreamInputPacketIndex index = streamInput.getIndex();
             int count = 0;
             try (FileChannel source = FileChannel.open(streamInput.getFile().toPath(), StandardOpenOption.READ)) {
+                /* The byte range of the consecutive packets to copy */
+                long rangeStart = 0;
+                long rangeEnd = 0;
                 for (int i = 0; i < index.size(); i++) {
                     ICTFPacketDescriptor entry = index.getElement(i);
                     if ((entry.getTimestampEnd() >= startTime) && (entry.getTimestampBegin() <= endTime)) {
-                        ByteBuffer buffer = SafeMappedByteBuffer.map(source, MapMode.READ_ONLY, entry.getOffsetBytes(), entry.getPacketSizeBits() / Byte.SIZE);
-                        fStreamPacketOutputWriter.writePacket(buffer, fc);
+                        long offset = entry.getOffsetBytes();
+                        long size = entry.getPacketSizeBits() / Byte.SIZE;
+                        if (offset != rangeEnd) {
+                            transfer(source, rangeStart, rangeEnd, fc);
+                            rangeStart = offset;
+                        }
+                        rangeEnd = offset + size;
                         count++;
                     }
                 }
+                transfer(source, rangeStart, rangeEnd, fc);
             }
 
             if (count == 0 && fOutFile.exists()) {
@@ -126,6 +131,21 @@ public class CTFStreamOutputWriter {
         }
     }
 
+    /**
+     * Copy a range of bytes of the source file at the current position of the
+     * target file
+     */
+    private static void transfer(FileChannel source, long start, long end, FileChannel target) throws IOException {
+        long position = start;
+        while (position < end) {
+            long transferred = source.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new IOException("Packet is past the end of the stream file: " + position); //$NON-NLS-1$
+            }
+            position += transferred;
+        }
+    }
+
     /**
      * Get the stream file to write.
      *
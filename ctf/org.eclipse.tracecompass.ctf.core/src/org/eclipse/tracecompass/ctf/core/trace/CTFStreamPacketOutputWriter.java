@@ -20,7 +20,10 @@ import java.nio.channels.FileChannel;
  *
  * @author Bernd Hufmann
  * @since 1.0
+ * @deprecated The packets are now copied directly between the file channels
+ *             by {@link CTFStreamOutputWriter}, this class is not used anymore
  */
+@Deprecated
 public class CTFStreamPacketOutputWriter {
 
     /**
@@ -16,7 +16,12 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -65,6 +70,8 @@ public class CTFTraceWriter {
      *
      * startTime <= packet.getTimestampBegin() <= endTime
      *
+     * The stream files are written concurrently.
+     *
      * @param startTime
      *            start time of packets to be included in output trace
      * @param endTime
@@ -99,13 +106,45 @@ public class CTFTraceWriter {
             }
 
             // Copy packets
+            List<CTFStreamInput> inputs = new ArrayList<>();
             for (ICTFStream stream : trace.getStreams()) {
-                Set<CTFStreamInput> inputs = stream.getStreamInputs();
+                inputs.addAll(stream.getStreamInputs());
+            }
+            if (inputs.isEmpty()) {
+                return;
+            }
+            int nbThreads = Math.min(inputs.size(), Runtime.getRuntime().availableProcessors());
+            ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
                 for (CTFStreamInput s : inputs) {
-                    CTFStreamOutputWriter streamOutputwriter = new CTFStreamOutputWriter(checkNotNull(s), out);
-                    streamOutputwriter.copyPackets(adjustedStart, adjustedEnd);
+                    futures.add(executor.submit(() -> {
+                        CTFStreamOutputWriter streamOutputwriter = new CTFStreamOutputWriter(checkNotNull(s), out);
+                        streamOutputwriter.copyPackets(adjustedStart, adjustedEnd);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    waitForCopy(future);
                 }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static void waitForCopy(Future<?> future) throws CTFException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CTFIOException("Copying packets was interrupted", e); //$NON-NLS-1$
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CTFException) {
+                throw (CTFException) cause;
             }
+            throw new CTFIOException("Error copying packets: " + cause, e); //$NON-NLS-1$
         }
     }
 }
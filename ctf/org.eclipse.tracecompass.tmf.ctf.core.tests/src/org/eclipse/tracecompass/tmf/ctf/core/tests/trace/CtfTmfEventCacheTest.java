@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.tmf.core.component.TmfEventCache;
+import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.experiment.TmfExperiment;
+import org.eclipse.tracecompass.tmf.ctf.core.tests.shared.CtfTmfTestTraceUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the events read through the {@link TmfEventCache} are the same
+ * as the events read from the trace.
+ */
+public class CtfTmfEventCacheTest {
+
+    private static final @NonNull CtfTestTrace TEST_TRACE1 = CtfTestTrace.KERNEL;
+    private static final @NonNull CtfTestTrace TEST_TRACE2 = CtfTestTrace.TRACE2;
+    private static final int CACHE_SIZE = 100000;
+    /* Several blocks of the cache, not aligned on a block */
+    private static final int START_RANK = 250;
+    private static final int NB_EVENTS = 4500;
+
+    private ITmfTrace fTrace1;
+    private ITmfTrace fTrace2;
+
+    /**
+     * Enable the cache and open the traces
+     */
+    @Before
+    public void setUp() {
+        TmfEventCache.getInstance().setMaxSize(CACHE_SIZE);
+        fTrace1 = CtfTmfTestTraceUtils.getTrace(TEST_TRACE1);
+        fTrace2 = CtfTmfTestTraceUtils.getTrace(TEST_TRACE2);
+    }
+
+    /**
+     * Disable the cache and dispose the traces
+     */
+    @After
+    public void tearDown() {
+        TmfEventCache.getInstance().setMaxSize(0);
+        CtfTmfTestTraceUtils.dispose(TEST_TRACE1);
+        CtfTmfTestTraceUtils.dispose(TEST_TRACE2);
+    }
+
+    /**
+     * Read the same region of a CTF trace twice, the second time from the
+     * cache
+     *
+     * @throws InterruptedException
+     *             If the requests are interrupted
+     */
+    @Test
+    public void testTrace() throws InterruptedException {
+        ITmfTrace trace = fTrace1;
+        trace.indexTrace(true);
+        verifyReadTwice(trace);
+    }
+
+    /**
+     * Read the same region of an experiment twice, the second time from the
+     * cache
+     *
+     * @throws InterruptedException
+     *             If the requests are interrupted
+     */
+    @Test
+    public void testExperiment() throws InterruptedException {
+        TmfExperiment experiment = new TmfExperiment(ITmfEvent.class, "experiment", new ITmfTrace[] { fTrace1, fTrace2 }, //$NON-NLS-1$
+                TmfExperiment.DEFAULT_INDEX_PAGE_SIZE, null);
+        try {
+            experiment.indexTrace(true);
+            verifyReadTwice(experiment);
+        } finally {
+            experiment.dispose();
+        }
+    }
+
+    private static void verifyReadTwice(ITmfTrace trace) throws InterruptedException {
+        assertTrue(trace.getNbEvents() > START_RANK + NB_EVENTS);
+        List<ITmfEvent> first = readEvents(trace);
+        List<ITmfEvent> second = readEvents(trace);
+        assertEquals(NB_EVENTS, first.size());
+        assertEquals(first, second);
+
+        /* A third time, starting in the middle of the cached region */
+        List<ITmfEvent> expected = first.subList(1000, NB_EVENTS);
+        List<ITmfEvent> third = readEvents(trace, START_RANK + 1000, NB_EVENTS - 1000);
+        assertEquals(expected, third);
+    }
+
+    private static List<ITmfEvent> readEvents(ITmfTrace trace) throws InterruptedException {
+        return readEvents(trace, START_RANK, NB_EVENTS);
+    }
+
+    private static List<ITmfEvent> readEvents(ITmfTrace trace, long index, int nbRequested) throws InterruptedException {
+        List<ITmfEvent> events = new ArrayList<>();
+        TmfEventRequest request = new TmfEventRequest(ITmfEvent.class, index, nbRequested, ExecutionType.FOREGROUND) {
+            @Override
+            public void handleData(ITmfEvent event) {
+                super.handleData(event);
+                events.add(event);
+            }
+        };
+        trace.sendRequest(request);
+        request.waitForCompletion();
+        assertTrue(request.isCompleted() && !request.isFailed());
+        return events;
+    }
+}
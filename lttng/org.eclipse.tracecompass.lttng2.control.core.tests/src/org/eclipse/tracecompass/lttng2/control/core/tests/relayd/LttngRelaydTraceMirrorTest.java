@@ -0,0 +1,300 @@
+/**********************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ **********************************************************************/
+
+package org.eclipse.tracecompass.lttng2.control.core.tests.relayd;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.ILttngRelaydConnector;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.LttngRelaydTraceMirror;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.AttachReturnCode;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.AttachSessionResponse;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.CreateSessionResponse;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.GetPacketReturnCode;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.IndexResponse;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.LttngViewerCommands;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.NextIndexReturnCode;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.SessionResponse;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.StreamResponse;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.TracePacketResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link LttngRelaydTraceMirror} class with a stub relay daemon
+ * connector.
+ */
+public class LttngRelaydTraceMirrorTest {
+
+    private static final String METADATA = "/* CTF 1.8 */"; //$NON-NLS-1$
+    private static final long METADATA_STREAM = 0;
+    private static final long STREAM_A = 1;
+    private static final long STREAM_B = 2;
+
+    private File fDirectory;
+
+    /**
+     * Create the mirror directory
+     *
+     * @throws IOException
+     *             if the directory cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fDirectory = Files.createTempDirectory("relayd-mirror").toFile(); //$NON-NLS-1$
+    }
+
+    /**
+     * Delete the mirror directory
+     */
+    @After
+    public void tearDown() {
+        File[] files = fDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        fDirectory.delete();
+    }
+
+    /**
+     * Test that the metadata and the packets of each stream are appended to
+     * the local trace files, until the session is destroyed.
+     *
+     * @throws IOException
+     *             if the mirror fails
+     */
+    @Test
+    public void testReadPackets() throws IOException {
+        StubConnector relayd = new StubConnector();
+        relayd.addPacket(STREAM_A, new byte[] { 1, 2, 3, 4 }, 100, 0);
+        relayd.addPacket(STREAM_A, new byte[] { 5, 6 }, 200, 0);
+        relayd.addPacket(STREAM_B, new byte[] { 7 }, 150, 0);
+
+        AttachSessionResponse session = createSession(
+                stream(METADATA_STREAM, 1, "metadata"), //$NON-NLS-1$
+                stream(STREAM_A, 0, "channel0"), //$NON-NLS-1$
+                stream(STREAM_B, 0, "channel0")); //$NON-NLS-1$
+        try (LttngRelaydTraceMirror mirror = new LttngRelaydTraceMirror(relayd, session, fDirectory)) {
+            assertTrue(mirror.readMetadata());
+            assertEquals(3, mirror.readPackets());
+            assertEquals(200, mirror.getTimestampEnd());
+            assertFalse(mirror.isComplete());
+
+            /* Nothing new */
+            assertEquals(0, mirror.readPackets());
+
+            relayd.addPacket(STREAM_B, new byte[] { 8, 9 }, 300, 0);
+            assertEquals(1, mirror.readPackets());
+            assertEquals(300, mirror.getTimestampEnd());
+
+            relayd.fHangUp = true;
+            assertEquals(0, mirror.readPackets());
+            assertTrue(mirror.isComplete());
+        }
+
+        assertArrayEquals(METADATA.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(new File(fDirectory, LttngRelaydTraceMirror.METADATA_FILE_NAME).toPath()));
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6 }, Files.readAllBytes(new File(fDirectory, "channel0_1").toPath())); //$NON-NLS-1$
+        assertArrayEquals(new byte[] { 7, 8, 9 }, Files.readAllBytes(new File(fDirectory, "channel0_2").toPath())); //$NON-NLS-1$
+    }
+
+    /**
+     * Test that the streams announced by the relay daemon are mirrored too.
+     *
+     * @throws IOException
+     *             if the mirror fails
+     */
+    @Test
+    public void testNewStreams() throws IOException {
+        StubConnector relayd = new StubConnector();
+        relayd.addPacket(STREAM_A, new byte[] { 1 }, 100, LttngViewerCommands.NEW_STREAM);
+        relayd.fNewStreams.add(stream(STREAM_B, 0, "channel1")); //$NON-NLS-1$
+
+        AttachSessionResponse session = createSession(stream(STREAM_A, 0, "channel0")); //$NON-NLS-1$
+        try (LttngRelaydTraceMirror mirror = new LttngRelaydTraceMirror(relayd, session, fDirectory)) {
+            assertEquals(1, mirror.readPackets());
+            relayd.addPacket(STREAM_B, new byte[] { 2 }, 200, 0);
+            assertEquals(1, mirror.readPackets());
+        }
+        assertArrayEquals(new byte[] { 2 }, Files.readAllBytes(new File(fDirectory, "channel1_2").toPath())); //$NON-NLS-1$
+    }
+
+    /**
+     * Test that a new mirror in the same directory, for example after a
+     * reconnection, overwrites the files of the previous one instead of
+     * appending to them.
+     *
+     * @throws IOException
+     *             if the mirror fails
+     */
+    @Test
+    public void testReconnect() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            StubConnector relayd = new StubConnector();
+            relayd.addPacket(STREAM_A, new byte[] { 1, 2 }, 100, 0);
+            AttachSessionResponse session = createSession(
+                    stream(METADATA_STREAM, 1, "metadata"), //$NON-NLS-1$
+                    stream(STREAM_A, 0, "channel0")); //$NON-NLS-1$
+            try (LttngRelaydTraceMirror mirror = new LttngRelaydTraceMirror(relayd, session, fDirectory)) {
+                assertTrue(mirror.readMetadata());
+                assertTrue(mirror.readMetadata());
+                assertEquals(1, mirror.readPackets());
+            }
+        }
+        /* The metadata is appended within one mirror only */
+        String metadata = METADATA + METADATA;
+        assertArrayEquals(metadata.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(new File(fDirectory, LttngRelaydTraceMirror.METADATA_FILE_NAME).toPath()));
+        assertArrayEquals(new byte[] { 1, 2 }, Files.readAllBytes(new File(fDirectory, "channel0_1").toPath())); //$NON-NLS-1$
+    }
+
+    // ------------------------------------------------------------------------
+    // Helpers to build the relay daemon responses
+    // ------------------------------------------------------------------------
+
+    private static DataInputStream input(ByteBuffer bb) {
+        return new DataInputStream(new ByteArrayInputStream(bb.array()));
+    }
+
+    private static StreamResponse stream(long id, int metadataFlag, String channelName) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(StreamResponse.SIZE);
+        bb.putLong(id);
+        bb.putLong(0);
+        bb.putInt(metadataFlag);
+        bb.put(new byte[LttngViewerCommands.LTTNG_VIEWER_PATH_MAX]);
+        bb.put(channelName.getBytes(StandardCharsets.UTF_8));
+        return new StreamResponse(input(bb));
+    }
+
+    private static AttachSessionResponse createSession(StreamResponse... streams) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(Integer.BYTES * 2 + StreamResponse.SIZE * streams.length);
+        bb.putInt(AttachReturnCode.VIEWER_ATTACH_OK.getCommand());
+        bb.putInt(streams.length);
+        for (StreamResponse stream : streams) {
+            bb.putLong(stream.getId());
+            bb.putLong(stream.getCtfTraceId());
+            bb.putInt(stream.getMetadataFlag());
+            bb.put(stream.getPathName().getBytes(StandardCharsets.UTF_8));
+            bb.put(stream.getChannelName().getBytes(StandardCharsets.UTF_8));
+        }
+        return new AttachSessionResponse(input(bb));
+    }
+
+    private static IndexResponse index(NextIndexReturnCode status, long streamId, long size, long timestampEnd, int flags) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(IndexResponse.SIZE);
+        bb.putLong(0);
+        bb.putLong(size * Byte.SIZE);
+        bb.putLong(size * Byte.SIZE);
+        bb.putLong(0);
+        bb.putLong(timestampEnd);
+        bb.putLong(0);
+        bb.putLong(streamId);
+        bb.putInt(status.getCommand());
+        bb.putInt(flags);
+        return new IndexResponse(input(bb));
+    }
+
+    private static TracePacketResponse packet(byte[] data) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(Integer.BYTES * 3 + data.length);
+        bb.putInt(GetPacketReturnCode.VIEWER_GET_PACKET_OK.getCommand());
+        bb.putInt(data.length);
+        bb.putInt(0);
+        bb.put(data);
+        return new TracePacketResponse(input(bb));
+    }
+
+    /**
+     * Connector serving queued packets for each stream
+     */
+    private static class StubConnector implements ILttngRelaydConnector {
+
+        private final Map<Long, Deque<IndexResponse>> fIndexes = new HashMap<>();
+        private final Map<Long, Deque<byte[]>> fPackets = new HashMap<>();
+        private final List<StreamResponse> fNewStreams = new ArrayList<>();
+        private boolean fHangUp = false;
+
+        public void addPacket(long streamId, byte[] data, long timestampEnd, int flags) throws IOException {
+            fIndexes.computeIfAbsent(streamId, id -> new ArrayDeque<>()).add(index(NextIndexReturnCode.VIEWER_INDEX_OK, streamId, data.length, timestampEnd, flags));
+            fPackets.computeIfAbsent(streamId, id -> new ArrayDeque<>()).add(data);
+        }
+
+        @Override
+        public IndexResponse getNextIndex(StreamResponse stream) throws IOException {
+            if (fHangUp) {
+                return index(NextIndexReturnCode.VIEWER_INDEX_HUP, stream.getId(), 0, 0, 0);
+            }
+            Deque<IndexResponse> indexes = fIndexes.get(stream.getId());
+            if (indexes == null || indexes.isEmpty()) {
+                return index(NextIndexReturnCode.VIEWER_INDEX_RETRY, stream.getId(), 0, 0, 0);
+            }
+            return indexes.poll();
+        }
+
+        @Override
+        public TracePacketResponse getPacketFromStream(IndexResponse index, long id) throws IOException {
+            byte[] data = fPackets.get(id).poll();
+            assertEquals(index.getPacketSize() / Byte.SIZE, data.length);
+            return packet(data);
+        }
+
+        @Override
+        public String getMetadata(AttachSessionResponse attachedSession) {
+            return METADATA;
+        }
+
+        @Override
+        public Iterable<StreamResponse> getNewStreams() {
+            return fNewStreams;
+        }
+
+        @Override
+        public List<SessionResponse> getSessions() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public CreateSessionResponse createSession() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AttachSessionResponse attachToSession(SessionResponse lttngViewerSession) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TracePacketResponse getNextPacket(StreamResponse stream) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            // Nothing to close
+        }
+    }
+}
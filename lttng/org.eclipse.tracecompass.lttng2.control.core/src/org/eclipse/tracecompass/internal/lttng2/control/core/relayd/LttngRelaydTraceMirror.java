@@ -0,0 +1,243 @@
+/**********************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ **********************************************************************/
+
+package org.eclipse.tracecompass.internal.lttng2.control.core.relayd;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.AttachSessionResponse;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.GetPacketReturnCode;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.IndexResponse;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.LttngViewerCommands;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.NextIndexReturnCode;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.StreamResponse;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.TracePacketResponse;
+
+/**
+ * Mirrors a live session of a relay daemon into a local CTF trace directory.
+ *
+ * The packets are pulled through the viewer protocol of the
+ * {@link ILttngRelaydConnector} and appended to one local file per stream, so
+ * the relay daemon does not need to run on the same host as the viewer. A CTF
+ * trace read in live mode on the mirror directory will index the new packets
+ * as they are appended.
+ *
+ * The files left in the directory by a previous mirror, for example before a
+ * reconnection, are overwritten: each file is truncated the first time this
+ * mirror writes to it, since the relay daemon sends the metadata and the
+ * packets from the start of the session again.
+ *
+ * This class is not thread-safe, it is meant to be used by a single consumer
+ * thread.
+ */
+public class LttngRelaydTraceMirror implements AutoCloseable {
+
+    /** Name of the metadata file in the trace directory */
+    public static final String METADATA_FILE_NAME = "metadata"; //$NON-NLS-1$
+
+    /**
+     * Maximum number of packets read from one stream for each call to
+     * {@link #readPackets()}, so that one busy stream does not starve the
+     * others.
+     */
+    private static final int MAX_PACKETS_PER_STREAM = 64;
+
+    private final ILttngRelaydConnector fRelayd;
+    private final AttachSessionResponse fSession;
+    private final File fDirectory;
+    private final List<StreamResponse> fStreams = new ArrayList<>();
+    private final Map<Long, FileChannel> fStreamFiles = new HashMap<>();
+
+    private long fTimestampEnd = Long.MIN_VALUE;
+    private boolean fComplete = false;
+    private boolean fMetadataWritten = false;
+
+    /**
+     * Constructor
+     *
+     * @param relayd
+     *            the connector to the relay daemon
+     * @param session
+     *            the session the connector is attached to
+     * @param directory
+     *            the local directory where to write the trace. It will be
+     *            created if it does not exist.
+     * @throws IOException
+     *             If the directory cannot be created
+     */
+    public LttngRelaydTraceMirror(ILttngRelaydConnector relayd, AttachSessionResponse session, File directory) throws IOException {
+        fRelayd = relayd;
+        fSession = session;
+        fDirectory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory); //$NON-NLS-1$
+        }
+        fStreams.addAll(session.getStreamList());
+    }
+
+    /**
+     * Get the local directory of the trace
+     *
+     * @return the trace directory
+     */
+    public File getDirectory() {
+        return fDirectory;
+    }
+
+    /**
+     * Get the end timestamp, in cycles, of the last packet received
+     *
+     * @return the end timestamp of the last packet, or {@link Long#MIN_VALUE}
+     *         if no packet was received
+     */
+    public long getTimestampEnd() {
+        return fTimestampEnd;
+    }
+
+    /**
+     * Get whether the session was destroyed on the relay daemon, in which case
+     * no more packets will be received.
+     *
+     * @return true if the trace is complete
+     */
+    public boolean isComplete() {
+        return fComplete;
+    }
+
+    /**
+     * Fetch the metadata available on the relay daemon and append it to the
+     * local metadata file. The first metadata received by this mirror replaces
+     * the content of the file.
+     *
+     * @return true if metadata was received
+     * @throws IOException
+     *             If there was a network or file error
+     */
+    public boolean readMetadata() throws IOException {
+        String metadata = fRelayd.getMetadata(fSession);
+        if (metadata == null || metadata.isEmpty()) {
+            return false;
+        }
+        File file = new File(fDirectory, METADATA_FILE_NAME);
+        try (FileChannel fc = openFile(file, !fMetadataWritten)) {
+            writeFully(fc, metadata.getBytes(StandardCharsets.UTF_8));
+        }
+        fMetadataWritten = true;
+        return true;
+    }
+
+    /**
+     * Pull the packets available on the relay daemon for every data stream,
+     * and append them to the local stream files. New streams and new metadata
+     * announced by the relay daemon are picked up too.
+     *
+     * @return the number of packets that were appended
+     * @throws IOException
+     *             If there was a network or file error
+     */
+    public int readPackets() throws IOException {
+        int nbPackets = 0;
+        boolean newStreams = false;
+        boolean newMetadata = false;
+        for (StreamResponse stream : fStreams) {
+            if (stream.getMetadataFlag() == 1) {
+                continue;
+            }
+            for (int i = 0; i < MAX_PACKETS_PER_STREAM; i++) {
+                IndexResponse index = fRelayd.getNextIndex(stream);
+                newStreams |= (index.getFlags() & LttngViewerCommands.NEW_STREAM) != 0;
+                newMetadata |= (index.getFlags() & LttngViewerCommands.NEW_METADATA) != 0;
+                NextIndexReturnCode status = index.getStatus();
+                if (status == NextIndexReturnCode.VIEWER_INDEX_HUP) {
+                    /* The trace session was destroyed */
+                    fComplete = true;
+                    break;
+                }
+                if (status != NextIndexReturnCode.VIEWER_INDEX_OK) {
+                    /* Nothing new in this stream for now */
+                    break;
+                }
+                TracePacketResponse packet = fRelayd.getPacketFromStream(index, stream.getId());
+                if (packet.getStatus() != GetPacketReturnCode.VIEWER_GET_PACKET_OK) {
+                    break;
+                }
+                writeFully(getStreamFile(stream), packet.getData());
+                fTimestampEnd = Math.max(fTimestampEnd, index.getTimestampEnd());
+                nbPackets++;
+            }
+            if (fComplete) {
+                break;
+            }
+        }
+        if (newMetadata) {
+            readMetadata();
+        }
+        if (newStreams) {
+            for (StreamResponse stream : fRelayd.getNewStreams()) {
+                fStreams.add(stream);
+            }
+        }
+        return nbPackets;
+    }
+
+    private FileChannel getStreamFile(StreamResponse stream) throws IOException {
+        FileChannel fc = fStreamFiles.get(stream.getId());
+        if (fc == null) {
+            String name = nullTerminatedString(stream.getChannelName()) + '_' + stream.getId();
+            File file = new File(fDirectory, name);
+            fc = openFile(file, true);
+            fStreamFiles.put(stream.getId(), fc);
+        }
+        return fc;
+    }
+
+    private static FileChannel openFile(File file, boolean truncate) throws IOException {
+        if (truncate) {
+            return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void writeFully(FileChannel fc, byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            fc.write(buffer);
+        }
+    }
+
+    private static String nullTerminatedString(String string) {
+        int length = string.indexOf('\0');
+        return (length < 0 ? string : string.substring(0, length));
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException exception = null;
+        for (FileChannel fc : fStreamFiles.values()) {
+            try {
+                fc.close();
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+        fStreamFiles.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+}
@@ -12,6 +12,7 @@
 
 package org.eclipse.tracecompass.internal.lttng2.control.ui.relayd;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.Socket;
@@ -25,6 +26,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.ILttngRelaydConnector;
+import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.LttngRelaydTraceMirror;
 import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.AttachReturnCode;
 import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.AttachSessionResponse;
 import org.eclipse.tracecompass.internal.lttng2.control.core.relayd.commands.CreateSessionResponse;
@@ -51,6 +53,8 @@ public final class LttngRelaydConsumer {
     private static final Pattern PROTOCOL_HOST_PATTERN = Pattern.compile("(\\S+://)*(\\d+\\.\\d+\\.\\d+\\.\\d+)"); //$NON-NLS-1$
     private static final int SIGNAL_THROTTLE_NANOSEC = 10_000_000;
     private static final String ENCODING_UTF_8 = "UTF-8"; //$NON-NLS-1$
+    private static final String MIRROR_FOLDER_NAME = "live"; //$NON-NLS-1$
+    private static final long MIRROR_POLL_DELAY_MILLIS = 100;
 
     private Job fConsumerJob;
     private CtfTmfTrace fCtfTmfTrace;
@@ -59,6 +63,7 @@ public final class LttngRelaydConsumer {
     private Socket fConnection;
     private ILttngRelaydConnector fRelayd;
     private String fTracePath;
+    private LttngRelaydTraceMirror fMirror;
     private long fLastSignal = 0;
     private final LttngRelaydConnectionInfo fConnectionInfo;
 
@@ -154,6 +159,22 @@ public final class LttngRelaydConsumer {
 
             fTracePath = nullTerminatedByteArrayToString(attachedStreams.get(0).getPathName().getBytes());
 
+            if (!new File(fTracePath).isDirectory()) {
+                /*
+                 * The relay daemon is on another host, pull the packets
+                 * through the connection into a local copy of the trace.
+                 */
+                File directory = Activator.getDefault().getStateLocation()
+                        .append(MIRROR_FOLDER_NAME)
+                        .append(fConnectionInfo.getHost().replaceAll("\\W", "_") + '_' + fConnectionInfo.getSessionName()) //$NON-NLS-1$ //$NON-NLS-2$
+                        .toFile();
+                fMirror = new LttngRelaydTraceMirror(fRelayd, attachedSession, directory);
+                fMirror.readMetadata();
+                /* Make sure the stream files exist before the trace is opened */
+                fMirror.readPackets();
+                fTracePath = directory.getAbsolutePath();
+            }
+
             fSession = attachedSession;
         } catch (IOException e) {
             throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, Messages.LttngRelaydConsumer_ErrorConnecting + (e.getMessage() != null ? e.getMessage() : ""))); //$NON-NLS-1$
@@ -178,29 +199,20 @@ public final class LttngRelaydConsumer {
             protected IStatus run(final IProgressMonitor monitor) {
                 try {
                     while (!monitor.isCanceled()) {
+                        if (fMirror != null) {
+                            if (readMirrorPackets()) {
+                                return Status.OK_STATUS;
+                            }
+                            continue;
+                        }
                         List<StreamResponse> attachedStreams = fSession.getStreamList();
                         for (StreamResponse stream : attachedStreams) {
                             if (stream.getMetadataFlag() != 1) {
                                 IndexResponse indexReply = fRelayd.getNextIndex(stream);
                                 if (indexReply.getStatus() == NextIndexReturnCode.VIEWER_INDEX_OK) {
-                                    long nanoTimeStamp = fCtfTmfTrace.timestampCyclesToNanos(indexReply.getTimestampEnd());
-                                    if (nanoTimeStamp > fTimestampEnd) {
-                                        ITmfTimestamp endTime = TmfTimestamp.fromNanos(nanoTimeStamp);
-                                        TmfTimeRange range = new TmfTimeRange(fCtfTmfTrace.getStartTime(), endTime);
-
-                                        long currentTime = System.nanoTime();
-                                        if (currentTime - fLastSignal > SIGNAL_THROTTLE_NANOSEC) {
-                                            TmfTraceRangeUpdatedSignal signal = new TmfTraceRangeUpdatedSignal(LttngRelaydConsumer.this, fCtfTmfTrace, range);
-                                            fCtfTmfTrace.broadcastAsync(signal);
-                                            fLastSignal = currentTime;
-                                        }
-                                        fTimestampEnd = nanoTimeStamp;
-                                    }
+                                    updateTimestampEnd(indexReply.getTimestampEnd());
                                 } else if (indexReply.getStatus() == NextIndexReturnCode.VIEWER_INDEX_HUP) {
-                                    // The trace is now complete because the trace session was destroyed
-                                    fCtfTmfTrace.setComplete(true);
-                                    TmfTraceRangeUpdatedSignal signal = new TmfTraceRangeUpdatedSignal(LttngRelaydConsumer.this, fCtfTmfTrace, new TmfTimeRange(fCtfTmfTrace.getStartTime(), TmfTimestamp.fromNanos(fTimestampEnd)));
-                                    fCtfTmfTrace.broadcastAsync(signal);
+                                    setComplete();
                                     return Status.OK_STATUS;
                                 }
                             }
@@ -218,6 +230,53 @@ public final class LttngRelaydConsumer {
         fConsumerJob.schedule();
     }
 
+    /**
+     * Pull the available packets into the local copy of the trace.
+     *
+     * @return true if the trace is now complete
+     */
+    private boolean readMirrorPackets() throws IOException {
+        if (fMirror.readPackets() > 0) {
+            updateTimestampEnd(fMirror.getTimestampEnd());
+        } else if (!fMirror.isComplete()) {
+            /* Nothing new, don't hammer the relay daemon */
+            try {
+                Thread.sleep(MIRROR_POLL_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return true;
+            }
+        }
+        if (fMirror.isComplete()) {
+            setComplete();
+            return true;
+        }
+        return false;
+    }
+
+    private void updateTimestampEnd(long cyclesTimestampEnd) {
+        long nanoTimeStamp = fCtfTmfTrace.timestampCyclesToNanos(cyclesTimestampEnd);
+        if (nanoTimeStamp > fTimestampEnd) {
+            ITmfTimestamp endTime = TmfTimestamp.fromNanos(nanoTimeStamp);
+            TmfTimeRange range = new TmfTimeRange(fCtfTmfTrace.getStartTime(), endTime);
+
+            long currentTime = System.nanoTime();
+            if (currentTime - fLastSignal > SIGNAL_THROTTLE_NANOSEC) {
+                TmfTraceRangeUpdatedSignal signal = new TmfTraceRangeUpdatedSignal(this, fCtfTmfTrace, range);
+                fCtfTmfTrace.broadcastAsync(signal);
+                fLastSignal = currentTime;
+            }
+            fTimestampEnd = nanoTimeStamp;
+        }
+    }
+
+    private void setComplete() {
+        // The trace is now complete because the trace session was destroyed
+        fCtfTmfTrace.setComplete(true);
+        TmfTraceRangeUpdatedSignal signal = new TmfTraceRangeUpdatedSignal(this, fCtfTmfTrace, new TmfTimeRange(fCtfTmfTrace.getStartTime(), TmfTimestamp.fromNanos(fTimestampEnd)));
+        fCtfTmfTrace.broadcastAsync(signal);
+    }
+
     /**
      * Dispose the consumer and it's resources (sockets, etc).
      */
@@ -227,6 +286,9 @@ public final class LttngRelaydConsumer {
                 fConsumerJob.cancel();
                 fConsumerJob.join();
             }
+            if (fMirror != null) {
+                fMirror.close();
+            }
             if (fConnection != null) {
                 fConnection.close();
             }
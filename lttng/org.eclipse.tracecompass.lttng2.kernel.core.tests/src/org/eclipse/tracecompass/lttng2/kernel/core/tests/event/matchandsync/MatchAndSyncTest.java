@@ -26,7 +26,9 @@ import org.eclipse.tracecompass.internal.lttng2.kernel.core.event.matching.TcpEv
 import org.eclipse.tracecompass.internal.lttng2.kernel.core.event.matching.TcpLttngEventMatching;
 import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
 import org.eclipse.tracecompass.tmf.core.event.matching.IMatchProcessingUnit;
+import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventMatches;
 import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventMatching;
+import org.eclipse.tracecompass.tmf.core.event.matching.TmfWindowedEventMatching;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.ctf.core.tests.shared.CtfTmfTestTraceUtils;
 import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
@@ -74,4 +76,37 @@ public class MatchAndSyncTest {
         }
     }
 
+    /**
+     * Testing the packet matching in bounded memory, which must find the same
+     * matches when no unmatched event is dropped
+     */
+    @Test
+    public void testWindowedMatching() {
+        CtfTmfTrace trace1 = CtfTmfTestTraceUtils.getTrace(CtfTestTrace.SYNC_SRC);
+        CtfTmfTrace trace2 = CtfTmfTestTraceUtils.getTrace(CtfTestTrace.SYNC_DEST);
+
+        List<@NonNull ITmfTrace> tracearr = new LinkedList<>();
+        tracearr.add(trace1);
+        tracearr.add(trace2);
+
+        TmfEventMatching.registerMatchObject(new TcpEventMatching());
+        TmfEventMatching.registerMatchObject(new TcpLttngEventMatching());
+
+        try {
+            IMatchProcessingUnit procUnit = new TmfEventMatches();
+            TmfEventMatching twoTraceMatch = new TmfWindowedEventMatching(tracearr, procUnit, TmfWindowedEventMatching.UNBOUNDED_WINDOW);
+            assertTrue(twoTraceMatch.matchEvents());
+            assertEquals(46, procUnit.countMatches());
+
+            /* A window shorter than the delay of the packets drops them all */
+            procUnit = new TmfEventMatches();
+            twoTraceMatch = new TmfWindowedEventMatching(tracearr, procUnit, 1);
+            assertTrue(twoTraceMatch.matchEvents());
+            assertTrue(procUnit.countMatches() < 46);
+        } finally {
+            trace1.dispose();
+            trace2.dispose();
+        }
+    }
+
 }
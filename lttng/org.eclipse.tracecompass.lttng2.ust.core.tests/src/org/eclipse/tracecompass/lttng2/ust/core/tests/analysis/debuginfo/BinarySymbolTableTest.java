@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.lttng2.ust.core.tests.analysis.debuginfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo.BinarySymbolTable;
+import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo.ElfSymbolReader;
+import org.eclipse.tracecompass.tmf.core.event.lookup.TmfCallsite;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link BinarySymbolTable} lookups and persistence
+ */
+public class BinarySymbolTableTest {
+
+    private static final String MAIN_FILE = "/src/main.c";
+    private static final String UTIL_FILE = "/src/util.c";
+
+    private File fBinary;
+    private File fTableFile;
+
+    /**
+     * Create the files used by the tests
+     *
+     * @throws IOException
+     *             If the files cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fBinary = File.createTempFile("binary", ".so");
+        Files.write(fBinary.toPath(), "not an ELF file".getBytes(StandardCharsets.UTF_8));
+        fTableFile = File.createTempFile("binary", ".symbols");
+    }
+
+    /**
+     * Delete the test files
+     */
+    @After
+    public void tearDown() {
+        fBinary.delete();
+        fTableFile.delete();
+    }
+
+    private BinarySymbolTable buildTable() {
+        BinarySymbolTable.Builder builder = new BinarySymbolTable.Builder(fBinary);
+        builder.addSymbol(0x2000, 0x100, "util", true);
+        builder.addSymbol(0x1000, 0x80, "local_alias", false);
+        builder.addSymbol(0x1000, 0x80, "main", true);
+        /* Unknown size, extends up to the next symbol */
+        builder.addSymbol(0x1800, 0, "asm_stub", true);
+
+        builder.addSequence(new long[] { 0x2000, 0x2010, 0x2010, 0x2040 },
+                new String[] { UTIL_FILE, UTIL_FILE, UTIL_FILE },
+                new int[] { 3, 4, 5 }, 4);
+        builder.addSequence(new long[] { 0x1000, 0x1008, 0x1020, 0x1080 },
+                new String[] { MAIN_FILE, MAIN_FILE, UTIL_FILE },
+                new int[] { 10, 10, 2 }, 4);
+        return builder.build();
+    }
+
+    private static void assertTableContent(BinarySymbolTable table) {
+        assertTrue(table.hasLineInfo());
+
+        assertNull(table.getFunctionName(0x0fff));
+        assertEquals("main", table.getFunctionName(0x1000));
+        assertEquals("main", table.getFunctionName(0x107f));
+        assertNull(table.getFunctionName(0x1080));
+        assertEquals("asm_stub", table.getFunctionName(0x1800));
+        assertEquals("asm_stub", table.getFunctionName(0x1fff));
+        assertEquals("util", table.getFunctionName(0x20ff));
+        assertNull(table.getFunctionName(0x2100));
+
+        assertNull(table.getCallsite(0x0fff));
+        assertEquals(new TmfCallsite(MAIN_FILE, 10L), table.getCallsite(0x1000));
+        assertEquals(new TmfCallsite(MAIN_FILE, 10L), table.getCallsite(0x101f));
+        assertEquals(new TmfCallsite(UTIL_FILE, 2L), table.getCallsite(0x107f));
+        /* Gap between the two sequences */
+        assertNull(table.getCallsite(0x1080));
+        assertNull(table.getCallsite(0x1fff));
+        assertEquals(new TmfCallsite(UTIL_FILE, 3L), table.getCallsite(0x200f));
+        /* The last row at one address wins */
+        assertEquals(new TmfCallsite(UTIL_FILE, 5L), table.getCallsite(0x2010));
+        assertNull(table.getCallsite(0x2040));
+    }
+
+    /**
+     * Test the lookups in a table built in memory
+     */
+    @Test
+    public void testLookups() {
+        assertTableContent(buildTable());
+    }
+
+    /**
+     * Test saving a table and loading it back
+     *
+     * @throws IOException
+     *             If the table file cannot be written or read
+     */
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        buildTable().save(fTableFile);
+        BinarySymbolTable table = BinarySymbolTable.load(fTableFile);
+        assertTableContent(table);
+        assertTrue(table.isUpToDate(fBinary));
+
+        Files.write(fBinary.toPath(), "a modified binary".getBytes(StandardCharsets.UTF_8));
+        assertFalse(table.isUpToDate(fBinary));
+    }
+
+    /**
+     * Test that loading a file that is not a symbol table fails
+     *
+     * @throws IOException
+     *             Expected
+     */
+    @Test(expected = IOException.class)
+    public void testLoadInvalid() throws IOException {
+        BinarySymbolTable.load(fBinary);
+    }
+
+    /**
+     * Test that reading the symbols of a file that is not an ELF binary does
+     * not produce a table
+     */
+    @Test
+    public void testReadNonElf() {
+        assertNull(ElfSymbolReader.read(fBinary));
+    }
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.lttng2.ust.core.tests.analysis.debuginfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo.BinarySymbolTable;
+import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo.ElfSymbolReader;
+import org.eclipse.tracecompass.tmf.core.event.lookup.TmfCallsite;
+import org.junit.Test;
+
+/**
+ * Test the {@link ElfSymbolReader} with small binaries built from
+ * testfiles/elf/hello.c, see the README file in the same directory.
+ */
+public class ElfSymbolReaderTest {
+
+    private static final String ELF_DIRECTORY = "../../lttng/org.eclipse.tracecompass.lttng2.ust.core.tests/testfiles/elf/";
+    private static final String SOURCE_FILE = "/src/hello.c";
+
+    /**
+     * Test a binary with DWARF 5 line information
+     */
+    @Test
+    public void testDwarf5() {
+        assertTableContent(read("hello"));
+    }
+
+    /**
+     * Test a binary with DWARF 4 line information and zlib-compressed debug
+     * sections
+     */
+    @Test
+    public void testDwarf4Compressed() {
+        assertTableContent(read("hello-dwarf4-zlib"));
+    }
+
+    /**
+     * Test that a compressed section that is not needed is not decompressed,
+     * its content being invalid
+     */
+    @Test
+    public void testUnusedCompressedSection() {
+        assertTableContent(read("hello-dwarf4-zlib-badframe"));
+    }
+
+    /**
+     * Test that a source file is not read as an ELF file
+     */
+    @Test
+    public void testNotElf() {
+        assertNull(ElfSymbolReader.read(new File(ELF_DIRECTORY + "hello.c")));
+    }
+
+    private static BinarySymbolTable read(String name) {
+        BinarySymbolTable table = ElfSymbolReader.read(new File(ELF_DIRECTORY + name));
+        assertNotNull(table);
+        return table;
+    }
+
+    private static void assertTableContent(BinarySymbolTable table) {
+        /* Local symbol, with its size */
+        assertEquals("square", table.getFunctionName(0x401000));
+        assertEquals("square", table.getFunctionName(0x40100e));
+        assertEquals("sum_of_squares", table.getFunctionName(0x40100f));
+        assertEquals("sum_of_squares", table.getFunctionName(0x401047));
+        assertEquals("_start", table.getFunctionName(0x401048));
+        assertNull(table.getFunctionName(0x400000));
+        assertNull(table.getFunctionName(0x401058));
+
+        assertTrue(table.hasLineInfo());
+        assertEquals(new TmfCallsite(SOURCE_FILE, 2L), table.getCallsite(0x401000));
+        assertEquals(new TmfCallsite(SOURCE_FILE, 3L), table.getCallsite(0x40100c));
+        assertEquals(new TmfCallsite(SOURCE_FILE, 10L), table.getCallsite(0x40102a));
+        /* The loop condition, after the body */
+        assertEquals(new TmfCallsite(SOURCE_FILE, 9L), table.getCallsite(0x401037));
+        assertEquals(new TmfCallsite(SOURCE_FILE, 18L), table.getCallsite(0x401057));
+        /* End of the sequence */
+        assertNull(table.getCallsite(0x401058));
+        assertNull(table.getCallsite(0x400000));
+    }
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.lttng2.ust.core.tests.analysis.debuginfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo.FileOffsetMapper;
+import org.eclipse.tracecompass.tmf.core.event.lookup.TmfCallsite;
+import org.junit.Test;
+
+/**
+ * Test the batched lookups of the {@link FileOffsetMapper}, with a binary
+ * built from testfiles/elf/hello.c
+ */
+public class FileOffsetMapperTest {
+
+    private static final File BINARY = new File("../../lttng/org.eclipse.tracecompass.lttng2.ust.core.tests/testfiles/elf/hello");
+    private static final String SOURCE_FILE = "/src/hello.c";
+
+    /* Two offsets in the same function, one without symbol */
+    private static final List<Long> OFFSETS = Arrays.asList(0x401000L, 0x40100cL, 0x40102aL, 0x400000L);
+
+    /**
+     * Test resolving the call sites of many offsets at once, the offsets that
+     * cannot be resolved are not in the result
+     */
+    @Test
+    public void testCallsites() {
+        Map<Long, TmfCallsite> callsites = FileOffsetMapper.getCallsitesFromOffsets(BINARY, null, OFFSETS, null);
+        assertEquals(3, callsites.size());
+        assertEquals(new TmfCallsite(SOURCE_FILE, 2L), callsites.get(0x401000L));
+        assertEquals(new TmfCallsite(SOURCE_FILE, 3L), callsites.get(0x40100cL));
+        assertEquals(new TmfCallsite(SOURCE_FILE, 10L), callsites.get(0x40102aL));
+    }
+
+    /**
+     * Test resolving the function names of many offsets at once
+     */
+    @Test
+    public void testFunctionNames() {
+        Map<Long, String> names = FileOffsetMapper.getFunctionNamesFromOffsets(BINARY, null, OFFSETS, null);
+        assertEquals(3, names.size());
+        assertEquals("square", names.get(0x401000L));
+        assertEquals("square", names.get(0x40100cL));
+        assertEquals("sum_of_squares", names.get(0x40102aL));
+    }
+
+    /**
+     * Test a binary that does not exist
+     */
+    @Test
+    public void testMissingBinary() {
+        File missing = new File(BINARY.getParentFile(), "missing");
+        assertTrue(FileOffsetMapper.getCallsitesFromOffsets(missing, null, OFFSETS, null).isEmpty());
+        assertTrue(FileOffsetMapper.getFunctionNamesFromOffsets(missing, null, OFFSETS, null).isEmpty());
+    }
+}
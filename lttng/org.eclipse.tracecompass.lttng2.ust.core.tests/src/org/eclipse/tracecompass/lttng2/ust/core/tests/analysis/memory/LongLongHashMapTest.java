@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.lttng2.ust.core.tests.analysis.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.memory.LongLongHashMap;
+import org.junit.Test;
+
+/**
+ * Test the {@link LongLongHashMap} class
+ */
+public class LongLongHashMapTest {
+
+    private static final long NO_VALUE = -1;
+
+    /**
+     * Test adding, replacing and removing entries, including the keys that
+     * mark the free and removed slots of the table
+     */
+    @Test
+    public void testPutGetRemove() {
+        LongLongHashMap map = new LongLongHashMap(NO_VALUE);
+        assertTrue(map.isEmpty());
+        long[] keys = { 0x7f0000001000L, 0, Long.MIN_VALUE, Long.MAX_VALUE, -1 };
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(NO_VALUE, map.get(keys[i]));
+            assertEquals(NO_VALUE, map.put(keys[i], i));
+            assertEquals(i, map.get(keys[i]));
+            assertTrue(map.containsKey(keys[i]));
+        }
+        assertEquals(keys.length, map.size());
+        assertEquals(2, map.put(Long.MIN_VALUE, 20));
+        assertEquals(20, map.get(Long.MIN_VALUE));
+        for (int i = 0; i < keys.length; i++) {
+            map.remove(keys[i]);
+            assertFalse(map.containsKey(keys[i]));
+            assertEquals(NO_VALUE, map.remove(keys[i]));
+        }
+        assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Test the map against a {@link HashMap}, with aligned keys like pointers
+     * that are allocated and freed, in a heap and a direct table
+     */
+    @Test
+    public void testRandomOperations() {
+        for (boolean direct : new boolean[] { false, true }) {
+            Random random = new Random(direct ? 1 : 2);
+            LongLongHashMap map = new LongLongHashMap(NO_VALUE, 0, direct);
+            Map<Long, Long> expected = new HashMap<>();
+            for (int i = 0; i < 100000; i++) {
+                long key = 0x7f0000000000L + random.nextInt(5000) * 16L;
+                long value = random.nextInt(1000);
+                switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.getOrDefault(key, NO_VALUE).longValue(), map.put(key, value));
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    assertEquals(expected.getOrDefault(key, NO_VALUE).longValue(), map.remove(key));
+                    expected.remove(key);
+                    break;
+                default:
+                    assertEquals(expected.getOrDefault(key, NO_VALUE).longValue(), map.get(key));
+                    break;
+                }
+                assertEquals(expected.size(), map.size());
+            }
+            map.clear();
+            assertTrue(map.isEmpty());
+            for (Long key : expected.keySet()) {
+                assertEquals(NO_VALUE, map.get(key));
+            }
+        }
+    }
+
+    /**
+     * Test that many allocations and frees of different pointers, which leave
+     * tombstones in the table, keep the map correct
+     */
+    @Test
+    public void testTombstones() {
+        LongLongHashMap map = new LongLongHashMap(NO_VALUE);
+        for (long i = 1; i <= 100000; i++) {
+            map.put(i * 32, i);
+            if (i > 100) {
+                assertEquals(i - 100, map.remove((i - 100) * 32));
+            }
+        }
+        assertEquals(100, map.size());
+        for (long i = 99901; i <= 100000; i++) {
+            assertEquals(i, map.get(i * 32));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+static int square(int x)
+{
+    return x * x;
+}
+
+int sum_of_squares(int n)
+{
+    int sum = 0;
+    for (int i = 0; i < n; i++) {
+        sum += square(i);
+    }
+    return sum;
+}
+
+void _start(void)
+{
+    sum_of_squares(10);
+    for (;;) {
+    }
+}
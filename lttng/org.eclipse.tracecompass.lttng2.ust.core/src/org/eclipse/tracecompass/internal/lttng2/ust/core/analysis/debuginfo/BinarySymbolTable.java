@@ -0,0 +1,474 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.tmf.core.event.lookup.TmfCallsite;
+
+/**
+ * Lookup table of the function symbols and source lines of a binary file,
+ * indexed by address.
+ *
+ * The table is kept in a single {@link ByteBuffer}, in the same layout as the
+ * file it is saved to, so that a saved table can be memory-mapped and queried
+ * directly without being read in memory first. The symbols and the line rows
+ * are sorted by address, lookups are binary searches in the buffer.
+ *
+ * The layout is:
+ *
+ * <pre>
+ * int   magic
+ * int   version
+ * long  size of the binary file
+ * long  last modification time of the binary file
+ * int   number of symbols
+ * int   number of line rows
+ * int   number of strings
+ * symbols:    (long start, long end, int name) * number of symbols
+ * line rows:  (long address, int file, int line) * number of line rows
+ * strings:    int offset * number of strings
+ * string data: (int length, bytes) for each string
+ * </pre>
+ *
+ * A line row with a file index of {@link #NO_FILE} marks the end of a
+ * sequence of addresses covered by the line information.
+ */
+public final class BinarySymbolTable {
+
+    private static final int MAGIC = 0x54435354; // "TCST"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES + 3 * Integer.BYTES;
+    private static final int SYMBOL_SIZE = 2 * Long.BYTES + Integer.BYTES;
+    private static final int LINE_SIZE = Long.BYTES + 2 * Integer.BYTES;
+
+    /** File index of a line row marking the end of a sequence */
+    private static final int NO_FILE = -1;
+
+    private final ByteBuffer fBuffer;
+    private final long fBinarySize;
+    private final long fBinaryTimestamp;
+    private final int fNbSymbols;
+    private final int fNbLines;
+    private final int fSymbolsStart;
+    private final int fLinesStart;
+    private final int fStringsStart;
+    private final @Nullable String[] fStrings;
+
+    private BinarySymbolTable(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("Invalid symbol table"); //$NON-NLS-1$
+        }
+        fBuffer = buffer;
+        fBinarySize = buffer.getLong(2 * Integer.BYTES);
+        fBinaryTimestamp = buffer.getLong(2 * Integer.BYTES + Long.BYTES);
+        int countsStart = 2 * Integer.BYTES + 2 * Long.BYTES;
+        fNbSymbols = buffer.getInt(countsStart);
+        fNbLines = buffer.getInt(countsStart + Integer.BYTES);
+        int nbStrings = buffer.getInt(countsStart + 2 * Integer.BYTES);
+        fSymbolsStart = HEADER_SIZE;
+        fLinesStart = fSymbolsStart + fNbSymbols * SYMBOL_SIZE;
+        fStringsStart = fLinesStart + fNbLines * LINE_SIZE;
+        if (fNbSymbols < 0 || fNbLines < 0 || nbStrings < 0 ||
+                fStringsStart + (long) nbStrings * Integer.BYTES > buffer.capacity()) {
+            throw new IOException("Truncated symbol table"); //$NON-NLS-1$
+        }
+        fStrings = new @Nullable String[nbStrings];
+    }
+
+    /**
+     * Load a table that was saved with {@link #save(File)}. The file is
+     * memory-mapped.
+     *
+     * @param file
+     *            The file to load
+     * @return The symbol table
+     * @throws IOException
+     *             If the file cannot be read or is not a valid symbol table
+     */
+    public static BinarySymbolTable load(File file) throws IOException {
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new BinarySymbolTable(fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()));
+        }
+    }
+
+    /**
+     * Save this table to a file, overwriting it if it exists.
+     *
+     * @param file
+     *            The destination file
+     * @throws IOException
+     *             If the file cannot be written
+     */
+    public void save(File file) throws IOException {
+        ByteBuffer buffer = fBuffer.duplicate();
+        buffer.clear();
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                fc.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Check if this table was built from the given binary file as it is now on
+     * disk.
+     *
+     * @param binary
+     *            The binary file
+     * @return true if the size and modification time of the file match the
+     *         ones it had when the table was built
+     */
+    public boolean isUpToDate(File binary) {
+        return binary.length() == fBinarySize && binary.lastModified() == fBinaryTimestamp;
+    }
+
+    /**
+     * Get whether this table has source line information
+     *
+     * @return true if there is line information
+     */
+    public boolean hasLineInfo() {
+        return fNbLines > 0;
+    }
+
+    /**
+     * Get the name of the function containing an address
+     *
+     * @param address
+     *            The address, in the address space of the binary file
+     * @return The function name, or null if no symbol covers this address
+     */
+    public @Nullable String getFunctionName(long address) {
+        int index = floor(fSymbolsStart, SYMBOL_SIZE, fNbSymbols, address);
+        if (index < 0) {
+            return null;
+        }
+        int pos = fSymbolsStart + index * SYMBOL_SIZE;
+        if (Long.compareUnsigned(address, fBuffer.getLong(pos + Long.BYTES)) >= 0) {
+            return null;
+        }
+        return getString(fBuffer.getInt(pos + 2 * Long.BYTES));
+    }
+
+    /**
+     * Get the source file and line of an address
+     *
+     * @param address
+     *            The address, in the address space of the binary file
+     * @return The call site, or null if there is no line information for this
+     *         address
+     */
+    public @Nullable TmfCallsite getCallsite(long address) {
+        int index = floor(fLinesStart, LINE_SIZE, fNbLines, address);
+        if (index < 0) {
+            return null;
+        }
+        int pos = fLinesStart + index * LINE_SIZE;
+        int file = fBuffer.getInt(pos + Long.BYTES);
+        if (file == NO_FILE) {
+            return null;
+        }
+        int line = fBuffer.getInt(pos + Long.BYTES + Integer.BYTES);
+        return new TmfCallsite(getString(file), (line == 0 ? null : Long.valueOf(line)));
+    }
+
+    /**
+     * Find the last record whose address is lower or equal to the given one.
+     */
+    private int floor(int start, int recordSize, int nbRecords, long address) {
+        int low = 0;
+        int high = nbRecords - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midAddress = fBuffer.getLong(start + mid * recordSize);
+            if (Long.compareUnsigned(midAddress, address) <= 0) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private String getString(int index) {
+        String string = fStrings[index];
+        if (string == null) {
+            int pos = fBuffer.getInt(fStringsStart + index * Integer.BYTES);
+            byte[] bytes = new byte[fBuffer.getInt(pos)];
+            ByteBuffer buffer = fBuffer.duplicate();
+            buffer.position(pos + Integer.BYTES);
+            buffer.get(bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+            fStrings[index] = string;
+        }
+        return string;
+    }
+
+    /**
+     * Builder of symbol tables. Symbols and line sequences can be added in any
+     * order.
+     */
+    public static class Builder {
+
+        private final long fBinarySize;
+        private final long fBinaryTimestamp;
+        private final Map<String, Integer> fStringIndexes = new HashMap<>();
+        private final List<String> fStringList = new ArrayList<>();
+
+        private long[] fSymbolStarts = new long[64];
+        private long[] fSymbolEnds = new long[64];
+        private int[] fSymbolNames = new int[64];
+        private boolean[] fSymbolGlobal = new boolean[64];
+        private int fNbSymbols = 0;
+
+        private final List<long[]> fSequenceAddresses = new ArrayList<>();
+        private final List<int[]> fSequenceRows = new ArrayList<>();
+
+        /**
+         * Constructor
+         *
+         * @param binary
+         *            The binary file the table is built from
+         */
+        public Builder(File binary) {
+            fBinarySize = binary.length();
+            fBinaryTimestamp = binary.lastModified();
+        }
+
+        /**
+         * Add a function symbol
+         *
+         * @param start
+         *            The start address of the function
+         * @param size
+         *            The size of the function, 0 if unknown. A function of
+         *            unknown size extends up to the next symbol.
+         * @param name
+         *            The name of the function
+         * @param global
+         *            Whether the symbol is global, global symbols are preferred
+         *            over local ones at the same address
+         */
+        public void addSymbol(long start, long size, String name, boolean global) {
+            if (fNbSymbols == fSymbolStarts.length) {
+                int length = fNbSymbols * 2;
+                fSymbolStarts = Arrays.copyOf(fSymbolStarts, length);
+                fSymbolEnds = Arrays.copyOf(fSymbolEnds, length);
+                fSymbolNames = Arrays.copyOf(fSymbolNames, length);
+                fSymbolGlobal = Arrays.copyOf(fSymbolGlobal, length);
+            }
+            fSymbolStarts[fNbSymbols] = start;
+            fSymbolEnds[fNbSymbols] = (size == 0 ? -1 : start + size);
+            fSymbolNames[fNbSymbols] = intern(name);
+            fSymbolGlobal[fNbSymbols] = global;
+            fNbSymbols++;
+        }
+
+        /**
+         * Rename the symbols, for example to demangle them
+         *
+         * @param names
+         *            The new names, indexed by the current names. Names that
+         *            are not in the map are kept.
+         */
+        public void renameSymbols(Map<String, String> names) {
+            for (int i = 0; i < fNbSymbols; i++) {
+                String newName = names.get(fStringList.get(fSymbolNames[i]));
+                if (newName != null) {
+                    fSymbolNames[i] = intern(newName);
+                }
+            }
+        }
+
+        /**
+         * Get the names of the symbols added so far
+         *
+         * @return The symbol names
+         */
+        public List<String> getSymbolNames() {
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < fNbSymbols; i++) {
+                names.add(fStringList.get(fSymbolNames[i]));
+            }
+            return names;
+        }
+
+        /**
+         * Add a sequence of line rows, as produced by a DWARF line number
+         * program. The rows must be sorted by address.
+         *
+         * @param addresses
+         *            The addresses of the rows. The last address is the end
+         *            of the sequence, the first one that is not covered by it.
+         * @param files
+         *            The file names of the rows, except the last one
+         * @param lines
+         *            The line numbers of the rows, except the last one
+         * @param nbRows
+         *            The number of rows, including the end of the sequence
+         */
+        public void addSequence(long[] addresses, String[] files, int[] lines, int nbRows) {
+            if (nbRows < 2) {
+                return;
+            }
+            long[] seqAddresses = new long[nbRows];
+            int[] seqRows = new int[2 * nbRows];
+            int count = 0;
+            int lastFile = NO_FILE;
+            int lastLine = -1;
+            for (int i = 0; i < nbRows - 1; i++) {
+                int file = intern(files[i]);
+                if (count > 0 && seqAddresses[count - 1] == addresses[i]) {
+                    /* The last row at one address wins */
+                    count--;
+                } else if (file == lastFile && lines[i] == lastLine) {
+                    /* Same location as the previous row, no need to keep it */
+                    continue;
+                }
+                seqAddresses[count] = addresses[i];
+                seqRows[2 * count] = file;
+                seqRows[2 * count + 1] = lines[i];
+                lastFile = file;
+                lastLine = lines[i];
+                count++;
+            }
+            seqAddresses[count] = addresses[nbRows - 1];
+            seqRows[2 * count] = NO_FILE;
+            count++;
+            fSequenceAddresses.add(Arrays.copyOf(seqAddresses, count));
+            fSequenceRows.add(Arrays.copyOf(seqRows, 2 * count));
+        }
+
+        private int intern(String string) {
+            Integer index = fStringIndexes.get(string);
+            if (index == null) {
+                index = fStringList.size();
+                fStringList.add(string);
+                fStringIndexes.put(string, index);
+            }
+            return index;
+        }
+
+        /**
+         * Build the symbol table
+         *
+         * @return The symbol table
+         */
+        public BinarySymbolTable build() {
+            /* Sort the symbols, keeping only one symbol per address */
+            Integer[] order = new Integer[fNbSymbols];
+            for (int i = 0; i < fNbSymbols; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int cmp = Long.compareUnsigned(fSymbolStarts[a], fSymbolStarts[b]);
+                if (cmp != 0) {
+                    return cmp;
+                }
+                return Boolean.compare(fSymbolGlobal[b], fSymbolGlobal[a]);
+            });
+            int[] symbols = new int[fNbSymbols];
+            int nbSymbols = 0;
+            for (int i = 0; i < fNbSymbols; i++) {
+                int symbol = order[i];
+                if (nbSymbols == 0 || fSymbolStarts[symbols[nbSymbols - 1]] != fSymbolStarts[symbol]) {
+                    symbols[nbSymbols++] = symbol;
+                }
+            }
+
+            /* Sort the sequences, dropping the ones overlapping a previous one */
+            Integer[] sequences = new Integer[fSequenceAddresses.size()];
+            for (int i = 0; i < sequences.length; i++) {
+                sequences[i] = i;
+            }
+            Arrays.sort(sequences, (a, b) -> Long.compareUnsigned(fSequenceAddresses.get(a)[0], fSequenceAddresses.get(b)[0]));
+            List<Integer> kept = new ArrayList<>();
+            long lastEnd = 0;
+            int nbLines = 0;
+            for (Integer sequence : sequences) {
+                long[] addresses = fSequenceAddresses.get(sequence);
+                if (!kept.isEmpty() && Long.compareUnsigned(addresses[0], lastEnd) < 0) {
+                    continue;
+                }
+                kept.add(sequence);
+                lastEnd = addresses[addresses.length - 1];
+                nbLines += addresses.length;
+            }
+
+            /* Encode the strings */
+            byte[][] strings = new byte[fStringList.size()][];
+            int stringsSize = 0;
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = fStringList.get(i).getBytes(StandardCharsets.UTF_8);
+                stringsSize += Integer.BYTES * 2 + strings[i].length;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + nbSymbols * SYMBOL_SIZE + nbLines * LINE_SIZE + stringsSize);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(fBinarySize);
+            buffer.putLong(fBinaryTimestamp);
+            buffer.putInt(nbSymbols);
+            buffer.putInt(nbLines);
+            buffer.putInt(strings.length);
+            for (int i = 0; i < nbSymbols; i++) {
+                int symbol = symbols[i];
+                long end = fSymbolEnds[symbol];
+                if (end == -1) {
+                    /* Unknown size, extends up to the next symbol */
+                    end = (i + 1 < nbSymbols ? fSymbolStarts[symbols[i + 1]] : -1);
+                }
+                buffer.putLong(fSymbolStarts[symbol]);
+                buffer.putLong(end);
+                buffer.putInt(fSymbolNames[symbol]);
+            }
+            for (Integer sequence : kept) {
+                long[] addresses = fSequenceAddresses.get(sequence);
+                int[] rows = fSequenceRows.get(sequence);
+                for (int i = 0; i < addresses.length; i++) {
+                    buffer.putLong(addresses[i]);
+                    buffer.putInt(rows[2 * i]);
+                    buffer.putInt(rows[2 * i + 1]);
+                }
+            }
+            int offset = buffer.position() + strings.length * Integer.BYTES;
+            for (byte[] string : strings) {
+                buffer.putInt(offset);
+                offset += Integer.BYTES + string.length;
+            }
+            for (byte[] string : strings) {
+                buffer.putInt(string.length);
+                buffer.put(string);
+            }
+            try {
+                return new BinarySymbolTable(buffer);
+            } catch (IOException e) {
+                /* The buffer was just built, it is always valid */
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,931 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.common.core.log.TraceCompassLog;
+import org.eclipse.tracecompass.common.core.process.ProcessUtils;
+
+/**
+ * Reader of the function symbols (from the ELF symbol tables) and of the
+ * source line information (from the DWARF line number programs) of an ELF
+ * binary, producing a {@link BinarySymbolTable}.
+ *
+ * Only the information needed to map an address to a function name and a
+ * source location is read. DWARF versions 2 to 5 are supported, as well as
+ * compressed debug sections. If the binary does not contain line
+ * information, the separate debug file found through its build ID is used.
+ *
+ * C++ symbol names are demangled with 'c++filt', in batches, once per binary.
+ */
+public final class ElfSymbolReader {
+
+    private static final Logger LOGGER = TraceCompassLog.getLogger(ElfSymbolReader.class);
+
+    private static final String DEBUG_FILE_DIRECTORY = "/usr/lib/debug/.build-id/"; //$NON-NLS-1$
+    private static final String DEBUG_FILE_EXTENSION = ".debug"; //$NON-NLS-1$
+    private static final String CXXFILT_EXECUTABLE = "c++filt"; //$NON-NLS-1$
+    private static final String MANGLED_PREFIX = "_Z"; //$NON-NLS-1$
+    private static final int DEMANGLE_BATCH_SIZE = 500;
+
+    private static final String SYMTAB = ".symtab"; //$NON-NLS-1$
+    private static final String DYNSYM = ".dynsym"; //$NON-NLS-1$
+    private static final String BUILD_ID = ".note.gnu.build-id"; //$NON-NLS-1$
+    private static final String DEBUG_LINE = ".debug_line"; //$NON-NLS-1$
+    private static final String DEBUG_LINE_STR = ".debug_line_str"; //$NON-NLS-1$
+    private static final String DEBUG_INFO = ".debug_info"; //$NON-NLS-1$
+    private static final String DEBUG_ABBREV = ".debug_abbrev"; //$NON-NLS-1$
+    private static final String DEBUG_STR = ".debug_str"; //$NON-NLS-1$
+
+    private static final int ELF_MAGIC = 0x7f454c46;
+    private static final int ELFCLASS64 = 2;
+    private static final int ELFDATA2MSB = 2;
+
+    private static final int SHT_SYMTAB = 2;
+    private static final int SHT_NOBITS = 8;
+    private static final int SHT_DYNSYM = 11;
+    private static final long SHF_COMPRESSED = 0x800;
+    private static final int ELFCOMPRESS_ZLIB = 1;
+
+    private static final int STT_FUNC = 2;
+    private static final int STT_GNU_IFUNC = 10;
+    private static final int STB_LOCAL = 0;
+
+    /* DWARF constants */
+    private static final int DW_LNS_COPY = 1;
+    private static final int DW_LNS_ADVANCE_PC = 2;
+    private static final int DW_LNS_ADVANCE_LINE = 3;
+    private static final int DW_LNS_SET_FILE = 4;
+    private static final int DW_LNS_CONST_ADD_PC = 8;
+    private static final int DW_LNS_FIXED_ADVANCE_PC = 9;
+    private static final int DW_LNE_END_SEQUENCE = 1;
+    private static final int DW_LNE_SET_ADDRESS = 2;
+    private static final int DW_LNE_DEFINE_FILE = 3;
+    private static final int DW_LNCT_PATH = 1;
+    private static final int DW_LNCT_DIRECTORY_INDEX = 2;
+    private static final int DW_AT_STMT_LIST = 0x10;
+    private static final int DW_AT_COMP_DIR = 0x1b;
+    private static final int DW_FORM_ADDR = 0x01;
+    private static final int DW_FORM_BLOCK2 = 0x03;
+    private static final int DW_FORM_BLOCK4 = 0x04;
+    private static final int DW_FORM_DATA2 = 0x05;
+    private static final int DW_FORM_DATA4 = 0x06;
+    private static final int DW_FORM_DATA8 = 0x07;
+    private static final int DW_FORM_STRING = 0x08;
+    private static final int DW_FORM_BLOCK = 0x09;
+    private static final int DW_FORM_BLOCK1 = 0x0a;
+    private static final int DW_FORM_DATA1 = 0x0b;
+    private static final int DW_FORM_FLAG = 0x0c;
+    private static final int DW_FORM_SDATA = 0x0d;
+    private static final int DW_FORM_STRP = 0x0e;
+    private static final int DW_FORM_UDATA = 0x0f;
+    private static final int DW_FORM_REF_ADDR = 0x10;
+    private static final int DW_FORM_REF1 = 0x11;
+    private static final int DW_FORM_REF2 = 0x12;
+    private static final int DW_FORM_REF4 = 0x13;
+    private static final int DW_FORM_REF8 = 0x14;
+    private static final int DW_FORM_REF_UDATA = 0x15;
+    private static final int DW_FORM_INDIRECT = 0x16;
+    private static final int DW_FORM_SEC_OFFSET = 0x17;
+    private static final int DW_FORM_EXPRLOC = 0x18;
+    private static final int DW_FORM_FLAG_PRESENT = 0x19;
+    private static final int DW_FORM_STRX = 0x1a;
+    private static final int DW_FORM_ADDRX = 0x1b;
+    private static final int DW_FORM_REF_SUP4 = 0x1c;
+    private static final int DW_FORM_STRP_SUP = 0x1d;
+    private static final int DW_FORM_DATA16 = 0x1e;
+    private static final int DW_FORM_LINE_STRP = 0x1f;
+    private static final int DW_FORM_REF_SIG8 = 0x20;
+    private static final int DW_FORM_IMPLICIT_CONST = 0x21;
+    private static final int DW_FORM_LOCLISTX = 0x22;
+    private static final int DW_FORM_RNGLISTX = 0x23;
+    private static final int DW_FORM_REF_SUP8 = 0x24;
+    private static final int DW_FORM_STRX1 = 0x25;
+    private static final int DW_FORM_STRX4 = 0x28;
+    private static final int DW_FORM_ADDRX1 = 0x29;
+    private static final int DW_FORM_ADDRX4 = 0x2c;
+    private static final int DW_FORM_GNU_ADDR_INDEX = 0x1f01;
+    private static final int DW_FORM_GNU_STR_INDEX = 0x1f02;
+    private static final int DW_FORM_GNU_REF_ALT = 0x1f20;
+    private static final int DW_FORM_GNU_STRP_ALT = 0x1f21;
+
+    private final ByteBuffer fElf;
+    private final boolean fIs64;
+    private final Map<String, Integer> fSectionIndexes = new HashMap<>();
+    private final Map<String, Integer> fSectionTypes = new HashMap<>();
+    private final Map<String, Integer> fSectionLinks = new HashMap<>();
+    /* The compressed sections are only decompressed if they are read */
+    private final List<ByteBuffer> fSectionList = new ArrayList<>();
+    private final Set<Integer> fCompressedSections = new HashSet<>();
+
+    private ElfSymbolReader(ByteBuffer elf) throws IOException {
+        fElf = elf;
+        if (elf.capacity() < 0x40 || elf.getInt(0) != ELF_MAGIC) {
+            throw new IOException("Not an ELF file"); //$NON-NLS-1$
+        }
+        fIs64 = (elf.get(4) == ELFCLASS64);
+        elf.order(elf.get(5) == ELFDATA2MSB ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        readSectionHeaders();
+    }
+
+    /**
+     * Read the symbols and line information of a binary file
+     *
+     * @param binary
+     *            The ELF binary file
+     * @return The symbol table, or null if the file is not an ELF file that
+     *         can be read
+     */
+    public static @Nullable BinarySymbolTable read(File binary) {
+        BinarySymbolTable.Builder builder = new BinarySymbolTable.Builder(binary);
+        try {
+            ElfSymbolReader reader = open(binary);
+            reader.readSymbols(builder);
+            demangle(builder);
+            if (!reader.readLines(builder)) {
+                /* Look for the line information in a separate debug file */
+                String buildId = reader.getBuildId();
+                File debugFile = (buildId == null || buildId.length() < 3 ? null :
+                    new File(DEBUG_FILE_DIRECTORY + buildId.substring(0, 2) + File.separator + buildId.substring(2) + DEBUG_FILE_EXTENSION));
+                if (debugFile != null && debugFile.isFile()) {
+                    ElfSymbolReader debugReader = open(debugFile);
+                    debugReader.readLines(builder);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            /*
+             * Malformed or unsupported files can throw BufferUnderflow or
+             * IndexOutOfBounds exceptions anywhere while reading them.
+             */
+            LOGGER.fine(() -> "[ElfSymbolReader:ReadFailed] file=" + binary + ", exception=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+            return null;
+        }
+        return builder.build();
+    }
+
+    private static ElfSymbolReader open(File file) throws IOException {
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new ElfSymbolReader(fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()));
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // ELF
+    // ------------------------------------------------------------------------
+
+    private void readSectionHeaders() throws IOException {
+        long shoff = (fIs64 ? fElf.getLong(0x28) : Integer.toUnsignedLong(fElf.getInt(0x20)));
+        int shentsize = Short.toUnsignedInt(fElf.getShort(fIs64 ? 0x3a : 0x2e));
+        int shnum = Short.toUnsignedInt(fElf.getShort(fIs64 ? 0x3c : 0x30));
+        int shstrndx = Short.toUnsignedInt(fElf.getShort(fIs64 ? 0x3e : 0x32));
+        if (shoff == 0 || shnum == 0 || shstrndx >= shnum) {
+            throw new IOException("No section headers"); //$NON-NLS-1$
+        }
+        int[] names = new int[shnum];
+        int[] types = new int[shnum];
+        int[] links = new int[shnum];
+        for (int i = 0; i < shnum; i++) {
+            int pos = (int) (shoff + (long) i * shentsize);
+            names[i] = fElf.getInt(pos);
+            types[i] = fElf.getInt(pos + 4);
+            long flags;
+            long offset;
+            long size;
+            if (fIs64) {
+                flags = fElf.getLong(pos + 8);
+                offset = fElf.getLong(pos + 24);
+                size = fElf.getLong(pos + 32);
+                links[i] = fElf.getInt(pos + 40);
+            } else {
+                flags = Integer.toUnsignedLong(fElf.getInt(pos + 8));
+                offset = Integer.toUnsignedLong(fElf.getInt(pos + 16));
+                size = Integer.toUnsignedLong(fElf.getInt(pos + 20));
+                links[i] = fElf.getInt(pos + 24);
+            }
+            if (types[i] == SHT_NOBITS) {
+                size = 0;
+            }
+            fSectionList.add(slice((int) offset, (int) size));
+            if ((flags & SHF_COMPRESSED) != 0) {
+                fCompressedSections.add(i);
+            }
+        }
+        ByteBuffer shstrtab = getSection(shstrndx);
+        for (int i = 0; i < shnum; i++) {
+            String name = readString(shstrtab, names[i]);
+            fSectionIndexes.put(name, i);
+            fSectionTypes.put(name, types[i]);
+            fSectionLinks.put(name, links[i]);
+        }
+    }
+
+    private ByteBuffer slice(int offset, int size) {
+        ByteBuffer buffer = fElf.duplicate();
+        buffer.position(offset);
+        buffer.limit(offset + size);
+        return buffer.slice().order(fElf.order());
+    }
+
+    private @Nullable ByteBuffer getSection(String name) {
+        Integer index = fSectionIndexes.get(name);
+        return (index == null ? null : getSection(index));
+    }
+
+    private ByteBuffer getSection(int index) {
+        ByteBuffer section = fSectionList.get(index);
+        if (fCompressedSections.remove(index)) {
+            section = decompress(section);
+            fSectionList.set(index, section);
+        }
+        return section;
+    }
+
+    private ByteBuffer decompress(ByteBuffer section) {
+        int type = section.getInt(0);
+        long size = (fIs64 ? section.getLong(8) : Integer.toUnsignedLong(section.getInt(4)));
+        if (type != ELFCOMPRESS_ZLIB || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported section compression"); //$NON-NLS-1$
+        }
+        ByteBuffer compressed = section.duplicate();
+        compressed.position(fIs64 ? 24 : 12);
+        byte[] input = new byte[compressed.remaining()];
+        compressed.get(input);
+        byte[] output = new byte[(int) size];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            inflater.inflate(output);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException(e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(output).order(fElf.order());
+    }
+
+    private @Nullable String getBuildId() {
+        ByteBuffer note = getSection(BUILD_ID);
+        if (note == null || note.capacity() < 12) {
+            return null;
+        }
+        int nameSize = note.getInt(0);
+        int descSize = note.getInt(4);
+        int descStart = 12 + ((nameSize + 3) & ~3);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < descSize; i++) {
+            sb.append(String.format("%02x", note.get(descStart + i))); //$NON-NLS-1$
+        }
+        return sb.toString();
+    }
+
+    private void readSymbols(BinarySymbolTable.Builder builder) {
+        readSymbols(builder, SYMTAB, SHT_SYMTAB);
+        readSymbols(builder, DYNSYM, SHT_DYNSYM);
+    }
+
+    private void readSymbols(BinarySymbolTable.Builder builder, String sectionName, int sectionType) {
+        ByteBuffer symbols = getSection(sectionName);
+        Integer type = fSectionTypes.get(sectionName);
+        Integer link = fSectionLinks.get(sectionName);
+        if (symbols == null || type == null || type != sectionType || link == null || link >= fSectionList.size()) {
+            return;
+        }
+        ByteBuffer strings = getSection(link);
+        int entrySize = (fIs64 ? 24 : 16);
+        for (int pos = 0; pos + entrySize <= symbols.capacity(); pos += entrySize) {
+            int name = symbols.getInt(pos);
+            int info;
+            int shndx;
+            long value;
+            long size;
+            if (fIs64) {
+                info = Byte.toUnsignedInt(symbols.get(pos + 4));
+                shndx = Short.toUnsignedInt(symbols.getShort(pos + 6));
+                value = symbols.getLong(pos + 8);
+                size = symbols.getLong(pos + 16);
+            } else {
+                value = Integer.toUnsignedLong(symbols.getInt(pos + 4));
+                size = Integer.toUnsignedLong(symbols.getInt(pos + 8));
+                info = Byte.toUnsignedInt(symbols.get(pos + 12));
+                shndx = Short.toUnsignedInt(symbols.getShort(pos + 14));
+            }
+            int symbolType = info & 0xf;
+            if ((symbolType != STT_FUNC && symbolType != STT_GNU_IFUNC) || shndx == 0 || name == 0) {
+                continue;
+            }
+            builder.addSymbol(value, size, readString(strings, name), (info >> 4) != STB_LOCAL);
+        }
+    }
+
+    private static void demangle(BinarySymbolTable.Builder builder) {
+        List<String> mangled = new ArrayList<>();
+        for (String name : builder.getSymbolNames()) {
+            if (name.startsWith(MANGLED_PREFIX)) {
+                mangled.add(name);
+            }
+        }
+        Map<String, String> demangled = new HashMap<>();
+        for (int start = 0; start < mangled.size(); start += DEMANGLE_BATCH_SIZE) {
+            List<String> batch = mangled.subList(start, Math.min(start + DEMANGLE_BATCH_SIZE, mangled.size()));
+            List<String> command = new ArrayList<>();
+            command.add(CXXFILT_EXECUTABLE);
+            command.addAll(batch);
+            List<String> output = ProcessUtils.getOutputFromCommand(command);
+            if (output == null || output.size() != batch.size()) {
+                /* c++filt is not available, keep the mangled names */
+                break;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                demangled.put(batch.get(i), output.get(i));
+            }
+        }
+        builder.renameSymbols(demangled);
+    }
+
+    // ------------------------------------------------------------------------
+    // DWARF
+    // ------------------------------------------------------------------------
+
+    /**
+     * Read the line number programs of all compilation units.
+     *
+     * @return true if the binary has line information
+     */
+    private boolean readLines(BinarySymbolTable.Builder builder) {
+        ByteBuffer debugLine = getSection(DEBUG_LINE);
+        if (debugLine == null || debugLine.capacity() == 0) {
+            return false;
+        }
+        Map<Long, String> compDirs = readCompilationDirectories();
+        ByteBuffer buffer = debugLine.duplicate().order(debugLine.order());
+        while (buffer.remaining() > 4) {
+            int unitStart = buffer.position();
+            long unitLength = Integer.toUnsignedLong(buffer.getInt());
+            boolean dwarf64 = (unitLength == 0xffffffffL);
+            if (dwarf64) {
+                unitLength = buffer.getLong();
+            }
+            int unitEnd = (int) (buffer.position() + unitLength);
+            if (unitLength == 0 || unitEnd > buffer.limit()) {
+                break;
+            }
+            try {
+                readLineProgram(builder, buffer, dwarf64, unitEnd, compDirs.get((long) unitStart));
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                /* Skip this unit, it uses something we do not support */
+                LOGGER.finer(() -> "[ElfSymbolReader:SkippedLineProgram] offset=" + unitStart + ", exception=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            buffer.limit(buffer.capacity());
+            buffer.position(unitEnd);
+        }
+        return true;
+    }
+
+    private void readLineProgram(BinarySymbolTable.Builder builder, ByteBuffer buffer, boolean dwarf64, int unitEnd, @Nullable String compDir) {
+        buffer.limit(unitEnd);
+        int version = Short.toUnsignedInt(buffer.getShort());
+        if (version < 2 || version > 5) {
+            throw new IllegalArgumentException("Unsupported DWARF version " + version); //$NON-NLS-1$
+        }
+        int addressSize = (fIs64 ? 8 : 4);
+        if (version >= 5) {
+            addressSize = Byte.toUnsignedInt(buffer.get());
+            buffer.get(); // segment selector size
+        }
+        long headerLength = (dwarf64 ? buffer.getLong() : Integer.toUnsignedLong(buffer.getInt()));
+        int programStart = (int) (buffer.position() + headerLength);
+        int minInstructionLength = Byte.toUnsignedInt(buffer.get());
+        if (version >= 4) {
+            buffer.get(); // maximum operations per instruction
+        }
+        buffer.get(); // default is_stmt
+        int lineBase = buffer.get();
+        int lineRange = Byte.toUnsignedInt(buffer.get());
+        int opcodeBase = Byte.toUnsignedInt(buffer.get());
+        int[] opcodeLengths = new int[opcodeBase];
+        for (int i = 1; i < opcodeBase; i++) {
+            opcodeLengths[i] = Byte.toUnsignedInt(buffer.get());
+        }
+        if (lineRange == 0) {
+            throw new IllegalArgumentException("Invalid line range"); //$NON-NLS-1$
+        }
+
+        List<String> files = new ArrayList<>();
+        if (version >= 5) {
+            List<String[]> dirs = readEntries(buffer, dwarf64);
+            String baseDir = (dirs.isEmpty() ? compDir : dirs.get(0)[0]);
+            List<String> dirNames = new ArrayList<>();
+            for (String[] dir : dirs) {
+                dirNames.add(joinPath(baseDir, dir[0]));
+            }
+            for (String[] file : readEntries(buffer, dwarf64)) {
+                int dirIndex = Integer.parseInt(file[1]);
+                files.add(joinPath(dirIndex < dirNames.size() ? dirNames.get(dirIndex) : baseDir, file[0]));
+            }
+        } else {
+            List<String> dirNames = new ArrayList<>();
+            dirNames.add(compDir);
+            for (String dir = readString(buffer); !dir.isEmpty(); dir = readString(buffer)) {
+                dirNames.add(joinPath(compDir, dir));
+            }
+            /* File indexes start at 1 before DWARF 5 */
+            files.add(""); //$NON-NLS-1$
+            for (String file = readString(buffer); !file.isEmpty(); file = readString(buffer)) {
+                int dirIndex = (int) readUnsignedLeb128(buffer);
+                readUnsignedLeb128(buffer); // modification time
+                readUnsignedLeb128(buffer); // file length
+                files.add(joinPath(dirIndex < dirNames.size() ? dirNames.get(dirIndex) : compDir, file));
+            }
+        }
+        buffer.position(programStart);
+
+        /* Run the line number state machine */
+        LineSequence sequence = new LineSequence();
+        long address = 0;
+        int file = 1;
+        long line = 1;
+        while (buffer.hasRemaining()) {
+            int opcode = Byte.toUnsignedInt(buffer.get());
+            if (opcode >= opcodeBase) {
+                int adjusted = opcode - opcodeBase;
+                address += (long) (adjusted / lineRange) * minInstructionLength;
+                line += lineBase + (adjusted % lineRange);
+                sequence.add(address, getFileName(files, file), line);
+                continue;
+            }
+            switch (opcode) {
+            case 0: {
+                int length = (int) readUnsignedLeb128(buffer);
+                int end = buffer.position() + length;
+                int extended = (length == 0 ? -1 : Byte.toUnsignedInt(buffer.get()));
+                if (extended == DW_LNE_END_SEQUENCE) {
+                    sequence.add(address, null, line);
+                    sequence.flush(builder);
+                    address = 0;
+                    file = 1;
+                    line = 1;
+                } else if (extended == DW_LNE_SET_ADDRESS) {
+                    address = readAddress(buffer, length - 1);
+                } else if (extended == DW_LNE_DEFINE_FILE) {
+                    String name = readString(buffer);
+                    int dirIndex = (int) readUnsignedLeb128(buffer);
+                    files.add(joinPath(dirIndex == 0 ? compDir : null, name));
+                }
+                buffer.position(end);
+                break;
+            }
+            case DW_LNS_COPY:
+                sequence.add(address, getFileName(files, file), line);
+                break;
+            case DW_LNS_ADVANCE_PC:
+                address += readUnsignedLeb128(buffer) * minInstructionLength;
+                break;
+            case DW_LNS_ADVANCE_LINE:
+                line += readSignedLeb128(buffer);
+                break;
+            case DW_LNS_SET_FILE:
+                file = (int) readUnsignedLeb128(buffer);
+                break;
+            case DW_LNS_CONST_ADD_PC:
+                address += (long) ((255 - opcodeBase) / lineRange) * minInstructionLength;
+                break;
+            case DW_LNS_FIXED_ADVANCE_PC:
+                address += Short.toUnsignedInt(buffer.getShort());
+                break;
+            default:
+                /* Opcodes that do not change the address, file or line */
+                for (int i = 0; i < opcodeLengths[opcode]; i++) {
+                    readUnsignedLeb128(buffer);
+                }
+                break;
+            }
+        }
+    }
+
+    private static String getFileName(List<String> files, int index) {
+        return (index >= 0 && index < files.size() ? files.get(index) : ""); //$NON-NLS-1$
+    }
+
+    /**
+     * Rows of the line number program, up to the end of a sequence.
+     */
+    private static class LineSequence {
+        private long[] fAddresses = new long[256];
+        private String[] fFiles = new String[256];
+        private int[] fLines = new int[256];
+        private int fSize = 0;
+
+        public void add(long address, @Nullable String file, long line) {
+            if (fSize == fAddresses.length) {
+                fAddresses = Arrays.copyOf(fAddresses, fSize * 2);
+                fFiles = Arrays.copyOf(fFiles, fSize * 2);
+                fLines = Arrays.copyOf(fLines, fSize * 2);
+            }
+            fAddresses[fSize] = address;
+            fFiles[fSize] = (file == null ? "" : file); //$NON-NLS-1$
+            fLines[fSize] = (int) line;
+            fSize++;
+        }
+
+        public void flush(BinarySymbolTable.Builder builder) {
+            /*
+             * Sequences of functions removed by the linker are relocated to
+             * address 0 (or to -1 with newer linkers), skip them.
+             */
+            long start = (fSize > 0 ? fAddresses[0] : 0);
+            if (start != 0 && start != -1 && start != 0xffffffffL) {
+                builder.addSequence(fAddresses, fFiles, fLines, fSize);
+            }
+            fSize = 0;
+        }
+    }
+
+    /**
+     * Read the directory or file name entries of a DWARF 5 line program
+     * header.
+     *
+     * @return The entries, as (path, directory index) pairs
+     */
+    private List<String[]> readEntries(ByteBuffer buffer, boolean dwarf64) {
+        int formatCount = Byte.toUnsignedInt(buffer.get());
+        int[] contentTypes = new int[formatCount];
+        int[] forms = new int[formatCount];
+        for (int i = 0; i < formatCount; i++) {
+            contentTypes[i] = (int) readUnsignedLeb128(buffer);
+            forms[i] = (int) readUnsignedLeb128(buffer);
+        }
+        int count = (int) readUnsignedLeb128(buffer);
+        List<String[]> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] entry = new String[] { "", "0" }; //$NON-NLS-1$ //$NON-NLS-2$
+            for (int j = 0; j < formatCount; j++) {
+                if (contentTypes[j] == DW_LNCT_PATH) {
+                    entry[0] = readStringForm(buffer, forms[j], dwarf64);
+                } else if (contentTypes[j] == DW_LNCT_DIRECTORY_INDEX) {
+                    entry[1] = String.valueOf(readUnsignedForm(buffer, forms[j]));
+                } else {
+                    skipForm(buffer, forms[j], dwarf64, 0, 5);
+                }
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Read the compilation directories of the compilation units, which are
+     * the base directories of the relative paths of their line programs.
+     *
+     * @return The compilation directories, indexed by the offset of the line
+     *         program of the unit
+     */
+    private Map<Long, String> readCompilationDirectories() {
+        Map<Long, String> compDirs = new HashMap<>();
+        ByteBuffer debugInfo = getSection(DEBUG_INFO);
+        ByteBuffer debugAbbrev = getSection(DEBUG_ABBREV);
+        if (debugInfo == null || debugAbbrev == null) {
+            return compDirs;
+        }
+        ByteBuffer buffer = debugInfo.duplicate().order(debugInfo.order());
+        while (buffer.remaining() > 4) {
+            long unitLength = Integer.toUnsignedLong(buffer.getInt());
+            boolean dwarf64 = (unitLength == 0xffffffffL);
+            if (dwarf64) {
+                unitLength = buffer.getLong();
+            }
+            int unitEnd = (int) (buffer.position() + unitLength);
+            if (unitLength == 0 || unitEnd > buffer.limit()) {
+                break;
+            }
+            try {
+                readCompilationDirectory(buffer, debugAbbrev, dwarf64, compDirs);
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                /* Skip this unit */
+            }
+            buffer.position(unitEnd);
+        }
+        return compDirs;
+    }
+
+    private void readCompilationDirectory(ByteBuffer buffer, ByteBuffer debugAbbrev, boolean dwarf64, Map<Long, String> compDirs) {
+        int version = Short.toUnsignedInt(buffer.getShort());
+        long abbrevOffset;
+        int addressSize;
+        if (version >= 5) {
+            int unitType = Byte.toUnsignedInt(buffer.get());
+            addressSize = Byte.toUnsignedInt(buffer.get());
+            abbrevOffset = readOffset(buffer, dwarf64);
+            if (unitType != 1 && unitType != 3) {
+                /* Only full and partial units have line programs */
+                return;
+            }
+        } else {
+            abbrevOffset = readOffset(buffer, dwarf64);
+            addressSize = Byte.toUnsignedInt(buffer.get());
+        }
+        long code = readUnsignedLeb128(buffer);
+
+        /* Find the abbreviation of the unit entry */
+        ByteBuffer abbrev = debugAbbrev.duplicate().order(debugAbbrev.order());
+        abbrev.position((int) abbrevOffset);
+        while (true) {
+            long abbrevCode = readUnsignedLeb128(abbrev);
+            if (abbrevCode == 0) {
+                return;
+            }
+            readUnsignedLeb128(abbrev); // tag
+            abbrev.get(); // has children
+            if (abbrevCode == code) {
+                break;
+            }
+            skipAttributes(abbrev);
+        }
+
+        /* Read the attributes of the unit entry */
+        Long stmtList = null;
+        String compDir = null;
+        while (true) {
+            int attribute = (int) readUnsignedLeb128(abbrev);
+            int form = (int) readUnsignedLeb128(abbrev);
+            if (attribute == 0 && form == 0) {
+                break;
+            }
+            if (form == DW_FORM_IMPLICIT_CONST) {
+                readSignedLeb128(abbrev);
+                continue;
+            }
+            if (attribute == DW_AT_STMT_LIST) {
+                stmtList = readUnsignedForm(buffer, form == DW_FORM_SEC_OFFSET ? (dwarf64 ? DW_FORM_DATA8 : DW_FORM_DATA4) : form);
+            } else if (attribute == DW_AT_COMP_DIR) {
+                compDir = readStringForm(buffer, form, dwarf64);
+            } else {
+                skipForm(buffer, form, dwarf64, addressSize, version);
+            }
+        }
+        if (stmtList != null && compDir != null) {
+            compDirs.put(stmtList, compDir);
+        }
+    }
+
+    private static void skipAttributes(ByteBuffer abbrev) {
+        while (true) {
+            long attribute = readUnsignedLeb128(abbrev);
+            long form = readUnsignedLeb128(abbrev);
+            if (attribute == 0 && form == 0) {
+                return;
+            }
+            if (form == DW_FORM_IMPLICIT_CONST) {
+                readSignedLeb128(abbrev);
+            }
+        }
+    }
+
+    private String readStringForm(ByteBuffer buffer, int form, boolean dwarf64) {
+        switch (form) {
+        case DW_FORM_STRING:
+            return readString(buffer);
+        case DW_FORM_STRP:
+        case DW_FORM_LINE_STRP: {
+            ByteBuffer strings = getSection(form == DW_FORM_STRP ? DEBUG_STR : DEBUG_LINE_STR);
+            long offset = readOffset(buffer, dwarf64);
+            if (strings == null) {
+                throw new IllegalArgumentException("Missing string section"); //$NON-NLS-1$
+            }
+            return readString(strings, (int) offset);
+        }
+        default:
+            throw new IllegalArgumentException("Unsupported string form " + form); //$NON-NLS-1$
+        }
+    }
+
+    private static long readUnsignedForm(ByteBuffer buffer, int form) {
+        switch (form) {
+        case DW_FORM_DATA1:
+            return Byte.toUnsignedLong(buffer.get());
+        case DW_FORM_DATA2:
+            return Short.toUnsignedLong(buffer.getShort());
+        case DW_FORM_DATA4:
+            return Integer.toUnsignedLong(buffer.getInt());
+        case DW_FORM_DATA8:
+            return buffer.getLong();
+        case DW_FORM_UDATA:
+            return readUnsignedLeb128(buffer);
+        default:
+            throw new IllegalArgumentException("Unsupported constant form " + form); //$NON-NLS-1$
+        }
+    }
+
+    private static void skipForm(ByteBuffer buffer, int form, boolean dwarf64, int addressSize, int version) {
+        int offsetSize = (dwarf64 ? 8 : 4);
+        int size;
+        switch (form) {
+        case DW_FORM_FLAG_PRESENT:
+        case DW_FORM_IMPLICIT_CONST:
+            size = 0;
+            break;
+        case DW_FORM_DATA1:
+        case DW_FORM_FLAG:
+        case DW_FORM_REF1:
+        case DW_FORM_STRX1:
+        case DW_FORM_ADDRX1:
+            size = 1;
+            break;
+        case DW_FORM_DATA2:
+        case DW_FORM_REF2:
+            size = 2;
+            break;
+        case DW_FORM_DATA4:
+        case DW_FORM_REF4:
+        case DW_FORM_REF_SUP4:
+            size = 4;
+            break;
+        case DW_FORM_DATA8:
+        case DW_FORM_REF8:
+        case DW_FORM_REF_SIG8:
+        case DW_FORM_REF_SUP8:
+            size = 8;
+            break;
+        case DW_FORM_DATA16:
+            size = 16;
+            break;
+        case DW_FORM_ADDR:
+            size = addressSize;
+            break;
+        case DW_FORM_REF_ADDR:
+            size = (version <= 2 ? addressSize : offsetSize);
+            break;
+        case DW_FORM_STRP:
+        case DW_FORM_LINE_STRP:
+        case DW_FORM_SEC_OFFSET:
+        case DW_FORM_STRP_SUP:
+        case DW_FORM_GNU_REF_ALT:
+        case DW_FORM_GNU_STRP_ALT:
+            size = offsetSize;
+            break;
+        case DW_FORM_SDATA:
+            readSignedLeb128(buffer);
+            size = 0;
+            break;
+        case DW_FORM_UDATA:
+        case DW_FORM_REF_UDATA:
+        case DW_FORM_STRX:
+        case DW_FORM_ADDRX:
+        case DW_FORM_LOCLISTX:
+        case DW_FORM_RNGLISTX:
+        case DW_FORM_GNU_ADDR_INDEX:
+        case DW_FORM_GNU_STR_INDEX:
+            readUnsignedLeb128(buffer);
+            size = 0;
+            break;
+        case DW_FORM_STRING:
+            readString(buffer);
+            size = 0;
+            break;
+        case DW_FORM_BLOCK1:
+            size = Byte.toUnsignedInt(buffer.get());
+            break;
+        case DW_FORM_BLOCK2:
+            size = Short.toUnsignedInt(buffer.getShort());
+            break;
+        case DW_FORM_BLOCK4:
+            size = buffer.getInt();
+            break;
+        case DW_FORM_BLOCK:
+        case DW_FORM_EXPRLOC:
+            size = (int) readUnsignedLeb128(buffer);
+            break;
+        case DW_FORM_INDIRECT:
+            skipForm(buffer, (int) readUnsignedLeb128(buffer), dwarf64, addressSize, version);
+            size = 0;
+            break;
+        default:
+            if (form > DW_FORM_STRX1 && form <= DW_FORM_STRX4) {
+                size = form - DW_FORM_STRX1 + 1;
+            } else if (form > DW_FORM_ADDRX1 && form <= DW_FORM_ADDRX4) {
+                size = form - DW_FORM_ADDRX1 + 1;
+            } else {
+                throw new IllegalArgumentException("Unsupported form " + form); //$NON-NLS-1$
+            }
+            break;
+        }
+        buffer.position(buffer.position() + size);
+    }
+
+    // ------------------------------------------------------------------------
+    // Primitives
+    // ------------------------------------------------------------------------
+
+    private static long readAddress(ByteBuffer buffer, int size) {
+        switch (size) {
+        case 8:
+            return buffer.getLong();
+        case 4:
+            return Integer.toUnsignedLong(buffer.getInt());
+        case 2:
+            return Short.toUnsignedLong(buffer.getShort());
+        default:
+            throw new IllegalArgumentException("Unsupported address size " + size); //$NON-NLS-1$
+        }
+    }
+
+    private static long readOffset(ByteBuffer buffer, boolean dwarf64) {
+        return (dwarf64 ? buffer.getLong() : Integer.toUnsignedLong(buffer.getInt()));
+    }
+
+    private static long readUnsignedLeb128(ByteBuffer buffer) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            if (shift < Long.SIZE) {
+                result |= (long) (b & 0x7f) << shift;
+            }
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    private static long readSignedLeb128(ByteBuffer buffer) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            if (shift < Long.SIZE) {
+                result |= (long) (b & 0x7f) << shift;
+            }
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (shift < Long.SIZE && (b & 0x40) != 0) {
+            result |= -1L << shift;
+        }
+        return result;
+    }
+
+    /**
+     * Read a null-terminated string at the current position of the buffer
+     */
+    private static String readString(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = start;
+        while (buffer.get(end) != 0) {
+            end++;
+        }
+        String string = readString(buffer, start, end);
+        buffer.position(end + 1);
+        return string;
+    }
+
+    /**
+     * Read a null-terminated string at an offset in a string section
+     */
+    private static String readString(ByteBuffer buffer, int offset) {
+        int end = offset;
+        while (buffer.get(end) != 0) {
+            end++;
+        }
+        return readString(buffer, offset, end);
+    }
+
+    private static String readString(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String joinPath(@Nullable String dir, String name) {
+        if (name.startsWith("/") || dir == null || dir.isEmpty()) { //$NON-NLS-1$
+            return name;
+        }
+        return (dir.endsWith("/") ? dir + name : dir + '/' + name); //$NON-NLS-1$
+    }
+}
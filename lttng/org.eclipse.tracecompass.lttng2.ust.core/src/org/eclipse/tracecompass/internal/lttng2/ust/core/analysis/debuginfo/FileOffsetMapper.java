@@ -12,11 +12,18 @@ package org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo;
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -26,6 +33,7 @@ import org.eclipse.tracecompass.common.core.process.ProcessUtils;
 import org.eclipse.tracecompass.tmf.core.event.lookup.TmfCallsite;
 
 import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -35,6 +43,13 @@ import com.google.common.collect.Iterables;
  * Utility class to get file name, function/symbol name and line number from a
  * given offset. In TMF this is represented as a {@link TmfCallsite}.
  *
+ * The symbols and line information of each binary are read once, by
+ * {@link ElfSymbolReader}, into a {@link BinarySymbolTable}. When a cache
+ * directory is given, the table is saved there and reused by the next
+ * sessions. 'addr2line' is only called for binaries that cannot be read. The
+ * batched lookups resolve many offsets of a binary with a single lookup of its
+ * symbol table, or a single 'addr2line' process.
+ *
  * @author Alexandre Montplaisir
  */
 public final class FileOffsetMapper {
@@ -45,6 +60,12 @@ public final class FileOffsetMapper {
     private static final String ADDR2LINE_EXECUTABLE = "addr2line"; //$NON-NLS-1$
 
     private static final long CACHE_SIZE = 1000;
+    /* Maximum number of offsets passed to one 'addr2line' process */
+    private static final int ADDR2LINE_BATCH_SIZE = 1000;
+    private static final long SYMBOL_TABLE_CACHE_SIZE = 100;
+
+    private static final String SYMBOL_TABLE_DIRECTORY = "debug-info"; //$NON-NLS-1$
+    private static final String SYMBOL_TABLE_EXTENSION = ".symbols"; //$NON-NLS-1$
 
     private FileOffsetMapper() {}
 
@@ -95,26 +116,95 @@ public final class FileOffsetMapper {
         }
     }
 
+    /**
+     * Class representing a binary file, and where to save its symbol table
+     */
+    private static class SymbolTableKey {
+
+        private final String fFilePath;
+        private final @Nullable String fBuildId;
+        private final @Nullable String fCacheDirectory;
+
+        public SymbolTableKey(String filePath, @Nullable String buildId, @Nullable String cacheDirectory) {
+            fFilePath = filePath;
+            fBuildId = buildId;
+            fCacheDirectory = cacheDirectory;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(fFilePath, fBuildId, fCacheDirectory);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            SymbolTableKey other = (SymbolTableKey) obj;
+            return Objects.equal(fFilePath, other.fFilePath) &&
+                    Objects.equal(fBuildId, other.fBuildId) &&
+                    Objects.equal(fCacheDirectory, other.fCacheDirectory);
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this)
+                    .add("fFilePath", fFilePath) //$NON-NLS-1$
+                    .add("fBuildId", fBuildId) //$NON-NLS-1$
+                    .add("fCacheDirectory", fCacheDirectory) //$NON-NLS-1$
+                    .toString();
+        }
+    }
+
 
     /**
-     * Generate the callsite from a given binary file and address offset.
-     *
-     * Due to function inlining, it is possible for one offset to actually have
-     * multiple call sites. We will return the most precise one (inner-most) we
-     * have available.
+     * Generate the callsites of many offsets in the same binary file. The
+     * symbol table of the binary is only looked up once, and if the binary
+     * cannot be read, the offsets that are not cached yet are resolved by a
+     * single 'addr2line' process.
      *
      * @param file
      *            The binary file to look at
      * @param buildId
      *            The expected buildId of the binary file (is not verified at
      *            the moment)
-     * @param offset
-     *            The memory offset in the file
-     * @return The corresponding call site
+     * @param offsets
+     *            The memory offsets in the file
+     * @param cacheDirectory
+     *            The directory where to save the symbol table of the binary,
+     *            or null to only keep it in memory
+     * @return The call sites of the offsets that could be resolved
      */
-    public static @Nullable TmfCallsite getCallsiteFromOffset(File file, @Nullable String buildId, long offset) {
-       Iterable<Addr2lineInfo> output = getAddr2lineInfo(file, buildId, offset);
-       if (output == null || Iterables.isEmpty(output)) {
+    public static Map<Long, TmfCallsite> getCallsitesFromOffsets(File file, @Nullable String buildId, Collection<Long> offsets, @Nullable File cacheDirectory) {
+        Map<Long, TmfCallsite> callsites = new HashMap<>();
+        BinarySymbolTable table = getSymbolTable(file, buildId, cacheDirectory);
+        if (table != null) {
+            for (Long offset : offsets) {
+                TmfCallsite callsite = table.getCallsite(offset);
+                if (callsite != null) {
+                    callsites.put(offset, callsite);
+                }
+            }
+            return callsites;
+        }
+        for (Map.Entry<Long, Iterable<Addr2lineInfo>> entry : getAddr2lineInfos(file, buildId, offsets).entrySet()) {
+            TmfCallsite callsite = toCallsite(entry.getValue());
+            if (callsite != null) {
+                callsites.put(entry.getKey(), callsite);
+            }
+        }
+        return callsites;
+    }
+
+    private static @Nullable TmfCallsite toCallsite(Iterable<Addr2lineInfo> output) {
+       if (Iterables.isEmpty(output)) {
            return null;
        }
        Addr2lineInfo info = Iterables.getLast(output);
@@ -129,31 +219,112 @@ public final class FileOffsetMapper {
     }
 
     /**
-     * Get the function/symbol name corresponding to binary file and offset.
+     * Get the function/symbol names of many offsets in the same binary file,
+     * looking up its symbol table once, or calling 'addr2line' once for the
+     * offsets that are not cached yet.
      *
      * @param file
      *            The binary file to look at
      * @param buildId
      *            The expected buildId of the binary file (is not verified at
      *            the moment)
-     * @param offset
-     *            The memory offset in the file
-     * @return The corresponding function/symbol name
+     * @param offsets
+     *            The memory offsets in the file
+     * @param cacheDirectory
+     *            The directory where to save the symbol table of the binary,
+     *            or null to only keep it in memory
+     * @return The function/symbol names of the offsets that could be resolved
      */
-    public static @Nullable String getFunctionNameFromOffset(File file, @Nullable String buildId, long offset) {
-        /*
-         * TODO We are currently also using 'addr2line' to resolve function
-         * names, which requires the binary's DWARF information to be available.
-         * A better approach would be to use the binary's symbol table (if it is
-         * not stripped), since this is usually more readily available than
-         * DWARF.
-         */
-        Iterable<Addr2lineInfo> output = getAddr2lineInfo(file, buildId, offset);
-        if (output == null || Iterables.isEmpty(output)) {
+    public static Map<Long, String> getFunctionNamesFromOffsets(File file, @Nullable String buildId, Collection<Long> offsets, @Nullable File cacheDirectory) {
+        Map<Long, String> names = new HashMap<>();
+        BinarySymbolTable table = getSymbolTable(file, buildId, cacheDirectory);
+        if (table != null) {
+            for (Long offset : offsets) {
+                String name = table.getFunctionName(offset);
+                if (name != null) {
+                    names.put(offset, name);
+                }
+            }
+            return names;
+        }
+        for (Map.Entry<Long, Iterable<Addr2lineInfo>> entry : getAddr2lineInfos(file, buildId, offsets).entrySet()) {
+            Iterable<Addr2lineInfo> output = entry.getValue();
+            String name = (Iterables.isEmpty(output) ? null : Iterables.getLast(output).fFunctionName);
+            if (name != null) {
+                names.put(entry.getKey(), name);
+            }
+        }
+        return names;
+    }
+
+    // ------------------------------------------------------------------------
+    // Symbol tables
+    // ------------------------------------------------------------------------
+
+    /**
+     * Cache of the symbol tables of the binaries. The tables are either
+     * memory-mapped from their saved file, or kept on the heap if there is no
+     * cache directory.
+     */
+    private static final LoadingCache<SymbolTableKey, @NonNull Optional<BinarySymbolTable>> SYMBOL_TABLE_CACHE;
+    static {
+        SYMBOL_TABLE_CACHE = checkNotNull(CacheBuilder.newBuilder()
+            .maximumSize(SYMBOL_TABLE_CACHE_SIZE)
+            .build(new CacheLoader<SymbolTableKey, @NonNull Optional<BinarySymbolTable>>() {
+                @Override
+                public @NonNull Optional<BinarySymbolTable> load(SymbolTableKey key) {
+                    LOGGER.fine(() -> "[FileOffsetMapper:SymbolTableCacheMiss] key=" + key.toString()); //$NON-NLS-1$
+                    return Optional.ofNullable(loadSymbolTable(key));
+                }
+            }));
+    }
+
+    private static @Nullable BinarySymbolTable getSymbolTable(File file, @Nullable String buildId, @Nullable File cacheDirectory) {
+        if (!Files.exists((file.toPath()))) {
             return null;
         }
-        Addr2lineInfo info = Iterables.getLast(output);
-        return info.fFunctionName;
+        String cacheDirectoryPath = (cacheDirectory == null ? null : cacheDirectory.getPath());
+        SymbolTableKey key = new SymbolTableKey(checkNotNull(file.toString()), buildId, cacheDirectoryPath);
+        return SYMBOL_TABLE_CACHE.getUnchecked(key).orElse(null);
+    }
+
+    private static @Nullable BinarySymbolTable loadSymbolTable(SymbolTableKey key) {
+        File binary = new File(key.fFilePath);
+        String cacheDirectory = key.fCacheDirectory;
+        if (cacheDirectory == null) {
+            return ElfSymbolReader.read(binary);
+        }
+
+        String buildId = key.fBuildId;
+        String suffix = (buildId != null ? buildId : Integer.toHexString(key.fFilePath.hashCode()));
+        File tableFile = new File(cacheDirectory + File.separator + SYMBOL_TABLE_DIRECTORY, binary.getName() + '-' + suffix + SYMBOL_TABLE_EXTENSION);
+        if (tableFile.isFile()) {
+            try {
+                BinarySymbolTable table = BinarySymbolTable.load(tableFile);
+                if (table.isUpToDate(binary)) {
+                    return table;
+                }
+            } catch (IOException e) {
+                LOGGER.fine(() -> "[FileOffsetMapper:InvalidSymbolTable] file=" + tableFile + ", exception=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+
+        BinarySymbolTable table = ElfSymbolReader.read(binary);
+        if (table == null) {
+            return null;
+        }
+        File parent = tableFile.getParentFile();
+        try {
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Could not create directory " + parent); //$NON-NLS-1$
+            }
+            table.save(tableFile);
+            return BinarySymbolTable.load(tableFile);
+        } catch (IOException e) {
+            /* Keep using the table in memory */
+            LOGGER.fine(() -> "[FileOffsetMapper:SaveFailed] file=" + tableFile + ", exception=" + e); //$NON-NLS-1$ //$NON-NLS-2$
+            return table;
+        }
     }
 
     // ------------------------------------------------------------------------
@@ -173,18 +344,9 @@ public final class FileOffsetMapper {
      * It is static, meaning one cache for the whole application, since the
      * symbols in a file on disk are independent from the trace referring to it.
      */
-    private static final LoadingCache<FileOffset, @NonNull Iterable<Addr2lineInfo>> ADDR2LINE_INFO_CACHE;
-    static {
-        ADDR2LINE_INFO_CACHE = checkNotNull(CacheBuilder.newBuilder()
+    private static final Cache<FileOffset, @NonNull Iterable<Addr2lineInfo>> ADDR2LINE_INFO_CACHE = checkNotNull(CacheBuilder.newBuilder()
             .maximumSize(CACHE_SIZE)
-            .build(new CacheLoader<FileOffset, @NonNull Iterable<Addr2lineInfo>>() {
-                @Override
-                public @NonNull Iterable<Addr2lineInfo> load(FileOffset fo) {
-                    LOGGER.fine(() -> "[FileOffsetMapper:CacheMiss] file/offset=" + fo.toString()); //$NON-NLS-1$
-                    return callAddr2line(fo);
-                }
-            }));
-    }
+            .build());
 
     private static class Addr2lineInfo {
 
@@ -208,45 +370,87 @@ public final class FileOffsetMapper {
         }
     }
 
-    private static @Nullable Iterable<Addr2lineInfo> getAddr2lineInfo(File file, @Nullable String buildId, long offset) {
-        LOGGER.finer(() -> String.format("[FileOffsetMapper:Addr2lineRequest] file=%s, buildId=%s, offset=0x%h", //$NON-NLS-1$
-                file.toString(), buildId, offset));
-
+    /**
+     * Get the addr2line information of many offsets of a file, from the cache
+     * or from a single 'addr2line' process for those that are not cached.
+     */
+    private static Map<Long, Iterable<Addr2lineInfo>> getAddr2lineInfos(File file, @Nullable String buildId, Collection<Long> offsets) {
+        Map<Long, Iterable<Addr2lineInfo>> infos = new HashMap<>();
         if (!Files.exists((file.toPath()))) {
             LOGGER.finer(() -> "[FileOffsetMapper:RequestFailed] File not found"); //$NON-NLS-1$
-            return null;
+            return infos;
         }
-        // TODO We should also eventually verify that the passed buildId matches
-        // the file we are attempting to open.
-        FileOffset fo = new FileOffset(checkNotNull(file.toString()), buildId, offset);
-
-        @Nullable Iterable<Addr2lineInfo> callsites = ADDR2LINE_INFO_CACHE.getUnchecked(fo);
-        LOGGER.finer(() -> String.format("[FileOffsetMapper:RequestComplete] callsites=%s", callsites)); //$NON-NLS-1$
-        return callsites;
+        String filePath = checkNotNull(file.toString());
+        Set<Long> missingOffsets = new LinkedHashSet<>();
+        for (Long offset : offsets) {
+            Iterable<Addr2lineInfo> cached = ADDR2LINE_INFO_CACHE.getIfPresent(new FileOffset(filePath, buildId, offset));
+            if (cached != null) {
+                infos.put(offset, cached);
+            } else {
+                missingOffsets.add(offset);
+            }
+        }
+        List<Long> missing = new ArrayList<>(missingOffsets);
+        for (int start = 0; start < missing.size(); start += ADDR2LINE_BATCH_SIZE) {
+            List<Long> batch = missing.subList(start, Math.min(missing.size(), start + ADDR2LINE_BATCH_SIZE));
+            LOGGER.fine(() -> "[FileOffsetMapper:CacheMiss] file=" + filePath + ", offsets=" + batch.size()); //$NON-NLS-1$ //$NON-NLS-2$
+            List<Iterable<Addr2lineInfo>> results = callAddr2line(filePath, batch);
+            for (int i = 0; i < batch.size(); i++) {
+                Long offset = batch.get(i);
+                Iterable<Addr2lineInfo> info = results.get(i);
+                ADDR2LINE_INFO_CACHE.put(new FileOffset(filePath, buildId, offset), info);
+                infos.put(offset, info);
+            }
+        }
+        return infos;
     }
 
-    private static Iterable<Addr2lineInfo> callAddr2line(FileOffset fo) {
-        String filePath = fo.fFilePath;
-        long offset = fo.fOffset;
-
-        List<Addr2lineInfo> callsites = new LinkedList<>();
+    /**
+     * Call 'addr2line' once for many offsets of a file.
+     *
+     * @return The information of each offset, in the same order as the
+     *         offsets. It is empty for the offsets that could not be resolved.
+     */
+    private static List<Iterable<Addr2lineInfo>> callAddr2line(String filePath, List<Long> offsets) {
+        List<Iterable<Addr2lineInfo>> results = new ArrayList<>();
+        for (int i = 0; i < offsets.size(); i++) {
+            results.add(Collections.EMPTY_SET);
+        }
 
         // FIXME Could eventually use CDT's Addr2line class once it implements --inlines
-        List<String> command = Arrays.asList(ADDR2LINE_EXECUTABLE, "-i", "-f", "-C", "-e", filePath, "0x" + Long.toHexString(offset)); //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        /* With -a, the output of each offset starts with the offset itself */
+        List<String> command = new ArrayList<>();
+        Collections.addAll(command, ADDR2LINE_EXECUTABLE, "-a", "-i", "-f", "-C", "-e", filePath); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+        for (Long offset : offsets) {
+            command.add("0x" + Long.toHexString(offset)); //$NON-NLS-1$
+        }
         List<String> output = ProcessUtils.getOutputFromCommand(command);
 
         if (output == null) {
             /* Command returned an error */
-            return Collections.EMPTY_SET;
+            return results;
         }
 
         /*
          * When passing the -f flag, the output alternates between function
-         * names and file/line location.
+         * names and file/line location, after the line of each offset.
          */
+        int index = -1;
+        List<Addr2lineInfo> callsites = new LinkedList<>();
         boolean oddLine = false; // We flip at the start, first loop will be odd
         String currentFunctionName = null;
         for (String outputLine : output) {
+            if (!oddLine && index + 1 < offsets.size() && isOffsetLine(outputLine, offsets.get(index + 1))) {
+                /* The information of the next offset starts */
+                index++;
+                callsites = new LinkedList<>();
+                results.set(index, callsites);
+                continue;
+            }
+            if (index < 0) {
+                continue;
+            }
+
             /* Flip the boolean for the following line */
             oddLine = !oddLine;
 
@@ -278,6 +482,18 @@ public final class FileOffsetMapper {
             }
         }
 
-        return callsites;
+        return results;
+    }
+
+    private static boolean isOffsetLine(String line, long offset) {
+        String trimmed = line.trim();
+        if (!trimmed.startsWith("0x")) { //$NON-NLS-1$
+            return false;
+        }
+        try {
+            return Long.parseUnsignedLong(trimmed.substring(2), 16) == offset;
+        } catch (NumberFormatException e) {
+            return false;
+        }
     }
 }
@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Hash map of primitive long keys to primitive long values, using open
+ * addressing with linear probing. The keys and values are stored side by side
+ * in one table, either in a heap buffer or in a direct buffer outside of the
+ * Java heap, so that a map of millions of entries neither creates objects nor
+ * adds to the work of the garbage collector.
+ * <p>
+ * Removed entries leave a tombstone in the table, unless they end a probe
+ * sequence. When the entries and tombstones fill the table, it is rebuilt
+ * without the tombstones, and its capacity is doubled only if the entries
+ * alone need it.
+ * <p>
+ * Instead of null, a missing value is a "no value" given to the constructor,
+ * which should not be used as a value. This class is not thread-safe.
+ */
+public final class LongLongHashMap {
+
+    /** Key of the free slots, the entry with this key is kept separately */
+    private static final long FREE_KEY = 0;
+    /** Key of the removed slots, the entry with this key is kept separately */
+    private static final long REMOVED_KEY = Long.MIN_VALUE;
+
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int MIN_CAPACITY = 16;
+    /* A direct buffer is limited to Integer.MAX_VALUE bytes */
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private final long fNoValue;
+    private final boolean fDirect;
+
+    /* Key of slot i at index 2i, value at 2i + 1 */
+    private LongBuffer fTable;
+    private int fCapacity;
+    private int fShift;
+    private int fSize;
+    private int fTombstones;
+
+    private boolean fHasFreeKey = false;
+    private long fFreeKeyValue;
+    private boolean fHasRemovedKey = false;
+    private long fRemovedKeyValue;
+
+    /**
+     * Constructor of a map in the Java heap
+     *
+     * @param noValue
+     *            The value returned for the keys that are not in the map
+     */
+    public LongLongHashMap(long noValue) {
+        this(noValue, MIN_CAPACITY, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param noValue
+     *            The value returned for the keys that are not in the map
+     * @param expectedSize
+     *            The number of entries the map can contain before it grows
+     * @param direct
+     *            If true, the table is stored in native memory outside of the
+     *            Java heap
+     */
+    public LongLongHashMap(long noValue, int expectedSize, boolean direct) {
+        fNoValue = noValue;
+        fDirect = direct;
+        int capacity = MIN_CAPACITY;
+        while (!fits(expectedSize, capacity)) {
+            capacity = grow(capacity);
+        }
+        allocate(capacity);
+    }
+
+    /* The entries and tombstones may fill 3/4 of the table */
+    private static boolean fits(long used, int capacity) {
+        return used <= (capacity / 4) * 3;
+    }
+
+    private static int grow(int capacity) {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Map capacity exceeded: " + capacity); //$NON-NLS-1$
+        }
+        return capacity * 2;
+    }
+
+    private void allocate(int capacity) {
+        fCapacity = capacity;
+        fShift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        fSize = 0;
+        fTombstones = 0;
+        if (fDirect) {
+            fTable = ByteBuffer.allocateDirect(2 * capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        } else {
+            fTable = LongBuffer.allocate(2 * capacity);
+        }
+    }
+
+    /**
+     * Get the first slot of a key. The multiplication spreads the keys, like
+     * pointers, that only differ in their high bits or are multiples of a
+     * power of two.
+     */
+    private int slot(long key) {
+        return (int) ((key * HASH_MULTIPLIER) >>> fShift);
+    }
+
+    private int next(int slot) {
+        return (slot + 1) & (fCapacity - 1);
+    }
+
+    /**
+     * Find the slot of a key
+     *
+     * @return The slot, or -1 if the key is not in the table
+     */
+    private int find(long key) {
+        for (int i = slot(key);; i = next(i)) {
+            long slotKey = fTable.get(2 * i);
+            if (slotKey == key) {
+                return i;
+            }
+            if (slotKey == FREE_KEY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Get the value of a key
+     *
+     * @param key
+     *            The key
+     * @return The value, or the "no value" if the key is not in the map
+     */
+    public long get(long key) {
+        if (key == FREE_KEY) {
+            return fHasFreeKey ? fFreeKeyValue : fNoValue;
+        }
+        if (key == REMOVED_KEY) {
+            return fHasRemovedKey ? fRemovedKeyValue : fNoValue;
+        }
+        int slot = find(key);
+        return (slot < 0) ? fNoValue : fTable.get(2 * slot + 1);
+    }
+
+    /**
+     * Check if the map contains a key
+     *
+     * @param key
+     *            The key
+     * @return True if the map contains the key
+     */
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) {
+            return fHasFreeKey;
+        }
+        if (key == REMOVED_KEY) {
+            return fHasRemovedKey;
+        }
+        return find(key) >= 0;
+    }
+
+    /**
+     * Set the value of a key
+     *
+     * @param key
+     *            The key
+     * @param value
+     *            The value
+     * @return The previous value, or the "no value" if the key was not in the
+     *         map
+     */
+    public long put(long key, long value) {
+        long previous;
+        if (key == FREE_KEY) {
+            previous = fHasFreeKey ? fFreeKeyValue : fNoValue;
+            fHasFreeKey = true;
+            fFreeKeyValue = value;
+            return previous;
+        }
+        if (key == REMOVED_KEY) {
+            previous = fHasRemovedKey ? fRemovedKeyValue : fNoValue;
+            fHasRemovedKey = true;
+            fRemovedKeyValue = value;
+            return previous;
+        }
+        int tombstone = -1;
+        int i = slot(key);
+        while (true) {
+            long slotKey = fTable.get(2 * i);
+            if (slotKey == key) {
+                previous = fTable.get(2 * i + 1);
+                fTable.put(2 * i + 1, value);
+                return previous;
+            }
+            if (slotKey == FREE_KEY) {
+                break;
+            }
+            if (slotKey == REMOVED_KEY && tombstone < 0) {
+                tombstone = i;
+            }
+            i = next(i);
+        }
+        /* The key is not in the table, reuse the first tombstone if any */
+        if (tombstone >= 0) {
+            i = tombstone;
+            fTombstones--;
+        }
+        fTable.put(2 * i, key);
+        fTable.put(2 * i + 1, value);
+        fSize++;
+        if (!fits(fSize + fTombstones, fCapacity)) {
+            rehash();
+        }
+        return fNoValue;
+    }
+
+    /**
+     * Remove a key
+     *
+     * @param key
+     *            The key
+     * @return The value of the key, or the "no value" if the key was not in
+     *         the map
+     */
+    public long remove(long key) {
+        long previous;
+        if (key == FREE_KEY) {
+            previous = fHasFreeKey ? fFreeKeyValue : fNoValue;
+            fHasFreeKey = false;
+            return previous;
+        }
+        if (key == REMOVED_KEY) {
+            previous = fHasRemovedKey ? fRemovedKeyValue : fNoValue;
+            fHasRemovedKey = false;
+            return previous;
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            return fNoValue;
+        }
+        previous = fTable.get(2 * slot + 1);
+        fTable.put(2 * slot + 1, 0);
+        fSize--;
+        if (fTable.get(2 * next(slot)) == FREE_KEY) {
+            /*
+             * No probe sequence goes through this slot to a further one, nor
+             * through the tombstones just before it
+             */
+            fTable.put(2 * slot, FREE_KEY);
+            int mask = fCapacity - 1;
+            for (int i = (slot - 1) & mask; fTable.get(2 * i) == REMOVED_KEY; i = (i - 1) & mask) {
+                fTable.put(2 * i, FREE_KEY);
+                fTombstones--;
+            }
+        } else {
+            fTable.put(2 * slot, REMOVED_KEY);
+            fTombstones++;
+        }
+        return previous;
+    }
+
+    /**
+     * Rebuild the table without its tombstones, doubling its capacity if the
+     * entries fill more than half of the maximum load
+     */
+    private void rehash() {
+        int capacity = fCapacity;
+        while (!fits(2L * fSize, capacity)) {
+            capacity = grow(capacity);
+        }
+        LongBuffer table = fTable;
+        int oldCapacity = fCapacity;
+        allocate(capacity);
+        for (int i = 0; i < oldCapacity; i++) {
+            long key = table.get(2 * i);
+            if (key != FREE_KEY && key != REMOVED_KEY) {
+                int slot = slot(key);
+                while (fTable.get(2 * slot) != FREE_KEY) {
+                    slot = next(slot);
+                }
+                fTable.put(2 * slot, key);
+                fTable.put(2 * slot + 1, table.get(2 * i + 1));
+                fSize++;
+            }
+        }
+    }
+
+    /**
+     * Get the number of entries
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        return fSize + (fHasFreeKey ? 1 : 0) + (fHasRemovedKey ? 1 : 0);
+    }
+
+    /**
+     * Check if the map is empty
+     *
+     * @return True if the map has no entries
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Remove all the entries, and release the memory of the table
+     */
+    public void clear() {
+        fHasFreeKey = false;
+        fHasRemovedKey = false;
+        allocate(MIN_CAPACITY);
+    }
+}
@@ -15,12 +15,12 @@ package org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.memory;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.lttng2.ust.core.trace.LttngUstTrace;
 import org.eclipse.tracecompass.lttng2.ust.core.trace.layout.ILttngUstEventLayout;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
@@ -55,6 +55,7 @@ public class UstMemoryStateProvider extends AbstractTmfStateProvider {
 
     private static final Long MINUS_ONE = Long.valueOf(-1);
     private static final Long ZERO = Long.valueOf(0);
+    private static final long NO_SIZE = Long.MIN_VALUE;
     private static final String EMPTY_STRING = ""; //$NON-NLS-1$
 
     private static final int MALLOC_INDEX = 1;
@@ -64,8 +65,18 @@ public class UstMemoryStateProvider extends AbstractTmfStateProvider {
     private static final int MEMALIGN_INDEX = 5;
     private static final int POSIX_MEMALIGN_INDEX = 6;
 
+    /**
+     * System property to keep the map of the allocated memory outside of the
+     * Java heap
+     */
+    private static final String OFF_HEAP_PROPERTY = "org.eclipse.tracecompass.lttng2.ust.core.memory.offheap"; //$NON-NLS-1$
+    private static final int INITIAL_POINTERS = 1024;
+
     /** Map of a pointer to a memory zone to the size of the memory */
-    private final Map<Long, Long> fMemory = new HashMap<>();
+    private final LongLongHashMap fMemory = new LongLongHashMap(NO_SIZE, INITIAL_POINTERS, Boolean.getBoolean(OFF_HEAP_PROPERTY));
+
+    /** Map of a thread ID to the quark of its memory usage */
+    private final LongLongHashMap fMemoryQuarks = new LongLongHashMap(ITmfStateSystem.INVALID_ATTRIBUTE);
 
     private final @NonNull ILttngUstEventLayout fLayout;
     private final @NonNull Map<String, Integer> fEventNames;
@@ -194,16 +205,16 @@ public class UstMemoryStateProvider extends AbstractTmfStateProvider {
         return (String) field.getValue();
     }
 
-    private void setMem(ITmfEvent event, Long ptr, Long size) {
+    private void setMem(ITmfEvent event, long ptr, long size) {
         ITmfStateSystemBuilder ss = checkNotNull(getStateSystemBuilder());
         long ts = event.getTimestamp().toNanos();
         Long tid = getVtid(event);
 
-        Long memoryDiff = size;
+        long memoryDiff = size;
         /* Size is 0, it means it was deleted */
-        if (ZERO.equals(size)) {
-            Long memSize = fMemory.remove(ptr);
-            if (memSize == null) {
+        if (size == 0) {
+            long memSize = fMemory.remove(ptr);
+            if (memSize == NO_SIZE) {
                 return;
             }
             memoryDiff = -memSize;
@@ -211,12 +222,17 @@ public class UstMemoryStateProvider extends AbstractTmfStateProvider {
             fMemory.put(ptr, size);
         }
         try {
-            int tidQuark = ss.getQuarkAbsoluteAndAdd(tid.toString());
-            int tidMemQuark = ss.getQuarkRelativeAndAdd(tidQuark, UstMemoryStrings.UST_MEMORY_MEMORY_ATTRIBUTE);
+            int tidMemQuark = (int) fMemoryQuarks.get(tid);
+            if (tidMemQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+                int tidQuark = ss.getQuarkAbsoluteAndAdd(tid.toString());
+                tidMemQuark = ss.getQuarkRelativeAndAdd(tidQuark, UstMemoryStrings.UST_MEMORY_MEMORY_ATTRIBUTE);
+                fMemoryQuarks.put(tid, tidMemQuark);
+            }
 
             ITmfStateValue prevMem = ss.queryOngoingState(tidMemQuark);
             /* First time we set this value */
             if (prevMem.isNull()) {
+                int tidQuark = ss.getParentAttributeQuark(tidMemQuark);
                 int procNameQuark = ss.getQuarkRelativeAndAdd(tidQuark, UstMemoryStrings.UST_MEMORY_PROCNAME_ATTRIBUTE);
                 String procName = getProcname(event);
                 /*
@@ -231,7 +247,7 @@ public class UstMemoryStateProvider extends AbstractTmfStateProvider {
             }
 
             long prevMemValue = prevMem.unboxLong();
-            prevMemValue += memoryDiff.longValue();
+            prevMemValue += memoryDiff;
             ss.modifyAttribute(ts, TmfStateValue.newValueLong(prevMemValue), tidMemQuark);
         } catch (TimeRangeException | StateValueTypeException e) {
             throw new IllegalStateException(e);
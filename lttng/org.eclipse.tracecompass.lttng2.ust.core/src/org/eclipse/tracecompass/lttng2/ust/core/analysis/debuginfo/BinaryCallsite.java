@@ -9,6 +9,13 @@
 
 package org.eclipse.tracecompass.lttng2.ust.core.analysis.debuginfo;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.eclipse.jdt.annotation.Nullable;
 
 /**
@@ -90,6 +97,24 @@ public class BinaryCallsite {
         return fOffset;
     }
 
+    /**
+     * Group binary callsites by binary file and build ID, so that each binary
+     * is only looked up once for all its callsites.
+     *
+     * @param callsites
+     *            The binary callsites
+     * @return The groups of callsites, all the callsites of a group have the
+     *         same binary file and build ID
+     */
+    static Collection<List<BinaryCallsite>> groupByBinary(Collection<BinaryCallsite> callsites) {
+        Map<List<@Nullable String>, List<BinaryCallsite>> groups = new LinkedHashMap<>();
+        for (BinaryCallsite bc : callsites) {
+            List<@Nullable String> key = Arrays.asList(bc.fBinaryFilePath, bc.fBuildId);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(bc);
+        }
+        return groups.values();
+    }
+
     @Override
     public String toString() {
         /*
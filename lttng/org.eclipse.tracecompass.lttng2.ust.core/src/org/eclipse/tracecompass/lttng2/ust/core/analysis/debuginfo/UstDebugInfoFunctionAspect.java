@@ -12,11 +12,20 @@ package org.eclipse.tracecompass.lttng2.ust.core.analysis.debuginfo;
 import static org.eclipse.tracecompass.common.core.NonNullUtils.nullToEmptyString;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo.FileOffsetMapper;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
 
 /**
  * Aspect for the function location obtained with the UST debug info.
@@ -49,7 +58,27 @@ public class UstDebugInfoFunctionAspect implements ITmfEventAspect<FunctionLocat
             return null;
         }
 
-        return getFunctionFromBinaryLocation(bc);
+        return getFunctionsFromBinaryLocations(event.getTrace(), Collections.singleton(bc)).get(bc);
+    }
+
+    /**
+     * Get the function locations of many binary callsites of a trace. The
+     * offsets are resolved together for each binary file, which is only looked
+     * up once.
+     *
+     * @param trace
+     *            The trace, with which the symbol tables of the binaries are
+     *            saved
+     * @param callsites
+     *            The binary callsites
+     * @return The function locations of the binary callsites that could be
+     *         resolved
+     * @since 2.2
+     */
+    public static Map<BinaryCallsite, FunctionLocation> getFunctionsFromBinaryLocations(ITmfTrace trace, Collection<BinaryCallsite> callsites) {
+        /* Save the symbol table of the binary with the trace */
+        File cacheDirectory = new File(TmfTraceManager.getSupplementaryFileDir(trace));
+        return getFunctionsFromBinaryLocations(callsites, cacheDirectory);
     }
 
     /**
@@ -63,16 +92,35 @@ public class UstDebugInfoFunctionAspect implements ITmfEventAspect<FunctionLocat
      * @since 2.1
      */
     public static @Nullable FunctionLocation getFunctionFromBinaryLocation(BinaryCallsite bc) {
-        String functionName = FileOffsetMapper.getFunctionNameFromOffset(
-                new File(bc.getBinaryFilePath()),
-                bc.getBuildId(),
-                bc.getOffset());
-        if (functionName == null) {
-            return null;
-        }
+        return getFunctionFromBinaryLocation(bc, null);
+    }
 
-        /* We do not track the offset inside the function at this time */
-        return new FunctionLocation(functionName, null);
+    private static @Nullable FunctionLocation getFunctionFromBinaryLocation(BinaryCallsite bc, @Nullable File cacheDirectory) {
+        return getFunctionsFromBinaryLocations(Collections.singleton(bc), cacheDirectory).get(bc);
+    }
+
+    private static Map<BinaryCallsite, FunctionLocation> getFunctionsFromBinaryLocations(Collection<BinaryCallsite> callsites, @Nullable File cacheDirectory) {
+        Map<BinaryCallsite, FunctionLocation> functions = new HashMap<>();
+        for (List<BinaryCallsite> group : BinaryCallsite.groupByBinary(callsites)) {
+            BinaryCallsite first = group.get(0);
+            Set<Long> offsets = new HashSet<>();
+            for (BinaryCallsite bc : group) {
+                offsets.add(bc.getOffset());
+            }
+            Map<Long, String> names = FileOffsetMapper.getFunctionNamesFromOffsets(
+                    new File(first.getBinaryFilePath()),
+                    first.getBuildId(),
+                    offsets,
+                    cacheDirectory);
+            for (BinaryCallsite bc : group) {
+                String functionName = names.get(bc.getOffset());
+                if (functionName != null) {
+                    /* We do not track the offset inside the function at this time */
+                    functions.put(bc, new FunctionLocation(functionName, null));
+                }
+            }
+        }
+        return functions;
     }
 
 }
@@ -12,6 +12,13 @@ package org.eclipse.tracecompass.lttng2.ust.core.analysis.debuginfo;
 import static org.eclipse.tracecompass.common.core.NonNullUtils.nullToEmptyString;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.lttng2.ust.core.analysis.debuginfo.FileOffsetMapper;
@@ -19,6 +26,7 @@ import org.eclipse.tracecompass.lttng2.ust.core.trace.LttngUstTrace;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
 import org.eclipse.tracecompass.tmf.core.event.lookup.TmfCallsite;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
 
 /**
  * Event aspect of UST traces to generate a {@link TmfCallsite} using the debug
@@ -64,25 +72,53 @@ public class UstDebugInfoSourceAspect implements ITmfEventAspect<TmfCallsite> {
             return null;
         }
 
-        TmfCallsite callsite = FileOffsetMapper.getCallsiteFromOffset(
-                new File(bc.getBinaryFilePath()),
-                bc.getBuildId(),
-                bc.getOffset());
-        if (callsite == null) {
-            return null;
-        }
+        return getSourceCallsites(trace, Collections.singleton(bc)).get(bc);
+    }
 
-        /*
-         * Apply the path prefix again, this time on the path given from
-         * addr2line. If applicable.
-         */
+    /**
+     * Get the source callsites of many binary callsites of a trace. The
+     * offsets are resolved together for each binary file, which is only looked
+     * up once.
+     *
+     * @param trace
+     *            The trace, which may contain trace-specific configuration
+     * @param callsites
+     *            The binary callsites
+     * @return The source callsites of the binary callsites that could be
+     *         resolved
+     * @since 2.2
+     */
+    public static Map<BinaryCallsite, TmfCallsite> getSourceCallsites(LttngUstTrace trace, Collection<BinaryCallsite> callsites) {
+        File cacheDirectory = new File(TmfTraceManager.getSupplementaryFileDir(trace));
         String pathPrefix = trace.getSymbolProviderConfig().getActualRootDirPath();
-        if (pathPrefix.isEmpty()) {
-            return callsite;
+        Map<BinaryCallsite, TmfCallsite> sourceCallsites = new HashMap<>();
+        for (List<BinaryCallsite> group : BinaryCallsite.groupByBinary(callsites)) {
+            BinaryCallsite first = group.get(0);
+            Set<Long> offsets = new HashSet<>();
+            for (BinaryCallsite bc : group) {
+                offsets.add(bc.getOffset());
+            }
+            Map<Long, TmfCallsite> resolved = FileOffsetMapper.getCallsitesFromOffsets(
+                    new File(first.getBinaryFilePath()),
+                    first.getBuildId(),
+                    offsets,
+                    cacheDirectory);
+            for (BinaryCallsite bc : group) {
+                TmfCallsite callsite = resolved.get(bc.getOffset());
+                if (callsite == null) {
+                    continue;
+                }
+                /*
+                 * Apply the path prefix again, this time on the path given
+                 * from addr2line. If applicable.
+                 */
+                if (!pathPrefix.isEmpty()) {
+                    callsite = new TmfCallsite(pathPrefix + callsite.getFileName(), callsite.getLineNo());
+                }
+                sourceCallsites.put(bc, callsite);
+            }
         }
-
-        String fullFileName = (pathPrefix + callsite.getFileName());
-        return new TmfCallsite(fullFileName, callsite.getLineNo());
+        return sourceCallsites;
     }
 
     /**
@@ -102,27 +138,14 @@ public class UstDebugInfoSourceAspect implements ITmfEventAspect<TmfCallsite> {
      */
     @Deprecated
     public static @Nullable SourceCallsite getSourceCallsite(LttngUstTrace trace, BinaryCallsite bc) {
-        TmfCallsite callsite = FileOffsetMapper.getCallsiteFromOffset(
-                new File(bc.getBinaryFilePath()),
-                bc.getBuildId(),
-                bc.getOffset());
+        /* The path prefix is already applied */
+        TmfCallsite callsite = getSourceCallsites(trace, Collections.singleton(bc)).get(bc);
         if (callsite == null) {
             return null;
         }
 
         Long callsiteLineNo = callsite.getLineNo();
         long lineNo = (callsiteLineNo == null ? -1 : callsiteLineNo.longValue());
-
-        /*
-         * Apply the path prefix again, this time on the path given from
-         * addr2line. If applicable.
-         */
-        String pathPrefix = trace.getSymbolProviderConfig().getActualRootDirPath();
-        if (pathPrefix.isEmpty()) {
-            return new SourceCallsite(callsite.getFileName(), null, lineNo);
-        }
-
-        String fullFileName = (pathPrefix + callsite.getFileName());
-        return new SourceCallsite(fullFileName, null, lineNo);
+        return new SourceCallsite(callsite.getFileName(), null, lineNo);
     }
 }
@@ -0,0 +1,134 @@
+/**********************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ **********************************************************************/
+
+package org.eclipse.tracecompass.rcp.ui.tests.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.tracecompass.internal.tracing.rcp.ui.cli.HeadlessCliParser;
+import org.eclipse.tracecompass.internal.tracing.rcp.ui.cli.TracingRCPCliException;
+import org.junit.Test;
+
+/**
+ * Test the command line parser of the headless batch analysis application
+ */
+public class HeadlessCliParserTest {
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    /**
+     * Test the default values when only traces are given
+     *
+     * @throws TracingRCPCliException
+     *             if the parsing fails
+     */
+    @Test
+    public void testDefaults() throws TracingRCPCliException {
+        HeadlessCliParser cli = new HeadlessCliParser(new String[] { "trace1", "trace2" });
+        assertEquals(Arrays.asList("trace1", "trace2"), cli.getTracePaths());
+        assertEquals(Collections.emptyList(), cli.getAnalysisIds());
+        assertNull(cli.getTraceType());
+        assertNull(cli.getProject());
+        assertNull(cli.getOutput());
+        assertEquals(Runtime.getRuntime().availableProcessors(), cli.getThreads());
+        assertTrue(cli.getMemoryBudget() > 0);
+        assertFalse(cli.isHelp());
+    }
+
+    /**
+     * Test all the options, mixed with the trace paths
+     *
+     * @throws TracingRCPCliException
+     *             if the parsing fails
+     */
+    @Test
+    public void testOptions() throws TracingRCPCliException {
+        HeadlessCliParser cli = new HeadlessCliParser(new String[] {
+                "--analyses", "analysis1,analysis2",
+                "trace1",
+                "--type", "type",
+                "--project", "project",
+                "--threads", "3",
+                "--memory", "512",
+                "--output", "summary.csv",
+                "trace2" });
+        assertEquals(Arrays.asList("trace1", "trace2"), cli.getTracePaths());
+        assertEquals(Arrays.asList("analysis1", "analysis2"), cli.getAnalysisIds());
+        assertEquals("type", cli.getTraceType());
+        assertEquals("project", cli.getProject());
+        assertEquals(3, cli.getThreads());
+        assertEquals(512 * MEGABYTE, cli.getMemoryBudget());
+        assertEquals("summary.csv", cli.getOutput());
+        assertFalse(cli.isHelp());
+    }
+
+    /**
+     * Test that the options of the launcher and of the platform, with a single
+     * dash, are not taken as traces
+     *
+     * @throws TracingRCPCliException
+     *             if the parsing fails
+     */
+    @Test
+    public void testPlatformOptions() throws TracingRCPCliException {
+        HeadlessCliParser cli = new HeadlessCliParser(new String[] { "-nosplash", "trace", "-consoleLog", "--help" });
+        assertEquals(Collections.singletonList("trace"), cli.getTracePaths());
+        assertTrue(cli.isHelp());
+    }
+
+    /**
+     * Test an unknown option
+     *
+     * @throws TracingRCPCliException
+     *             expected
+     */
+    @Test(expected = TracingRCPCliException.class)
+    public void testUnknownOption() throws TracingRCPCliException {
+        new HeadlessCliParser(new String[] { "--unknown", "trace" });
+    }
+
+    /**
+     * Test an option without its value
+     *
+     * @throws TracingRCPCliException
+     *             expected
+     */
+    @Test(expected = TracingRCPCliException.class)
+    public void testMissingValue() throws TracingRCPCliException {
+        new HeadlessCliParser(new String[] { "trace", "--output" });
+    }
+
+    /**
+     * Test a number of threads that is not a number
+     *
+     * @throws TracingRCPCliException
+     *             expected
+     */
+    @Test(expected = TracingRCPCliException.class)
+    public void testInvalidThreads() throws TracingRCPCliException {
+        new HeadlessCliParser(new String[] { "--threads", "many", "trace" });
+    }
+
+    /**
+     * Test a memory budget that is not positive
+     *
+     * @throws TracingRCPCliException
+     *             expected
+     */
+    @Test(expected = TracingRCPCliException.class)
+    public void testInvalidMemory() throws TracingRCPCliException {
+        new HeadlessCliParser(new String[] { "--memory", "0", "trace" });
+    }
+}
@@ -0,0 +1,144 @@
+/**********************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ **********************************************************************/
+
+package org.eclipse.tracecompass.rcp.ui.tests.headless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.tracecompass.internal.tracing.rcp.ui.headless.BatchAnalysisRunner;
+import org.eclipse.tracecompass.tmf.core.tests.shared.TmfTestTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link BatchAnalysisRunner} with the stub trace and analyses of the
+ * TMF core tests.
+ */
+public class BatchAnalysisRunnerTest {
+
+    private static final String PROJECT_NAME = "BatchAnalysisRunnerTest";
+    private static final String TRACE_TYPE = "org.eclipse.linuxtools.tmf.core.tests.tracetype";
+    /* Analysis whose parameter has a default value, it completes */
+    private static final String COMPLETED_ANALYSIS = "org.eclipse.linuxtools.tmf.core.tests.analysis.test2";
+    /* Analysis whose parameter is not set, it fails */
+    private static final String FAILED_ANALYSIS = "org.eclipse.linuxtools.tmf.core.tests.analysis.test";
+    private static final String UNKNOWN_ANALYSIS = "org.eclipse.tracecompass.rcp.ui.tests.unknown";
+
+    private static final int STATUS_COLUMN = 3;
+    private static final int ANALYSIS_COLUMN = 2;
+
+    private File fSummary;
+
+    /**
+     * Create the summary file
+     *
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fSummary = File.createTempFile("summary", ".csv");
+    }
+
+    /**
+     * Delete the project and the summary file
+     *
+     * @throws CoreException
+     *             if the project cannot be deleted
+     */
+    @After
+    public void tearDown() throws CoreException {
+        IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(PROJECT_NAME);
+        if (project.exists()) {
+            /* The traces are linked, so their files are not deleted */
+            project.delete(true, true, null);
+        }
+        fSummary.delete();
+    }
+
+    /**
+     * Test an analysis that completes
+     *
+     * @throws Exception
+     *             if the test fails
+     */
+    @Test
+    public void testCompleted() throws Exception {
+        List<String[]> summary = run(true, Collections.singletonList(TmfTestTrace.A_TEST_10K.getFullPath()), COMPLETED_ANALYSIS);
+        assertEquals(1, summary.size());
+        assertEquals(COMPLETED_ANALYSIS, summary.get(0)[ANALYSIS_COLUMN]);
+        assertEquals("completed", summary.get(0)[STATUS_COLUMN]);
+        assertTrue(Long.parseLong(summary.get(0)[STATUS_COLUMN + 1]) >= 0);
+    }
+
+    /**
+     * Test an analysis that fails, and one that does not apply to the trace
+     *
+     * @throws Exception
+     *             if the test fails
+     */
+    @Test
+    public void testFailed() throws Exception {
+        List<String[]> summary = run(false, Collections.singletonList(TmfTestTrace.A_TEST_10K.getFullPath()), FAILED_ANALYSIS, UNKNOWN_ANALYSIS);
+        assertEquals(2, summary.size());
+        assertEquals(UNKNOWN_ANALYSIS, summary.get(0)[ANALYSIS_COLUMN]);
+        assertEquals("unavailable", summary.get(0)[STATUS_COLUMN]);
+        assertEquals(FAILED_ANALYSIS, summary.get(1)[ANALYSIS_COLUMN]);
+        assertEquals("failed", summary.get(1)[STATUS_COLUMN]);
+    }
+
+    /**
+     * Test that the analyses of the other traces are done when a trace cannot
+     * be imported
+     *
+     * @throws Exception
+     *             if the test fails
+     */
+    @Test
+    public void testImportError() throws Exception {
+        String missing = new File(fSummary.getParentFile(), "missing-trace").getAbsolutePath();
+        List<String[]> summary = run(false, Arrays.asList(missing, TmfTestTrace.A_TEST_10K.getFullPath()), COMPLETED_ANALYSIS);
+        assertEquals(2, summary.size());
+        assertEquals(missing, summary.get(0)[0]);
+        assertEquals("error", summary.get(0)[STATUS_COLUMN]);
+        assertEquals("completed", summary.get(1)[STATUS_COLUMN]);
+    }
+
+    /*
+     * Run the analyses on the traces, check the return value and get the lines
+     * of the summary, without the header
+     */
+    private List<String[]> run(boolean expected, List<String> tracePaths, String... analysisIds) throws Exception {
+        BatchAnalysisRunner runner = new BatchAnalysisRunner(Arrays.asList(analysisIds), 2, Long.MAX_VALUE);
+        boolean completed = runner.run(PROJECT_NAME, tracePaths, TRACE_TYPE);
+        assertEquals(expected, completed);
+        runner.writeSummary(fSummary.getAbsolutePath());
+
+        List<String> lines = Files.readAllLines(fSummary.toPath(), StandardCharsets.UTF_8);
+        assertFalse(lines.isEmpty());
+        return lines.subList(1, lines.size()).stream()
+                .map(line -> line.split(",", -1))
+                .collect(Collectors.toList());
+    }
+}
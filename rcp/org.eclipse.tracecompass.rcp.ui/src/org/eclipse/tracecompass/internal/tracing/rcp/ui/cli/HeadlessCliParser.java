@@ -0,0 +1,174 @@
+/**********************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ **********************************************************************/
+
+package org.eclipse.tracecompass.internal.tracing.rcp.ui.cli;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.tracecompass.internal.tracing.rcp.ui.messages.Messages;
+
+/**
+ * Command line parser of the headless batch analysis application. The
+ * arguments that are not options are the paths of the traces to analyze.
+ */
+public class HeadlessCliParser {
+
+    private static final String OPTION_PREFIX = "--"; //$NON-NLS-1$
+
+    private static final String ANALYSES_ARG = "--analyses"; //$NON-NLS-1$
+    private static final String TYPE_ARG = "--type"; //$NON-NLS-1$
+    private static final String PROJECT_ARG = "--project"; //$NON-NLS-1$
+    private static final String THREADS_ARG = "--threads"; //$NON-NLS-1$
+    private static final String MEMORY_ARG = "--memory"; //$NON-NLS-1$
+    private static final String OUTPUT_ARG = "--output"; //$NON-NLS-1$
+    private static final String HELP_ARG = "--help"; //$NON-NLS-1$
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final List<String> fTracePaths = new ArrayList<>();
+    private List<String> fAnalysisIds = Collections.emptyList();
+    private String fTraceType = null;
+    private String fProject = null;
+    private int fThreads = Runtime.getRuntime().availableProcessors();
+    /* By default, keep a quarter of the heap for the trace being opened */
+    private long fMemoryBudget = Runtime.getRuntime().maxMemory() / 4 * 3;
+    private String fOutput = null;
+    private boolean fHelp = false;
+
+    /**
+     * Constructor
+     *
+     * @param args
+     *            the application arguments
+     * @throws TracingRCPCliException
+     *             an error occurred parsing the cli
+     */
+    public HeadlessCliParser(final String[] args) throws TracingRCPCliException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals(ANALYSES_ARG)) {
+                fAnalysisIds = Arrays.asList(getValue(args, i++).split(",")); //$NON-NLS-1$
+            } else if (arg.equals(TYPE_ARG)) {
+                fTraceType = getValue(args, i++);
+            } else if (arg.equals(PROJECT_ARG)) {
+                fProject = getValue(args, i++);
+            } else if (arg.equals(THREADS_ARG)) {
+                fThreads = getPositiveInt(args, i++);
+            } else if (arg.equals(MEMORY_ARG)) {
+                fMemoryBudget = getPositiveInt(args, i++) * MEGABYTE;
+            } else if (arg.equals(OUTPUT_ARG)) {
+                fOutput = getValue(args, i++);
+            } else if (arg.equals(HELP_ARG)) {
+                fHelp = true;
+            } else if (arg.startsWith(OPTION_PREFIX)) {
+                throw new TracingRCPCliException(Messages.CliParser_UnknownCommand + ':' + ' ' + arg);
+            } else if (!arg.startsWith("-")) { //$NON-NLS-1$
+                /* Other options are for the launcher or the platform */
+                fTracePaths.add(arg);
+            }
+        }
+    }
+
+    private static String getValue(String[] args, int pos) throws TracingRCPCliException {
+        if (args.length <= pos + 1) {
+            throw new TracingRCPCliException(Messages.CliParser_MalformedCommand + ':' + ' ' + args[pos]);
+        }
+        return args[pos + 1];
+    }
+
+    private static int getPositiveInt(String[] args, int pos) throws TracingRCPCliException {
+        String value = getValue(args, pos);
+        try {
+            int ret = Integer.parseInt(value);
+            if (ret > 0) {
+                return ret;
+            }
+        } catch (NumberFormatException e) {
+            /* Report it below */
+        }
+        throw new TracingRCPCliException(Messages.CliParser_MalformedCommand + ':' + ' ' + args[pos] + ' ' + value);
+    }
+
+    /**
+     * Get the paths of the traces to analyze
+     *
+     * @return the trace paths
+     */
+    public List<String> getTracePaths() {
+        return fTracePaths;
+    }
+
+    /**
+     * Get the IDs of the analysis modules to execute
+     *
+     * @return the analysis IDs, empty to execute all the analyses of the
+     *         traces
+     */
+    public List<String> getAnalysisIds() {
+        return fAnalysisIds;
+    }
+
+    /**
+     * Get the trace type to use if the type of a trace is ambiguous
+     *
+     * @return the trace type ID, can be null
+     */
+    public String getTraceType() {
+        return fTraceType;
+    }
+
+    /**
+     * Get the name of the tracing project in which to import the traces
+     *
+     * @return the project name, can be null for the default project
+     */
+    public String getProject() {
+        return fProject;
+    }
+
+    /**
+     * Get the number of traces to analyze at the same time
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return fThreads;
+    }
+
+    /**
+     * Get the heap usage above which no new trace is opened until another one
+     * is done
+     *
+     * @return the memory budget, in bytes
+     */
+    public long getMemoryBudget() {
+        return fMemoryBudget;
+    }
+
+    /**
+     * Get the file in which to export the summary of the results
+     *
+     * @return the output file path, null for the standard output
+     */
+    public String getOutput() {
+        return fOutput;
+    }
+
+    /**
+     * Get whether the usage was requested
+     *
+     * @return true to print the usage
+     */
+    public boolean isHelp() {
+        return fHelp;
+    }
+}
@@ -0,0 +1,478 @@
+/**********************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ **********************************************************************/
+
+package org.eclipse.tracecompass.internal.tracing.rcp.ui.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.URIUtil;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.tracecompass.internal.tracing.rcp.ui.TracingRcpPlugin;
+import org.eclipse.tracecompass.internal.tracing.rcp.ui.messages.Messages;
+import org.eclipse.tracecompass.tmf.core.TmfCommonConstants;
+import org.eclipse.tracecompass.tmf.core.TmfProjectNature;
+import org.eclipse.tracecompass.tmf.core.analysis.IAnalysisModule;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTxtTrace;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTxtTraceDefinition;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomXmlTrace;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomXmlTraceDefinition;
+import org.eclipse.tracecompass.tmf.core.project.model.TmfTraceImportException;
+import org.eclipse.tracecompass.tmf.core.project.model.TmfTraceType;
+import org.eclipse.tracecompass.tmf.core.project.model.TraceTypeHelper;
+import org.eclipse.tracecompass.tmf.core.signal.TmfSignalManager;
+import org.eclipse.tracecompass.tmf.core.signal.TmfTraceClosedSignal;
+import org.eclipse.tracecompass.tmf.core.signal.TmfTraceOpenedSignal;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+
+/**
+ * Runs analysis modules on many traces without the workbench, so that their
+ * supplementary files can be built in batch and only viewed interactively.
+ *
+ * The traces are linked in a tracing project of the workspace, with their
+ * supplementary files in the same folders as if they had been opened in the
+ * workbench. They are then opened and analyzed by a fixed pool of threads. A
+ * thread waits before opening a trace while the used heap is above the memory
+ * budget and other traces are being analyzed.
+ *
+ * The summary of the results gives the status of each analysis and the time
+ * after which it was done. The analyses of a trace run concurrently, so this
+ * time is counted from the start of the analyses of the trace.
+ */
+public class BatchAnalysisRunner {
+
+    /* Same as TmfTracesFolder.TRACES_FOLDER_NAME, which requires the UI */
+    private static final String TRACES_FOLDER_NAME = "Traces"; //$NON-NLS-1$
+
+    private static final long MEMORY_CHECK_INTERVAL = 1000;
+
+    /** Status of an analysis that completed */
+    private static final String COMPLETED = "completed"; //$NON-NLS-1$
+    /** Status of an analysis that failed or was cancelled */
+    private static final String FAILED = "failed"; //$NON-NLS-1$
+    /** Status of an analysis that does not apply to the trace */
+    private static final String UNAVAILABLE = "unavailable"; //$NON-NLS-1$
+    /** Status of a trace that could not be opened or analyzed */
+    private static final String ERROR = "error"; //$NON-NLS-1$
+    /** Status of a trace that was not analyzed, for example if cancelled */
+    private static final String NOT_RUN = "not run"; //$NON-NLS-1$
+
+    private final List<String> fAnalysisIds;
+    private final int fThreads;
+    private final long fMemoryBudget;
+
+    private final List<AnalysisResult> fResults = Collections.synchronizedList(new ArrayList<>());
+    private int fActiveTraces = 0;
+    private ExecutorService fExecutor = null;
+    /* Threads waiting for the completion of the analysis modules */
+    private final ExecutorService fWaiters = Executors.newCachedThreadPool();
+
+    /**
+     * Summary of the execution of an analysis on a trace
+     */
+    private static final class AnalysisResult {
+        private final String fTraceName;
+        private final String fTraceType;
+        private final String fAnalysisId;
+        private final String fStatus;
+        /* Time from the start of the analyses of the trace until this one was done */
+        private final long fElapsedMillis;
+        private final String fSupplementaryFolder;
+
+        public AnalysisResult(String traceName, String traceType, String analysisId, String status, long elapsedMillis, String supplementaryFolder) {
+            fTraceName = traceName;
+            fTraceType = traceType;
+            fAnalysisId = analysisId;
+            fStatus = status;
+            fElapsedMillis = elapsedMillis;
+            fSupplementaryFolder = supplementaryFolder;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param analysisIds
+     *            the IDs of the analysis modules to execute, empty to execute
+     *            all the analyses of each trace
+     * @param threads
+     *            the number of traces to analyze at the same time
+     * @param memoryBudget
+     *            the used heap, in bytes, above which no new trace is opened
+     *            until another one is done
+     */
+    public BatchAnalysisRunner(List<String> analysisIds, int threads, long memoryBudget) {
+        fAnalysisIds = analysisIds;
+        fThreads = threads;
+        fMemoryBudget = memoryBudget;
+    }
+
+    /**
+     * Import the traces in a tracing project and analyze them. This method
+     * returns when all the traces are done.
+     *
+     * @param projectName
+     *            the name of the tracing project
+     * @param tracePaths
+     *            the paths of the traces
+     * @param traceTypeHint
+     *            the trace type to use if the type of a trace is ambiguous,
+     *            can be null
+     * @return true if all the analyses completed
+     * @throws CoreException
+     *             if the project cannot be created
+     * @throws InterruptedException
+     *             if interrupted while waiting for the analyses
+     */
+    public boolean run(String projectName, List<String> tracePaths, String traceTypeHint) throws CoreException, InterruptedException {
+        IProject project = createProject(projectName);
+        IFolder tracesFolder = project.getFolder(TRACES_FOLDER_NAME);
+
+        /* Link the traces first, the workspace modifications are sequential */
+        Map<IResource, String> traces = new LinkedHashMap<>();
+        for (String path : tracePaths) {
+            try {
+                IResource resource = importTrace(tracesFolder, path, traceTypeHint);
+                traces.put(resource, resource.getPersistentProperty(TmfCommonConstants.TRACETYPE));
+            } catch (TmfTraceImportException | CoreException e) {
+                TracingRcpPlugin.getDefault().logError(NLS.bind(Messages.HeadlessApplication_ImportError, path), e);
+                fResults.add(new AnalysisResult(path, null, null, ERROR, 0, null));
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(fThreads);
+        synchronized (this) {
+            fExecutor = executor;
+        }
+        for (Map.Entry<IResource, String> trace : traces.entrySet()) {
+            executor.execute(() -> analyzeTrace(trace.getKey(), trace.getValue()));
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        fWaiters.shutdown();
+        project.refreshLocal(IResource.DEPTH_INFINITE, null);
+
+        synchronized (fResults) {
+            /* The traces that were cancelled or stopped without any result */
+            Set<String> analyzed = new HashSet<>();
+            fResults.forEach(result -> analyzed.add(result.fTraceName));
+            for (Map.Entry<IResource, String> trace : traces.entrySet()) {
+                String traceName = trace.getKey().getName();
+                if (!analyzed.contains(traceName)) {
+                    fResults.add(new AnalysisResult(traceName, trace.getValue(), null, NOT_RUN, 0, null));
+                }
+            }
+            return fResults.stream().allMatch(result -> result.fStatus.equals(COMPLETED) || result.fStatus.equals(UNAVAILABLE));
+        }
+    }
+
+    /**
+     * Cancel the analyses of the traces that are not done
+     */
+    public synchronized void cancel() {
+        if (fExecutor != null) {
+            fExecutor.shutdownNow();
+        }
+        fWaiters.shutdownNow();
+    }
+
+    /**
+     * Export the summary of the results, in CSV format
+     *
+     * @param file
+     *            the file to write, or null for the standard output
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void writeSummary(String file) throws IOException {
+        PrintWriter writer = (file == null) ? new PrintWriter(System.out) : new PrintWriter(file, "UTF-8"); //$NON-NLS-1$
+        try {
+            writer.println("trace,trace type,analysis,status,completed after (ms),supplementary folder"); //$NON-NLS-1$
+            synchronized (fResults) {
+                for (AnalysisResult result : fResults) {
+                    writer.println(String.join(",", //$NON-NLS-1$
+                            csv(result.fTraceName),
+                            csv(result.fTraceType),
+                            csv(result.fAnalysisId),
+                            result.fStatus,
+                            Long.toString(result.fElapsedMillis),
+                            csv(result.fSupplementaryFolder)));
+                }
+            }
+        } finally {
+            if (file == null) {
+                writer.flush();
+            } else {
+                writer.close();
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return ""; //$NON-NLS-1$
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"'; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    // ------------------------------------------------------------------------
+    // Workspace
+    // ------------------------------------------------------------------------
+
+    private static IProject createProject(String projectName) throws CoreException {
+        final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        final IProject project = workspace.getRoot().getProject(projectName);
+        workspace.run((IWorkspaceRunnable) monitor -> {
+            if (!project.exists()) {
+                project.create(monitor);
+            }
+            if (!project.isOpen()) {
+                project.open(monitor);
+            }
+            if (!project.hasNature(TmfProjectNature.ID)) {
+                IProjectDescription description = project.getDescription();
+                description.setNatureIds(new String[] { TmfProjectNature.ID });
+                project.setDescription(description, monitor);
+            }
+            createFolder(project.getFolder(TRACES_FOLDER_NAME));
+            createFolder(project.getFolder(TmfCommonConstants.TRACE_SUPPLEMENTARY_FOLDER_NAME));
+        }, new NullProgressMonitor());
+        return project;
+    }
+
+    private static void createFolder(IFolder folder) throws CoreException {
+        if (!folder.exists()) {
+            folder.create(true, true, null);
+        }
+    }
+
+    /**
+     * Link a trace in the traces folder, like when opening it in the
+     * workbench, and set its type and supplementary folder
+     */
+    private static IResource importTrace(IFolder tracesFolder, String path, String traceTypeHint) throws CoreException, TmfTraceImportException {
+        File traceFile = new File(path);
+        try {
+            traceFile = traceFile.getCanonicalFile();
+        } catch (IOException e) {
+            /* just use original file path */
+        }
+        String traceName = traceFile.getName();
+        for (int i = 2; isWrongMember(tracesFolder, traceName, traceFile); i++) {
+            traceName = traceFile.getName() + '(' + i + ')';
+        }
+
+        IResource resource = tracesFolder.findMember(traceName);
+        if (resource == null) {
+            IPath location = Path.fromOSString(traceFile.getAbsolutePath());
+            if (traceFile.isDirectory()) {
+                IFolder folder = tracesFolder.getFolder(traceName);
+                folder.createLink(location, IResource.REPLACE, null);
+                resource = folder;
+            } else {
+                IFile file = tracesFolder.getFile(traceName);
+                file.createLink(location, IResource.REPLACE, null);
+                resource = file;
+            }
+            resource.setPersistentProperty(TmfCommonConstants.SOURCE_LOCATION, URIUtil.toUnencodedString(traceFile.toURI()));
+        }
+
+        if (resource.getPersistentProperty(TmfCommonConstants.TRACETYPE) == null) {
+            List<TraceTypeHelper> traceTypes = TmfTraceType.selectTraceType(traceFile.getAbsolutePath(), traceTypeHint);
+            if (traceTypes.isEmpty()) {
+                throw new TmfTraceImportException(NLS.bind(Messages.HeadlessApplication_NoTraceType, path));
+            }
+            resource.setPersistentProperty(TmfCommonConstants.TRACETYPE, traceTypes.get(0).getTraceTypeId());
+        }
+
+        /* Same folder as TmfCommonProjectElement#getSupplementaryFolderPath */
+        IFolder supplFolder = tracesFolder.getProject().getFolder(TmfCommonConstants.TRACE_SUPPLEMENTARY_FOLDER_NAME).getFolder(traceName);
+        createFolder(supplFolder);
+        resource.setPersistentProperty(TmfCommonConstants.TRACE_SUPPLEMENTARY_FOLDER, supplFolder.getLocation().toOSString());
+        return resource;
+    }
+
+    private static boolean isWrongMember(IFolder folder, String name, File traceFile) {
+        IResource candidate = folder.findMember(name);
+        if (candidate == null) {
+            return false;
+        }
+        File file = candidate.getRawLocation().toFile();
+        try {
+            file = file.getCanonicalFile();
+        } catch (IOException e) {
+            /* just use original file path */
+        }
+        return !file.equals(traceFile);
+    }
+
+    // ------------------------------------------------------------------------
+    // Analysis
+    // ------------------------------------------------------------------------
+
+    private void analyzeTrace(IResource resource, String traceTypeId) {
+        String traceName = resource.getName();
+        String supplFolder = null;
+        try {
+            supplFolder = resource.getPersistentProperty(TmfCommonConstants.TRACE_SUPPLEMENTARY_FOLDER);
+            acquireMemory();
+        } catch (CoreException e) {
+            TracingRcpPlugin.getDefault().logError(NLS.bind(Messages.HeadlessApplication_OpenError, traceName), e);
+            fResults.add(new AnalysisResult(traceName, traceTypeId, null, ERROR, 0, supplFolder));
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        ITmfTrace trace = null;
+        try {
+            trace = instantiateTrace(traceTypeId);
+            if (trace == null) {
+                fResults.add(new AnalysisResult(traceName, traceTypeId, null, ERROR, 0, supplFolder));
+                return;
+            }
+            trace.initTrace(resource, resource.getLocation().toOSString(), ITmfEvent.class, traceName, traceTypeId);
+
+            /* Instantiates the analysis modules and runs the automatic ones */
+            TmfSignalManager.dispatchSignal(new TmfTraceOpenedSignal(this, trace, null));
+
+            long start = System.nanoTime();
+            List<IAnalysisModule> modules = new ArrayList<>();
+            if (fAnalysisIds.isEmpty()) {
+                trace.getAnalysisModules().forEach(modules::add);
+            } else {
+                for (String id : fAnalysisIds) {
+                    IAnalysisModule module = trace.getAnalysisModule(id);
+                    if (module == null) {
+                        fResults.add(new AnalysisResult(traceName, traceTypeId, id, UNAVAILABLE, 0, supplFolder));
+                    } else {
+                        modules.add(module);
+                    }
+                }
+            }
+
+            /*
+             * The modules run concurrently in their own jobs, wait for each of
+             * them separately to know when it is done
+             */
+            String supplementaryFolder = supplFolder;
+            List<CompletableFuture<AnalysisResult>> results = new ArrayList<>();
+            for (IAnalysisModule module : modules) {
+                IStatus status = module.schedule();
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    boolean completed = status.isOK() && module.waitForCompletion();
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    return new AnalysisResult(traceName, traceTypeId, module.getId(), completed ? COMPLETED : FAILED, elapsed, supplementaryFolder);
+                }, fWaiters));
+            }
+            for (CompletableFuture<AnalysisResult> result : results) {
+                fResults.add(result.get());
+            }
+        } catch (TmfTraceException | CoreException e) {
+            TracingRcpPlugin.getDefault().logError(NLS.bind(Messages.HeadlessApplication_OpenError, traceName), e);
+            fResults.add(new AnalysisResult(traceName, traceTypeId, null, ERROR, 0, supplFolder));
+        } catch (ExecutionException | RuntimeException e) {
+            /* Do not let an analysis or a trace type stop the other traces */
+            TracingRcpPlugin.getDefault().logError(NLS.bind(Messages.HeadlessApplication_AnalysisError, traceName), e);
+            fResults.add(new AnalysisResult(traceName, traceTypeId, null, ERROR, 0, supplFolder));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (trace != null) {
+                TmfSignalManager.dispatchSignal(new TmfTraceClosedSignal(this, trace));
+                trace.dispose();
+            }
+            releaseMemory();
+        }
+    }
+
+    /**
+     * Same as TmfTraceElement#instantiateTrace, which requires the UI
+     */
+    private static ITmfTrace instantiateTrace(String traceTypeId) throws CoreException {
+        if (traceTypeId == null) {
+            return null;
+        }
+        if (CustomTxtTrace.isCustomTraceTypeId(traceTypeId)) {
+            for (CustomTxtTraceDefinition def : CustomTxtTraceDefinition.loadAll()) {
+                if (traceTypeId.equals(CustomTxtTrace.buildTraceTypeId(def.categoryName, def.definitionName))) {
+                    return new CustomTxtTrace(def);
+                }
+            }
+        }
+        if (CustomXmlTrace.isCustomTraceTypeId(traceTypeId)) {
+            for (CustomXmlTraceDefinition def : CustomXmlTraceDefinition.loadAll()) {
+                if (traceTypeId.equals(CustomXmlTrace.buildTraceTypeId(def.categoryName, def.definitionName))) {
+                    return new CustomXmlTrace(def);
+                }
+            }
+        }
+        IConfigurationElement ce = TmfTraceType.getTraceAttributes(traceTypeId);
+        if (ce == null) {
+            return null;
+        }
+        return (ITmfTrace) ce.createExecutableExtension(TmfTraceType.TRACE_TYPE_ATTR);
+    }
+
+    // ------------------------------------------------------------------------
+    // Memory budget
+    // ------------------------------------------------------------------------
+
+    private synchronized void acquireMemory() throws InterruptedException {
+        /* Always let one trace through, even if it is above the budget alone */
+        while (fActiveTraces > 0 && usedMemory() > fMemoryBudget) {
+            /* The heap may also shrink without a trace being done */
+            wait(MEMORY_CHECK_INTERVAL);
+        }
+        fActiveTraces++;
+    }
+
+    private synchronized void releaseMemory() {
+        fActiveTraces--;
+        notifyAll();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
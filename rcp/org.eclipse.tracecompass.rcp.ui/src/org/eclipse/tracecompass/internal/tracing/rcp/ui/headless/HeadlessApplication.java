@@ -0,0 +1,105 @@
+/**********************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ **********************************************************************/
+
+package org.eclipse.tracecompass.internal.tracing.rcp.ui.headless;
+
+import java.io.File;
+import java.net.URL;
+import java.text.MessageFormat;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.eclipse.osgi.service.datalocation.Location;
+import org.eclipse.tracecompass.internal.tracing.rcp.ui.TracingRcpPlugin;
+import org.eclipse.tracecompass.internal.tracing.rcp.ui.cli.HeadlessCliParser;
+import org.eclipse.tracecompass.internal.tracing.rcp.ui.cli.TracingRCPCliException;
+import org.eclipse.tracecompass.internal.tracing.rcp.ui.messages.Messages;
+import org.eclipse.tracecompass.tmf.core.TmfCommonConstants;
+
+/**
+ * Application that executes analyses on traces without the workbench, for
+ * example:
+ *
+ * <pre>
+ * tracecompass -nosplash -application org.eclipse.tracecompass.rcp.ui.headless
+ *     --analyses org.eclipse.tracecompass.analysis.os.linux.kernel
+ *     --threads 4 --output summary.csv trace1 trace2
+ * </pre>
+ *
+ * The traces are linked in a tracing project of the same workspace as the
+ * workbench, so opening them afterwards in the workbench reuses the
+ * supplementary files.
+ */
+public class HeadlessApplication implements IApplication {
+
+    private static final Integer EXIT_ERROR = 1;
+
+    private Location fInstanceLoc = null;
+    private BatchAnalysisRunner fRunner = null;
+
+    @Override
+    public Object start(IApplicationContext context) throws Exception {
+        String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+        HeadlessCliParser cli;
+        try {
+            cli = new HeadlessCliParser(args == null ? new String[0] : args);
+        } catch (TracingRCPCliException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Messages.HeadlessApplication_Usage);
+            return EXIT_ERROR;
+        }
+        if (cli.isHelp() || cli.getTracePaths().isEmpty()) {
+            System.out.println(Messages.HeadlessApplication_Usage);
+            return cli.isHelp() ? IApplication.EXIT_OK : EXIT_ERROR;
+        }
+
+        /* Same workspace as the workbench, see Application */
+        fInstanceLoc = Platform.getInstanceLocation();
+        if (!fInstanceLoc.allowsDefault() && !fInstanceLoc.isSet()) {
+            File workspaceRoot = new File(TracingRcpPlugin.getWorkspaceRoot());
+            if (!workspaceRoot.exists()) {
+                System.err.println(MessageFormat.format(Messages.Application_WorkspaceRootNotExistError, new Object[] { TracingRcpPlugin.getWorkspaceRoot() }));
+                return EXIT_ERROR;
+            }
+            if (!workspaceRoot.canWrite()) {
+                System.err.println(MessageFormat.format(Messages.Application_WorkspaceRootPermissionError, new Object[] { TracingRcpPlugin.getWorkspaceRoot() }));
+                return EXIT_ERROR;
+            }
+            String workspace = TracingRcpPlugin.getWorkspaceRoot() + File.separator + TracingRcpPlugin.WORKSPACE_NAME;
+            fInstanceLoc.set(new URL("file", null, workspace), false); //$NON-NLS-1$
+        }
+        if (!fInstanceLoc.lock()) {
+            System.err.println(MessageFormat.format(Messages.Application_WorkspaceInUseError, new Object[] { fInstanceLoc.getURL().getPath() }));
+            return EXIT_ERROR;
+        }
+
+        try {
+            BatchAnalysisRunner runner = new BatchAnalysisRunner(cli.getAnalysisIds(), cli.getThreads(), cli.getMemoryBudget());
+            synchronized (this) {
+                fRunner = runner;
+            }
+            String project = cli.getProject() == null ? TmfCommonConstants.DEFAULT_TRACE_PROJECT_NAME : cli.getProject();
+            boolean completed = runner.run(project, cli.getTracePaths(), cli.getTraceType());
+            runner.writeSummary(cli.getOutput());
+            ResourcesPlugin.getWorkspace().save(true, null);
+            return completed ? IApplication.EXIT_OK : EXIT_ERROR;
+        } finally {
+            fInstanceLoc.release();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (fRunner != null) {
+            fRunner.cancel();
+        }
+    }
+}
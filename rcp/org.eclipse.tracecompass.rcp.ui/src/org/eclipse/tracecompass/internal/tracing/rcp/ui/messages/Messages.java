@@ -42,6 +42,17 @@ public class Messages extends NLS {
     /** Unkown command */
     public static String CliParser_UnknownCommand;
 
+    /** Usage of the headless application */
+    public static String HeadlessApplication_Usage;
+    /** Error message if a trace cannot be imported */
+    public static String HeadlessApplication_ImportError;
+    /** Error message if no trace type matches a trace */
+    public static String HeadlessApplication_NoTraceType;
+    /** Error message if a trace cannot be opened */
+    public static String HeadlessApplication_OpenError;
+    /** Error message if the analysis of a trace fails unexpectedly */
+    public static String HeadlessApplication_AnalysisError;
+
     static {
         // initialize resource bundle
         NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.benchmarks.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.tracecompass.common.core.collect.BufferedBlockingQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of the put and take operations of {@link BufferedBlockingQueue},
+ * in one thread and with a consumer thread, like the event requests and the
+ * state system builder
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BufferedBlockingQueueBenchmark {
+
+    private static final int BATCH_SIZE = 10000;
+    private static final int QUEUE_SIZE = 100;
+    private static final Object END = new Object();
+
+    /** The number of elements in a chunk of the queue */
+    @Param({ "100", "1000" })
+    public int chunkSize;
+
+    private final Object[] fElements = new Object[BATCH_SIZE];
+    private BufferedBlockingQueue<Object> fQueue;
+    private BufferedBlockingQueue<Object> fConcurrentQueue;
+    private final AtomicLong fTaken = new AtomicLong();
+    private long fPut = 0;
+    private Thread fConsumer;
+
+    /**
+     * Create the queues and start the consumer thread
+     */
+    @Setup
+    public void setup() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            fElements[i] = Integer.valueOf(i);
+        }
+        fQueue = new BufferedBlockingQueue<>(QUEUE_SIZE, chunkSize);
+        BufferedBlockingQueue<Object> queue = new BufferedBlockingQueue<>(QUEUE_SIZE, chunkSize);
+        fConcurrentQueue = queue;
+        fConsumer = new Thread(() -> {
+            while (queue.take() != END) {
+                fTaken.incrementAndGet();
+            }
+        }, "Consumer"); //$NON-NLS-1$
+        fConsumer.start();
+    }
+
+    /**
+     * Stop the consumer thread
+     *
+     * @throws InterruptedException
+     *             If interrupted while waiting for the consumer
+     */
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        fConcurrentQueue.put(END);
+        fConcurrentQueue.flushInputBuffer();
+        fConsumer.join();
+    }
+
+    /**
+     * Put a batch of elements in the queue, then take them back in the same
+     * thread
+     *
+     * @param blackhole
+     *            The consumer of the elements
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void putTake(Blackhole blackhole) {
+        BufferedBlockingQueue<Object> queue = fQueue;
+        for (Object element : fElements) {
+            queue.put(element);
+        }
+        queue.flushInputBuffer();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            blackhole.consume(queue.take());
+        }
+    }
+
+    /**
+     * Put a batch of elements in the queue, and wait for the consumer thread
+     * to take them
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void putTakeConcurrent() {
+        BufferedBlockingQueue<Object> queue = fConcurrentQueue;
+        for (Object element : fElements) {
+            queue.put(element);
+        }
+        queue.flushInputBuffer();
+        fPut += BATCH_SIZE;
+        while (fTaken.get() < fPut) {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.benchmarks.ctf;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the reads of {@link BitBuffer}, for aligned integers and for
+ * bit fields that are not aligned on bytes, in a buffer of random data
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BitBufferBenchmark {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    /* Keep room for the largest read at the end of the buffer */
+    private static final long LIMIT_BITS = (BUFFER_SIZE - Long.BYTES) * 8L;
+
+    /** The byte order of the buffer */
+    @Param({ "LITTLE_ENDIAN", "BIG_ENDIAN" })
+    public String byteOrder;
+
+    /** The length of the unaligned bit fields */
+    @Param({ "5", "27", "44" })
+    public int length;
+
+    private BitBuffer fBitBuffer;
+
+    /**
+     * Fill the buffer with random data
+     */
+    @Setup
+    public void setup() {
+        byte[] data = new byte[BUFFER_SIZE];
+        new Random(0).nextBytes(data);
+        ByteOrder order = byteOrder.equals("BIG_ENDIAN") ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN; //$NON-NLS-1$
+        fBitBuffer = new BitBuffer(ByteBuffer.wrap(data), order);
+    }
+
+    /**
+     * Read an aligned 32-bit integer
+     *
+     * @return The value
+     * @throws CTFException
+     *             If the read fails
+     */
+    @Benchmark
+    public int getInt() throws CTFException {
+        BitBuffer bitBuffer = fBitBuffer;
+        if (bitBuffer.position() > LIMIT_BITS) {
+            bitBuffer.position(0);
+        }
+        return bitBuffer.getInt();
+    }
+
+    /**
+     * Read an unsigned bit field that starts in the middle of a byte
+     *
+     * @return The value
+     * @throws CTFException
+     *             If the read fails
+     */
+    @Benchmark
+    public long getUnaligned() throws CTFException {
+        BitBuffer bitBuffer = fBitBuffer;
+        if (bitBuffer.position() > LIMIT_BITS) {
+            bitBuffer.position(3);
+        }
+        return bitBuffer.get(length, false);
+    }
+
+    /**
+     * Read a signed bit field that starts in the middle of a byte
+     *
+     * @return The value
+     * @throws CTFException
+     *             If the read fails
+     */
+    @Benchmark
+    public long getUnalignedSigned() throws CTFException {
+        BitBuffer bitBuffer = fBitBuffer;
+        if (bitBuffer.position() > LIMIT_BITS) {
+            bitBuffer.position(3);
+        }
+        return bitBuffer.get(length, true);
+    }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.benchmarks.ctf;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StringDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+import org.eclipse.tracecompass.ctf.core.trace.ICTFPacketDescriptor;
+import org.eclipse.tracecompass.internal.ctf.core.event.EventDeclaration;
+import org.eclipse.tracecompass.internal.ctf.core.event.EventDefinition;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndexEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link EventDeclaration#createDefinition}, which reads the
+ * fields of an event, on a packet of generated events with integer and string
+ * fields
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EventDeclarationBenchmark {
+
+    private static final int NB_EVENTS = 100000;
+
+    private EventDeclaration fDeclaration;
+    private ICTFPacketDescriptor fPacket;
+    private BitBuffer fInput;
+    private long fEndBits;
+
+    /**
+     * Create the event declaration and write the packet
+     */
+    @Setup
+    public void setup() {
+        StructDeclaration fields = new StructDeclaration(8);
+        fields.addField("pid", IntegerDeclaration.INT_32L_DECL); //$NON-NLS-1$
+        fields.addField("tid", IntegerDeclaration.INT_32L_DECL); //$NON-NLS-1$
+        fields.addField("ptr", IntegerDeclaration.UINT_64L_DECL); //$NON-NLS-1$
+        fields.addField("comm", StringDeclaration.getStringDeclaration()); //$NON-NLS-1$
+        fields.addField("prio", IntegerDeclaration.INT_32L_DECL); //$NON-NLS-1$
+        fDeclaration = new EventDeclaration();
+        fDeclaration.setName("sched_event"); //$NON-NLS-1$
+        fDeclaration.setId(0);
+        fDeclaration.setFields(fields);
+
+        ByteBuffer buffer = ByteBuffer.allocate(NB_EVENTS * 48).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < NB_EVENTS; i++) {
+            buffer.putInt(i % 1000);
+            buffer.putInt(i % 4000);
+            buffer.putLong(0x7f0000000000L + i * 64L);
+            buffer.put(("thread-" + (i % 16)).getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+            buffer.put((byte) 0);
+            buffer.putInt(i % 140);
+        }
+        fEndBits = buffer.position() * 8L;
+        buffer.flip();
+        fInput = new BitBuffer(buffer, ByteOrder.LITTLE_ENDIAN);
+        fPacket = new StreamInputPacketIndexEntry(0, buffer.limit());
+    }
+
+    /**
+     * Read the next event of the packet
+     *
+     * @return The event definition
+     * @throws CTFException
+     *             If the read fails
+     */
+    @Benchmark
+    public EventDefinition createDefinition() throws CTFException {
+        BitBuffer input = fInput;
+        if (input.position() >= fEndBits) {
+            input.position(0);
+        }
+        return fDeclaration.createDefinition(null, fPacket, null, null, input, 0);
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.benchmarks.segmentstore;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.segmentstore.core.BasicSegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+import org.eclipse.tracecompass.segmentstore.core.SegmentStoreFactory;
+import org.eclipse.tracecompass.segmentstore.core.SegmentStoreFactory.SegmentStoreType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of {@link ISegmentStore#getIntersectingElements}, for one time and
+ * for a time range, in the segment stores of the factory filled with segments
+ * of random durations
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SegmentStoreQueryBenchmark {
+
+    private static final int NB_QUERIES = 1024;
+    private static final long TIME_STEP = 100;
+    private static final int MAX_DURATION = 10000;
+    /* About 10 segments at a time, like the system calls of a few threads */
+    private static final long RANGE = 10 * TIME_STEP;
+
+    /** The type of segment store */
+    @Param({ "Fast", "Stable", "Distinct" })
+    public String storeType;
+
+    /** The number of segments in the store */
+    @Param({ "1000000" })
+    public int nbSegments;
+
+    private ISegmentStore<ISegment> fStore;
+    private final long[] fTimes = new long[NB_QUERIES];
+    private int fQuery = 0;
+
+    /**
+     * Fill the segment store and generate the queries
+     */
+    @Setup
+    public void setup() {
+        fStore = SegmentStoreFactory.createSegmentStore(SegmentStoreType.valueOf(storeType));
+        Random random = new Random(0);
+        for (int i = 0; i < nbSegments; i++) {
+            long start = i * TIME_STEP + random.nextInt((int) TIME_STEP);
+            fStore.add(new BasicSegment(start, start + random.nextInt(MAX_DURATION)));
+        }
+        long end = nbSegments * TIME_STEP;
+        for (int i = 0; i < NB_QUERIES; i++) {
+            fTimes[i] = (long) (random.nextDouble() * end);
+        }
+    }
+
+    /**
+     * Get the segments that contain a time
+     *
+     * @param blackhole
+     *            The consumer of the segments
+     */
+    @Benchmark
+    public void getIntersectingElementsTime(Blackhole blackhole) {
+        long time = fTimes[next()];
+        for (ISegment segment : fStore.getIntersectingElements(time)) {
+            blackhole.consume(segment);
+        }
+    }
+
+    /**
+     * Get the segments that intersect a time range
+     *
+     * @param blackhole
+     *            The consumer of the segments
+     */
+    @Benchmark
+    public void getIntersectingElementsRange(Blackhole blackhole) {
+        long time = fTimes[next()];
+        for (ISegment segment : fStore.getIntersectingElements(time, time + RANGE)) {
+            blackhole.consume(segment);
+        }
+    }
+
+    private int next() {
+        int query = fQuery;
+        fQuery = (query + 1) % NB_QUERIES;
+        return query;
+    }
+}
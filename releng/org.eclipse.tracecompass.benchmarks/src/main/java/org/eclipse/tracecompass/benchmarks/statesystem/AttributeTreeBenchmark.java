@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.benchmarks.statesystem;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.internal.statesystem.core.AttributeTree;
+import org.eclipse.tracecompass.internal.statesystem.core.StateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the quark lookups of {@link AttributeTree}, on a tree shaped
+ * like the one of the kernel analysis, with the attributes of many threads
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AttributeTreeBenchmark {
+
+    private static final int NB_QUERIES = 1024;
+    private static final String THREADS = "Threads"; //$NON-NLS-1$
+    private static final String[] THREAD_ATTRIBUTES = { "Exec_name", "PPID", "Status", "System_call", "Prio" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+    /** The number of threads in the tree */
+    @Param({ "100", "10000" })
+    public int nbThreads;
+
+    private AttributeTree fTree;
+    private final String[] fThreadNames = new String[NB_QUERIES];
+    private final String[] fAttributeNames = new String[NB_QUERIES];
+    private final int[] fThreadQuarks = new int[NB_QUERIES];
+    private int fQuery = 0;
+
+    /**
+     * Build the attribute tree and generate the queries
+     */
+    @Setup
+    public void setup() {
+        StateSystem ss = new StateSystem(StateHistoryBackendFactory.createNullBackend("benchmark")); //$NON-NLS-1$
+        AttributeTree tree = new AttributeTree(ss);
+        for (int i = 0; i < nbThreads; i++) {
+            for (String attribute : THREAD_ATTRIBUTES) {
+                tree.getQuarkAndAdd(ITmfStateSystem.ROOT_ATTRIBUTE, THREADS, String.valueOf(i), attribute);
+            }
+        }
+        fTree = tree;
+
+        Random random = new Random(0);
+        for (int i = 0; i < NB_QUERIES; i++) {
+            /* Use new strings, like the ones read from the events */
+            fThreadNames[i] = new String(String.valueOf(random.nextInt(nbThreads)));
+            fAttributeNames[i] = THREAD_ATTRIBUTES[random.nextInt(THREAD_ATTRIBUTES.length)];
+            fThreadQuarks[i] = tree.getQuarkDontAdd(ITmfStateSystem.ROOT_ATTRIBUTE, THREADS, fThreadNames[i]);
+        }
+    }
+
+    /**
+     * Get the quark of a thread attribute from the root
+     *
+     * @return The quark
+     */
+    @Benchmark
+    public int getQuarkAbsolute() {
+        int query = next();
+        return fTree.getQuarkDontAdd(ITmfStateSystem.ROOT_ATTRIBUTE, THREADS, fThreadNames[query], fAttributeNames[query]);
+    }
+
+    /**
+     * Get the quark of a thread attribute from the quark of the thread
+     *
+     * @return The quark
+     */
+    @Benchmark
+    public int getQuarkRelative() {
+        int query = next();
+        return fTree.getQuarkDontAdd(fThreadQuarks[query], fAttributeNames[query]);
+    }
+
+    /**
+     * Get the quark of an existing attribute with the method that adds the
+     * missing ones
+     *
+     * @return The quark
+     */
+    @Benchmark
+    public int getQuarkAndAdd() {
+        int query = next();
+        return fTree.getQuarkAndAdd(fThreadQuarks[query], fAttributeNames[query]);
+    }
+
+    private int next() {
+        int query = fQuery;
+        fQuery = (query + 1) % NB_QUERIES;
+        return query;
+    }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.benchmarks.statesystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the serialization of {@link HTInterval}, as done when the
+ * history tree nodes are written to and read from the disk
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HTIntervalBenchmark {
+
+    private static final int NB_INTERVALS = 1024;
+
+    /** The type of the state values */
+    @Param({ "INTEGER", "LONG", "STRING", "NULL" })
+    public String valueType;
+
+    private final HTInterval[] fIntervals = new HTInterval[NB_INTERVALS];
+    private ByteBuffer fWriteBuffer;
+    private ByteBuffer fReadBuffer;
+    private int fIndex = 0;
+
+    /**
+     * Generate the intervals, and a buffer where they are serialized
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        int size = 0;
+        for (int i = 0; i < NB_INTERVALS; i++) {
+            long start = i * 1000L;
+            fIntervals[i] = new HTInterval(start, start + random.nextInt(1000), random.nextInt(10000), createValue(random));
+            size += fIntervals[i].getSizeOnDisk();
+        }
+        fWriteBuffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        for (HTInterval interval : fIntervals) {
+            interval.writeInterval(buffer);
+        }
+        buffer.flip();
+        fReadBuffer = buffer;
+    }
+
+    private TmfStateValue createValue(Random random) {
+        switch (valueType) {
+        case "INTEGER": //$NON-NLS-1$
+            return TmfStateValue.newValueInt(random.nextInt());
+        case "LONG": //$NON-NLS-1$
+            return TmfStateValue.newValueLong(random.nextLong());
+        case "STRING": //$NON-NLS-1$
+            return TmfStateValue.newValueString("syscall_entry_" + random.nextInt(300)); //$NON-NLS-1$
+        default:
+            return TmfStateValue.nullValue();
+        }
+    }
+
+    /**
+     * Write an interval
+     */
+    @Benchmark
+    public void writeInterval() {
+        int index = fIndex;
+        if (index == 0) {
+            fWriteBuffer.clear();
+        }
+        fIntervals[index].writeInterval(fWriteBuffer);
+        fIndex = (index + 1) % NB_INTERVALS;
+    }
+
+    /**
+     * Read an interval
+     *
+     * @return The interval
+     * @throws IOException
+     *             If the read fails
+     */
+    @Benchmark
+    public HTInterval readFrom() throws IOException {
+        ByteBuffer buffer = fReadBuffer;
+        if (!buffer.hasRemaining()) {
+            buffer.rewind();
+        }
+        return HTInterval.readFrom(buffer);
+    }
+}
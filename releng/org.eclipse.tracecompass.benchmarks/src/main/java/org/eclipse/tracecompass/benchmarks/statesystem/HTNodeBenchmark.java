@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.benchmarks.statesystem;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTInterval;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTNode;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.LeafNode;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link HTNode#getRelevantInterval}, the search of the interval
+ * of an attribute at a time in a full node of the history tree
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HTNodeBenchmark {
+
+    private static final int NB_QUERIES = 1024;
+
+    /** The size of the node, in bytes */
+    @Param({ "4096", "65536" })
+    public int blockSize;
+
+    /** The number of attributes that have intervals in the node */
+    @Param({ "10", "1000" })
+    public int nbAttributes;
+
+    private HTNode fNode;
+    private final int[] fQuarks = new int[NB_QUERIES];
+    private final long[] fTimes = new long[NB_QUERIES];
+    private int fQuery = 0;
+
+    /**
+     * Fill a leaf node with intervals of random durations, and generate the
+     * queries
+     */
+    @Setup
+    public void setup() {
+        HTConfig config = new HTConfig(new File("unused.ht"), blockSize, 50, 0, 0); //$NON-NLS-1$
+        HTNode node = new LeafNode(config, 0, -1, 0);
+        Random random = new Random(0);
+        long[] starts = new long[nbAttributes];
+        long end = 0;
+        while (true) {
+            int quark = random.nextInt(nbAttributes);
+            long intervalEnd = starts[quark] + random.nextInt(1000);
+            HTInterval interval = new HTInterval(starts[quark], intervalEnd, quark, TmfStateValue.newValueInt(random.nextInt(100)));
+            if (interval.getSizeOnDisk() > node.getNodeFreeSpace()) {
+                break;
+            }
+            node.addInterval(interval);
+            starts[quark] = intervalEnd + 1;
+            end = Math.max(end, intervalEnd);
+        }
+        node.closeThisNode(end);
+        fNode = node;
+
+        for (int i = 0; i < NB_QUERIES; i++) {
+            /* Query a time where the attribute has an interval in the node */
+            int quark = random.nextInt(nbAttributes);
+            while (starts[quark] == 0) {
+                quark = random.nextInt(nbAttributes);
+            }
+            fQuarks[i] = quark;
+            fTimes[i] = (long) (random.nextDouble() * starts[quark]);
+        }
+    }
+
+    /**
+     * Get the interval of an attribute at a time
+     *
+     * @return The interval
+     */
+    @Benchmark
+    public HTInterval getRelevantInterval() {
+        int query = fQuery;
+        fQuery = (query + 1) % NB_QUERIES;
+        return fNode.getRelevantInterval(fQuarks[query], fTimes[query]);
+    }
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.benchmarks.statesystem;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.internal.statesystem.core.TransientState;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link TransientState#processStateChange}, the handling of a
+ * state change while the state system is built. The closed intervals go to a
+ * null back-end, so only the transient state is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TransientStateBenchmark {
+
+    private static final int NB_CHANGES = 4096;
+    private static final int NB_VALUES = 8;
+
+    /** The number of attributes of the state system */
+    @Param({ "100", "10000" })
+    public int nbAttributes;
+
+    private TransientState fTransientState;
+    private final int[] fQuarks = new int[NB_CHANGES];
+    private final ITmfStateValue[] fValues = new ITmfStateValue[NB_CHANGES];
+    private int fChange = 0;
+    private long fTime = 0;
+
+    /**
+     * Create the attributes and generate the state changes
+     */
+    @Setup
+    public void setup() {
+        fTransientState = new TransientState(StateHistoryBackendFactory.createNullBackend("benchmark")); //$NON-NLS-1$
+        for (int i = 0; i < nbAttributes; i++) {
+            fTransientState.addEmptyEntry();
+        }
+        Random random = new Random(0);
+        for (int i = 0; i < NB_CHANGES; i++) {
+            fQuarks[i] = random.nextInt(nbAttributes);
+            fValues[i] = TmfStateValue.newValueInt(random.nextInt(NB_VALUES));
+        }
+    }
+
+    /**
+     * Change the value of an attribute
+     */
+    @Benchmark
+    public void processStateChange() {
+        int change = fChange;
+        fChange = (change + 1) % NB_CHANGES;
+        fTransientState.processStateChange(++fTime, fValues[change], fQuarks[change]);
+    }
+}
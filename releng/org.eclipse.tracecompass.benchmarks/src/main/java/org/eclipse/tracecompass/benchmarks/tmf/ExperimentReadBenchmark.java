@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.benchmarks.tmf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.experiment.TmfExperiment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link TmfExperiment#getNext}, the merge of the events of the
+ * traces of an experiment in time order, with {@link SyntheticTrace}s so that
+ * the parsing of the events is negligible
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ExperimentReadBenchmark {
+
+    private static final long NB_EVENTS = 1000000;
+    private static final long INTERVAL = 1000;
+
+    /** The number of traces in the experiment */
+    @Param({ "1", "4", "32" })
+    public int nbTraces;
+
+    private ITmfTrace[] fTraces;
+    private TmfExperiment fExperiment;
+    private ITmfContext fContext;
+
+    /**
+     * Create the experiment
+     *
+     * @throws TmfTraceException
+     *             If a trace cannot be initialized
+     */
+    @Setup
+    public void setup() throws TmfTraceException {
+        fTraces = new ITmfTrace[nbTraces];
+        for (int i = 0; i < nbTraces; i++) {
+            /* Interleave the events of the traces */
+            fTraces[i] = new SyntheticTrace("trace" + i, NB_EVENTS / nbTraces, i * INTERVAL / nbTraces, INTERVAL); //$NON-NLS-1$
+        }
+        fExperiment = new TmfExperiment(TmfEvent.class, "experiment", fTraces, TmfExperiment.DEFAULT_INDEX_PAGE_SIZE, null); //$NON-NLS-1$
+        fContext = fExperiment.seekEvent(0L);
+    }
+
+    /**
+     * Dispose the experiment and its traces
+     */
+    @TearDown
+    public void tearDown() {
+        fContext.dispose();
+        fExperiment.dispose();
+        for (ITmfTrace trace : fTraces) {
+            trace.dispose();
+        }
+    }
+
+    /**
+     * Read the next event of the experiment
+     *
+     * @return The event
+     */
+    @Benchmark
+    public ITmfEvent getNext() {
+        ITmfEvent event = fExperiment.getNext(fContext);
+        if (event == null) {
+            fContext.dispose();
+            fContext = fExperiment.seekEvent(0L);
+            event = fExperiment.getNext(fContext);
+        }
+        return event;
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.benchmarks.tmf;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventType;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.TmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
+import org.eclipse.tracecompass.tmf.core.trace.location.TmfLongLocation;
+
+/**
+ * Trace whose events are generated instead of read from a file. The location
+ * of an event is its rank, and the events of a trace are at regular times from
+ * an offset, so that the events of several traces interleave.
+ */
+public class SyntheticTrace extends TmfTrace {
+
+    private static final ITmfEventField CONTENT = new TmfEventField(ITmfEventField.ROOT_FIELD_ID, null,
+            new ITmfEventField[] { new TmfEventField("cpu", 0L, null) }); //$NON-NLS-1$
+    private static final TmfEventType TYPE = new TmfEventType("synthetic", CONTENT); //$NON-NLS-1$
+
+    private final long fNbEvents;
+    private final long fOffset;
+    private final long fInterval;
+    private long fCurrentRank = 0;
+
+    /**
+     * Constructor
+     *
+     * @param name
+     *            The name of the trace
+     * @param nbEvents
+     *            The number of events
+     * @param offset
+     *            The time of the first event
+     * @param interval
+     *            The time between two events
+     * @throws TmfTraceException
+     *             If the trace cannot be initialized
+     */
+    public SyntheticTrace(String name, long nbEvents, long offset, long interval) throws TmfTraceException {
+        fNbEvents = nbEvents;
+        fOffset = offset;
+        fInterval = interval;
+        initialize(null, name, TmfEvent.class);
+    }
+
+    @Override
+    public IStatus validate(IProject project, String path) {
+        return Status.OK_STATUS;
+    }
+
+    @Override
+    public synchronized ITmfLocation getCurrentLocation() {
+        return new TmfLongLocation(fCurrentRank);
+    }
+
+    @Override
+    public double getLocationRatio(ITmfLocation location) {
+        return ((TmfLongLocation) location).getLocationInfo() / (double) fNbEvents;
+    }
+
+    @Override
+    public synchronized ITmfContext seekEvent(ITmfLocation location) {
+        long rank = (location == null) ? 0 : ((TmfLongLocation) location).getLocationInfo();
+        fCurrentRank = rank;
+        return new TmfContext(new TmfLongLocation(rank), rank);
+    }
+
+    @Override
+    public synchronized ITmfContext seekEvent(double ratio) {
+        return seekEvent(new TmfLongLocation((long) (ratio * fNbEvents)));
+    }
+
+    @Override
+    public synchronized ITmfEvent parseEvent(ITmfContext context) {
+        long rank = ((TmfLongLocation) context.getLocation()).getLocationInfo();
+        if (rank >= fNbEvents) {
+            return null;
+        }
+        fCurrentRank = rank + 1;
+        return new TmfEvent(this, rank, TmfTimestamp.fromNanos(fOffset + rank * fInterval), TYPE, CONTENT);
+    }
+}
@@ -15,10 +15,15 @@ package org.eclipse.tracecompass.statesystem.core.tests;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.tracecompass.internal.statesystem.core.AttributeTree;
 import org.eclipse.tracecompass.internal.statesystem.core.StateSystem;
@@ -123,4 +128,92 @@ public class AttributeTreeTest {
             file.delete();
         }
     }
+
+    /**
+     * Test the sub-attributes and full attribute names of an attribute tree.
+     * <p>
+     * Tests {@link AttributeTree#getSubAttributes(int, boolean)},
+     * {@link AttributeTree#getFullAttributeName(int)} and
+     * {@link AttributeTree#getQuarkDontAdd(int, String...)}.
+     */
+    @Test
+    public void testSubAttributesAndNames() {
+        IStateHistoryBackend backend = StateHistoryBackendFactory.createNullBackend("test");
+        StateSystem ss = new StateSystem(backend);
+        try {
+            AttributeTree attributeTree = new AttributeTree(ss);
+            int threads = attributeTree.getQuarkAndAdd(ITmfStateSystem.ROOT_ATTRIBUTE, THREADS);
+            for (int i = 0; i < 100; i++) {
+                int quark = attributeTree.getQuarkAndAdd(threads, String.valueOf(i), STATUS);
+                assertEquals(THREADS + '/' + i + '/' + STATUS, attributeTree.getFullAttributeName(quark));
+                assertEquals(quark, attributeTree.getQuarkAndAdd(ITmfStateSystem.ROOT_ATTRIBUTE, THREADS, String.valueOf(i), STATUS));
+            }
+            assertEquals(201, attributeTree.getNbAttributes());
+
+            /* Sub-attributes are returned in insertion order */
+            List<Integer> children = attributeTree.getSubAttributes(threads, false);
+            assertEquals(100, children.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(String.valueOf(i), attributeTree.getAttributeName(children.get(i)));
+            }
+            assertEquals(200, attributeTree.getSubAttributes(threads, true).size());
+            assertEquals(ITmfStateSystem.INVALID_ATTRIBUTE, attributeTree.getQuarkDontAdd(threads, "100"));
+            assertEquals(ITmfStateSystem.INVALID_ATTRIBUTE, attributeTree.getQuarkDontAdd(threads, "0", STATUS, STATUS));
+        } finally {
+            ss.dispose();
+        }
+    }
+
+    /**
+     * Test that quarks can be read by other threads while attributes are being
+     * added: every quark below the attribute count seen by a reader is
+     * reachable by name from the root.
+     *
+     * @throws InterruptedException
+     *             if the test is interrupted
+     */
+    @Test
+    public void testConcurrentReads() throws InterruptedException {
+        final int nbAttributes = 20000;
+        IStateHistoryBackend backend = StateHistoryBackendFactory.createNullBackend("test");
+        StateSystem ss = new StateSystem(backend);
+        try {
+            AttributeTree attributeTree = new AttributeTree(ss);
+            AtomicBoolean done = new AtomicBoolean(false);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            CountDownLatch started = new CountDownLatch(1);
+            Thread reader = new Thread(() -> {
+                try {
+                    started.countDown();
+                    while (!done.get()) {
+                        int nb = attributeTree.getNbAttributes();
+                        for (int quark = 0; quark < nb; quark++) {
+                            String[] path = attributeTree.getFullAttributePathArray(quark);
+                            if (attributeTree.getQuarkDontAdd(ITmfStateSystem.ROOT_ATTRIBUTE, path) != quark) {
+                                throw new IllegalStateException("Wrong quark for " + attributeTree.getFullAttributeName(quark));
+                            }
+                        }
+                        /* The attributes are linked before they are counted */
+                        int nbLinked = attributeTree.getSubAttributes(ITmfStateSystem.ROOT_ATTRIBUTE, true).size();
+                        if (nbLinked < nb) {
+                            throw new IllegalStateException(nbLinked + " linked attributes, " + nb + " counted");
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failure.set(e);
+                }
+            });
+            reader.start();
+            started.await();
+            for (int i = 0; i < nbAttributes; i++) {
+                attributeTree.getQuarkAndAdd(ITmfStateSystem.ROOT_ATTRIBUTE, THREADS, String.valueOf(i % 100), String.valueOf(i));
+            }
+            done.set(true);
+            reader.join();
+            assertTrue(String.valueOf(failure.get()), failure.get() == null);
+            assertEquals(nbAttributes + 101, attributeTree.getNbAttributes());
+        } finally {
+            ss.dispose();
+        }
+    }
 }
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.backend.historytree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.common.core.NonNullUtils;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.StateSystemUtils;
+import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test suspending the build of a history tree and resuming it later, by
+ * comparing the resumed history with a history built in one shot.
+ */
+public class HistoryTreeSuspendResumeTest {
+
+    private static final @NonNull String SSID = "test";
+    private static final int PROVIDER_VERSION = 0;
+
+    /* Small blocks, so that the history spans several levels of nodes */
+    private static final int BLOCK_SIZE = 4096;
+    private static final int MAX_CHILDREN = 3;
+
+    private static final long START_TIME = 1;
+    private static final long SUSPEND_TIME = 20000;
+    private static final long END_TIME = 50000;
+    private static final int NB_ATTRIBUTES = 10;
+
+    private File fOneShotFile;
+    private File fResumedFile;
+
+    /**
+     * Create the history files
+     *
+     * @throws IOException
+     *             If the files cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fOneShotFile = File.createTempFile("oneShot", ".ht");
+        fResumedFile = File.createTempFile("resumed", ".ht");
+    }
+
+    /**
+     * Delete the history files
+     */
+    @After
+    public void tearDown() {
+        for (File file : new File[] { fOneShotFile, fResumedFile }) {
+            file.delete();
+            new File(file.getPath() + ".ongoing").delete();
+        }
+    }
+
+    /**
+     * Test that a history suspended and resumed has the same intervals as a
+     * history built in one shot
+     *
+     * @throws Exception
+     *             If the test fails
+     */
+    @Test
+    public void testSuspendResume() throws Exception {
+        /* Build the reference history in one shot */
+        ITmfStateSystemBuilder oneShot = newStateSystem(fOneShotFile);
+        insertStates(oneShot, START_TIME, END_TIME);
+        oneShot.closeHistory(END_TIME);
+        oneShot.dispose();
+
+        /* Build the first part of the history and suspend it */
+        File file = NonNullUtils.checkNotNull(fResumedFile);
+        ITmfStateSystemBuilder ss = newStateSystem(file);
+        insertStates(ss, START_TIME, SUSPEND_TIME);
+        ss.suspendHistory(SUSPEND_TIME - 1);
+        assertTrue(ss.waitUntilBuilt(0));
+        assertTrue(ss.isCancelled());
+        ss.dispose();
+        assertTrue(StateHistoryBackendFactory.isHistoryTreeSuspended(file));
+
+        /* Resume it and build the rest of the history */
+        IStateHistoryBackend backend = StateHistoryBackendFactory.createHistoryTreeBackendResumeFile(SSID, file, PROVIDER_VERSION);
+        ss = StateSystemFactory.resumeStateSystem(backend);
+        assertFalse(ss.waitUntilBuilt(0));
+        insertStates(ss, SUSPEND_TIME, END_TIME);
+        ss.closeHistory(END_TIME);
+        ss.dispose();
+        assertFalse(StateHistoryBackendFactory.isHistoryTreeSuspended(file));
+
+        /* Compare the histories, reopened from their files */
+        ITmfStateSystem expected = openStateSystem(fOneShotFile);
+        ITmfStateSystem actual = openStateSystem(file);
+        try {
+            assertEquals(expected.getStartTime(), actual.getStartTime());
+            assertEquals(expected.getCurrentEndTime(), actual.getCurrentEndTime());
+            assertEquals(expected.getNbAttributes(), actual.getNbAttributes());
+            for (int quark = 0; quark < expected.getNbAttributes(); quark++) {
+                assertEquals(expected.getFullAttributePath(quark), actual.getFullAttributePath(quark));
+                assertIntervalsEqual(quark, getIntervals(expected, quark), getIntervals(actual, quark));
+            }
+        } finally {
+            expected.dispose();
+            actual.dispose();
+        }
+    }
+
+    /**
+     * Test that resuming a history whose ongoing state is corrupted fails
+     *
+     * @throws Exception
+     *             If the test fails
+     */
+    @Test
+    public void testResumeCorruptedOngoingState() throws Exception {
+        File file = NonNullUtils.checkNotNull(fResumedFile);
+        ITmfStateSystemBuilder ss = newStateSystem(file);
+        insertStates(ss, START_TIME, SUSPEND_TIME);
+        ss.suspendHistory(SUSPEND_TIME - 1);
+        ss.dispose();
+
+        /* Truncate the ongoing state in the middle of its intervals */
+        File ongoingFile = new File(file.getPath() + ".ongoing");
+        assertTrue(ongoingFile.exists());
+        try (RandomAccessFile raf = new RandomAccessFile(ongoingFile, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+
+        IStateHistoryBackend backend = StateHistoryBackendFactory.createHistoryTreeBackendResumeFile(SSID, file, PROVIDER_VERSION);
+        try {
+            StateSystemFactory.resumeStateSystem(backend);
+            fail("Resumed a history with a corrupted ongoing state");
+        } catch (IOException e) {
+            /* Expected */
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    /**
+     * Test that a history that was closed cannot be resumed
+     *
+     * @throws Exception
+     *             If the test fails
+     */
+    @Test(expected = IOException.class)
+    public void testResumeClosedHistory() throws Exception {
+        File file = NonNullUtils.checkNotNull(fResumedFile);
+        ITmfStateSystemBuilder ss = newStateSystem(file);
+        insertStates(ss, START_TIME, SUSPEND_TIME);
+        ss.closeHistory(SUSPEND_TIME);
+        ss.dispose();
+
+        assertFalse(StateHistoryBackendFactory.isHistoryTreeSuspended(file));
+        StateHistoryBackendFactory.createHistoryTreeBackendResumeFile(SSID, file, PROVIDER_VERSION);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------------
+
+    private static ITmfStateSystemBuilder newStateSystem(File file) throws IOException {
+        IStateHistoryBackend backend = new HistoryTreeBackend(SSID, file, PROVIDER_VERSION, START_TIME, BLOCK_SIZE, MAX_CHILDREN);
+        return StateSystemFactory.newStateSystem(backend);
+    }
+
+    private static ITmfStateSystem openStateSystem(File file) throws IOException {
+        IStateHistoryBackend backend = StateHistoryBackendFactory.createHistoryTreeBackendExistingFile(SSID, file, PROVIDER_VERSION);
+        return StateSystemFactory.newStateSystem(backend, false);
+    }
+
+    /*
+     * Insert the same state changes for a given time range in any history, with
+     * values of every type and attributes created along the way.
+     */
+    private static void insertStates(ITmfStateSystemBuilder ss, long start, long end) {
+        for (long t = start; t < end; t++) {
+            int index = (int) (t % NB_ATTRIBUTES);
+            int quark = ss.getQuarkAbsoluteAndAdd("attributes", Integer.toString(index));
+            /* Each attribute has its own type of value, and is sometimes null */
+            ITmfStateValue value;
+            if (t % 11 == 0) {
+                value = TmfStateValue.nullValue();
+            } else if (index % 3 == 0) {
+                value = TmfStateValue.newValueLong(t);
+            } else if (index % 3 == 1) {
+                value = TmfStateValue.newValueString("value" + t);
+            } else {
+                value = TmfStateValue.newValueInt((int) t);
+            }
+            ss.modifyAttribute(t, value, quark);
+
+            /* An attribute that changes rarely, ongoing across the suspension */
+            if (t % 7919 == 0) {
+                ss.modifyAttribute(t, TmfStateValue.newValueLong(t), ss.getQuarkAbsoluteAndAdd("rare"));
+            }
+            /* Attributes created in each part of the history */
+            if (t % 5000 == 0) {
+                ss.modifyAttribute(t, TmfStateValue.newValueInt(1), ss.getQuarkAbsoluteAndAdd("created", Long.toString(t)));
+            }
+        }
+    }
+
+    private static List<ITmfStateInterval> getIntervals(ITmfStateSystem ss, int quark)
+            throws AttributeNotFoundException, StateSystemDisposedException {
+        return StateSystemUtils.queryHistoryRange(ss, quark, ss.getStartTime(), ss.getCurrentEndTime());
+    }
+
+    private static void assertIntervalsEqual(int quark, List<ITmfStateInterval> expected, List<ITmfStateInterval> actual) {
+        assertEquals("Number of intervals of quark " + quark, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            ITmfStateInterval expectedInterval = expected.get(i);
+            ITmfStateInterval actualInterval = actual.get(i);
+            String msg = "Interval " + i + " of quark " + quark;
+            assertEquals(msg, expectedInterval.getStartTime(), actualInterval.getStartTime());
+            assertEquals(msg, expectedInterval.getEndTime(), actualInterval.getEndTime());
+            assertEquals(msg, expectedInterval.getStateValue(), actualInterval.getStateValue());
+        }
+    }
+}
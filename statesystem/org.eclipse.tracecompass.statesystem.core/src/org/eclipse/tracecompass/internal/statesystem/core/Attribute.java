@@ -18,22 +18,23 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 import static org.eclipse.tracecompass.statesystem.core.ITmfStateSystem.INVALID_ATTRIBUTE;
 
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 
-import com.google.common.collect.ImmutableList;
-
 /**
  * An Attribute is a "node" in the Attribute Tree. It represents a smallest
  * unit of the model which can be in a particular state at a given time.
  *
- * It is abstract, as different implementations can provide different ways to
- * access sub-attributes
+ * Lookups (by name or by path) do not take any lock and can be done
+ * concurrently with the addition of new sub-attributes. Additions themselves
+ * must be serialized by the caller, which is done by the {@link AttributeTree}.
  *
  * @author Alexandre Montplaisir
  *
@@ -44,8 +45,24 @@ public final class Attribute {
     private final @NonNull String name;
     private final int quark;
 
-    /** The sub-attributes (<basename, attribute>) of this attribute */
-    private final Map<String, Attribute> subAttributes;
+    /**
+     * The sub-attributes (<basename, attribute>) of this attribute, used for
+     * lookups. Allocated lazily, since most attributes are leaves.
+     */
+    private volatile @Nullable Map<String, Attribute> subAttributes = null;
+
+    /**
+     * The sub-attributes, in insertion order. Only the first
+     * {@link #nbSubAttributes} elements are valid. The array is replaced (never
+     * modified in place below the count) when it needs to grow, so readers can
+     * iterate it without locking.
+     */
+    private volatile Attribute @Nullable [] orderedSubAttributes = null;
+    private volatile int nbSubAttributes = 0;
+
+    /** Cached full path of this attribute, computed on first request */
+    private volatile @NonNull String @Nullable [] fullAttribute = null;
+    private volatile @Nullable String fullAttributeName = null;
 
     /**
      * Constructor
@@ -62,7 +79,6 @@ public final class Attribute {
         this.parent = parent;
         this.quark = quark;
         this.name = name;
-        this.subAttributes = Collections.synchronizedMap(new LinkedHashMap<String, Attribute>());
     }
 
     // ------------------------------------------------------------------------
@@ -93,7 +109,14 @@ public final class Attribute {
      * @return The child attributes.
      */
     public Iterable<Attribute> getSubAttributes() {
-        return ImmutableList.copyOf(subAttributes.values());
+        /* Read the count first, the array is at least as recent */
+        int count = nbSubAttributes;
+        Attribute[] children = orderedSubAttributes;
+        if (count == 0 || children == null) {
+            return Collections.emptyList();
+        }
+        List<Attribute> list = Arrays.asList(children);
+        return Collections.unmodifiableList(list.subList(0, count));
     }
 
     /**
@@ -158,7 +181,8 @@ public final class Attribute {
     /* The methods how to access children are left to derived classes */
 
     /**
-     * Add a sub-attribute to this attribute
+     * Add a sub-attribute to this attribute. Calls to this method must be
+     * serialized by the caller, but they can be concurrent with lookups.
      *
      * @param newSubAttribute The new attribute to add
      */
@@ -166,7 +190,23 @@ public final class Attribute {
         if (newSubAttribute == null) {
             throw new IllegalArgumentException();
         }
-        subAttributes.put(newSubAttribute.getName(), newSubAttribute);
+        Map<String, Attribute> map = subAttributes;
+        if (map == null) {
+            map = new ConcurrentHashMap<>(4);
+            subAttributes = map;
+        }
+        int count = nbSubAttributes;
+        Attribute[] children = orderedSubAttributes;
+        if (children == null) {
+            children = new Attribute[4];
+        } else if (count == children.length) {
+            children = Arrays.copyOf(children, count * 2);
+        }
+        children[count] = newSubAttribute;
+        orderedSubAttributes = children;
+        map.put(newSubAttribute.getName(), newSubAttribute);
+        /* Publish the new child last, once it is reachable everywhere */
+        nbSubAttributes = count + 1;
     }
 
     /**
@@ -180,7 +220,12 @@ public final class Attribute {
      * @return The requested attribute
      */
     private Attribute getSubAttributeNode(String[] path, int index) {
-        final Attribute nextNode = subAttributes.get(path[index]);
+        final Map<String, Attribute> map = subAttributes;
+        if (map == null) {
+            /* This is a leaf, the attribute does not exist */
+            return null;
+        }
+        final Attribute nextNode = map.get(path[index]);
 
         if (nextNode == null) {
             /* We don't have the expected child => the attribute does not exist */
@@ -202,16 +247,22 @@ public final class Attribute {
      * @return The full attribute path elements
      */
     public @NonNull String @NonNull [] getFullAttribute() {
-        LinkedList<String> list = new LinkedList<>();
-        Attribute curNode = this;
-
-        /* Add recursive parents to the list, but stop at the root node */
-        while (curNode.parent != null) {
-            list.addFirst(curNode.getName());
-            curNode = curNode.parent;
+        @NonNull String[] path = fullAttribute;
+        if (path == null) {
+            Attribute parentNode = parent;
+            if (parentNode == null) {
+                /* This is the root node, its path is empty */
+                path = new @NonNull String[0];
+            } else {
+                /* Build from the parent's (cached) path */
+                @NonNull String[] parentPath = parentNode.getFullAttribute();
+                path = Arrays.copyOf(parentPath, parentPath.length + 1);
+                path[parentPath.length] = name;
+            }
+            fullAttribute = path;
         }
-
-        return list.toArray(new @NonNull String[list.size()]);
+        /* Return a copy, the cached array must not be modified */
+        return checkNotNull(Arrays.copyOf(path, path.length));
     }
 
     /**
@@ -221,15 +272,18 @@ public final class Attribute {
      * @return The full name of this attribute
      */
     public @NonNull String getFullAttributeName() {
-        String[] array = this.getFullAttribute();
-        StringBuffer buf = new StringBuffer();
-
-        for (int i = 0; i < array.length - 1; i++) {
-            buf.append(array[i]);
-            buf.append('/');
+        String fullName = fullAttributeName;
+        if (fullName == null) {
+            Attribute parentNode = parent;
+            if (parentNode == null || parentNode.parent == null) {
+                /* Root node or direct child of the root */
+                fullName = name;
+            } else {
+                fullName = parentNode.getFullAttributeName() + '/' + name;
+            }
+            fullAttributeName = fullName;
         }
-        buf.append(array[array.length - 1]);
-        return checkNotNull(buf.toString());
+        return fullName;
     }
 
     @Override
@@ -22,13 +22,15 @@ import static org.eclipse.tracecompass.statesystem.core.ITmfStateSystem.ROOT_ATT
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -39,6 +41,10 @@ import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
  * Each node of this tree is both like a file and a directory in the
  * "file system".
  *
+ * Read operations (quark lookups, names, sub-attributes) do not take any lock,
+ * so they can be done by views while the state provider is adding new
+ * attributes. Only the addition of attributes is serialized.
+ *
  * @author alexmont
  *
  */
@@ -53,10 +59,21 @@ public final class AttributeTree {
      */
     private static final String SERIALIZATION_WILDCARD = "*"; //$NON-NLS-1$
 
+    private static final int INITIAL_CAPACITY = 64;
+
     private final StateSystem ss;
-    private final List<Attribute> attributeList;
     private final Attribute attributeTreeRoot;
 
+    /**
+     * The attributes, indexed by quark. Only the first {@link #nbAttributes}
+     * elements are valid. Writers (holding the lock on this object) replace
+     * the array when it needs to grow, and publish new elements by
+     * incrementing the count last, so that readers can access it without
+     * locking.
+     */
+    private volatile Attribute[] attributeList;
+    private volatile int nbAttributes;
+
     /**
      * Standard constructor, create a new empty Attribute Tree
      *
@@ -65,7 +82,8 @@ public final class AttributeTree {
      */
     public AttributeTree(StateSystem ss) {
         this.ss = ss;
-        this.attributeList = new ArrayList<>();
+        this.attributeList = new Attribute[INITIAL_CAPACITY];
+        this.nbAttributes = 0;
         this.attributeTreeRoot = new Attribute(null, "root", ROOT_ATTRIBUTE); //$NON-NLS-1$
     }
 
@@ -114,7 +132,9 @@ public final class AttributeTree {
     }
 
     /**
-     * Tell the Attribute Tree to write itself somewhere in a file.
+     * Tell the Attribute Tree to write itself somewhere in a file. The content
+     * of the file after that position, like a previous attribute tree of a
+     * history that was appended to, is replaced.
      *
      * @param file
      *            The file to write to
@@ -122,18 +142,20 @@ public final class AttributeTree {
      *            The position (in bytes) in the file where to write
      */
     public synchronized void writeSelf(File file, long pos) {
-        try (FileOutputStream fos = new FileOutputStream(file, true);
-                FileChannel fc = fos.getChannel();) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+                FileChannel fc = raf.getChannel();) {
+            fc.truncate(pos);
             fc.position(pos);
-            try (ObjectOutputStream oos = new ObjectOutputStream(fos)) {
+            try (ObjectOutputStream oos = new ObjectOutputStream(Channels.newOutputStream(fc))) {
 
                 /* Write the almost-magic number */
                 oos.writeInt(ATTRIB_TREE_MAGIC_NUMBER);
 
                 /* Compute the serialized list of attributes and write it */
-                List<String[]> list = new ArrayList<>(attributeList.size());
+                int count = nbAttributes;
+                List<String[]> list = new ArrayList<>(count);
                 String[] prevFullAttribute = null, curFullAttribute = null, curEncodedAttribute = null;
-                for (Attribute entry : this.attributeList) {
+                for (Attribute entry : Arrays.asList(attributeList).subList(0, count)) {
                     curFullAttribute = entry.getFullAttribute();
                     curEncodedAttribute = encodeFullAttribute(prevFullAttribute, entry.getFullAttribute());
                     list.add(curEncodedAttribute);
@@ -208,8 +230,61 @@ public final class AttributeTree {
      *
      * @return The current number of attributes in the tree
      */
-    public synchronized int getNbAttributes() {
-        return attributeList.size();
+    public int getNbAttributes() {
+        return nbAttributes;
+    }
+
+    /**
+     * Get the attribute for a given quark, without locking.
+     *
+     * @param quark
+     *            The quark of the attribute
+     * @return The attribute object
+     * @throws IndexOutOfBoundsException
+     *             If the quark is out of range
+     */
+    private Attribute getAttribute(int quark) {
+        /* Read the count first, the array is at least as recent */
+        int count = nbAttributes;
+        Attribute[] attributes = attributeList;
+        if (quark < 0 || quark >= count) {
+            throw new IndexOutOfBoundsException("Quark: " + quark + ", Size: " + count); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        return attributes[quark];
+    }
+
+    /**
+     * Get the starting node of a relative query.
+     */
+    private Attribute getStartingNode(int startingNodeQuark) {
+        if (startingNodeQuark == ROOT_ATTRIBUTE) {
+            return attributeTreeRoot;
+        }
+        return getAttribute(startingNodeQuark);
+    }
+
+    /**
+     * Store a new attribute at the end of the attribute list, without
+     * publishing it: the attribute count is only incremented by
+     * {@link #publishAttribute()}. Must be called while holding the lock on
+     * this object.
+     */
+    private void storeAttribute(Attribute attribute) {
+        int count = nbAttributes;
+        Attribute[] attributes = attributeList;
+        if (count == attributes.length) {
+            attributes = Arrays.copyOf(attributes, count * 2);
+        }
+        attributes[count] = attribute;
+        attributeList = attributes;
+    }
+
+    /**
+     * Publish the last stored attribute to the readers. Must be called while
+     * holding the lock on this object.
+     */
+    private void publishAttribute() {
+        nbAttributes = nbAttributes + 1;
     }
 
     /**
@@ -229,20 +304,14 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the starting node quark is out of range
      */
-    public synchronized int getQuarkDontAdd(int startingNodeQuark, String... subPath) {
-        Attribute prevNode;
-
+    public int getQuarkDontAdd(int startingNodeQuark, String... subPath) {
         /* If subPath is empty, simply return the starting quark */
         if (subPath == null || subPath.length == 0) {
             return startingNodeQuark;
         }
 
         /* Get the "starting node" */
-        if (startingNodeQuark == ROOT_ATTRIBUTE) {
-            prevNode = attributeTreeRoot;
-        } else {
-            prevNode = attributeList.get(startingNodeQuark);
-        }
+        Attribute prevNode = getStartingNode(startingNodeQuark);
 
         return prevNode.getSubAttributeQuark(subPath);
     }
@@ -262,44 +331,47 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the starting node quark is out of range
      */
-    public synchronized int getQuarkAndAdd(int startingNodeQuark, String... subPath) {
-        // FIXME synchronized here is probably quite costly... maybe only locking
-        // the "for" would be enough?
-
-        Attribute nextNode = null;
-        Attribute prevNode;
-
+    public int getQuarkAndAdd(int startingNodeQuark, String... subPath) {
         /* Get the "starting node" */
-        if (startingNodeQuark == ROOT_ATTRIBUTE) {
-            prevNode = attributeTreeRoot;
-        } else {
-            prevNode = attributeList.get(startingNodeQuark);
+        Attribute startingNode = getStartingNode(startingNodeQuark);
+
+        /*
+         * Most calls are for attributes that already exist, so first try the
+         * lookup without locking.
+         */
+        int knownQuark = startingNode.getSubAttributeQuark(subPath);
+        if (knownQuark != INVALID_ATTRIBUTE) {
+            return knownQuark;
         }
 
-        int knownQuark = prevNode.getSubAttributeQuark(subPath);
-        if (knownQuark == INVALID_ATTRIBUTE) {
+        synchronized (this) {
             /*
-             * The attribute was not in the table previously, and we want to add
-             * it
+             * The attribute was not in the table previously, and we want to
+             * add it. Another thread may have added part of (or all of) the
+             * path in the meantime, so check again for each element.
              */
+            Attribute prevNode = startingNode;
             for (String curDirectory : subPath) {
-                nextNode = prevNode.getSubAttributeNode(curDirectory);
+                Attribute nextNode = prevNode.getSubAttributeNode(curDirectory);
                 if (nextNode == null) {
                     /* This is where we need to start adding */
-                    nextNode = new Attribute(prevNode, checkNotNull(curDirectory), attributeList.size());
-                    prevNode.addSubAttribute(nextNode);
-                    attributeList.add(nextNode);
+                    nextNode = new Attribute(prevNode, checkNotNull(curDirectory), nbAttributes);
+                    /*
+                     * Grow the transient state and link the attribute to its
+                     * parent before publishing the new attribute count, so
+                     * that concurrent readers never see more attributes than
+                     * ongoing states, and every quark below the count is
+                     * reachable by name.
+                     */
                     ss.addEmptyAttribute();
+                    storeAttribute(nextNode);
+                    prevNode.addSubAttribute(nextNode);
+                    publishAttribute();
                 }
                 prevNode = nextNode;
             }
-            return attributeList.size() - 1;
+            return prevNode.getQuark();
         }
-        /*
-         * The attribute was already existing, return the quark of that
-         * attribute
-         */
-        return knownQuark;
     }
 
     /**
@@ -315,16 +387,11 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the attribute quark is out of range
      */
-    public synchronized @NonNull List<@NonNull Integer> getSubAttributes(int attributeQuark, boolean recursive) {
+    public @NonNull List<@NonNull Integer> getSubAttributes(int attributeQuark, boolean recursive) {
         List<@NonNull Integer> listOfChildren = new ArrayList<>();
-        Attribute startingAttribute;
 
         /* Set up the node from which we'll start the search */
-        if (attributeQuark == ROOT_ATTRIBUTE) {
-            startingAttribute = attributeTreeRoot;
-        } else {
-            startingAttribute = attributeList.get(attributeQuark);
-        }
+        Attribute startingAttribute = getStartingNode(attributeQuark);
 
         /* Iterate through the sub-attributes and add them to the list */
         addSubAttributes(listOfChildren, startingAttribute, recursive);
@@ -343,11 +410,11 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the quark is out of range
      */
-    public synchronized int getParentAttributeQuark(int quark) {
+    public int getParentAttributeQuark(int quark) {
         if (quark == ROOT_ATTRIBUTE) {
             return quark;
         }
-        return attributeList.get(quark).getParentAttributeQuark();
+        return getAttribute(quark).getParentAttributeQuark();
     }
 
     private void addSubAttributes(List<Integer> list, Attribute curAttribute,
@@ -369,8 +436,8 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the quark is out of range
      */
-    public synchronized @NonNull String getAttributeName(int quark) {
-        return attributeList.get(quark).getName();
+    public @NonNull String getAttributeName(int quark) {
+        return getAttribute(quark).getName();
     }
 
     /**
@@ -382,8 +449,8 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the quark is out of range
      */
-    public synchronized @NonNull String getFullAttributeName(int quark) {
-        return attributeList.get(quark).getFullAttributeName();
+    public @NonNull String getFullAttributeName(int quark) {
+        return getAttribute(quark).getFullAttributeName();
     }
 
     /**
@@ -396,8 +463,8 @@ public final class AttributeTree {
      * @throws IndexOutOfBoundsException
      *             If the quark is out of range
      */
-    public synchronized String @NonNull [] getFullAttributePathArray(int quark) {
-        return attributeList.get(quark).getFullAttribute();
+    public String @NonNull [] getFullAttributePathArray(int quark) {
+        return getAttribute(quark).getFullAttribute();
     }
 
     /**
@@ -406,7 +473,7 @@ public final class AttributeTree {
      * @param writer
      *            The writer where to print the output
      */
-    public synchronized void debugPrint(PrintWriter writer) {
+    public void debugPrint(PrintWriter writer) {
         attributeTreeRoot.debugPrint(writer);
     }
 
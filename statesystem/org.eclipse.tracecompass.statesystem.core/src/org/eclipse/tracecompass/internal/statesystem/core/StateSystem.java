@@ -73,6 +73,7 @@ public class StateSystem implements ITmfStateSystemBuilder {
 
     private boolean buildCancelled = false;
     private boolean isDisposed = false;
+    private boolean isSuspended = false;
 
     /**
      * New-file constructor. For when you build a state system with a new file,
@@ -113,6 +114,36 @@ public class StateSystem implements ITmfStateSystemBuilder {
         }
     }
 
+    /**
+     * Append constructor, to resume building a history that was suspended
+     * with {@link #suspendHistory(long)}
+     */
+    private StateSystem(@NonNull IStateHistoryBackend backend, List<@NonNull ITmfStateInterval> ongoingState)
+            throws IOException {
+        this.backend = backend;
+        this.transState = new TransientState(backend);
+        this.attributeTree = new AttributeTree(this, backend.supplyAttributeTreeReader());
+        if (ongoingState.size() != getNbAttributes()) {
+            throw new IOException("The ongoing state does not match the attribute tree"); //$NON-NLS-1$
+        }
+        transState.restoreOngoingState(ongoingState, backend.getEndTime());
+    }
+
+    /**
+     * Resume building a history that was suspended with
+     * {@link #suspendHistory(long)}. The new state changes are appended to the
+     * history, from its ongoing state when it was suspended.
+     *
+     * @param backend
+     *            The back-end, opened to append to the suspended history
+     * @return The state system
+     * @throws IOException
+     *             If the attribute tree or the ongoing state cannot be read
+     */
+    public static StateSystem resume(@NonNull IStateHistoryBackend backend) throws IOException {
+        return new StateSystem(backend, backend.readOngoingState());
+    }
+
     @Override
     public String getSSID() {
         return backend.getSSID();
@@ -217,6 +248,11 @@ public class StateSystem implements ITmfStateSystemBuilder {
         long attributeTreeFilePos;
         long realEndTime = endTime;
 
+        if (isSuspended) {
+            /* The history will be completed when it is resumed */
+            return;
+        }
+
         if (realEndTime < backend.getEndTime()) {
             /*
              * This can happen (empty nodes pushing the border further, etc.)
@@ -239,6 +275,31 @@ public class StateSystem implements ITmfStateSystemBuilder {
         finishedLatch.countDown(); /* Mark the history as finished building */
     }
 
+    @Override
+    public synchronized void suspendHistory(long endTime) throws IOException {
+        long realEndTime = Math.max(endTime, Math.max(backend.getEndTime(), transState.getLatestTime()));
+
+        List<@NonNull ITmfStateInterval> ongoingState = new ArrayList<>(getNbAttributes());
+        for (int quark = 0; quark < getNbAttributes(); quark++) {
+            ongoingState.add(transState.getOngoingInterval(quark));
+        }
+        backend.suspendBuilding(realEndTime, ongoingState);
+        transState.setInactive();
+        isSuspended = true;
+
+        File attributeTreeFile = backend.supplyAttributeTreeWriterFile();
+        if (attributeTreeFile != null) {
+            getAttributeTree().writeSelf(attributeTreeFile, backend.supplyAttributeTreeWriterFilePosition());
+        }
+
+        /*
+         * The history is not built in this session, release the waiters like
+         * when the build is cancelled
+         */
+        buildCancelled = true;
+        finishedLatch.countDown();
+    }
+
     //--------------------------------------------------------------------------
     //        Quark-retrieving methods
     //--------------------------------------------------------------------------
@@ -218,6 +218,22 @@ public class TransientState {
         }
     }
 
+    /**
+     * Restore the ongoing state of a history that is being appended to, as
+     * it was when the history was suspended.
+     *
+     * @param ongoingState
+     *            The ongoing intervals, one per attribute. Only their value and
+     *            start times are used.
+     * @param latestTime
+     *            The latest time of the history when it was suspended
+     */
+    public void restoreOngoingState(List<ITmfStateInterval> ongoingState, long latestTime) {
+        replaceOngoingState(ongoingState);
+        fLatestTime = latestTime;
+        fIsActive = true;
+    }
+
     /**
      * Add an "empty line" to both "ongoing..." vectors. This is needed so the
      * Ongoing... tables can stay in sync with the number of attributes in the
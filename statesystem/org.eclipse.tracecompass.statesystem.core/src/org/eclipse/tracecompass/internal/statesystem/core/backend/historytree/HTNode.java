@@ -369,6 +369,20 @@ public abstract class HTNode {
         return fIsOnDisk;
     }
 
+    /**
+     * Reopen a node of the latest branch of an existing tree, so that new
+     * intervals can be added to it. It will be written again when it is
+     * closed.
+     */
+    public void reopen() {
+        fRwl.writeLock().lock();
+        try {
+            fIsOnDisk = false;
+        } finally {
+            fRwl.writeLock().unlock();
+        }
+    }
+
     /**
      * Add an interval to this node
      *
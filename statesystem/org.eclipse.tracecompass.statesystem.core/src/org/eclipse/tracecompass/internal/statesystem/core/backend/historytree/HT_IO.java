@@ -16,8 +16,8 @@ import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.util.logging.Logger;
@@ -116,7 +116,7 @@ public class HT_IO {
 
     /* Fields related to the file I/O */
     private final FileInputStream fFileInputStream;
-    private final FileOutputStream fFileOutputStream;
+    private final RandomAccessFile fFileOut;
     private final FileChannel fFileChannelIn;
     private final FileChannel fFileChannelOut;
 
@@ -157,18 +157,16 @@ public class HT_IO {
                 throw new IOException("Cannot create new file at " + //$NON-NLS-1$
                         historyTreeFile.getName());
             }
-            fFileInputStream = new FileInputStream(historyTreeFile);
-            fFileOutputStream = new FileOutputStream(historyTreeFile, false);
-        } else {
-            /*
-             * We want to open an existing file, make sure we don't squash the
-             * existing content when opening the fos!
-             */
-            fFileInputStream = new FileInputStream(historyTreeFile);
-            fFileOutputStream = new FileOutputStream(historyTreeFile, true);
         }
+        /*
+         * The output does not squash the content of an existing file, and it
+         * is not in append mode either: the nodes of the latest branch are
+         * written back in place when appending to an existing tree.
+         */
+        fFileInputStream = new FileInputStream(historyTreeFile);
+        fFileOut = new RandomAccessFile(historyTreeFile, "rw"); //$NON-NLS-1$
         fFileChannelIn = fFileInputStream.getChannel();
-        fFileChannelOut = fFileOutputStream.getChannel();
+        fFileChannelOut = fFileOut.getChannel();
         fNodeFactory = nodeFactory;
     }
 
@@ -265,7 +263,7 @@ public class HT_IO {
     public synchronized void closeFile() {
         try {
             fFileInputStream.close();
-            fFileOutputStream.close();
+            fFileOut.close();
         } catch (IOException e) {
             Activator.getDefault().logError(e.getMessage(), e);
         }
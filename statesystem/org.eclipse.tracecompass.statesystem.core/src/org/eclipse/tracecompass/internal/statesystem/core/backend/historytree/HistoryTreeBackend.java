@@ -18,7 +18,14 @@ package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
@@ -46,6 +53,11 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
 
     private static final Logger LOGGER = TraceCompassLog.getLogger(HistoryTreeBackend.class);
 
+    /** Suffix of the file of the ongoing state of a suspended history */
+    private static final String ONGOING_STATE_SUFFIX = ".ongoing"; //$NON-NLS-1$
+
+    private static final int ONGOING_STATE_MAGIC_NUMBER = 0x05FFA9A0;
+
     private final @NonNull String fSsid;
 
     /**
@@ -108,6 +120,8 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
         final HTConfig conf = new HTConfig(newStateFile, blockSize, maxChildren,
                 providerVersion, startTime);
         fSht = initializeSHT(conf);
+        /* The new history replaces any history that was suspended */
+        deleteOngoingStateFile(newStateFile);
     }
 
     /**
@@ -151,9 +165,41 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
      */
     public HistoryTreeBackend(@NonNull String ssid, @NonNull File existingStateFile, int providerVersion)
             throws IOException {
+        this(ssid, existingStateFile, providerVersion, false);
+    }
+
+    /**
+     * Existing history constructor, optionally to append new intervals to a
+     * history that was suspended with {@link #suspendBuilding}. The ongoing
+     * state of the history is then available from
+     * {@link #readOngoingState()}.
+     *
+     * @param ssid
+     *            The state system's id
+     * @param existingStateFile
+     *            Filename/location of the history we want to load
+     * @param providerVersion
+     *            Expected version of of the state provider plugin.
+     * @param append
+     *            True to append new intervals to the history
+     * @throws IOException
+     *             If we can't read the file, if it doesn't exist, is not
+     *             recognized, if the version of the file does not match the
+     *             expected providerVersion, or if appending to a history that
+     *             was not suspended.
+     */
+    public HistoryTreeBackend(@NonNull String ssid, @NonNull File existingStateFile, int providerVersion, boolean append)
+            throws IOException {
         fSsid = ssid;
-        fSht = initializeSHT(existingStateFile, providerVersion);
-        fFinishedBuilding = true;
+        if (append) {
+            if (!isSuspended(existingStateFile)) {
+                throw new IOException("The history was not suspended"); //$NON-NLS-1$
+            }
+            fSht = initializeAppendSHT(existingStateFile, providerVersion);
+        } else {
+            fSht = initializeSHT(existingStateFile, providerVersion);
+        }
+        fFinishedBuilding = !append;
     }
 
     /**
@@ -188,6 +234,22 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
         return HistoryTreeFactory.createFromFile(existingStateFile.toPath(), providerVersion);
     }
 
+    /**
+     * Existing-tree initializer to append new intervals to the History Tree
+     * wrapped by this backend.
+     *
+     * @param existingStateFile
+     *            The file to open
+     * @param providerVersion
+     *            The expected state provider version
+     * @return The history tree opened from the given file
+     * @throws IOException
+     *             If there was a problem during creation
+     */
+    protected @NonNull IHistoryTree initializeAppendSHT(@NonNull File existingStateFile, int providerVersion) throws IOException {
+        return HistoryTreeFactory.createFromFile(existingStateFile.toPath(), providerVersion, true);
+    }
+
     /**
      * Get the History Tree built by this backend.
      *
@@ -230,6 +292,99 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
     public void finishedBuilding(long endTime) {
         getSHT().closeTree(endTime);
         fFinishedBuilding = true;
+        deleteOngoingStateFile(getSHT().supplyATWriterFile());
+    }
+
+    /**
+     * Check if a history file was suspended with {@link #suspendBuilding}, so
+     * that it is not complete but can be appended to.
+     *
+     * @param stateFile
+     *            The history file
+     * @return True if the history was suspended
+     */
+    public static boolean isSuspended(File stateFile) {
+        return getOngoingStateFile(stateFile).exists();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The tree is closed like when it is finished, and the ongoing state is
+     * saved in another file alongside it.
+     */
+    @Override
+    public void suspendBuilding(long endTime, @NonNull List<@NonNull ITmfStateInterval> ongoingState) throws IOException {
+        finishedBuilding(endTime);
+
+        List<HTInterval> intervals = new ArrayList<>(ongoingState.size());
+        int size = 2 * Integer.BYTES;
+        for (ITmfStateInterval interval : ongoingState) {
+            /* The start time can be after the end time for future states */
+            long start = interval.getStartTime();
+            HTInterval htInterval = new HTInterval(start, Math.max(start, endTime),
+                    interval.getAttribute(), (TmfStateValue) interval.getStateValue());
+            intervals.add(htInterval);
+            size += htInterval.getSizeOnDisk();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(ONGOING_STATE_MAGIC_NUMBER);
+        buffer.putInt(intervals.size());
+        for (HTInterval interval : intervals) {
+            interval.writeInterval(buffer);
+        }
+        buffer.flip();
+
+        File file = getOngoingStateFile(getSHT().supplyATWriterFile());
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                fc.write(buffer);
+            }
+        }
+    }
+
+    @Override
+    public @NonNull List<@NonNull ITmfStateInterval> readOngoingState() throws IOException {
+        File file = getOngoingStateFile(getSHT().supplyATWriterFile());
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != ONGOING_STATE_MAGIC_NUMBER) {
+                throw new IOException("Invalid ongoing state file"); //$NON-NLS-1$
+            }
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining()) {
+                throw new IOException("Invalid number of ongoing intervals: " + count); //$NON-NLS-1$
+            }
+            List<@NonNull ITmfStateInterval> ongoingState = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                HTInterval interval = HTInterval.readFrom(buffer);
+                if (interval.getAttribute() != i) {
+                    throw new IOException("Unexpected attribute of ongoing interval " + i + ": " + interval.getAttribute()); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+                ongoingState.add(interval);
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("Unexpected data after the ongoing intervals"); //$NON-NLS-1$
+            }
+            return ongoingState;
+        } catch (BufferUnderflowException | NegativeArraySizeException | TimeRangeException e) {
+            throw new IOException("Corrupted ongoing state file", e); //$NON-NLS-1$
+        }
+    }
+
+    private static File getOngoingStateFile(File stateFile) {
+        return new File(stateFile.getPath() + ONGOING_STATE_SUFFIX);
+    }
+
+    private static void deleteOngoingStateFile(File stateFile) {
+        File file = getOngoingStateFile(stateFile);
+        if (file.exists() && !file.delete()) {
+            Activator.getDefault().logError("Failed to delete " + file.getName()); //$NON-NLS-1$
+        }
     }
 
     @Override
@@ -250,6 +405,7 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
     @Override
     public void removeFiles() {
         getSHT().deleteFile();
+        deleteOngoingStateFile(getSHT().supplyATWriterFile());
     }
 
     @Override
@@ -264,6 +420,7 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
              * future (.deleteFile() will close the file first)
              */
             getSHT().deleteFile();
+            deleteOngoingStateFile(getSHT().supplyATWriterFile());
         }
     }
 
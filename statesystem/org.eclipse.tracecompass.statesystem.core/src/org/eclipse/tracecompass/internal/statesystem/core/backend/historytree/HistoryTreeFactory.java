@@ -59,6 +59,24 @@ public final class HistoryTreeFactory {
      *             If an error happens reading the file
      */
     public static IHistoryTree createFromFile(Path existingStateFile, int expectedProviderVersion) throws IOException {
+        return createFromFile(existingStateFile, expectedProviderVersion, false);
+    }
+
+    /**
+     * Instantiate a SHTree from an existing tree file on disk, optionally to
+     * append new intervals to it
+     *
+     * @param existingStateFile
+     *            Path/filename of the history-file we are to open
+     * @param expectedProviderVersion
+     *            The expected version of the state provider
+     * @param append
+     *            True to append new intervals to the tree
+     * @return The history tree
+     * @throws IOException
+     *             If an error happens reading the file
+     */
+    public static IHistoryTree createFromFile(Path existingStateFile, int expectedProviderVersion, boolean append) throws IOException {
         /*
          * Check the file exists and has a positive length. These verifications
          * will also be done in the HT's constructor.
@@ -85,7 +103,7 @@ public final class HistoryTreeFactory {
         int magicNumber = buffer.getInt();
         switch (magicNumber) {
         case HistoryTreeClassic.HISTORY_FILE_MAGIC_NUMBER:
-            return new HistoryTreeClassic(existingStateFile.toFile(), expectedProviderVersion);
+            return new HistoryTreeClassic(existingStateFile.toFile(), expectedProviderVersion, append);
         default:
             throw new IOException("Not a known history tree file"); //$NON-NLS-1$
         }
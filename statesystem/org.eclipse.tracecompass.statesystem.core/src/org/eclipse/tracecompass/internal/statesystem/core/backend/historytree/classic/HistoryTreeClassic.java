@@ -140,6 +140,24 @@ public class HistoryTreeClassic implements IHistoryTree {
      *             If an error happens reading the file
      */
     public HistoryTreeClassic(File existingStateFile, int expProviderVersion) throws IOException {
+        this(existingStateFile, expProviderVersion, false);
+    }
+
+    /**
+     * Instantiate a SHTree from an existing tree file on disk, optionally to
+     * append new intervals to it. The nodes of the latest branch are then
+     * reopened, and the tree will be written again when it is closed.
+     *
+     * @param existingStateFile
+     *            Path/filename of the history-file we are to open
+     * @param expProviderVersion
+     *            The expected version of the state provider
+     * @param append
+     *            True to append new intervals to the tree
+     * @throws IOException
+     *             If an error happens reading the file
+     */
+    public HistoryTreeClassic(File existingStateFile, int expProviderVersion, boolean append) throws IOException {
         /*
          * Open the file ourselves, get the tree header information we need,
          * then pass on the descriptor to the TreeIO object.
@@ -225,6 +243,12 @@ public class HistoryTreeClassic implements IHistoryTree {
             throw new IOException("Inconsistent start times in the" + //$NON-NLS-1$
                     "history file, it might be corrupted."); //$NON-NLS-1$
         }
+
+        if (append) {
+            for (HTNode node : fLatestBranch) {
+                node.reopen();
+            }
+        }
     }
 
     /**
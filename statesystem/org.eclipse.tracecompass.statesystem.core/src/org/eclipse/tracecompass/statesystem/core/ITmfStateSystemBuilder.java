@@ -12,6 +12,8 @@
 
 package org.eclipse.tracecompass.statesystem.core;
 
+import java.io.IOException;
+
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
@@ -236,6 +238,25 @@ public interface ITmfStateSystemBuilder extends ITmfStateSystem {
      */
     void closeHistory(long endTime);
 
+    /**
+     * Suspend the building of the history instead of closing it, so that it
+     * can be resumed later with {@link StateSystemFactory#resumeStateSystem}
+     * to append new state changes. The ongoing states are saved alongside the
+     * history instead of being closed. Waiters of {@link #waitUntilBuilt()}
+     * are released and this state system is then considered cancelled.
+     *
+     * @param endTime
+     *            The time up to which the state changes were processed
+     * @throws IOException
+     *             If the history cannot be suspended
+     * @throws UnsupportedOperationException
+     *             If the back-end of this state system cannot be suspended
+     * @since 2.3
+     */
+    default void suspendHistory(long endTime) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Delete any generated files or anything that might have been created by
      * the history backend (either temporary or save files). By calling this, we
@@ -64,4 +64,23 @@ public final class StateSystemFactory {
         return new StateSystem(backend, newFile);
     }
 
+    /**
+     * Resume factory method, to resume building a history that was suspended
+     * with {@link ITmfStateSystemBuilder#suspendHistory}. The new state changes
+     * are appended to the history, from its ongoing state when it was
+     * suspended.
+     *
+     * @param backend
+     *            The back-end, opened to resume the suspended history, for
+     *            example with
+     *            {@link org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory#createHistoryTreeBackendResumeFile}
+     * @return The resumed state system
+     * @throws IOException
+     *             If the attribute tree or the ongoing state cannot be read
+     * @since 2.3
+     */
+    public static ITmfStateSystemBuilder resumeStateSystem(IStateHistoryBackend backend) throws IOException {
+        return StateSystem.resume(backend);
+    }
+
 }
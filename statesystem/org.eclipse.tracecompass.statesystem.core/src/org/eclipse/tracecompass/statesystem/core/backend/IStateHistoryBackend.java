@@ -14,6 +14,7 @@ package org.eclipse.tracecompass.statesystem.core.backend;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -92,6 +93,42 @@ public interface IStateHistoryBackend {
      */
     void finishedBuilding(long endTime) throws TimeRangeException;
 
+    /**
+     * Indicate to the provider that we stop building the history, but that it
+     * will be resumed later to append new intervals to it. The ongoing state,
+     * which is not inserted in the history, is saved alongside it, so that it
+     * can be restored with {@link #readOngoingState()} when the history is
+     * resumed.
+     *
+     * @param endTime
+     *            The end time to assign to this state history
+     * @param ongoingState
+     *            The ongoing intervals, one per attribute (index == quark)
+     * @throws IOException
+     *             If the ongoing state cannot be saved
+     * @throws UnsupportedOperationException
+     *             If this back-end cannot be suspended
+     * @since 2.3
+     */
+    default void suspendBuilding(long endTime, @NonNull List<@NonNull ITmfStateInterval> ongoingState) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Read the ongoing state of a history that was suspended with
+     * {@link #suspendBuilding}, when it was opened to be resumed.
+     *
+     * @return The ongoing intervals, one per attribute (index == quark)
+     * @throws IOException
+     *             If the ongoing state cannot be read
+     * @throws UnsupportedOperationException
+     *             If this back-end cannot be suspended
+     * @since 2.3
+     */
+    default @NonNull List<@NonNull ITmfStateInterval> readOngoingState() throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * It is the responsibility of the backend to define where to save the
      * Attribute Tree (since it's only useful to "reopen" an Attribute Tree if
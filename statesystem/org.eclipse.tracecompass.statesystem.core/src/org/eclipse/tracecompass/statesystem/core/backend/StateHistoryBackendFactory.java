@@ -115,4 +115,41 @@ public final class StateHistoryBackendFactory {
             int providerVersion) throws IOException {
         return new HistoryTreeBackend(ssid, stateFile, providerVersion);
     }
+
+    /**
+     * Create a History Tree backend to resume building a history that was
+     * suspended with {@link IStateHistoryBackend#suspendBuilding}. The new
+     * intervals are appended to the existing file.
+     *
+     * @param ssid
+     *            The state system's id
+     * @param stateFile
+     *            Filename/location of the suspended history
+     * @param providerVersion
+     *            Expected version of of the state provider plugin.
+     * @return The state system backend
+     * @throws IOException
+     *             If we can't read the file, if it was not suspended or if the
+     *             version of the file does not match the expected
+     *             providerVersion.
+     * @since 2.3
+     */
+    public static IStateHistoryBackend createHistoryTreeBackendResumeFile(String ssid, File stateFile,
+            int providerVersion) throws IOException {
+        return new HistoryTreeBackend(ssid, stateFile, providerVersion, true);
+    }
+
+    /**
+     * Check if a History Tree file was suspended, so that its history is not
+     * complete but can be resumed with
+     * {@link #createHistoryTreeBackendResumeFile}.
+     *
+     * @param stateFile
+     *            Filename/location of the history
+     * @return True if the history was suspended
+     * @since 2.3
+     */
+    public static boolean isHistoryTreeSuspended(File stateFile) {
+        return HistoryTreeBackend.isSuspended(stateFile);
+    }
 }
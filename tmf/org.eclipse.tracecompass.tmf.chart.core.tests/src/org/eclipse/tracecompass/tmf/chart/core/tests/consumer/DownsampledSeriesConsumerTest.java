@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.chart.core.tests.consumer;
+
+import static org.junit.Assert.assertEquals;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.provisional.tmf.chart.core.descriptor.IDataChartDescriptor;
+import org.eclipse.tracecompass.internal.provisional.tmf.chart.core.resolver.INumericalResolver;
+import org.eclipse.tracecompass.internal.tmf.chart.core.consumer.DownsampledSeriesConsumer;
+import org.eclipse.tracecompass.internal.tmf.chart.core.consumer.HistogramConsumer;
+import org.eclipse.tracecompass.internal.tmf.chart.core.consumer.NumericalBuckets;
+import org.eclipse.tracecompass.tmf.chart.core.tests.stubs.StubChartProvider;
+import org.eclipse.tracecompass.tmf.chart.core.tests.stubs.StubObject;
+import org.junit.Test;
+
+/**
+ * Test the {@link DownsampledSeriesConsumer} and {@link HistogramConsumer}
+ * classes
+ */
+public class DownsampledSeriesConsumerTest {
+
+    private final @NonNull StubChartProvider fProvider = new StubChartProvider();
+
+    /**
+     * Test that the points of a series are downsampled, and the points with a
+     * null value rejected
+     */
+    @Test
+    public void testSeries() {
+        IDataChartDescriptor<StubObject, ?> xDescriptor = fProvider.getDataDescriptor(StubChartProvider.LONG_DESCRIPTOR);
+        IDataChartDescriptor<StubObject, ?> yDescriptor = fProvider.getDataDescriptor(StubChartProvider.DOUBLE_DESCRIPTOR);
+        DownsampledSeriesConsumer consumer = new DownsampledSeriesConsumer(INumericalResolver.class.cast(xDescriptor.getResolver()),
+                INumericalResolver.class.cast(yDescriptor.getResolver()), 10);
+
+        for (long i = 0; i < 1000; i++) {
+            consumer.accept(new StubObject("str", 1, i, (double) (i % 7)));
+        }
+        consumer.accept(new StubObject("str", 1, null, 10.0));
+        consumer.accept(new StubObject("str", 1, 10L, null));
+
+        NumericalBuckets buckets = consumer.getBuckets();
+        assertEquals(1000, buckets.getTotalCount());
+        assertEquals(0, buckets.getMinX(), 0);
+        assertEquals(999, buckets.getMaxX(), 0);
+        long total = 0;
+        for (int i = 0; i < buckets.getNbBuckets(); i++) {
+            total += buckets.getCount(i);
+            if (buckets.getCount(i) > 7) {
+                assertEquals(0, buckets.getMinY(i), 0);
+                assertEquals(6, buckets.getMaxY(i), 0);
+            }
+        }
+        assertEquals(1000, total);
+    }
+
+    /**
+     * Test the bins of a histogram
+     */
+    @Test
+    public void testHistogram() {
+        IDataChartDescriptor<StubObject, ?> descriptor = fProvider.getDataDescriptor(StubChartProvider.LONG_DESCRIPTOR);
+        HistogramConsumer consumer = new HistogramConsumer(INumericalResolver.class.cast(descriptor.getResolver()), 4);
+
+        /* The first two values give the initial range of the bins */
+        long[] values = { 0, 3, 1, 1, 2, 3, 3 };
+        for (long value : values) {
+            StubObject obj = new StubObject("str", 1, value, 0.0);
+            if (consumer.test(obj)) {
+                consumer.accept(obj);
+            }
+        }
+        StubObject obj = new StubObject("str", 1, null, 0.0);
+        if (consumer.test(obj)) {
+            consumer.accept(obj);
+        }
+
+        NumericalBuckets bins = consumer.getBins();
+        assertEquals(0, bins.getBucketStart(0), 0);
+        assertEquals(1, bins.getBucketWidth(), 0);
+        assertEquals(1, bins.getCount(0));
+        assertEquals(2, bins.getCount(1));
+        assertEquals(1, bins.getCount(2));
+        assertEquals(3, bins.getCount(3));
+    }
+
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.chart.core.tests.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tracecompass.internal.tmf.chart.core.consumer.NumericalBuckets;
+import org.junit.Test;
+
+/**
+ * Test the {@link NumericalBuckets} class
+ */
+public class NumericalBucketsTest {
+
+    private static final int NB_BUCKETS = 16;
+
+    /**
+     * Test that points with the same X value all go in the first bucket
+     */
+    @Test
+    public void testSingleValue() {
+        NumericalBuckets buckets = new NumericalBuckets(NB_BUCKETS);
+        assertTrue(Double.isNaN(buckets.getBucketStart(0)));
+        buckets.add(5, 1);
+        buckets.add(5, 3);
+        buckets.add(5, 2);
+        assertEquals(0, buckets.getBucketWidth(), 0);
+        assertEquals(5, buckets.getBucketStart(0), 0);
+        assertEquals(3, buckets.getCount(0));
+        assertEquals(1, buckets.getMinY(0), 0);
+        assertEquals(3, buckets.getMaxY(0), 0);
+        assertEquals(3, buckets.getTotalCount());
+    }
+
+    /**
+     * Test that values that are not finite are ignored
+     */
+    @Test
+    public void testNotFinite() {
+        NumericalBuckets buckets = new NumericalBuckets(NB_BUCKETS);
+        buckets.add(Double.NaN, 1);
+        buckets.add(1, Double.POSITIVE_INFINITY);
+        buckets.add(Double.NEGATIVE_INFINITY);
+        assertEquals(0, buckets.getTotalCount());
+    }
+
+    /**
+     * Test that the buckets are the same as if the points were kept and
+     * counted in the final buckets, when the range grows on both sides
+     */
+    @Test
+    public void testDownsampling() {
+        NumericalBuckets buckets = new NumericalBuckets(NB_BUCKETS);
+        List<double[]> points = new ArrayList<>();
+        /* The first two values give buckets of width 1 */
+        points.add(new double[] { 100, 0 });
+        points.add(new double[] { 100 + NB_BUCKETS - 1, 0 });
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            points.add(new double[] { random.nextInt(2000) - 1000, random.nextInt(100) });
+        }
+        for (double[] point : points) {
+            buckets.add(point[0], point[1]);
+        }
+
+        double width = buckets.getBucketWidth();
+        double start = buckets.getBucketStart(0);
+        assertTrue(start <= buckets.getMinX());
+        assertTrue(start + width * NB_BUCKETS > buckets.getMaxX());
+        long total = 0;
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            long count = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (double[] point : points) {
+                if (point[0] >= start + width * i && point[0] < start + width * (i + 1)) {
+                    count++;
+                    min = Math.min(min, point[1]);
+                    max = Math.max(max, point[1]);
+                }
+            }
+            assertEquals(count, buckets.getCount(i));
+            assertEquals(min, buckets.getMinY(i), 0);
+            assertEquals(max, buckets.getMaxY(i), 0);
+            total += count;
+        }
+        assertEquals(points.size(), total);
+        assertEquals(points.size(), buckets.getTotalCount());
+    }
+
+    /**
+     * Test that the number of buckets must be even
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testOddNbBuckets() {
+        new NumericalBuckets(NB_BUCKETS + 1);
+    }
+
+}
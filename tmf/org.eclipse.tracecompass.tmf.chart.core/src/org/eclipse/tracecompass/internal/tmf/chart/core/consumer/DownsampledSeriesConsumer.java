@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.chart.core.consumer;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.provisional.tmf.chart.core.resolver.INumericalResolver;
+
+/**
+ * This class consumes the (x, y) points of a series with numerical axes
+ * directly into {@link NumericalBuckets}, instead of keeping every point like
+ * a pair of {@link NumericalConsumer}. A line or scatter chart can then draw,
+ * for each bucket, a line from its minimum to its maximum Y value, with a
+ * memory use that does not depend on the number of points.
+ * <p>
+ * Like the X and Y {@link IDataConsumer} of a series, an object is rejected
+ * if either of its values does not pass the predicate.
+ */
+public class DownsampledSeriesConsumer implements ISeriesConsumer {
+
+    // ------------------------------------------------------------------------
+    // Members
+    // ------------------------------------------------------------------------
+
+    private final INumericalResolver<Object, Number> fXResolver;
+    private final INumericalResolver<Object, Number> fYResolver;
+    private final Predicate<@Nullable Number> fPredicate;
+    private final NumericalBuckets fBuckets;
+
+    // ------------------------------------------------------------------------
+    // Constructors
+    // ------------------------------------------------------------------------
+
+    /**
+     * Constructor with a default non null predicate.
+     *
+     * @param xResolver
+     *            The resolver that maps the X values
+     * @param yResolver
+     *            The resolver that maps the Y values
+     * @param nbBuckets
+     *            The number of buckets on the X axis, typically the width of
+     *            the chart in pixels
+     */
+    public DownsampledSeriesConsumer(INumericalResolver<Object, Number> xResolver, INumericalResolver<Object, Number> yResolver, int nbBuckets) {
+        this(xResolver, yResolver, nbBuckets, Objects::nonNull);
+    }
+
+    /**
+     * Overloaded constructor with a predicate.
+     *
+     * @param xResolver
+     *            The resolver that maps the X values
+     * @param yResolver
+     *            The resolver that maps the Y values
+     * @param nbBuckets
+     *            The number of buckets on the X axis, typically the width of
+     *            the chart in pixels
+     * @param predicate
+     *            The predicate for testing the X and Y values
+     */
+    public DownsampledSeriesConsumer(INumericalResolver<Object, Number> xResolver, INumericalResolver<Object, Number> yResolver, int nbBuckets, Predicate<@Nullable Number> predicate) {
+        fXResolver = xResolver;
+        fYResolver = yResolver;
+        fPredicate = predicate;
+        fBuckets = new NumericalBuckets(nbBuckets);
+    }
+
+    // ------------------------------------------------------------------------
+    // Overriden methods
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void accept(Object obj) {
+        Number x = fXResolver.getMapper().apply(obj);
+        Number y = fYResolver.getMapper().apply(obj);
+        if (!fPredicate.test(x) || !fPredicate.test(y)) {
+            return;
+        }
+        if (x == null) {
+            x = fXResolver.getZeroValue();
+        }
+        if (y == null) {
+            y = fYResolver.getZeroValue();
+        }
+        fBuckets.add(x.doubleValue(), y.doubleValue());
+    }
+
+    // ------------------------------------------------------------------------
+    // Accessors
+    // ------------------------------------------------------------------------
+
+    /**
+     * Accessor that returns the buckets of the consumed points.
+     *
+     * @return The buckets
+     */
+    public NumericalBuckets getBuckets() {
+        return fBuckets;
+    }
+
+}
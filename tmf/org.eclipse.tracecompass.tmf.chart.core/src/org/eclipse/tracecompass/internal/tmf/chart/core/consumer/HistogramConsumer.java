@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.chart.core.consumer;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.provisional.tmf.chart.core.resolver.INumericalResolver;
+
+/**
+ * This class counts numerical values in bins of equal width as they are
+ * consumed, to create the data of a histogram. Unlike the
+ * {@link NumericalConsumer}, the values are not kept, so the memory used only
+ * depends on the number of bins.
+ *
+ * @see NumericalBuckets
+ */
+public class HistogramConsumer implements IDataConsumer {
+
+    // ------------------------------------------------------------------------
+    // Members
+    // ------------------------------------------------------------------------
+
+    private final INumericalResolver<Object, Number> fResolver;
+    private final Predicate<@Nullable Number> fPredicate;
+    private final NumericalBuckets fBins;
+
+    // ------------------------------------------------------------------------
+    // Constructors
+    // ------------------------------------------------------------------------
+
+    /**
+     * Constructor with a default non null predicate.
+     *
+     * @param resolver
+     *            The resolver that maps values
+     * @param nbBins
+     *            The number of bins of the histogram
+     */
+    public HistogramConsumer(INumericalResolver<Object, Number> resolver, int nbBins) {
+        this(resolver, nbBins, Objects::nonNull);
+    }
+
+    /**
+     * Overloaded constructor with a predicate.
+     *
+     * @param resolver
+     *            The resolver that maps values
+     * @param nbBins
+     *            The number of bins of the histogram
+     * @param predicate
+     *            The predicate for testing values
+     */
+    public HistogramConsumer(INumericalResolver<Object, Number> resolver, int nbBins, Predicate<@Nullable Number> predicate) {
+        fResolver = resolver;
+        fPredicate = predicate;
+        fBins = new NumericalBuckets(nbBins);
+    }
+
+    // ------------------------------------------------------------------------
+    // Overriden methods
+    // ------------------------------------------------------------------------
+
+    @Override
+    public boolean test(Object obj) {
+        Number number = fResolver.getMapper().apply(obj);
+        return fPredicate.test(number);
+    }
+
+    @Override
+    public void accept(Object obj) {
+        Number number = fResolver.getMapper().apply(obj);
+
+        if (number == null) {
+            number = fResolver.getZeroValue();
+        }
+
+        fBins.add(number.doubleValue());
+    }
+
+    // ------------------------------------------------------------------------
+    // Accessors
+    // ------------------------------------------------------------------------
+
+    /**
+     * Accessor that returns the bins of the histogram. The count of each bin
+     * is the height of its bar.
+     *
+     * @return The bins
+     */
+    public NumericalBuckets getBins() {
+        return fBins;
+    }
+
+}
@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.chart.core.consumer;
+
+import java.util.Arrays;
+
+/**
+ * This class downsamples a stream of (x, y) points into a fixed number of
+ * buckets of equal width on the X axis. Each bucket keeps the number of points
+ * it received and the minimum and maximum Y values of these points, which is
+ * what is needed to draw them when a bucket is one pixel wide.
+ * <p>
+ * The range of the X values does not need to be known in advance. The buckets
+ * cover the values received so far: when a value is out of their range, their
+ * width is doubled and adjacent buckets are merged until the value fits. The
+ * memory used is thus bounded by the number of buckets, regardless of the
+ * number of points.
+ */
+public class NumericalBuckets {
+
+    private final int fNbBuckets;
+    private final long[] fCounts;
+    private final double[] fMinY;
+    private final double[] fMaxY;
+
+    /* The start of the first bucket, NaN until the first value */
+    private double fStart = Double.NaN;
+    /* The width of the buckets, 0 as long as all the X values are equal */
+    private double fWidth = 0;
+
+    private long fTotalCount = 0;
+    private double fMinX = Double.POSITIVE_INFINITY;
+    private double fMaxX = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructor
+     *
+     * @param nbBuckets
+     *            The number of buckets, typically the width of the chart in
+     *            pixels. It must be even and at least 2.
+     */
+    public NumericalBuckets(int nbBuckets) {
+        if (nbBuckets < 2 || nbBuckets % 2 != 0) {
+            throw new IllegalArgumentException("Invalid number of buckets: " + nbBuckets); //$NON-NLS-1$
+        }
+        fNbBuckets = nbBuckets;
+        fCounts = new long[nbBuckets];
+        fMinY = new double[nbBuckets];
+        fMaxY = new double[nbBuckets];
+        Arrays.fill(fMinY, Double.POSITIVE_INFINITY);
+        Arrays.fill(fMaxY, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Add a point. Points with a value that is not finite are ignored.
+     *
+     * @param x
+     *            The X value, which selects the bucket
+     * @param y
+     *            The Y value
+     */
+    public void add(double x, double y) {
+        if (!Double.isFinite(x) || !Double.isFinite(y)) {
+            return;
+        }
+        int index = count(x);
+        fMinY[index] = Math.min(fMinY[index], y);
+        fMaxY[index] = Math.max(fMaxY[index], y);
+    }
+
+    /**
+     * Add a point that has no Y value, which is only counted in its bucket,
+     * for example to build a histogram. A value that is not finite is
+     * ignored.
+     *
+     * @param x
+     *            The X value, which selects the bucket
+     */
+    public void add(double x) {
+        if (!Double.isFinite(x)) {
+            return;
+        }
+        count(x);
+    }
+
+    private int count(double x) {
+        int index = getIndex(x);
+        fCounts[index]++;
+        fTotalCount++;
+        fMinX = Math.min(fMinX, x);
+        fMaxX = Math.max(fMaxX, x);
+        return index;
+    }
+
+    /**
+     * Get the index of the bucket of a value, extending the buckets if needed
+     */
+    private int getIndex(double x) {
+        if (Double.isNaN(fStart)) {
+            fStart = x;
+            return 0;
+        }
+        if (fWidth == 0) {
+            if (x == fStart) {
+                return 0;
+            }
+            /* The second distinct value sets the initial range */
+            double start = Math.min(x, fStart);
+            double width = Math.abs(x - fStart) / (fNbBuckets - 1);
+            if (x < fStart) {
+                move(0, fNbBuckets - 1);
+            }
+            fStart = start;
+            fWidth = width;
+        }
+        while (x < fStart) {
+            extend(false);
+        }
+        while (x >= fStart + fWidth * fNbBuckets) {
+            extend(true);
+        }
+        return (int) Math.min(fNbBuckets - 1, (x - fStart) / fWidth);
+    }
+
+    /**
+     * Double the width of the buckets, merging them in pairs
+     *
+     * @param right
+     *            true to extend the range to the right, false to the left
+     */
+    private void extend(boolean right) {
+        int half = fNbBuckets / 2;
+        if (right) {
+            /* The buckets move to the first half */
+            for (int i = 0; i < half; i++) {
+                merge(2 * i, 2 * i + 1, i);
+            }
+        } else {
+            /* The buckets move to the second half */
+            for (int i = half - 1; i >= 0; i--) {
+                merge(2 * i, 2 * i + 1, half + i);
+            }
+            fStart -= fWidth * fNbBuckets;
+        }
+        fWidth *= 2;
+    }
+
+    private void merge(int first, int second, int target) {
+        long count = fCounts[first] + fCounts[second];
+        double min = Math.min(fMinY[first], fMinY[second]);
+        double max = Math.max(fMaxY[first], fMaxY[second]);
+        clear(first);
+        clear(second);
+        fCounts[target] = count;
+        fMinY[target] = min;
+        fMaxY[target] = max;
+    }
+
+    private void move(int from, int to) {
+        fCounts[to] = fCounts[from];
+        fMinY[to] = fMinY[from];
+        fMaxY[to] = fMaxY[from];
+        clear(from);
+    }
+
+    private void clear(int index) {
+        fCounts[index] = 0;
+        fMinY[index] = Double.POSITIVE_INFINITY;
+        fMaxY[index] = Double.NEGATIVE_INFINITY;
+    }
+
+    // ------------------------------------------------------------------------
+    // Accessors
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the number of buckets
+     *
+     * @return The number of buckets
+     */
+    public int getNbBuckets() {
+        return fNbBuckets;
+    }
+
+    /**
+     * Get the start X value of a bucket. The buckets all have the same width,
+     * which is 0 if all the X values are equal, in which case they are all in
+     * the first bucket.
+     *
+     * @param index
+     *            The index of the bucket
+     * @return The start X value of the bucket, or NaN if there are no points
+     */
+    public double getBucketStart(int index) {
+        return fStart + fWidth * index;
+    }
+
+    /**
+     * Get the width of the buckets on the X axis
+     *
+     * @return The width of the buckets
+     */
+    public double getBucketWidth() {
+        return fWidth;
+    }
+
+    /**
+     * Get the number of points in a bucket
+     *
+     * @param index
+     *            The index of the bucket
+     * @return The number of points
+     */
+    public long getCount(int index) {
+        return fCounts[index];
+    }
+
+    /**
+     * Get the minimum Y value of a bucket
+     *
+     * @param index
+     *            The index of the bucket
+     * @return The minimum Y value, or positive infinity if the bucket is
+     *         empty
+     */
+    public double getMinY(int index) {
+        return fMinY[index];
+    }
+
+    /**
+     * Get the maximum Y value of a bucket
+     *
+     * @param index
+     *            The index of the bucket
+     * @return The maximum Y value, or negative infinity if the bucket is
+     *         empty
+     */
+    public double getMaxY(int index) {
+        return fMaxY[index];
+    }
+
+    /**
+     * Get the total number of points added
+     *
+     * @return The number of points
+     */
+    public long getTotalCount() {
+        return fTotalCount;
+    }
+
+    /**
+     * Get the minimum X value of all the points
+     *
+     * @return The minimum X value, or positive infinity if there are no points
+     */
+    public double getMinX() {
+        return fMinX;
+    }
+
+    /**
+     * Get the maximum X value of all the points
+     *
+     * @return The maximum X value, or negative infinity if there are no points
+     */
+    public double getMaxX() {
+        return fMaxX;
+    }
+
+}
@@ -21,7 +21,9 @@ import static org.junit.Assert.fail;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -380,6 +382,77 @@ public class AnalysisModuleTest {
 
     }
 
+    /**
+     * Test that the analysis of a module runs concurrently with the analysis
+     * of the module it depends on, instead of waiting for it to be done
+     */
+    @Test
+    public void testDependentAnalysesOverlap() {
+
+        ITmfTrace trace = TmfTestTrace.A_TEST_10K.getTrace();
+        int paramAndResult = 5;
+        CountDownLatch mainStarted = new CountDownLatch(1);
+        AtomicBoolean overlap = new AtomicBoolean();
+
+        /* The dependent module waits until the main module is running */
+        final String suffix = " dep";
+        final TestAnalysis depModule = new TestAnalysis() {
+
+            @Override
+            protected boolean executeAnalysis(IProgressMonitor monitor) {
+                try {
+                    overlap.set(mainStarted.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    return false;
+                }
+                return super.executeAnalysis(monitor);
+            }
+
+        };
+        depModule.setName(MODULE_GENERIC_NAME + suffix);
+        depModule.setId(MODULE_GENERIC_ID + suffix);
+        depModule.addParameter(TestAnalysis.PARAM_TEST);
+        depModule.setParameter(TestAnalysis.PARAM_TEST, paramAndResult);
+
+        TestAnalysis module = new TestAnalysis() {
+
+            @Override
+            protected Iterable<IAnalysisModule> getDependentAnalyses() {
+                return ImmutableSet.of(depModule);
+            }
+
+            @Override
+            protected boolean executeAnalysis(IProgressMonitor monitor) {
+                mainStarted.countDown();
+                return super.executeAnalysis(monitor);
+            }
+
+        };
+        module.setName(MODULE_GENERIC_NAME);
+        module.setId(MODULE_GENERIC_ID);
+        module.addParameter(TestAnalysis.PARAM_TEST);
+        module.setParameter(TestAnalysis.PARAM_TEST, paramAndResult);
+
+        try {
+            assertTrue(depModule.setTrace(trace));
+            assertTrue(module.setTrace(trace));
+        } catch (TmfAnalysisException e) {
+            fail(e.getMessage());
+        }
+
+        module.schedule();
+        assertTrue(module.waitForCompletion());
+        assertTrue(depModule.waitForCompletion());
+        assertTrue("Analyses did not overlap", overlap.get());
+        assertEquals(paramAndResult, module.getAnalysisOutput());
+        assertEquals(paramAndResult, depModule.getAnalysisOutput());
+
+        module.dispose();
+        depModule.dispose();
+        trace.dispose();
+
+    }
+
     /**
      * Test that the dependency level is consistent with a case where
      * B depends on A, and C depends on A and B
@@ -15,6 +15,7 @@ package org.eclipse.tracecompass.tmf.core.tests.callstack;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.file.Files;
@@ -23,6 +24,7 @@ import java.nio.file.Paths;
 import java.util.Map;
 
 import org.eclipse.tracecompass.internal.tmf.core.callstack.FunctionNameMapper;
+import org.eclipse.tracecompass.internal.tmf.core.callstack.SymbolTable;
 import org.junit.Test;
 
 /**
@@ -75,4 +77,28 @@ public class FunctionNameMapperTest {
         assertEquals("std::piecewise_construct", results.get("400884"));
         assertEquals("std::__ioinit", results.get("601191"));
     }
+
+    /**
+     * Test the symbol table of a text file obtained from 'nm', with addresses
+     * inside the symbols
+     */
+    @Test
+    public void testNmFileSymbolTable() {
+        Path nmOutput = Paths.get("..", "..", "tmf", "org.eclipse.tracecompass.tmf.core.tests",
+                "testfiles", "callstack" , "nm-output-example");
+        SymbolTable table = FunctionNameMapper.getSymbolTable(nmOutput.toFile(), false);
+
+        assertNotNull(table);
+        assertEquals(28, table.size());
+        assertEquals("main", table.getName(0x400756L));
+        assertEquals("main", table.getName(0x40076fL));
+        assertEquals("__static_initialization_and_destruction_0(int, int)", table.getName(0x400770L));
+        assertEquals("Bar<int, int>* foo<int, int>(int, int)", table.getName(0x4007d0L));
+        assertEquals("data_start", table.getName(0x601048L));
+        assertNull(table.getName(0x400000L));
+        /* The last symbol has no size, only its address is known */
+        assertEquals("_end", table.getName(0x601198L));
+        assertNull(table.getName(0x601199L));
+        assertSame(table, FunctionNameMapper.getSymbolTable(nmOutput.toFile(), false));
+    }
 }
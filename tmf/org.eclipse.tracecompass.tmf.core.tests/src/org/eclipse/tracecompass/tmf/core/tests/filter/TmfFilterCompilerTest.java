@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.tmf.core.filter.TmfFilterCompiler;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventType;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventType;
+import org.eclipse.tracecompass.tmf.core.event.aspect.TmfBaseAspects;
+import org.eclipse.tracecompass.tmf.core.event.aspect.TmfContentFieldAspect;
+import org.eclipse.tracecompass.tmf.core.filter.ITmfFilter;
+import org.eclipse.tracecompass.tmf.core.filter.model.ITmfFilterTreeNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterAndNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterCompareNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterCompareNode.Type;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterContainsNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterEqualsNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterMatchesNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterOrNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterRootNode;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.TmfTraceStub;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * Test suite for the {@link TmfFilterCompiler} class. The compiled filters
+ * must match exactly the same events as the filter trees they come from.
+ */
+@SuppressWarnings("javadoc")
+public class TmfFilterCompilerTest {
+
+    private static final @NonNull ITmfTrace TRACE = new TmfTraceStub();
+    private static final @NonNull String FIELD = "field";
+    private static final @NonNull String OTHER = "other";
+    private static final ITmfEventType EVENT_TYPE = new TmfEventType("Type", TmfEventField.makeRoot(new String[] { FIELD, OTHER }));
+    private static final String[][] VALUES = {
+            { "1", "abc" },
+            { "5", "ABC def" },
+            { "11", "xyz" },
+            { "0x10", "a\nbc" },
+            { "2.5", "" },
+            { "text", "Abc" }
+    };
+
+    private final List<ITmfEvent> fEvents = new ArrayList<>();
+
+    public TmfFilterCompilerTest() {
+        long rank = 0;
+        for (String[] values : VALUES) {
+            ITmfEventField[] fields = new ITmfEventField[] {
+                    new TmfEventField(FIELD, values[0], null),
+                    new TmfEventField(OTHER, values[1], null)
+            };
+            ITmfEventField content = new TmfEventField(ITmfEventField.ROOT_FIELD_ID, null, fields);
+            fEvents.add(new TmfEvent(TRACE, rank, TmfTimestamp.fromNanos(rank), EVENT_TYPE, content));
+            rank++;
+        }
+        /* An event without the fields */
+        ITmfEventField empty = new TmfEventField(ITmfEventField.ROOT_FIELD_ID, null, null);
+        fEvents.add(new TmfEvent(TRACE, rank, TmfTimestamp.fromNanos(rank), EVENT_TYPE, empty));
+    }
+
+    @AfterClass
+    public static void disposeTrace() {
+        TRACE.dispose();
+    }
+
+    private void assertSameMatches(ITmfFilterTreeNode node) {
+        ITmfFilter compiled = TmfFilterCompiler.compile(node);
+        for (ITmfEvent event : fEvents) {
+            assertEquals(node.toString() + " " + event.getContent(), node.matches(event), compiled.matches(event));
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testEquals() {
+        TmfFilterEqualsNode node = new TmfFilterEqualsNode(null);
+        node.setEventAspect(new TmfContentFieldAspect(OTHER, OTHER));
+        node.setValue("abc");
+        assertSameMatches(node);
+        node.setIgnoreCase(true);
+        assertSameMatches(node);
+        node.setNot(true);
+        assertSameMatches(node);
+    }
+
+    @Test
+    public void testContains() {
+        TmfFilterContainsNode node = new TmfFilterContainsNode(null);
+        node.setEventAspect(new TmfContentFieldAspect(OTHER, OTHER));
+        node.setValue("bc");
+        assertSameMatches(node);
+        node.setIgnoreCase(true);
+        assertSameMatches(node);
+        node.setNot(true);
+        assertSameMatches(node);
+    }
+
+    @Test
+    public void testMatches() {
+        TmfFilterMatchesNode node = new TmfFilterMatchesNode(null);
+        node.setEventAspect(new TmfContentFieldAspect(OTHER, OTHER));
+        node.setRegex("a.b");
+        assertSameMatches(node);
+        node.setNot(true);
+        assertSameMatches(node);
+        node.setRegex("(");
+        assertSameMatches(node);
+    }
+
+    @Test
+    public void testCompare() {
+        TmfFilterCompareNode node = new TmfFilterCompareNode(null);
+        node.setEventAspect(new TmfContentFieldAspect(FIELD, FIELD));
+        for (Type type : Type.values()) {
+            node.setType(type);
+            for (String value : new String[] { "5", "2.5", "0.000000011", "11" }) {
+                node.setValue(value);
+                for (int result = -1; result <= 1; result++) {
+                    node.setResult(result);
+                    node.setNot(false);
+                    assertSameMatches(node);
+                    node.setNot(true);
+                    assertSameMatches(node);
+                }
+            }
+        }
+        node.setEventAspect(TmfBaseAspects.getTimestampAspect());
+        node.setType(Type.TIMESTAMP);
+        node.setValue("0.000000003");
+        for (int result = -1; result <= 1; result++) {
+            node.setResult(result);
+            assertSameMatches(node);
+        }
+    }
+
+    @Test
+    public void testNoAspect() {
+        TmfFilterEqualsNode equals = new TmfFilterEqualsNode(null);
+        equals.setValue("abc");
+        equals.setNot(true);
+        assertSameMatches(equals);
+        TmfFilterCompareNode compare = new TmfFilterCompareNode(null);
+        compare.setValue("5");
+        assertSameMatches(compare);
+    }
+
+    @Test
+    public void testTree() {
+        TmfFilterRootNode root = new TmfFilterRootNode();
+        TmfFilterOrNode or = new TmfFilterOrNode(root);
+        TmfFilterMatchesNode matches = new TmfFilterMatchesNode(or);
+        matches.setEventAspect(new TmfContentFieldAspect(OTHER, OTHER));
+        matches.setRegex("^A");
+        TmfFilterAndNode and = new TmfFilterAndNode(or);
+        TmfFilterCompareNode compare = new TmfFilterCompareNode(and);
+        compare.setEventAspect(new TmfContentFieldAspect(FIELD, FIELD));
+        compare.setType(Type.NUM);
+        compare.setValue("10");
+        compare.setResult(1);
+        TmfFilterContainsNode contains = new TmfFilterContainsNode(and);
+        contains.setEventAspect(new TmfContentFieldAspect(FIELD, FIELD));
+        contains.setValue("1");
+        assertSameMatches(root);
+
+        and.setNot(true);
+        assertSameMatches(root);
+        or.setNot(true);
+        assertSameMatches(root);
+    }
+
+    @Test
+    public void testOrNotWithoutMatch() {
+        TmfFilterOrNode or = new TmfFilterOrNode(null);
+        or.setNot(true);
+        TmfFilterEqualsNode equals = new TmfFilterEqualsNode(or);
+        equals.setEventAspect(new TmfContentFieldAspect(OTHER, OTHER));
+        equals.setValue("none");
+        ITmfFilter compiled = TmfFilterCompiler.compile(or);
+        for (ITmfEvent event : fEvents) {
+            assertFalse(compiled.matches(event));
+        }
+        assertSameMatches(or);
+    }
+
+    @Test
+    public void testUnknownNode() {
+        final int[] count = new int[1];
+        TmfFilterAndNode and = new TmfFilterAndNode(null);
+        and.addChild(new TmfFilterAndNode(null) {
+            @Override
+            public boolean matches(ITmfEvent event) {
+                count[0]++;
+                return true;
+            }
+        });
+        TmfFilterEqualsNode equals = new TmfFilterEqualsNode(and);
+        equals.setEventAspect(new TmfContentFieldAspect(OTHER, OTHER));
+        equals.setValue("none");
+
+        /* The children order is kept, the stateful node sees every event */
+        ITmfFilter compiled = TmfFilterCompiler.compile(and);
+        for (ITmfEvent event : fEvents) {
+            assertFalse(compiled.matches(event));
+        }
+        assertEquals(fEvents.size(), count[0]);
+    }
+
+    @Test
+    public void testSnapshot() {
+        TmfFilterOrNode or = new TmfFilterOrNode(null);
+        ITmfFilter compiled = TmfFilterCompiler.compile(or);
+        TmfFilterEqualsNode equals = new TmfFilterEqualsNode(or);
+        equals.setEventAspect(new TmfContentFieldAspect(OTHER, OTHER));
+        equals.setValue("abc");
+        assertTrue(or.matches(fEvents.get(0)));
+        assertFalse(compiled.matches(fEvents.get(0)));
+    }
+
+    @Test
+    public void testNotTreeFilter() {
+        ITmfFilter filter = event -> true;
+        assertSame(filter, TmfFilterCompiler.compile(filter));
+        ITmfFilter compiled = TmfFilterCompiler.compile(new TmfFilterRootNode());
+        assertSame(compiled, TmfFilterCompiler.compile(compiled));
+    }
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.request;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.tracecompass.internal.tmf.core.component.TmfEventThread;
+import org.eclipse.tracecompass.internal.tmf.core.request.TmfRequestExecutor;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.tracecompass.tmf.core.tests.TmfCoreTestPlugin;
+import org.eclipse.tracecompass.tmf.core.tests.shared.TmfTestTrace;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.tests.stubs.request.TmfEventRequestStub;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.TmfTraceStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+
+/**
+ * Test the scheduling of the requests by the {@link TmfRequestExecutor} when
+ * more than one request can be executed at the same time
+ */
+public class TmfRequestExecutorTest {
+
+    /** A deadlock would make the test time out */
+    @Rule
+    public TestRule globalTimeout = new Timeout(60, TimeUnit.SECONDS);
+
+    private static final int MAX_ACTIVE = 2;
+    private static final int NB_FOREGROUND_EVENTS = 100;
+
+    private TmfTraceStub fTrace;
+    private TmfRequestExecutor fExecutor;
+    private final CountDownLatch fRelease = new CountDownLatch(1);
+    private final CountDownLatch fStarted = new CountDownLatch(1);
+
+    /**
+     * Open the trace and start the executor
+     *
+     * @throws Exception
+     *             if the trace cannot be opened
+     */
+    @Before
+    public void setUp() throws Exception {
+        URL location = FileLocator.find(TmfCoreTestPlugin.getDefault().getBundle(), new Path(TmfTestTrace.A_TEST_10K.getFullPath()), null);
+        File test = new File(FileLocator.toFileURL(location).toURI());
+        fTrace = new TmfTraceStub(test.getPath(), 500, false, null);
+        fExecutor = new TmfRequestExecutor(MAX_ACTIVE);
+        fExecutor.init();
+    }
+
+    /**
+     * Release the background request, stop the executor and dispose the trace
+     */
+    @After
+    public void tearDown() {
+        fRelease.countDown();
+        fExecutor.stop();
+        fTrace.dispose();
+    }
+
+    /**
+     * Test that a foreground request is completed while a long background
+     * request is executed, without suspending the background request since a
+     * slot is free for the foreground request
+     *
+     * @throws InterruptedException
+     *             if the test is interrupted
+     */
+    @Test
+    public void testForegroundWithLongBackground() throws InterruptedException {
+        /* The background request blocks on its first event until released */
+        ITmfEventRequest background = new TmfEventRequestStub(ITmfEvent.class, TmfTimeRange.ETERNITY,
+                ITmfEventRequest.ALL_DATA, 0, ExecutionType.BACKGROUND, 0) {
+            @Override
+            public void handleData(ITmfEvent data) {
+                super.handleData(data);
+                fStarted.countDown();
+                try {
+                    fRelease.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        TmfEventThread backgroundThread = new TmfEventThread(fTrace, background);
+        fExecutor.execute(backgroundThread);
+        fStarted.await();
+
+        ITmfEventRequest foreground = new TmfEventRequestStub(ITmfEvent.class, TmfTimeRange.ETERNITY,
+                NB_FOREGROUND_EVENTS, 0, ExecutionType.FOREGROUND, 0);
+        fExecutor.execute(new TmfEventThread(fTrace, foreground));
+        foreground.waitForCompletion();
+
+        assertTrue(foreground.isCompleted());
+        assertFalse(foreground.isCancelled());
+        assertFalse(background.isCompleted());
+        assertFalse(backgroundThread.isPaused());
+
+        background.cancel();
+        fRelease.countDown();
+        background.waitForCompletion();
+        assertTrue(background.isCancelled());
+    }
+}
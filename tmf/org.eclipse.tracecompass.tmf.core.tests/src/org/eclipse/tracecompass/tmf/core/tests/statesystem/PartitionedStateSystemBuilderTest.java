@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.statesystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.internal.tmf.core.statesystem.partitioned.PartitionedStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.tests.shared.TmfTestTrace;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.tests.stubs.analysis.TestStateSystemProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+
+/**
+ * Test the {@link PartitionedStateSystemBuilder} class. The state systems
+ * built in partitions must be the same as the ones built sequentially.
+ */
+public class PartitionedStateSystemBuilderTest {
+
+    /** Time-out tests after 1 minute. */
+    @Rule
+    public TestRule globalTimeout = new Timeout(1, TimeUnit.MINUTES);
+
+    private static final int NB_PARTITIONS = 4;
+
+    private ITmfTrace fTrace;
+
+    /**
+     * Open and index the trace
+     */
+    @Before
+    public void setUp() {
+        fTrace = TmfTestTrace.A_TEST_10K.getTrace();
+        fTrace.indexTrace(true);
+    }
+
+    /**
+     * Dispose the trace and reset the state provider
+     */
+    @After
+    public void tearDown() {
+        TestStateSystemProvider.setEventHandler(null);
+        TmfTestTrace.A_TEST_10K.dispose();
+    }
+
+    /**
+     * Test a state provider that only reads states set by recent events, so
+     * the warm-up period of each partition gives its initial state
+     *
+     * @throws Exception
+     *             If the build failed
+     */
+    @Test
+    public void testRecentStates() throws Exception {
+        TestStateSystemProvider.setEventHandler((ss, event) -> {
+            long time = event.getTimestamp().toNanos();
+            int last = ss.getQuarkAbsoluteAndAdd("last");
+            ITmfStateValue previous = ss.queryOngoingState(last);
+            ss.modifyAttribute(time, previous, ss.getQuarkAbsoluteAndAdd("previous"));
+            ss.modifyAttribute(time, TmfStateValue.newValueString(event.getName()), last);
+            ss.modifyAttribute(time, TmfStateValue.newValueLong(time), ss.getQuarkAbsoluteAndAdd("types", event.getName()));
+            return true;
+        });
+        PartitionedStateSystemBuilder builder = assertSameStateSystem();
+        assertEquals(0, builder.getNbRebuiltPartitions());
+    }
+
+    /**
+     * Test a state provider whose states depend on all the previous events,
+     * so the partitions have to be built again from the real state
+     *
+     * @throws Exception
+     *             If the build failed
+     */
+    @Test
+    public void testCumulativeStates() throws Exception {
+        TestStateSystemProvider.setEventHandler((ss, event) -> {
+            long time = event.getTimestamp().toNanos();
+            int count = ss.getQuarkAbsoluteAndAdd("count", event.getName());
+            ITmfStateValue value = ss.queryOngoingState(count);
+            ss.modifyAttribute(time, TmfStateValue.newValueInt(value.isNull() ? 1 : value.unboxInt() + 1), count);
+            int stack = ss.getQuarkAbsoluteAndAdd("stack");
+            if (event.getName().endsWith("1")) {
+                ss.pushAttribute(time, TmfStateValue.newValueString(event.getName()), stack);
+            } else if (event.getName().endsWith("2")) {
+                ss.popAttribute(time, stack);
+            } else if (event.getName().endsWith("3")) {
+                ss.removeAttribute(time, count);
+            }
+            return true;
+        });
+        PartitionedStateSystemBuilder builder = assertSameStateSystem();
+        assertTrue(builder.getNbRebuiltPartitions() > 0);
+    }
+
+    private PartitionedStateSystemBuilder assertSameStateSystem() throws Exception {
+        ITmfStateSystem expected = buildSequentially();
+        ITmfStateSystemBuilder actual = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend("partitioned", fTrace.getStartTime().toNanos()));
+        PartitionedStateSystemBuilder builder = new PartitionedStateSystemBuilder(new TestStateSystemProvider(fTrace), actual, NB_PARTITIONS);
+        assertTrue(builder.build());
+
+        assertEquals(expected.getNbAttributes(), actual.getNbAttributes());
+        assertEquals(expected.getCurrentEndTime(), actual.getCurrentEndTime());
+        for (long time = expected.getStartTime(); time <= expected.getCurrentEndTime(); time += (expected.getCurrentEndTime() - expected.getStartTime()) / 997) {
+            assertSameState(expected, actual, time);
+        }
+        assertSameState(expected, actual, expected.getCurrentEndTime());
+        expected.dispose();
+        actual.dispose();
+        return builder;
+    }
+
+    private ITmfStateSystem buildSequentially() {
+        ITmfStateSystemBuilder ss = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend("sequential", fTrace.getStartTime().toNanos()));
+        TestStateSystemProvider provider = new TestStateSystemProvider(fTrace);
+        provider.assignTargetStateSystem(ss);
+        ITmfContext context = fTrace.seekEvent(0L);
+        ITmfEvent event = fTrace.getNext(context);
+        while (event != null) {
+            provider.processEvent(event);
+            event = fTrace.getNext(context);
+        }
+        context.dispose();
+        provider.dispose();
+        return ss;
+    }
+
+    private static void assertSameState(ITmfStateSystem expected, ITmfStateSystem actual, long time) throws StateSystemDisposedException {
+        List<ITmfStateInterval> expectedState = expected.queryFullState(time);
+        List<ITmfStateInterval> actualState = actual.queryFullState(time);
+        for (int quark = 0; quark < expected.getNbAttributes(); quark++) {
+            String[] path = expected.getFullAttributePathArray(quark);
+            ITmfStateInterval expectedInterval = expectedState.get(quark);
+            ITmfStateInterval actualInterval = actualState.get(actual.optQuarkAbsolute(path));
+            String message = expected.getFullAttributePath(quark) + " at " + time;
+            assertEquals(message, expectedInterval.getStateValue(), actualInterval.getStateValue());
+            assertEquals(message, expectedInterval.getStartTime(), actualInterval.getStartTime());
+            assertEquals(message, expectedInterval.getEndTime(), actualInterval.getEndTime());
+        }
+    }
+}
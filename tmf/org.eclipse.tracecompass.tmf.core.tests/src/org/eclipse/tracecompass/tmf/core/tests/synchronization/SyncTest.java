@@ -28,8 +28,10 @@ import java.util.Collections;
 import java.util.LinkedList;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.tmf.core.synchronization.HostPairMatchDispatcher;
 import org.eclipse.tracecompass.internal.tmf.core.synchronization.SyncAlgorithmFullyIncremental;
 import org.eclipse.tracecompass.internal.tmf.core.synchronization.TmfTimestampTransformLinearFast;
+import org.eclipse.tracecompass.tmf.core.event.matching.IMatchProcessingUnit;
 import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventDependency;
 import org.eclipse.tracecompass.tmf.core.synchronization.ITmfTimestampTransform;
 import org.eclipse.tracecompass.tmf.core.synchronization.SynchronizationAlgorithm;
@@ -223,7 +225,56 @@ public class SyncTest {
         assertEquals("SyncAlgorithmFullyIncremental [Between t1 and t2 [ alpha 1 beta 2.5 ]]", syncAlgo.toString());
     }
 
-    private static void addSyncMatch(SynchronizationAlgorithm algo, ITmfTrace sender, long sendTs, ITmfTrace receiver, long receiveTs) {
+    /**
+     * Testing the fully incremental algorithm when the matches are processed
+     * by several threads, which must give the same results as when they are
+     * processed in order
+     */
+    @Test
+    public void testFullyIncrementalThreads() {
+        TmfTraceStub t3 = new TmfTraceStub();
+        t3.init("t3");
+        try {
+            Collection<ITmfTrace> traces = new LinkedList<>(fTraces);
+            traces.add(t3);
+
+            SynchronizationAlgorithm expected = SynchronizationAlgorithmFactory.getFullyIncrementalAlgorithm();
+            expected.init(traces);
+            addThreeHostMatches(expected, t3);
+
+            SynchronizationAlgorithm syncAlgo = SynchronizationAlgorithmFactory.getFullyIncrementalAlgorithm();
+            IMatchProcessingUnit dispatcher = new HostPairMatchDispatcher(syncAlgo, 2);
+            dispatcher.init(traces);
+            addThreeHostMatches(dispatcher, t3);
+            dispatcher.matchingEnded();
+
+            assertEquals(expected.countMatches(), dispatcher.countMatches());
+            assertEquals(expected.toString(), syncAlgo.toString());
+            assertEquals(SyncQuality.ACCURATE, syncAlgo.getSynchronizationQuality(t1, t2));
+            assertEquals(expected.getSynchronizationQuality(t1, t3), syncAlgo.getSynchronizationQuality(t3, t1));
+            assertEquals(SyncQuality.ABSENT, syncAlgo.getSynchronizationQuality(t2, t3));
+            assertEquals(expected.getTimestampTransform(t2), syncAlgo.getTimestampTransform(t2));
+            assertEquals(expected.getTimestampTransform(t3), syncAlgo.getTimestampTransform(t3));
+        } finally {
+            t3.dispose();
+        }
+    }
+
+    private void addThreeHostMatches(IMatchProcessingUnit unit, ITmfTrace t3) {
+        addSyncMatch(unit, t2, 1, t1, 1);
+        addSyncMatch(unit, t1, 1, t3, 3);
+        addSyncMatch(unit, t1, 1, t2, 3);
+        addSyncMatch(unit, t3, 2, t1, 4);
+        addSyncMatch(unit, t2, 2, t1, 3);
+        addSyncMatch(unit, t1, 3, t2, 5);
+        addSyncMatch(unit, t1, 3, t3, 6);
+        addSyncMatch(unit, t1, 4, t2, 8);
+        addSyncMatch(unit, t2, 4, t1, 5);
+        addSyncMatch(unit, t2, 4, t1, 6);
+        addSyncMatch(unit, t1, 6, t2, 7);
+    }
+
+    private static void addSyncMatch(IMatchProcessingUnit algo, ITmfTrace sender, long sendTs, ITmfTrace receiver, long receiveTs) {
         algo.addMatch(
                 new TmfEventDependency(
                         new TmfSyncEventStub(sender, TmfTimestamp.fromSeconds(sendTs)),
@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.analysis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
+import org.eclipse.tracecompass.tmf.core.analysis.IAnalysisModule;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+
+/**
+ * Central scheduler of the jobs of the analysis modules.
+ *
+ * The jobs are started as long as the number of running jobs is below the
+ * maximum and the used heap is below the memory budget. The job of a module is
+ * started once the modules it depends on are started, so that the modules
+ * run concurrently with their dependencies, as when they are not scheduled,
+ * but never take a slot before them. The ready jobs of the same trace are
+ * started together, so that the background requests of their modules are
+ * coalesced by the trace.
+ *
+ * Modules can still wait for other modules from their job. A module which
+ * is waited for by a running job is started right away, with the modules it
+ * depends on, to avoid a deadlock when all the running jobs are waiting.
+ *
+ * The maximum number of running jobs is set with the
+ * {@value #MAX_RUNNING_PROPERTY} system property, the number of processors by
+ * default. The memory budget is set in MB with the
+ * {@value #MEMORY_BUDGET_PROPERTY} system property, three quarters of the
+ * maximum heap by default.
+ */
+public final class TmfAnalysisScheduler {
+
+    /** System property of the maximum number of running analysis jobs */
+    public static final String MAX_RUNNING_PROPERTY = "org.eclipse.tracecompass.tmf.core.analysis.threads"; //$NON-NLS-1$
+
+    /** System property of the memory budget of the analyses, in MB */
+    public static final String MEMORY_BUDGET_PROPERTY = "org.eclipse.tracecompass.tmf.core.analysis.memory"; //$NON-NLS-1$
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    /* Leave a quarter of the maximum heap to the rest of the application */
+    private static final long DEFAULT_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 4 * 3;
+
+    private static final TmfAnalysisScheduler INSTANCE = new TmfAnalysisScheduler(
+            Integer.getInteger(MAX_RUNNING_PROPERTY, Runtime.getRuntime().availableProcessors()),
+            getMemoryBudget());
+
+    private enum State {
+        /* Waiting for the modules it depends on to start */
+        BLOCKED,
+        /* Waiting for a free slot or for memory */
+        QUEUED,
+        RUNNING
+    }
+
+    private static final class Entry {
+        private final IAnalysisModule fModule;
+        private final Job fJob;
+        private final List<IAnalysisModule> fDependencies;
+        private final @Nullable ITmfTrace fTrace;
+        private State fState = State.BLOCKED;
+        /* Waited for by a running job, do not wait for a free slot */
+        private boolean fUrgent = false;
+
+        public Entry(IAnalysisModule module, Job job, List<IAnalysisModule> dependencies, @Nullable ITmfTrace trace) {
+            fModule = module;
+            fJob = job;
+            fDependencies = dependencies;
+            fTrace = trace;
+        }
+    }
+
+    private final int fMaxRunning;
+    private final long fMemoryBudget;
+
+    /* The modules that are not done, in submission order */
+    private final Map<IAnalysisModule, Entry> fEntries = new HashMap<>();
+    private final Set<Entry> fBlocked = new LinkedHashSet<>();
+    private final Set<Entry> fQueued = new LinkedHashSet<>();
+    private final Map<Job, Entry> fRunning = new HashMap<>();
+
+    private TmfAnalysisScheduler(int maxRunning, long memoryBudget) {
+        fMaxRunning = Math.max(1, maxRunning);
+        fMemoryBudget = memoryBudget;
+    }
+
+    private static long getMemoryBudget() {
+        Long budget = Long.getLong(MEMORY_BUDGET_PROPERTY);
+        if (budget == null) {
+            return DEFAULT_MEMORY_BUDGET;
+        }
+        return budget * MEGABYTE;
+    }
+
+    /**
+     * Get the scheduler instance
+     *
+     * @return The scheduler
+     */
+    public static TmfAnalysisScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Submit the job of a module. The job is scheduled once the modules it
+     * depends on are started and there are resources to run it. The
+     * dependencies must have been scheduled before.
+     *
+     * @param module
+     *            The module
+     * @param job
+     *            The job of the module, not scheduled yet
+     * @param dependencies
+     *            The modules this module depends on
+     * @param trace
+     *            The trace of the module
+     */
+    public synchronized void submit(IAnalysisModule module, Job job, Iterable<IAnalysisModule> dependencies, @Nullable ITmfTrace trace) {
+        List<IAnalysisModule> deps = new ArrayList<>();
+        dependencies.forEach(deps::add);
+        Entry entry = new Entry(module, job, deps, trace);
+        fEntries.put(module, entry);
+        if (isRunningAnalysisThread()) {
+            /*
+             * Scheduled by another module from its job, which will wait for
+             * it: start it now, as before, since we cannot know if the other
+             * module holds the last slot
+             */
+            entry.fUrgent = true;
+        }
+        if (isReady(entry)) {
+            entry.fState = State.QUEUED;
+            fQueued.add(entry);
+        } else {
+            TmfCoreTracer.traceAnalysis(module.getId(), trace, "waiting for dependencies to start"); //$NON-NLS-1$
+            fBlocked.add(entry);
+        }
+        dispatch();
+    }
+
+    /**
+     * Notify that the job of a module is done, or that the module was
+     * cancelled before its job was started
+     *
+     * @param module
+     *            The module
+     * @param job
+     *            The job of the module
+     */
+    public synchronized void done(IAnalysisModule module, Job job) {
+        Entry entry = fEntries.get(module);
+        if (entry == null || entry.fJob != job) {
+            /* Already removed, the module may have been scheduled again */
+            return;
+        }
+        fEntries.remove(module);
+        fBlocked.remove(entry);
+        fQueued.remove(entry);
+        fRunning.remove(job);
+        dispatch();
+    }
+
+    /**
+     * Notify that the current thread is about to wait for a module. If the
+     * current thread is running the job of another module, the module and the
+     * modules it depends on are started without waiting for a free slot.
+     *
+     * @param module
+     *            The module that will be waited for
+     */
+    public synchronized void waitingFor(IAnalysisModule module) {
+        Entry entry = fEntries.get(module);
+        if (entry == null || entry.fState == State.RUNNING || !isRunningAnalysisThread()) {
+            return;
+        }
+        setUrgent(entry);
+        dispatch();
+    }
+
+    private void setUrgent(Entry entry) {
+        if (entry.fUrgent) {
+            return;
+        }
+        entry.fUrgent = true;
+        for (IAnalysisModule dependency : entry.fDependencies) {
+            Entry depEntry = fEntries.get(dependency);
+            if (depEntry != null && depEntry.fState != State.RUNNING) {
+                setUrgent(depEntry);
+            }
+        }
+    }
+
+    /**
+     * Get the number of modules waiting for the modules they depend on to
+     * start
+     *
+     * @return The number of blocked modules
+     */
+    public synchronized int getBlockedCount() {
+        return fBlocked.size();
+    }
+
+    /**
+     * Get the number of modules ready to run, waiting for a free slot or for
+     * memory
+     *
+     * @return The number of queued modules
+     */
+    public synchronized int getQueuedCount() {
+        return fQueued.size();
+    }
+
+    /**
+     * Get the number of running module jobs
+     *
+     * @return The number of running modules
+     */
+    public synchronized int getRunningCount() {
+        return fRunning.size();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------------
+
+    private boolean isReady(Entry entry) {
+        for (IAnalysisModule dependency : entry.fDependencies) {
+            Entry depEntry = fEntries.get(dependency);
+            if (depEntry != null && depEntry.fState != State.RUNNING) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Queue the modules whose dependencies are now started */
+    private void unblock() {
+        Iterator<Entry> iter = fBlocked.iterator();
+        while (iter.hasNext()) {
+            Entry blocked = iter.next();
+            if (isReady(blocked)) {
+                iter.remove();
+                blocked.fState = State.QUEUED;
+                fQueued.add(blocked);
+            }
+        }
+    }
+
+    private boolean isRunningAnalysisThread() {
+        Job current = Job.getJobManager().currentJob();
+        return current != null && fRunning.containsKey(current);
+    }
+
+    private boolean hasResources() {
+        if (fRunning.isEmpty()) {
+            return true;
+        }
+        if (fRunning.size() >= fMaxRunning) {
+            return false;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory() <= fMemoryBudget;
+    }
+
+    private void dispatch() {
+        unblock();
+
+        /* The urgent modules first, regardless of the resources */
+        while (startQueued(entry -> entry.fUrgent)) {
+            unblock();
+        }
+
+        while (!fQueued.isEmpty() && hasResources()) {
+            Entry first = fQueued.iterator().next();
+            ITmfTrace trace = first.fTrace;
+            fQueued.remove(first);
+            start(first);
+
+            /*
+             * Start the other modules of the same trace together, including
+             * the ones that depend on the modules just started
+             */
+            do {
+                unblock();
+            } while (hasResources() && startQueued(entry -> entry.fTrace == trace));
+        }
+    }
+
+    /*
+     * Start the queued modules matching a condition, the urgent ones
+     * regardless of the resources. Returns whether any module was started.
+     */
+    private boolean startQueued(Predicate<Entry> condition) {
+        boolean started = false;
+        Iterator<Entry> iter = fQueued.iterator();
+        while (iter.hasNext()) {
+            Entry entry = iter.next();
+            if (condition.test(entry) && (entry.fUrgent || hasResources())) {
+                iter.remove();
+                start(entry);
+                started = true;
+            }
+        }
+        return started;
+    }
+
+    private void start(Entry entry) {
+        entry.fState = State.RUNNING;
+        fRunning.put(entry.fJob, entry);
+        TmfCoreTracer.traceAnalysis(entry.fModule.getId(), entry.fTrace, "job scheduled, running: " + fRunning.size() //$NON-NLS-1$
+                + ", queued: " + fQueued.size() + ", blocked: " + fBlocked.size()); //$NON-NLS-1$ //$NON-NLS-2$
+        entry.fJob.schedule();
+    }
+}
@@ -20,6 +20,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -51,6 +52,10 @@ public final class FunctionNameMapper {
     private FunctionNameMapper() {}
 
     private static final Pattern REMOVE_ZEROS_PATTERN = Pattern.compile("^0+(?!$)"); //$NON-NLS-1$
+    private static final int HEX_RADIX = 16;
+
+    /** The symbol tables loaded so far, by file and kind */
+    private static final Map<String, SoftReference<LoadedSymbolTable>> SYMBOL_TABLES = new HashMap<>();
 
     /**
      * Get the function name mapping from a text file obtained by doing
@@ -115,6 +120,99 @@ public final class FunctionNameMapper {
         return ImmutableMap.copyOf(map);
     }
 
+    /**
+     * Get the symbol table of a file, which is loaded once and shared until
+     * the file is modified or memory runs low
+     *
+     * @param file
+     *            The file to import
+     * @param binary
+     *            True if the file is an executable binary, false if it is a
+     *            text file obtained from 'nm'
+     * @return The symbol table, or null if the file could not be read
+     */
+    public static @Nullable SymbolTable getSymbolTable(File file, boolean binary) {
+        String key = (binary ? "binary:" : "nm:") + file.getAbsolutePath(); //$NON-NLS-1$ //$NON-NLS-2$
+        long lastModified = file.lastModified();
+        long length = file.length();
+        synchronized (SYMBOL_TABLES) {
+            SoftReference<LoadedSymbolTable> ref = SYMBOL_TABLES.get(key);
+            LoadedSymbolTable loaded = (ref == null) ? null : ref.get();
+            if (loaded != null && loaded.fLastModified == lastModified && loaded.fLength == length) {
+                return loaded.fTable;
+            }
+            SymbolTable table = binary ? symbolTableFromBinaryFile(file) : symbolTableFromNmTextFile(file);
+            if (table == null) {
+                SYMBOL_TABLES.remove(key);
+                return null;
+            }
+            SYMBOL_TABLES.put(key, new SoftReference<>(new LoadedSymbolTable(table, lastModified, length)));
+            return table;
+        }
+    }
+
+    /**
+     * Get the symbol table from a text file obtained by doing
+     *
+     * <pre>
+     * nm [--demangle] [--print-size] [binary] &gt; file.txt
+     * </pre>
+     *
+     * @param mappingFile
+     *            The file to import
+     * @return The symbol table, or null if the file does not exist
+     */
+    public static @Nullable SymbolTable symbolTableFromNmTextFile(File mappingFile) {
+        SymbolTable.Builder builder = new SymbolTable.Builder();
+        try (FileReader fr = new FileReader(mappingFile);
+                BufferedReader reader = new BufferedReader(fr);) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                /* Lines are "address [size] type name" */
+                String[] elems = line.trim().split(" ", 3); //$NON-NLS-1$
+                if (elems.length < 3) {
+                    continue;
+                }
+                try {
+                    long address = Long.parseUnsignedLong(elems[0], HEX_RADIX);
+                    if (elems[1].length() == 1) {
+                        builder.add(address, 0, elems[2]);
+                    } else {
+                        long size = Long.parseUnsignedLong(elems[1], HEX_RADIX);
+                        String[] typeAndName = elems[2].split(" ", 2); //$NON-NLS-1$
+                        if (typeAndName.length == 2) {
+                            builder.add(address, size, typeAndName[1]);
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    /* Undefined symbol, without an address */
+                }
+            }
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            /* Stop reading the file at this point */
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get the symbol table from an executable binary.
+     *
+     * @param file
+     *            The file to import
+     * @return The symbol table, or null if the file is not a binary
+     */
+    public static @Nullable SymbolTable symbolTableFromBinaryFile(File file) {
+        IBinaryParser.IBinaryObject binaryObject = getBinaryObject(file);
+        if (binaryObject == null) {
+            return null;
+        }
+        SymbolTable.Builder builder = new SymbolTable.Builder();
+        for (ISymbol symbol : binaryObject.getSymbols()) {
+            builder.add(symbol.getAddress().getValue().longValue(), symbol.getSize(), symbol.getName());
+        }
+        return builder.build();
+    }
 
     /**
      * Strip the leading zeroes from the address
@@ -199,4 +297,16 @@ public final class FunctionNameMapper {
         return null;
     }
 
+    private static final class LoadedSymbolTable {
+        private final SymbolTable fTable;
+        private final long fLastModified;
+        private final long fLength;
+
+        public LoadedSymbolTable(SymbolTable table, long lastModified, long length) {
+            fTable = table;
+            fLastModified = lastModified;
+            fLength = length;
+        }
+    }
+
 }
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.callstack;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Immutable table of the symbols of a binary, which finds the symbol that
+ * contains an address. The symbols are sorted by start address in primitive
+ * arrays, and the equal names share the same string, so a lookup is a binary
+ * search that does not allocate anything.
+ * <p>
+ * The addresses are compared as unsigned values. A symbol covers its size if
+ * it is known, otherwise it covers the addresses up to the start of the next
+ * symbol. The last symbol of unknown size only covers its start address.
+ */
+public final class SymbolTable {
+
+    private final long[] fStarts;
+    /* Exclusive end of each symbol */
+    private final long[] fEnds;
+    private final String[] fNames;
+
+    private SymbolTable(long[] starts, long[] ends, String[] names) {
+        fStarts = starts;
+        fEnds = ends;
+        fNames = names;
+    }
+
+    /**
+     * Get the name of the symbol that contains an address
+     *
+     * @param address
+     *            The address
+     * @return The name of the symbol, or null if no symbol contains the
+     *         address
+     */
+    public @Nullable String getName(long address) {
+        /* Find the last symbol that starts at or before the address */
+        int low = 0;
+        int high = fStarts.length - 1;
+        int index = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(fStarts[mid], address) <= 0) {
+                index = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (index < 0) {
+            return null;
+        }
+        if (fStarts[index] == address || Long.compareUnsigned(address, fEnds[index]) < 0) {
+            return fNames[index];
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of symbols
+     *
+     * @return The number of symbols
+     */
+    public int size() {
+        return fStarts.length;
+    }
+
+    /**
+     * Check if the table has no symbols
+     *
+     * @return True if the table is empty
+     */
+    public boolean isEmpty() {
+        return fStarts.length == 0;
+    }
+
+    /**
+     * Builder of a symbol table. If several symbols start at the same address,
+     * the last one added is kept.
+     */
+    public static final class Builder {
+
+        private static final int INITIAL_SIZE = 1024;
+
+        private long[] fSymbolStarts = new long[INITIAL_SIZE];
+        private long[] fSymbolSizes = new long[INITIAL_SIZE];
+        private String[] fSymbolNames = new String[INITIAL_SIZE];
+        private int fSize = 0;
+        private final Map<String, String> fNamePool = new HashMap<>();
+
+        /**
+         * Add a symbol
+         *
+         * @param start
+         *            The start address of the symbol
+         * @param size
+         *            The size of the symbol, or 0 if it is unknown
+         * @param name
+         *            The name of the symbol
+         * @return This builder
+         */
+        public Builder add(long start, long size, String name) {
+            if (fSize == fSymbolStarts.length) {
+                int length = fSize * 2;
+                fSymbolStarts = Arrays.copyOf(fSymbolStarts, length);
+                fSymbolSizes = Arrays.copyOf(fSymbolSizes, length);
+                fSymbolNames = Arrays.copyOf(fSymbolNames, length);
+            }
+            String pooled = fNamePool.putIfAbsent(name, name);
+            fSymbolStarts[fSize] = start;
+            fSymbolSizes[fSize] = size;
+            fSymbolNames[fSize] = (pooled == null) ? name : pooled;
+            fSize++;
+            return this;
+        }
+
+        /**
+         * Build the symbol table
+         *
+         * @return The symbol table
+         */
+        public SymbolTable build() {
+            /* Sort the symbols by address, keeping the order of equal ones */
+            Integer[] order = new Integer[fSize];
+            for (int i = 0; i < fSize; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compareUnsigned(fSymbolStarts[a], fSymbolStarts[b]));
+
+            /* Keep the last symbol of each address */
+            long[] starts = new long[fSize];
+            long[] sizes = new long[fSize];
+            String[] names = new String[fSize];
+            int count = 0;
+            for (int i = 0; i < fSize; i++) {
+                int symbol = order[i];
+                if (count > 0 && starts[count - 1] == fSymbolStarts[symbol]) {
+                    count--;
+                }
+                starts[count] = fSymbolStarts[symbol];
+                sizes[count] = fSymbolSizes[symbol];
+                names[count] = fSymbolNames[symbol];
+                count++;
+            }
+
+            long[] ends = new long[count];
+            for (int i = 0; i < count; i++) {
+                if (sizes[i] > 0) {
+                    ends[i] = starts[i] + sizes[i];
+                } else if (i + 1 < count) {
+                    ends[i] = starts[i + 1];
+                } else {
+                    ends[i] = starts[i];
+                }
+            }
+            return new SymbolTable(Arrays.copyOf(starts, count), ends, Arrays.copyOf(names, count));
+        }
+    }
+}
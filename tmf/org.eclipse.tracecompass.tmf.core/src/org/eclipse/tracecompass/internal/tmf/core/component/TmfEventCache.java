@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tracecompass.tmf.core.component.TmfEventProvider;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
+import org.eclipse.tracecompass.tmf.core.util.Pair;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Cache of decoded events shared by the requests of the traces, so that a
+ * request reading a region of a trace that was recently read by another
+ * request does not decode its events again.
+ *
+ * The events are cached in blocks of consecutive events, keyed by the trace
+ * and the location of the first event of the block, with the location of the
+ * event following the block. A request reading from the location of a cached
+ * block gets its events, then seeks the trace to the location following the
+ * block and continues with the next block. The least recently used blocks are
+ * evicted when the number of cached events exceeds the size of the cache.
+ *
+ * The size of the cache, in number of events, is set with the
+ * {@value #SIZE_PROPERTY} system property. The cache is disabled by default.
+ */
+public final class TmfEventCache {
+
+    /** System property of the maximum number of cached events */
+    public static final String SIZE_PROPERTY = "org.eclipse.tracecompass.tmf.core.event.cache"; //$NON-NLS-1$
+
+    private static final int BLOCK_SIZE = 1000;
+
+    private static final TmfEventCache INSTANCE = new TmfEventCache(Integer.getInteger(SIZE_PROPERTY, 0));
+
+    private static final class Block {
+        private final ITmfEvent[] fEvents;
+        private final ITmfLocation fNextLocation;
+
+        public Block(ITmfEvent[] events, ITmfLocation nextLocation) {
+            fEvents = events;
+            fNextLocation = nextLocation;
+        }
+    }
+
+    private volatile int fMaxSize;
+    private final Map<Pair<TmfEventProvider, ITmfLocation>, Block> fBlocks = new LinkedHashMap<>(16, 0.75f, true);
+    private long fSize = 0;
+
+    private TmfEventCache(int maxSize) {
+        fMaxSize = maxSize;
+    }
+
+    /**
+     * Get the cache instance
+     *
+     * @return The cache
+     */
+    public static TmfEventCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Set the maximum number of cached events, evicting the least recently
+     * used blocks if needed. A size of 0 disables the cache.
+     *
+     * @param maxSize
+     *            The maximum number of cached events
+     */
+    @VisibleForTesting
+    public synchronized void setMaxSize(int maxSize) {
+        fMaxSize = maxSize;
+        evict();
+    }
+
+    /**
+     * Get a reader of the events of a request, which uses the cache if it is
+     * enabled and the provider is a trace
+     *
+     * @param provider
+     *            The provider of the request
+     * @param context
+     *            The context of the request
+     * @return The reader
+     */
+    public Reader getReader(TmfEventProvider provider, ITmfContext context) {
+        boolean enabled = fMaxSize > 0 && provider instanceof ITmfTrace;
+        return new Reader(provider, context, enabled, enabled && provider.canReadCachedEvents());
+    }
+
+    /**
+     * Remove the events of a provider from the cache
+     *
+     * @param provider
+     *            The provider being disposed
+     */
+    public synchronized void clear(TmfEventProvider provider) {
+        Iterator<Map.Entry<Pair<TmfEventProvider, ITmfLocation>, Block>> iter = fBlocks.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<Pair<TmfEventProvider, ITmfLocation>, Block> entry = iter.next();
+            if (entry.getKey().getFirst() == provider) {
+                fSize -= entry.getValue().fEvents.length;
+                iter.remove();
+            }
+        }
+    }
+
+    private synchronized Block get(TmfEventProvider provider, ITmfLocation location) {
+        return fBlocks.get(new Pair<>(provider, location));
+    }
+
+    private synchronized void put(TmfEventProvider provider, ITmfLocation location, Block block) {
+        Block previous = fBlocks.put(new Pair<>(provider, location), block);
+        if (previous != null) {
+            fSize -= previous.fEvents.length;
+        }
+        fSize += block.fEvents.length;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Block> iter = fBlocks.values().iterator();
+        while (fSize > fMaxSize && iter.hasNext()) {
+            fSize -= iter.next().fEvents.length;
+            iter.remove();
+        }
+    }
+
+    /**
+     * Reader of the events of a request, from the cache or from the provider.
+     * The events read from the provider are added to the cache in blocks.
+     */
+    public static final class Reader {
+
+        private final TmfEventProvider fProvider;
+        private ITmfContext fContext;
+        private final boolean fWrite;
+        private final boolean fRead;
+
+        /* The cached block being read and the position in it */
+        private Block fBlock = null;
+        private int fPosition = 0;
+
+        /* The block being recorded */
+        private ITmfLocation fBlockLocation = null;
+        private final List<ITmfEvent> fBlockEvents = new ArrayList<>();
+
+        private Reader(TmfEventProvider provider, ITmfContext context, boolean write, boolean read) {
+            fProvider = provider;
+            fContext = context;
+            fWrite = write;
+            fRead = read;
+        }
+
+        /**
+         * Get the next event of the request
+         *
+         * @return The event, or null at the end of the trace
+         */
+        public ITmfEvent getNext() {
+            if (!fWrite) {
+                return fProvider.getNext(fContext);
+            }
+
+            Block block = fBlock;
+            if (block != null) {
+                if (fPosition < block.fEvents.length) {
+                    return block.fEvents[fPosition++];
+                }
+                /*
+                 * Continue after the block, in the cache or in the trace. The
+                 * context is re-armed by seeking the trace, since setting its
+                 * location does not move the read position of every trace
+                 * type (experiments, text traces).
+                 */
+                fBlock = null;
+                ITmfContext context = ((ITmfTrace) fProvider).seekEvent(block.fNextLocation);
+                if (context == null) {
+                    return null;
+                }
+                if (fContext.hasValidRank()) {
+                    context.setRank(fContext.getRank() + block.fEvents.length);
+                }
+                fContext.dispose();
+                fContext = context;
+            }
+
+            if (fBlockEvents.isEmpty()) {
+                ITmfLocation location = fContext.getLocation();
+                if (location == null) {
+                    return fProvider.getNext(fContext);
+                }
+                if (fRead) {
+                    block = INSTANCE.get(fProvider, location);
+                    if (block != null) {
+                        fBlock = block;
+                        fPosition = 0;
+                        return getNext();
+                    }
+                }
+                fBlockLocation = location;
+            }
+
+            ITmfEvent event = fProvider.getNext(fContext);
+            if (event == null) {
+                /*
+                 * There is no location following the last event, and more
+                 * events can be appended to the trace: drop the block
+                 */
+                fBlockEvents.clear();
+                return null;
+            }
+            fBlockEvents.add(event);
+            if (fBlockEvents.size() == BLOCK_SIZE) {
+                flush();
+            }
+            return event;
+        }
+
+        /**
+         * Add the block being recorded to the cache, when the request is done
+         */
+        public void flush() {
+            ITmfLocation blockLocation = fBlockLocation;
+            ITmfLocation nextLocation = fContext.getLocation();
+            if (!fBlockEvents.isEmpty() && blockLocation != null && nextLocation != null) {
+                INSTANCE.put(fProvider, blockLocation, new Block(fBlockEvents.toArray(new ITmfEvent[fBlockEvents.size()]), nextLocation));
+            }
+            fBlockEvents.clear();
+            fBlockLocation = null;
+        }
+
+        /**
+         * Dispose the context of the request, which may have been replaced
+         * while reading from the cache
+         */
+        public void dispose() {
+            fContext.dispose();
+        }
+    }
+}
@@ -179,9 +179,12 @@ public class TmfEventThread implements Runnable {
             return;
         }
 
+        // Read the events from the shared cache when possible
+        TmfEventCache.Reader reader = TmfEventCache.getInstance().getReader(fProvider, context);
+
         try {
             // Get the ordered events
-            ITmfEvent event = fProvider.getNext(context);
+            ITmfEvent event = reader.getNext();
             TmfCoreTracer.traceRequest(fRequest.getRequestId(), "read first event"); //$NON-NLS-1$
 
             while (event != null && !fProvider.isCompleted(fRequest, event, nbRead)) {
@@ -199,10 +202,11 @@ public class TmfEventThread implements Runnable {
 
                 // To avoid an unnecessary read passed the last event requested
                 if (++nbRead < nbRequested) {
-                    event = fProvider.getNext(context);
+                    event = reader.getNext();
                 }
             }
 
+            reader.flush();
             isCompleted = true;
 
             if (fRequest.isCancelled()) {
@@ -218,7 +222,7 @@ public class TmfEventThread implements Runnable {
         }
 
         // Cleanup
-        context.dispose();
+        reader.dispose();
     }
 
     // ------------------------------------------------------------------------
@@ -0,0 +1,614 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.filter;
+
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.core.filter.ITmfFilter;
+import org.eclipse.tracecompass.tmf.core.filter.model.ITmfFilterTreeNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterAndNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterCompareNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterContainsNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterEqualsNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterMatchesNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterObjectNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterOrNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterRootNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterTraceTypeNode;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestampFormat;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+
+/**
+ * Compiles a tree of {@link ITmfFilterTreeNode} into a filter that evaluates
+ * the same conditions with less work per event:
+ * <ul>
+ * <li>the children of each node are snapshot in arrays once,</li>
+ * <li>the value of each aspect is resolved, and converted to a string, at most
+ * once per event even if several conditions use it,</li>
+ * <li>the constant operands (numbers, timestamps, patterns, upper-case
+ * strings) are prepared once,</li>
+ * <li>the conditions of a conjunction or disjunction are evaluated from the
+ * cheapest to the most expensive.</li>
+ * </ul>
+ *
+ * The compiled filter is a snapshot: later changes to the tree are not seen by
+ * it. Nodes of unknown types, including subclasses of the standard nodes, are
+ * evaluated by calling their own {@link ITmfFilterTreeNode#matches} method,
+ * and the conditions of a node having such children are never reordered,
+ * since they might be stateful.
+ */
+public final class TmfFilterCompiler {
+
+    /* Relative costs of the conditions, used to order them */
+    private static final int COST_TRACE_TYPE = 1;
+    private static final int COST_EQUALS = 2;
+    private static final int COST_COMPARE = 3;
+    private static final int COST_CONTAINS = 4;
+    private static final int COST_MATCHES = 8;
+    private static final int COST_UNKNOWN = 16;
+
+    private static final String TIMESTAMP_PATTERN = "T.SSSSSSSSS"; //$NON-NLS-1$
+
+    private TmfFilterCompiler() {
+    }
+
+    /**
+     * Compile a filter. Filters that are not {@link ITmfFilterTreeNode} are
+     * returned as is.
+     *
+     * @param filter
+     *            The filter to compile
+     * @return A filter that matches the same events
+     */
+    public static ITmfFilter compile(ITmfFilter filter) {
+        if (!(filter instanceof ITmfFilterTreeNode) || filter instanceof CompiledFilter) {
+            return filter;
+        }
+        Compiler compiler = new Compiler();
+        Condition condition = compiler.compile((ITmfFilterTreeNode) filter);
+        return new CompiledFilter(condition, compiler.fAspects.size());
+    }
+
+    // ------------------------------------------------------------------------
+    // Compiled filter
+    // ------------------------------------------------------------------------
+
+    private static final class CompiledFilter implements ITmfFilter {
+
+        private final Condition fCondition;
+        private final int fNbAspects;
+
+        public CompiledFilter(Condition condition, int nbAspects) {
+            fCondition = condition;
+            fNbAspects = nbAspects;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            return fCondition.matches(event, new EventValues(fNbAspects));
+        }
+    }
+
+    /**
+     * Values of the aspects of one event, resolved lazily
+     */
+    private static final class EventValues {
+
+        private static final Object UNRESOLVED = new Object();
+
+        private final Object[] fValues;
+        private final String[] fStrings;
+
+        public EventValues(int nbAspects) {
+            fValues = new Object[nbAspects];
+            fStrings = new String[nbAspects];
+            Arrays.fill(fValues, UNRESOLVED);
+        }
+
+        public Object getValue(ITmfEvent event, ITmfEventAspect<?> aspect, int slot) {
+            Object value = fValues[slot];
+            if (value == UNRESOLVED) {
+                value = aspect.resolve(event);
+                fValues[slot] = value;
+            }
+            return value;
+        }
+
+        public String getString(Object value, int slot) {
+            String string = fStrings[slot];
+            if (string == null) {
+                string = value.toString();
+                fStrings[slot] = string;
+            }
+            return string;
+        }
+    }
+
+    private abstract static class Condition {
+        public abstract boolean matches(ITmfEvent event, EventValues values);
+
+        public abstract int getCost();
+
+        public boolean isPure() {
+            return true;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Compiler
+    // ------------------------------------------------------------------------
+
+    private static final class Compiler {
+
+        private final Map<ITmfEventAspect<?>, Integer> fAspects = new HashMap<>();
+
+        private int getSlot(ITmfEventAspect<?> aspect) {
+            Integer slot = fAspects.get(aspect);
+            if (slot == null) {
+                slot = fAspects.size();
+                fAspects.put(aspect, slot);
+            }
+            return slot;
+        }
+
+        public Condition compile(ITmfFilterTreeNode node) {
+            Class<?> nodeClass = node.getClass();
+            if (nodeClass == TmfFilterRootNode.class) {
+                return new AndCondition(compileChildren(node), false);
+            } else if (nodeClass == TmfFilterAndNode.class) {
+                return new AndCondition(compileChildren(node), ((TmfFilterAndNode) node).isNot());
+            } else if (nodeClass == TmfFilterOrNode.class) {
+                return new OrCondition(compileChildren(node), ((TmfFilterOrNode) node).isNot());
+            } else if (nodeClass == TmfFilterNode.class || nodeClass == TmfFilterObjectNode.class) {
+                return new OrCondition(compileChildren(node), false);
+            } else if (nodeClass == TmfFilterTraceTypeNode.class) {
+                TmfFilterTraceTypeNode traceTypeNode = (TmfFilterTraceTypeNode) node;
+                return new TraceTypeCondition(traceTypeNode.getTraceClass(), traceTypeNode.getTraceTypeId(),
+                        new AndCondition(compileChildren(node), false));
+            } else if (nodeClass == TmfFilterEqualsNode.class) {
+                TmfFilterEqualsNode equalsNode = (TmfFilterEqualsNode) node;
+                ITmfEventAspect<?> aspect = equalsNode.getEventAspect();
+                if (aspect == null) {
+                    return new ConstantCondition(equalsNode.isNot());
+                }
+                return new EqualsCondition(aspect, getSlot(aspect), equalsNode.getValue(), equalsNode.isIgnoreCase(), equalsNode.isNot());
+            } else if (nodeClass == TmfFilterContainsNode.class) {
+                TmfFilterContainsNode containsNode = (TmfFilterContainsNode) node;
+                ITmfEventAspect<?> aspect = containsNode.getEventAspect();
+                if (aspect == null) {
+                    return new ConstantCondition(containsNode.isNot());
+                }
+                if (containsNode.getValue() == null) {
+                    return new NodeCondition(node);
+                }
+                return new ContainsCondition(aspect, getSlot(aspect), containsNode.getValue(), containsNode.isIgnoreCase(), containsNode.isNot());
+            } else if (nodeClass == TmfFilterMatchesNode.class) {
+                TmfFilterMatchesNode matchesNode = (TmfFilterMatchesNode) node;
+                ITmfEventAspect<?> aspect = matchesNode.getEventAspect();
+                Pattern pattern = null;
+                if (matchesNode.getRegex() != null) {
+                    try {
+                        pattern = Pattern.compile(matchesNode.getRegex(), Pattern.DOTALL);
+                    } catch (PatternSyntaxException e) {
+                        pattern = null;
+                    }
+                }
+                if (aspect == null || pattern == null) {
+                    return new ConstantCondition(matchesNode.isNot());
+                }
+                return new MatchesCondition(aspect, getSlot(aspect), pattern, matchesNode.isNot());
+            } else if (nodeClass == TmfFilterCompareNode.class) {
+                TmfFilterCompareNode compareNode = (TmfFilterCompareNode) node;
+                ITmfEventAspect<?> aspect = compareNode.getEventAspect();
+                if (aspect == null) {
+                    return new ConstantCondition(false);
+                }
+                return new CompareCondition(aspect, getSlot(aspect), compareNode);
+            }
+            return new NodeCondition(node);
+        }
+
+        private Condition[] compileChildren(ITmfFilterTreeNode node) {
+            ITmfFilterTreeNode[] children = node.getChildren();
+            Condition[] conditions = new Condition[children.length];
+            boolean pure = true;
+            for (int i = 0; i < children.length; i++) {
+                conditions[i] = compile(children[i]);
+                pure &= conditions[i].isPure();
+            }
+            if (pure) {
+                /* Stable sort, conditions of equal cost keep their order */
+                Arrays.sort(conditions, Comparator.comparingInt(Condition::getCost));
+            }
+            return conditions;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Conditions
+    // ------------------------------------------------------------------------
+
+    private static int sumCosts(Condition[] conditions) {
+        int cost = 0;
+        for (Condition condition : conditions) {
+            cost += condition.getCost();
+        }
+        return cost;
+    }
+
+    private static boolean allPure(Condition[] conditions) {
+        for (Condition condition : conditions) {
+            if (!condition.isPure()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class AndCondition extends Condition {
+        private final Condition[] fConditions;
+        private final boolean fNot;
+        private final int fCost;
+        private final boolean fPure;
+
+        public AndCondition(Condition[] conditions, boolean not) {
+            fConditions = conditions;
+            fNot = not;
+            fCost = sumCosts(conditions);
+            fPure = allPure(conditions);
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event, EventValues values) {
+            for (Condition condition : fConditions) {
+                if (!condition.matches(event, values)) {
+                    return fNot;
+                }
+            }
+            return !fNot;
+        }
+
+        @Override
+        public int getCost() {
+            return fCost;
+        }
+
+        @Override
+        public boolean isPure() {
+            return fPure;
+        }
+    }
+
+    private static final class OrCondition extends Condition {
+        private final Condition[] fConditions;
+        private final boolean fNot;
+        private final int fCost;
+        private final boolean fPure;
+
+        public OrCondition(Condition[] conditions, boolean not) {
+            fConditions = conditions;
+            fNot = not;
+            fCost = sumCosts(conditions);
+            fPure = allPure(conditions);
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event, EventValues values) {
+            for (Condition condition : fConditions) {
+                if (condition.matches(event, values)) {
+                    return !fNot;
+                }
+            }
+            /* Same as TmfFilterOrNode, no match is always false */
+            return false;
+        }
+
+        @Override
+        public int getCost() {
+            return fCost;
+        }
+
+        @Override
+        public boolean isPure() {
+            return fPure;
+        }
+    }
+
+    private static final class ConstantCondition extends Condition {
+        private final boolean fValue;
+
+        public ConstantCondition(boolean value) {
+            fValue = value;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event, EventValues values) {
+            return fValue;
+        }
+
+        @Override
+        public int getCost() {
+            return 0;
+        }
+    }
+
+    private static final class NodeCondition extends Condition {
+        private final ITmfFilterTreeNode fNode;
+
+        public NodeCondition(ITmfFilterTreeNode node) {
+            fNode = node;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event, EventValues values) {
+            return fNode.matches(event);
+        }
+
+        @Override
+        public int getCost() {
+            return COST_UNKNOWN;
+        }
+
+        @Override
+        public boolean isPure() {
+            return false;
+        }
+    }
+
+    private static final class TraceTypeCondition extends Condition {
+        private final Class<? extends ITmfTrace> fTraceClass;
+        private final String fTraceTypeId;
+        private final Condition fChildren;
+
+        public TraceTypeCondition(Class<? extends ITmfTrace> traceClass, String traceTypeId, Condition children) {
+            fTraceClass = traceClass;
+            fTraceTypeId = traceTypeId;
+            fChildren = children;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event, EventValues values) {
+            ITmfTrace trace = event.getTrace();
+            if (!trace.getClass().equals(fTraceClass)) {
+                return false;
+            }
+            if (fTraceTypeId != null && !fTraceTypeId.equals(trace.getTraceTypeId())) {
+                return false;
+            }
+            return fChildren.matches(event, values);
+        }
+
+        @Override
+        public int getCost() {
+            return COST_TRACE_TYPE + fChildren.getCost();
+        }
+
+        @Override
+        public boolean isPure() {
+            return fChildren.isPure();
+        }
+    }
+
+    private abstract static class AspectCondition extends Condition {
+        private final ITmfEventAspect<?> fAspect;
+        private final int fSlot;
+
+        protected AspectCondition(ITmfEventAspect<?> aspect, int slot) {
+            fAspect = aspect;
+            fSlot = slot;
+        }
+
+        protected final Object getValue(ITmfEvent event, EventValues values) {
+            return values.getValue(event, fAspect, fSlot);
+        }
+
+        protected final String getString(Object value, EventValues values) {
+            return values.getString(value, fSlot);
+        }
+    }
+
+    private static final class EqualsCondition extends AspectCondition {
+        private final String fValue;
+        private final boolean fIgnoreCase;
+        private final boolean fNot;
+
+        public EqualsCondition(ITmfEventAspect<?> aspect, int slot, String value, boolean ignoreCase, boolean not) {
+            super(aspect, slot);
+            fValue = value;
+            fIgnoreCase = ignoreCase;
+            fNot = not;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event, EventValues values) {
+            Object value = getValue(event, values);
+            if (value == null) {
+                return fNot;
+            }
+            String valueString = getString(value, values);
+            if (fIgnoreCase) {
+                return valueString.equalsIgnoreCase(fValue) ^ fNot;
+            }
+            return valueString.equals(fValue) ^ fNot;
+        }
+
+        @Override
+        public int getCost() {
+            return COST_EQUALS;
+        }
+    }
+
+    private static final class ContainsCondition extends AspectCondition {
+        private final String fValue;
+        private final boolean fIgnoreCase;
+        private final boolean fNot;
+
+        public ContainsCondition(ITmfEventAspect<?> aspect, int slot, String value, boolean ignoreCase, boolean not) {
+            super(aspect, slot);
+            fValue = (ignoreCase ? value.toUpperCase() : value);
+            fIgnoreCase = ignoreCase;
+            fNot = not;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event, EventValues values) {
+            Object value = getValue(event, values);
+            if (value == null) {
+                return fNot;
+            }
+            String valueString = getString(value, values);
+            if (fIgnoreCase) {
+                return valueString.toUpperCase().contains(fValue) ^ fNot;
+            }
+            return valueString.contains(fValue) ^ fNot;
+        }
+
+        @Override
+        public int getCost() {
+            return COST_CONTAINS;
+        }
+    }
+
+    private static final class MatchesCondition extends AspectCondition {
+        private final Pattern fPattern;
+        private final boolean fNot;
+
+        public MatchesCondition(ITmfEventAspect<?> aspect, int slot, Pattern pattern, boolean not) {
+            super(aspect, slot);
+            fPattern = pattern;
+            fNot = not;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event, EventValues values) {
+            Object value = getValue(event, values);
+            if (value == null) {
+                return fNot;
+            }
+            return fPattern.matcher(getString(value, values)).find() ^ fNot;
+        }
+
+        @Override
+        public int getCost() {
+            return COST_MATCHES;
+        }
+    }
+
+    /**
+     * Same comparison as {@link TmfFilterCompareNode}, with the operand parsed
+     * once and the integer comparisons done on primitive longs.
+     */
+    private static final class CompareCondition extends AspectCondition {
+        private final TmfFilterCompareNode.Type fType;
+        private final int fResult;
+        private final boolean fNot;
+        private final String fValue;
+        private final Number fValueNumber;
+        private final boolean fValueIsDouble;
+        private final long fValueLong;
+        private final double fValueDouble;
+        private final ITmfTimestamp fValueTimestamp;
+        private final TmfTimestampFormat fTimestampFormat = new TmfTimestampFormat(TIMESTAMP_PATTERN);
+
+        public CompareCondition(ITmfEventAspect<?> aspect, int slot, TmfFilterCompareNode node) {
+            super(aspect, slot);
+            fType = node.getType();
+            fResult = node.getResult();
+            fNot = node.isNot();
+            fValue = node.getValue();
+            fValueNumber = (fValue != null && fType == TmfFilterCompareNode.Type.NUM ? toNumber(fValue) : null);
+            fValueIsDouble = fValueNumber instanceof Double;
+            fValueLong = (fValueNumber == null ? 0 : fValueNumber.longValue());
+            fValueDouble = (fValueNumber == null ? 0 : fValueNumber.doubleValue());
+            fValueTimestamp = (fValue != null && fType == TmfFilterCompareNode.Type.TIMESTAMP ? toTimestamp(fValue) : null);
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event, EventValues values) {
+            Object value = getValue(event, values);
+            if (value == null) {
+                return false;
+            }
+            switch (fType) {
+            case NUM: {
+                if (fValueNumber == null) {
+                    return false;
+                }
+                /* Fast path for the common integer field values */
+                if (!fValueIsDouble && (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+                    return (Long.compare(((Number) value).longValue(), fValueLong) == fResult) ^ fNot;
+                }
+                Number valueNumber = (value instanceof Number ? (Number) value : toNumber(getString(value, values)));
+                if (valueNumber == null) {
+                    return false;
+                }
+                if (fValueIsDouble || valueNumber instanceof Double || valueNumber instanceof Float) {
+                    return (Double.compare(valueNumber.doubleValue(), fValueDouble) == fResult) ^ fNot;
+                }
+                return (Long.compare(valueNumber.longValue(), fValueLong) == fResult) ^ fNot;
+            }
+            case ALPHA: {
+                int comp = (int) Math.signum(getString(value, values).compareTo(fValue));
+                return (comp == fResult) ^ fNot;
+            }
+            case TIMESTAMP: {
+                if (fValueTimestamp == null) {
+                    return false;
+                }
+                ITmfTimestamp valueTimestamp = (value instanceof ITmfTimestamp ? (ITmfTimestamp) value : toTimestamp(getString(value, values)));
+                if (valueTimestamp == null) {
+                    return false;
+                }
+                int comp = (int) Math.signum(valueTimestamp.compareTo(fValueTimestamp));
+                return (comp == fResult) ^ fNot;
+            }
+            default:
+                return false;
+            }
+        }
+
+        @Override
+        public int getCost() {
+            return (fType == TmfFilterCompareNode.Type.NUM ? COST_EQUALS : COST_COMPARE);
+        }
+
+        private static Number toNumber(String value) {
+            try {
+                return Long.decode(value);
+            } catch (NumberFormatException e) {
+            }
+            try {
+                return NumberFormat.getInstance().parse(value);
+            } catch (ParseException e) {
+            }
+            return null;
+        }
+
+        private ITmfTimestamp toTimestamp(String value) {
+            try {
+                return TmfTimestamp.fromNanos(fTimestampFormat.parseValue(value));
+            } catch (ParseException e) {
+            }
+            return null;
+        }
+    }
+}
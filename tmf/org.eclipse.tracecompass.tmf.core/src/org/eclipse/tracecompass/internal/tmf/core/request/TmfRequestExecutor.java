@@ -16,6 +16,9 @@ package org.eclipse.tracecompass.internal.tmf.core.request;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -36,6 +39,14 @@ import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
  * Example: if we have one foreground and one background request, the foreground
  * request will be executed four times more often than the background request.
  *
+ * By default, only one request is executed at a time. The maximum number of
+ * requests executed at the same time, each with its own context in the trace,
+ * is set with the {@value #MAX_ACTIVE_PROPERTY} system property. One of them
+ * is then kept for foreground requests, so that they do not wait for the next
+ * time slot while background requests are being executed. At each time slot,
+ * if a waiting request has no free slot, the active requests are suspended
+ * and put back at the end of their queue, so no request is starved.
+ *
  * @author Francois Chouinard
  * @author Simon Delisle
  * @version 1.1
@@ -46,6 +57,9 @@ public class TmfRequestExecutor implements Executor {
     // Constants
     // ------------------------------------------------------------------------
 
+    /** System property of the maximum number of requests executed at the same time */
+    public static final String MAX_ACTIVE_PROPERTY = "org.eclipse.tracecompass.tmf.core.request.threads"; //$NON-NLS-1$
+
     private static final long REQUEST_TIME = 100;
     private static final int FOREGROUND_SLOT = 4;
 
@@ -57,12 +71,15 @@ public class TmfRequestExecutor implements Executor {
     private final ExecutorService fExecutor = Executors.newCachedThreadPool();
     private final String fExecutorName;
 
+    // The maximum number of requests executed at the same time
+    private final int fMaxActive;
+
     // The request queues
-    private final Queue<TmfEventThread> fForegroundTasks = new ArrayBlockingQueue<>(10);
-    private final Queue<TmfEventThread> fBackgroundTasks = new ArrayBlockingQueue<>(10);
+    private final Queue<RequestTask> fForegroundTasks = new ArrayBlockingQueue<>(10);
+    private final Queue<RequestTask> fBackgroundTasks = new ArrayBlockingQueue<>(10);
 
     // The tasks
-    private TmfEventThread fActiveTask;
+    private final List<RequestTask> fActiveTasks = new ArrayList<>();
 
     private Timer fTimer;
     private TimerTask fTimerTask;
@@ -74,9 +91,22 @@ public class TmfRequestExecutor implements Executor {
     // ------------------------------------------------------------------------
 
     /**
-     * Default constructor
+     * Default constructor, with the maximum number of requests executed at the
+     * same time of the {@value #MAX_ACTIVE_PROPERTY} system property, or 1
      */
     public TmfRequestExecutor() {
+        this(Integer.getInteger(MAX_ACTIVE_PROPERTY, 1));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxActive
+     *            The maximum number of requests executed at the same time. It
+     *            is at least 1.
+     */
+    public TmfRequestExecutor(int maxActive) {
+        fMaxActive = Math.max(1, maxActive);
         // We know the canonical name is not null because we use ExecutorService only
         String canonicalName = checkNotNull(fExecutor.getClass().getCanonicalName());
         fExecutorName = canonicalName.substring(canonicalName.lastIndexOf('.') + 1);
@@ -129,18 +159,9 @@ public class TmfRequestExecutor implements Executor {
             return;
         }
 
-        // Wrap the thread in a MyThread
+        // Wrap the thread in a RequestTask
         TmfEventThread thread = (TmfEventThread) command;
-        TmfEventThread wrapper = new TmfEventThread(thread) {
-            @Override
-            public void run() {
-                try {
-                    command.run();
-                } finally {
-                    scheduleNext();
-                }
-            }
-        };
+        RequestTask wrapper = new RequestTask(thread);
 
         // Add the thread to the appropriate queue
         ExecutionType priority = thread.getExecType();
@@ -171,42 +192,89 @@ public class TmfRequestExecutor implements Executor {
     }
 
     /**
-     * Executes the next pending request, if applicable.
+     * Task executing a request, which records its latency: the time it waited
+     * before being first executed, the time it was executed and the number of
+     * times it was suspended for other requests.
+     */
+    private class RequestTask extends TmfEventThread {
+
+        private final long fSubmitTime = System.nanoTime();
+        private long fStartTime = -1;
+        private long fResumeTime;
+        private long fRunTime = 0;
+        private int fNbSuspended = 0;
+
+        RequestTask(TmfEventThread thread) {
+            super(thread);
+        }
+
+        @Override
+        public void run() {
+            try {
+                getThread().run();
+            } finally {
+                taskCompleted(this);
+            }
+        }
+
+        void started() {
+            long now = System.nanoTime();
+            if (fStartTime < 0) {
+                fStartTime = now;
+            }
+            fResumeTime = now;
+        }
+
+        void suspended() {
+            fRunTime += System.nanoTime() - fResumeTime;
+            fNbSuspended++;
+            getThread().suspend();
+        }
+
+        void completed() {
+            if (fStartTime < 0 || !TmfCoreTracer.isRequestTraced()) {
+                return;
+            }
+            long now = System.nanoTime();
+            fRunTime += now - fResumeTime;
+            TmfCoreTracer.traceRequest(getRequest().getRequestId(), "latency: " + (fStartTime - fSubmitTime) / 1000000 //$NON-NLS-1$
+                    + " ms, executed: " + fRunTime / 1000000 + " ms, total: " + (now - fSubmitTime) / 1000000 //$NON-NLS-1$ //$NON-NLS-2$
+                    + " ms, suspended: " + fNbSuspended); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Executes the next pending requests, if applicable. The active requests
+     * are suspended if a waiting request has no free slot.
      */
     protected synchronized void scheduleNext() {
         if (!isShutdown()) {
-            if (fActiveTask == null) {
-                schedule();
-            } else if (fActiveTask.getExecType() == ExecutionType.FOREGROUND) {
-                if (fActiveTask.getThread().isCompleted()) {
-                    fActiveTask = null;
-                    schedule();
-                } else {
-                    if (hasTasks()) {
-                        fActiveTask.getThread().suspend();
-                        if (!fForegroundTasks.offer(fActiveTask)) {
-                            fActiveTask.cancel();
-                            fActiveTask = null;
-                        }
-                        schedule();
-                    }
-                }
-
-            } else if (fActiveTask.getExecType() == ExecutionType.BACKGROUND) {
-                if (fActiveTask.getThread().isCompleted()) {
-                    fActiveTask = null;
-                    schedule();
-                } else {
-                    if (hasTasks()) {
-                        fActiveTask.getThread().suspend();
-                        if (!fBackgroundTasks.offer(fActiveTask)) {
-                            fActiveTask.cancel();
-                            fActiveTask = null;
-                        }
-                        schedule();
+            removeCompletedTasks();
+            boolean foregroundWaiting = !fForegroundTasks.isEmpty() && fActiveTasks.size() >= fMaxActive;
+            boolean backgroundWaiting = !fBackgroundTasks.isEmpty() && !hasBackgroundSlot();
+            if (foregroundWaiting || backgroundWaiting) {
+                for (RequestTask task : fActiveTasks) {
+                    task.suspended();
+                    Queue<RequestTask> queue = (task.getExecType() == ExecutionType.FOREGROUND) ? fForegroundTasks : fBackgroundTasks;
+                    if (!queue.offer(task)) {
+                        task.cancel();
                     }
                 }
+                fActiveTasks.clear();
             }
+            schedule();
+        }
+    }
+
+    /**
+     * Executes the next pending requests when a request is completed, without
+     * suspending the other active requests.
+     */
+    private synchronized void taskCompleted(RequestTask task) {
+        task.completed();
+        if (!isShutdown()) {
+            removeCompletedTasks();
+            schedule();
         }
     }
 
@@ -222,15 +290,17 @@ public class TmfRequestExecutor implements Executor {
             fTimer.cancel();
         }
 
-        if (fActiveTask != null) {
-            fActiveTask.cancel();
+        for (RequestTask task : fActiveTasks) {
+            task.cancel();
         }
+        fActiveTasks.clear();
 
-        while ((fActiveTask = fForegroundTasks.poll()) != null) {
-            fActiveTask.cancel();
+        RequestTask task;
+        while ((task = fForegroundTasks.poll()) != null) {
+            task.cancel();
         }
-        while ((fActiveTask = fBackgroundTasks.poll()) != null) {
-            fActiveTask.cancel();
+        while ((task = fBackgroundTasks.poll()) != null) {
+            task.cancel();
         }
 
         fExecutor.shutdown();
@@ -243,15 +313,31 @@ public class TmfRequestExecutor implements Executor {
     // Helper methods
     // ------------------------------------------------------------------------
 
+    /**
+     * Remove the completed requests from the active requests
+     */
+    private void removeCompletedTasks() {
+        Iterator<RequestTask> iter = fActiveTasks.iterator();
+        while (iter.hasNext()) {
+            if (iter.next().getThread().isCompleted()) {
+                iter.remove();
+            }
+        }
+    }
+
     /**
      * Determine which type of request (foreground or background) we schedule
-     * next
+     * next, until there is no free slot
      */
     private void schedule() {
-        if (!fForegroundTasks.isEmpty()) {
-            scheduleNextForeground();
-        } else {
-            scheduleNextBackground();
+        int size = fActiveTasks.size();
+        while (size < fMaxActive && hasTasks()) {
+            if (!fForegroundTasks.isEmpty()) {
+                scheduleNextForeground();
+            } else if (!scheduleNextBackground()) {
+                break;
+            }
+            size = fActiveTasks.size();
         }
     }
 
@@ -259,35 +345,58 @@ public class TmfRequestExecutor implements Executor {
      * Schedule the next foreground request
      */
     private void scheduleNextForeground() {
-        if (fForegroundCycle < FOREGROUND_SLOT || fBackgroundTasks.isEmpty()) {
+        if (fForegroundCycle < FOREGROUND_SLOT || fBackgroundTasks.isEmpty() || !scheduleNextBackground()) {
             ++fForegroundCycle;
-            fActiveTask = fForegroundTasks.poll();
-            executefActiveTask();
-        } else {
-            fActiveTask = null;
-            scheduleNextBackground();
+            executeTask(fForegroundTasks.poll());
         }
     }
 
     /**
-     * Schedule the next background request
+     * Schedule the next background request, if there is a slot for it
+     *
+     * @return true if a background request was scheduled
      */
-    private void scheduleNextBackground() {
+    private boolean scheduleNextBackground() {
+        if (fBackgroundTasks.isEmpty() || !hasBackgroundSlot()) {
+            return false;
+        }
         fForegroundCycle = 0;
-        if (!fBackgroundTasks.isEmpty()) {
-            fActiveTask = fBackgroundTasks.poll();
-            executefActiveTask();
+        executeTask(fBackgroundTasks.poll());
+        return true;
+    }
+
+    /**
+     * Check if a background request can be executed now. When more than one
+     * request can be executed at the same time, a slot is kept for the
+     * foreground requests.
+     */
+    private boolean hasBackgroundSlot() {
+        if (fActiveTasks.size() >= fMaxActive) {
+            return false;
+        }
+        return fMaxActive == 1 || countActive(ExecutionType.BACKGROUND) < fMaxActive - 1;
+    }
+
+    private int countActive(ExecutionType type) {
+        int count = 0;
+        for (RequestTask task : fActiveTasks) {
+            if (task.getExecType() == type) {
+                count++;
+            }
         }
+        return count;
     }
 
     /**
-     * Execute or resume the active task
+     * Execute or resume a task
      */
-    private void executefActiveTask() {
-        if (fActiveTask.getThread().isPaused()) {
-            fActiveTask.getThread().resume();
+    private void executeTask(RequestTask task) {
+        fActiveTasks.add(task);
+        task.started();
+        if (task.getThread().isPaused()) {
+            task.getThread().resume();
         } else {
-            fExecutor.execute(fActiveTask);
+            fExecutor.execute(task);
         }
     }
 
@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.statesystem.partitioned;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.statesystem.AbstractTmfStateProvider;
+import org.eclipse.tracecompass.tmf.core.statesystem.ITmfStateProvider;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.experiment.TmfExperiment;
+
+/**
+ * Builds a state system by splitting the trace in time partitions that are
+ * processed concurrently, each by its own instance of the state provider.
+ * <p>
+ * Each partition starts with the state obtained by processing the events of a
+ * warm-up period before it, then records the state changes of its own events.
+ * The partitions are then checked and replayed in order in the real state
+ * system: a partition is only replayed if what its state provider read from
+ * its initial state is the same in the real state system at the start of the
+ * partition. Otherwise, it is built again from the real state, sequentially.
+ * The resulting state system is then the same as the one built sequentially,
+ * provided that:
+ * <ul>
+ * <li>the state provider keeps all of its state in the state system, so a new
+ * instance given the same state makes the same state changes,</li>
+ * <li>it does not depend on the existence of attributes that are null and have
+ * no sub-attributes, which may only exist in some of the partitions,</li>
+ * <li>it only uses the basic state value types.</li>
+ * </ul>
+ * The speedup depends on how much of the state needed by a partition is
+ * rebuilt by its warm-up period.
+ */
+public class PartitionedStateSystemBuilder {
+
+    /* The warm-up period, in number of partitions */
+    private static final double WARMUP_RATIO = 0.25;
+
+    private final AbstractTmfStateProvider fProvider;
+    private final ITmfStateSystemBuilder fStateSystem;
+    private final int fNbPartitions;
+
+    private volatile boolean fCancelled = false;
+    private volatile boolean fStopped = false;
+    private int fNbRebuiltPartitions = 0;
+
+    /**
+     * Constructor
+     *
+     * @param provider
+     *            The state provider, from which a new instance is created for
+     *            each partition. It is not used itself.
+     * @param stateSystem
+     *            The state system to build, it must be empty
+     * @param nbPartitions
+     *            The number of partitions, which is also the number of threads
+     *            used
+     */
+    public PartitionedStateSystemBuilder(AbstractTmfStateProvider provider, ITmfStateSystemBuilder stateSystem, int nbPartitions) {
+        fProvider = provider;
+        fStateSystem = stateSystem;
+        fNbPartitions = nbPartitions;
+    }
+
+    /**
+     * Check if a state system can be built in partitions with a given state
+     * provider. The trace must also be complete.
+     *
+     * @param provider
+     *            The state provider
+     * @return True if the state system can be built in partitions
+     */
+    public static boolean canBuild(ITmfStateProvider provider) {
+        return provider instanceof AbstractTmfStateProvider && !(provider.getTrace() instanceof TmfExperiment);
+    }
+
+    /**
+     * Cancel the build
+     */
+    public void cancel() {
+        fCancelled = true;
+    }
+
+    /**
+     * Get the number of partitions that had to be built again from the state
+     * of the previous partition
+     *
+     * @return The number of partitions built again
+     */
+    public int getNbRebuiltPartitions() {
+        return fNbRebuiltPartitions;
+    }
+
+    /**
+     * Build the state system and close its history. This blocks until the
+     * state system is built.
+     *
+     * @return True if the state system was built, false if the build was
+     *         cancelled. The history is not closed if it was cancelled.
+     * @throws IOException
+     *             If the state changes of a partition could not be recorded
+     * @throws InterruptedException
+     *             If the thread was interrupted while waiting for the
+     *             partitions
+     */
+    public boolean build() throws IOException, InterruptedException {
+        ITmfTrace trace = fProvider.getTrace();
+        long start = trace.getStartTime().toNanos();
+        long end = trace.getEndTime().toNanos();
+        int nbPartitions = (int) Math.min(fNbPartitions, Math.max(1, end - start));
+        long[] bounds = new long[nbPartitions + 1];
+        for (int i = 0; i < nbPartitions; i++) {
+            bounds[i] = start + (long) ((end - start) * ((double) i / nbPartitions));
+        }
+        /* The last partition takes all the remaining events */
+        bounds[nbPartitions] = Long.MAX_VALUE;
+        long warmup = (long) ((end - start) * WARMUP_RATIO / nbPartitions);
+
+        ExecutorService executor = Executors.newFixedThreadPool(nbPartitions);
+        List<Future<Partition>> futures = new ArrayList<>();
+        for (int i = 0; i < nbPartitions; i++) {
+            final int index = i;
+            long warmupStart = (i == 0 ? start : Math.max(start, bounds[i] - warmup));
+            futures.add(executor.submit(() -> buildPartition(index, warmupStart, bounds[index], bounds[index + 1], null)));
+        }
+        executor.shutdown();
+
+        int next = 0;
+        try {
+            long lastTime = start;
+            for (; next < nbPartitions; next++) {
+                @Nullable Partition partition = getPartition(futures.get(next));
+                try {
+                    if (!fCancelled && !partition.fStateSystem.matches(fStateSystem)) {
+                        /* Build it again, now that its initial state is known */
+                        Partition mismatched = partition;
+                        partition = null;
+                        mismatched.discard();
+                        partition = buildPartition(next, bounds[next], bounds[next], bounds[next + 1], fStateSystem);
+                        fNbRebuiltPartitions++;
+                    }
+                    if (fCancelled) {
+                        return false;
+                    }
+                    partition.fStateSystem.replay(partition.fFile, fStateSystem);
+                    lastTime = Math.max(lastTime, partition.fLastTime);
+                } finally {
+                    if (partition != null) {
+                        partition.discard();
+                    }
+                }
+            }
+            if (fCancelled) {
+                return false;
+            }
+            fStateSystem.closeHistory(lastTime);
+            return true;
+        } finally {
+            /* The partitions still running discard themselves */
+            fStopped = true;
+            for (int i = next + 1; i < nbPartitions; i++) {
+                Future<Partition> future = futures.get(i);
+                if (!future.cancel(false) && future.isDone()) {
+                    try {
+                        future.get().discard();
+                    } catch (ExecutionException e) {
+                        /* The partition is not used, its error is ignored */
+                    }
+                }
+            }
+        }
+    }
+
+    private static Partition getPartition(Future<Partition> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Process the events of a partition with a new state provider
+     *
+     * @param index
+     *            The index of the partition
+     * @param warmupStart
+     *            The time of the first event to process
+     * @param start
+     *            The start time of the partition, from which the state changes
+     *            are recorded
+     * @param end
+     *            The end time of the partition, exclusive
+     * @param initialState
+     *            The state system whose ongoing state is the initial state of
+     *            the partition, or null to start from an empty state
+     * @return The partition
+     */
+    private Partition buildPartition(int index, long warmupStart, long start, long end, @Nullable ITmfStateSystem initialState) throws IOException {
+        ITmfTrace trace = fProvider.getTrace();
+        ITmfStateProvider newProvider = fProvider.getNewInstance();
+        if (!(newProvider instanceof AbstractTmfStateProvider)) {
+            throw new IllegalStateException("Unexpected state provider: " + newProvider.getClass()); //$NON-NLS-1$
+        }
+        AbstractTmfStateProvider provider = (AbstractTmfStateProvider) newProvider;
+        RecordingStateSystem ss = new RecordingStateSystem(fStateSystem.getSSID() + '.' + index);
+        if (initialState != null) {
+            ss.copyOngoingState(initialState, start);
+        }
+        File file = File.createTempFile(fStateSystem.getSSID() + ".partition" + index, null); //$NON-NLS-1$
+        file.deleteOnExit();
+        Partition partition = new Partition(ss, file);
+
+        provider.assignTargetStateSystem(ss);
+        boolean disposed = false;
+        ITmfContext context = trace.seekEvent(TmfTimestamp.fromNanos(warmupStart));
+        try {
+            boolean recording = false;
+            ITmfEvent event = trace.getNext(context);
+            while (event != null && !fCancelled && !fStopped) {
+                long time = event.getTimestamp().toNanos();
+                if (time >= end) {
+                    break;
+                }
+                if (!recording && time >= start) {
+                    provider.waitForEmptyQueue();
+                    ss.startRecording(file, start);
+                    recording = true;
+                }
+                provider.processEvent(event);
+                if (recording) {
+                    partition.fLastTime = time;
+                }
+                event = trace.getNext(context);
+            }
+            if (!recording) {
+                provider.waitForEmptyQueue();
+                ss.startRecording(file, start);
+            }
+            if (end == Long.MAX_VALUE) {
+                /* The changes made when the provider is done are kept */
+                provider.dispose();
+                disposed = true;
+                ss.stopRecording();
+            } else {
+                provider.waitForEmptyQueue();
+                ss.stopRecording();
+            }
+        } catch (IOException | RuntimeException e) {
+            ss.stopRecording();
+            partition.discard();
+            throw e;
+        } finally {
+            context.dispose();
+            if (!disposed) {
+                provider.dispose();
+            }
+        }
+        if (fCancelled || fStopped) {
+            partition.discard();
+        }
+        return partition;
+    }
+
+    /**
+     * The state system of a partition and the file of its state changes
+     */
+    private static final class Partition {
+        private final RecordingStateSystem fStateSystem;
+        private final File fFile;
+        private long fLastTime = Long.MIN_VALUE;
+
+        public Partition(RecordingStateSystem stateSystem, File file) {
+            fStateSystem = stateSystem;
+            fFile = file;
+        }
+
+        public void discard() {
+            fStateSystem.dispose();
+            fFile.delete();
+        }
+    }
+}
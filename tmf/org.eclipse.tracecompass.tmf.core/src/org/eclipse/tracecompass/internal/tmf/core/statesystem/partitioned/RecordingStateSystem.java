@@ -0,0 +1,558 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.statesystem.partitioned;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.statesystem.core.StateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.interval.TmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+
+/**
+ * State system used to build one time partition of a state system. It only
+ * keeps the ongoing state, and once recording is started, it writes to a file
+ * the state changes requested by its state provider, so they can later be
+ * replayed in the real state system.
+ * <p>
+ * While recording, it also keeps track of everything the state provider read
+ * from the state that existed when the recording started: attribute values
+ * and start times, lists of sub-attributes and missing attributes. The
+ * partition is only valid if this state is the same as the state of the real
+ * state system at that time, see {@link #matches}.
+ * <p>
+ * Only the operations called by the state provider are recorded, not the ones
+ * they are made of internally (a push is replayed as a push).
+ */
+@SuppressWarnings("restriction")
+final class RecordingStateSystem extends StateSystem {
+
+    private static final byte MODIFY = 0;
+    private static final byte PUSH = 1;
+    private static final byte POP = 2;
+    private static final byte REMOVE = 3;
+    private static final byte UPDATE_ONGOING = 4;
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte INT_VALUE = 1;
+    private static final byte LONG_VALUE = 2;
+    private static final byte DOUBLE_VALUE = 3;
+    private static final byte STRING_VALUE = 4;
+
+    /* Depth of the calls, only the calls of the provider (depth 0) count */
+    private int fDepth = 0;
+
+    private @Nullable DataOutputStream fOutput = null;
+    private long fRecordingStart = Long.MIN_VALUE;
+    private int fNbInitialAttributes = 0;
+
+    /* The attributes modified since the recording started */
+    private final BitSet fWritten = new BitSet();
+    /* What was read from the initial state */
+    private final Map<Integer, ITmfStateValue> fValueReads = new HashMap<>();
+    private final Map<Integer, Long> fStartTimeReads = new HashMap<>();
+    private final Map<Integer, Set<String>> fChildrenReads = new HashMap<>();
+    private final Map<Integer, Set<String>> fDescendantsReads = new HashMap<>();
+    private final Set<List<String>> fMissingPaths = new HashSet<>();
+    private boolean fUnverifiable = false;
+
+    /**
+     * Constructor
+     *
+     * @param ssid
+     *            The ID of the state system
+     */
+    public RecordingStateSystem(String ssid) {
+        super(StateHistoryBackendFactory.createNullBackend(ssid));
+    }
+
+    /**
+     * Copy the attribute tree and the ongoing state of another state system,
+     * so this state system can continue from where the other one is.
+     *
+     * @param source
+     *            The state system to copy
+     * @param time
+     *            The current time of the source state system
+     */
+    public void copyOngoingState(ITmfStateSystem source, long time) {
+        int nbAttributes = source.getNbAttributes();
+        List<@NonNull ITmfStateInterval> intervals = new ArrayList<>(nbAttributes);
+        for (int quark = 0; quark < nbAttributes; quark++) {
+            /* Parents always have smaller quarks, so the quarks are the same */
+            getQuarkAbsoluteAndAdd(source.getFullAttributePathArray(quark));
+            long start = source.getOngoingStartTime(quark);
+            intervals.add(new TmfStateInterval(start, Math.max(start, time), quark, source.queryOngoingState(quark)));
+        }
+        replaceOngoingState(intervals);
+    }
+
+    /**
+     * Start recording the state changes. The state provider must not be
+     * processing events while this is called.
+     *
+     * @param file
+     *            The file to write the state changes to
+     * @param start
+     *            The time of the first state change to record
+     * @throws IOException
+     *             If the file cannot be created
+     */
+    public void startRecording(File file, long start) throws IOException {
+        fOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        fRecordingStart = start;
+        fNbInitialAttributes = getNbAttributes();
+    }
+
+    /**
+     * Stop recording the state changes. The state provider must not be
+     * processing events while this is called.
+     *
+     * @throws IOException
+     *             If the file cannot be written
+     */
+    public void stopRecording() throws IOException {
+        DataOutputStream output = fOutput;
+        fOutput = null;
+        if (output != null) {
+            output.close();
+        }
+    }
+
+    private boolean isRecording() {
+        return fOutput != null && fDepth == 0;
+    }
+
+    // ------------------------------------------------------------------------
+    // Verification
+    // ------------------------------------------------------------------------
+
+    /**
+     * Check if what the state provider read from the initial state of this
+     * state system is the same in another state system. Attributes whose value
+     * is null are considered the same as missing attributes, as long as they
+     * have no sub-attributes.
+     *
+     * @param target
+     *            The state system to compare to, at the time the recording
+     *            started
+     * @return True if the state provider would have made the same state
+     *         changes in the other state system
+     */
+    public boolean matches(ITmfStateSystem target) {
+        if (fUnverifiable) {
+            return false;
+        }
+        for (Entry<Integer, ITmfStateValue> entry : fValueReads.entrySet()) {
+            int quark = getTargetQuark(target, entry.getKey());
+            ITmfStateValue value = (quark == INVALID_ATTRIBUTE ? TmfStateValue.nullValue() : target.queryOngoingState(quark));
+            if (!value.equals(entry.getValue())) {
+                return false;
+            }
+        }
+        for (Entry<Integer, Long> entry : fStartTimeReads.entrySet()) {
+            int quark = getTargetQuark(target, entry.getKey());
+            if (quark == INVALID_ATTRIBUTE || target.getOngoingStartTime(quark) != entry.getValue()) {
+                return false;
+            }
+        }
+        if (!childrenMatch(target, fChildrenReads, false) || !childrenMatch(target, fDescendantsReads, true)) {
+            return false;
+        }
+        for (List<String> path : fMissingPaths) {
+            int quark = target.optQuarkAbsolute(path.toArray(new String[path.size()]));
+            if (quark != INVALID_ATTRIBUTE && !isEmpty(target, quark)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean childrenMatch(ITmfStateSystem target, Map<Integer, Set<String>> reads, boolean recursive) {
+        for (Entry<Integer, Set<String>> entry : reads.entrySet()) {
+            int parent = getTargetQuark(target, entry.getKey());
+            if (parent == INVALID_ATTRIBUTE) {
+                continue;
+            }
+            for (int quark : target.getSubAttributes(parent, recursive)) {
+                if (!entry.getValue().contains(target.getFullAttributePath(quark)) && !isEmpty(target, quark)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEmpty(ITmfStateSystem target, int quark) {
+        return target.queryOngoingState(quark).isNull() && target.getSubAttributes(quark, false).isEmpty();
+    }
+
+    private int getTargetQuark(ITmfStateSystem target, int quark) {
+        return target.optQuarkAbsolute(getFullAttributePathArray(quark));
+    }
+
+    // ------------------------------------------------------------------------
+    // Replay
+    // ------------------------------------------------------------------------
+
+    /**
+     * Apply the recorded state changes to another state system, and add the
+     * attributes created while recording
+     *
+     * @param file
+     *            The file the state changes were recorded to
+     * @param target
+     *            The state system to apply the changes to
+     * @throws IOException
+     *             If the file cannot be read
+     */
+    public void replay(File file, ITmfStateSystemBuilder target) throws IOException {
+        int[] quarks = new int[getNbAttributes()];
+        Arrays.fill(quarks, INVALID_ATTRIBUTE);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));) {
+            while (true) {
+                byte op;
+                try {
+                    op = input.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                int quark = input.readInt();
+                int targetQuark = quarks[quark];
+                if (targetQuark == INVALID_ATTRIBUTE) {
+                    targetQuark = target.getQuarkAbsoluteAndAdd(getFullAttributePathArray(quark));
+                    quarks[quark] = targetQuark;
+                }
+                switch (op) {
+                case MODIFY:
+                    target.modifyAttribute(input.readLong(), readValue(input), targetQuark);
+                    break;
+                case PUSH:
+                    target.pushAttribute(input.readLong(), readValue(input), targetQuark);
+                    break;
+                case POP:
+                    target.popAttribute(input.readLong(), targetQuark);
+                    break;
+                case REMOVE:
+                    target.removeAttribute(input.readLong(), targetQuark);
+                    break;
+                case UPDATE_ONGOING:
+                    target.updateOngoingState(readValue(input), targetQuark);
+                    break;
+                default:
+                    throw new IOException("Unknown state change: " + op); //$NON-NLS-1$
+                }
+            }
+        }
+        for (int quark = fNbInitialAttributes; quark < quarks.length; quark++) {
+            if (quarks[quark] == INVALID_ATTRIBUTE) {
+                target.getQuarkAbsoluteAndAdd(getFullAttributePathArray(quark));
+            }
+        }
+    }
+
+    private void record(byte op, long t, int quark, @Nullable ITmfStateValue value) {
+        DataOutputStream output = fOutput;
+        if (output == null) {
+            return;
+        }
+        try {
+            output.writeByte(op);
+            output.writeInt(quark);
+            if (op != UPDATE_ONGOING) {
+                output.writeLong(t);
+            }
+            if (value != null) {
+                writeValue(output, value);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream output, ITmfStateValue value) throws IOException {
+        switch (value.getType()) {
+        case NULL:
+            output.writeByte(NULL_VALUE);
+            break;
+        case INTEGER:
+            output.writeByte(INT_VALUE);
+            output.writeInt(value.unboxInt());
+            break;
+        case LONG:
+            output.writeByte(LONG_VALUE);
+            output.writeLong(value.unboxLong());
+            break;
+        case DOUBLE:
+            output.writeByte(DOUBLE_VALUE);
+            output.writeDouble(value.unboxDouble());
+            break;
+        case STRING:
+            output.writeByte(STRING_VALUE);
+            output.writeUTF(value.unboxStr());
+            break;
+        case CUSTOM:
+        default:
+            throw new IllegalStateException("Unsupported state value type: " + value.getType()); //$NON-NLS-1$
+        }
+    }
+
+    private static ITmfStateValue readValue(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+        switch (type) {
+        case NULL_VALUE:
+            return TmfStateValue.nullValue();
+        case INT_VALUE:
+            return TmfStateValue.newValueInt(input.readInt());
+        case LONG_VALUE:
+            return TmfStateValue.newValueLong(input.readLong());
+        case DOUBLE_VALUE:
+            return TmfStateValue.newValueDouble(input.readDouble());
+        case STRING_VALUE:
+            return TmfStateValue.newValueString(input.readUTF());
+        default:
+            throw new IOException("Unknown state value type: " + type); //$NON-NLS-1$
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Reads of the initial state
+    // ------------------------------------------------------------------------
+
+    private void readInitialValue(int quark, ITmfStateValue value) {
+        if (isRecording() && !fWritten.get(quark)) {
+            fValueReads.putIfAbsent(quark, value);
+        }
+    }
+
+    private void readMissingPath(int startingNodeQuark, String... subPath) {
+        if (isRecording()) {
+            List<String> path = new ArrayList<>();
+            if (startingNodeQuark != ROOT_ATTRIBUTE) {
+                path.addAll(Arrays.asList(getFullAttributePathArray(startingNodeQuark)));
+            }
+            path.addAll(Arrays.asList(subPath));
+            fMissingPaths.add(path);
+        }
+    }
+
+    @Override
+    public ITmfStateValue queryOngoingState(int attributeQuark) {
+        ITmfStateValue value = super.queryOngoingState(attributeQuark);
+        readInitialValue(attributeQuark, value);
+        return value;
+    }
+
+    @Override
+    public long getOngoingStartTime(int attribute) {
+        long start = super.getOngoingStartTime(attribute);
+        if (isRecording() && start < fRecordingStart) {
+            fStartTimeReads.putIfAbsent(attribute, start);
+        }
+        return start;
+    }
+
+    @Override
+    public List<@NonNull Integer> getSubAttributes(int quark, boolean recursive) {
+        List<@NonNull Integer> subAttributes = super.getSubAttributes(quark, recursive);
+        if (isRecording()) {
+            Map<Integer, Set<String>> reads = (recursive ? fDescendantsReads : fChildrenReads);
+            if (!reads.containsKey(quark)) {
+                Set<String> paths = new HashSet<>();
+                for (int subAttribute : subAttributes) {
+                    paths.add(getFullAttributePath(subAttribute));
+                }
+                reads.put(quark, paths);
+            }
+        }
+        return subAttributes;
+    }
+
+    @Override
+    public List<@NonNull Integer> getQuarks(int startingNodeQuark, String... pattern) {
+        /* Wildcards and parent paths are not tracked */
+        if (isRecording()) {
+            fUnverifiable = true;
+        }
+        return super.getQuarks(startingNodeQuark, pattern);
+    }
+
+    @Override
+    public int getQuarkAbsolute(String... attribute) throws AttributeNotFoundException {
+        int quark = optQuarkAbsolute(attribute);
+        if (quark == INVALID_ATTRIBUTE) {
+            return super.getQuarkAbsolute(attribute);
+        }
+        return quark;
+    }
+
+    @Override
+    public int optQuarkAbsolute(String... attribute) {
+        int quark = super.optQuarkAbsolute(attribute);
+        if (quark == INVALID_ATTRIBUTE) {
+            readMissingPath(ROOT_ATTRIBUTE, attribute);
+        }
+        return quark;
+    }
+
+    @Override
+    public int getQuarkRelative(int startingNodeQuark, String... subPath) throws AttributeNotFoundException {
+        int quark = optQuarkRelative(startingNodeQuark, subPath);
+        if (quark == INVALID_ATTRIBUTE) {
+            return super.getQuarkRelative(startingNodeQuark, subPath);
+        }
+        return quark;
+    }
+
+    @Override
+    public int optQuarkRelative(int startingNodeQuark, String... subPath) {
+        int quark = super.optQuarkRelative(startingNodeQuark, subPath);
+        if (quark == INVALID_ATTRIBUTE) {
+            readMissingPath(startingNodeQuark, subPath);
+        }
+        return quark;
+    }
+
+    @Override
+    public ITmfStateInterval querySingleState(long t, int attributeQuark) throws StateSystemDisposedException {
+        /* There is no history, the provider would get another result */
+        if (isRecording()) {
+            fUnverifiable = true;
+        }
+        return super.querySingleState(t, attributeQuark);
+    }
+
+    @Override
+    public List<ITmfStateInterval> queryFullState(long t) throws StateSystemDisposedException {
+        if (isRecording()) {
+            fUnverifiable = true;
+        }
+        return super.queryFullState(t);
+    }
+
+    // ------------------------------------------------------------------------
+    // State changes
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void modifyAttribute(long t, ITmfStateValue value, int attributeQuark) {
+        boolean record = isRecording();
+        fDepth++;
+        try {
+            super.modifyAttribute(t, value, attributeQuark);
+        } finally {
+            fDepth--;
+        }
+        written(attributeQuark);
+        if (record) {
+            record(MODIFY, t, attributeQuark, value);
+        }
+    }
+
+    @Override
+    public void pushAttribute(long t, ITmfStateValue value, int attributeQuark) {
+        boolean record = isRecording();
+        /* The stack depth is read */
+        readInitialValue(attributeQuark, super.queryOngoingState(attributeQuark));
+        fDepth++;
+        try {
+            super.pushAttribute(t, value, attributeQuark);
+        } finally {
+            fDepth--;
+        }
+        if (record) {
+            record(PUSH, t, attributeQuark, value);
+        }
+    }
+
+    @Override
+    public @Nullable ITmfStateValue popAttribute(long t, int attributeQuark) {
+        boolean record = isRecording();
+        /* The stack depth and the popped value are read */
+        ITmfStateValue depth = super.queryOngoingState(attributeQuark);
+        readInitialValue(attributeQuark, depth);
+        if (depth.getType() == ITmfStateValue.Type.INTEGER) {
+            int subAttributeQuark = super.optQuarkRelative(attributeQuark, String.valueOf(depth.unboxInt()));
+            if (subAttributeQuark != INVALID_ATTRIBUTE) {
+                readInitialValue(subAttributeQuark, super.queryOngoingState(subAttributeQuark));
+            }
+        }
+        ITmfStateValue value;
+        fDepth++;
+        try {
+            value = super.popAttribute(t, attributeQuark);
+        } finally {
+            fDepth--;
+        }
+        if (record) {
+            record(POP, t, attributeQuark, null);
+        }
+        return value;
+    }
+
+    @Override
+    public void removeAttribute(long t, int attributeQuark) {
+        boolean record = isRecording();
+        fDepth++;
+        try {
+            super.removeAttribute(t, attributeQuark);
+            written(attributeQuark);
+            for (int quark : super.getSubAttributes(attributeQuark, true)) {
+                written(quark);
+            }
+        } finally {
+            fDepth--;
+        }
+        if (record) {
+            record(REMOVE, t, attributeQuark, null);
+        }
+    }
+
+    @Override
+    public void updateOngoingState(ITmfStateValue newValue, int attributeQuark) {
+        boolean record = isRecording();
+        super.updateOngoingState(newValue, attributeQuark);
+        written(attributeQuark);
+        if (record) {
+            record(UPDATE_ONGOING, 0, attributeQuark, newValue);
+        }
+    }
+
+    private void written(int quark) {
+        if (fOutput != null) {
+            fWritten.set(quark);
+        }
+    }
+}
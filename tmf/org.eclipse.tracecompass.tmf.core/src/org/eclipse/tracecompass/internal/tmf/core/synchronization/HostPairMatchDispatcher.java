@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.synchronization;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.tmf.core.Activator;
+import org.eclipse.tracecompass.tmf.core.event.matching.IMatchProcessingUnit;
+import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventDependency;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+
+/**
+ * Match processing unit that passes the matches to another processing unit
+ * from several worker threads. All the matches between the same two hosts are
+ * processed by the same worker, in the order they were found, so this can be
+ * used with a processing unit whose work for a match only depends on the
+ * previous matches of its hosts, like the convex hulls of
+ * {@link SyncAlgorithmFullyIncremental}.
+ */
+public class HostPairMatchDispatcher implements IMatchProcessingUnit {
+
+    private static final int QUEUE_SIZE = 1024;
+    private static final Object END = new Object();
+
+    private final IMatchProcessingUnit fProcessingUnit;
+    private final int fNbWorkers;
+    private final List<Worker> fWorkers = new ArrayList<>();
+
+    private volatile @Nullable RuntimeException fError = null;
+
+    /**
+     * Constructor
+     *
+     * @param processingUnit
+     *            The processing unit that processes the matches
+     * @param nbWorkers
+     *            The number of worker threads
+     */
+    public HostPairMatchDispatcher(IMatchProcessingUnit processingUnit, int nbWorkers) {
+        if (nbWorkers < 1) {
+            throw new IllegalArgumentException("Invalid number of workers: " + nbWorkers); //$NON-NLS-1$
+        }
+        fProcessingUnit = processingUnit;
+        fNbWorkers = nbWorkers;
+    }
+
+    @Override
+    public synchronized void init(Collection<ITmfTrace> traces) {
+        stopWorkers();
+        fError = null;
+        fProcessingUnit.init(traces);
+        for (int i = 0; i < fNbWorkers; i++) {
+            Worker worker = new Worker(i);
+            fWorkers.add(worker);
+            worker.start();
+        }
+    }
+
+    @Override
+    public void addMatch(TmfEventDependency match) {
+        String host1 = match.getSourceEvent().getTrace().getHostId();
+        String host2 = match.getDestinationEvent().getTrace().getHostId();
+        /* The hash is the same in both directions */
+        int hash = host1.hashCode() ^ host2.hashCode();
+        Worker worker;
+        synchronized (this) {
+            if (fWorkers.isEmpty()) {
+                /* Not initialized, or already ended */
+                fProcessingUnit.addMatch(match);
+                return;
+            }
+            worker = fWorkers.get(Math.floorMod(hash, fWorkers.size()));
+        }
+        /*
+         * The match must not be lost, so wait until it is queued even if the
+         * thread is interrupted, then restore the interrupted status for the
+         * caller.
+         */
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    worker.fQueue.put(match);
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void matchingEnded() {
+        synchronized (this) {
+            stopWorkers();
+        }
+        RuntimeException error = fError;
+        if (error != null) {
+            throw error;
+        }
+        fProcessingUnit.matchingEnded();
+    }
+
+    /**
+     * Wait for the workers to process their queued matches, then stop them
+     */
+    private void stopWorkers() {
+        try {
+            for (Worker worker : fWorkers) {
+                worker.fQueue.put(END);
+            }
+            for (Worker worker : fWorkers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fWorkers.forEach(Thread::interrupt);
+        }
+        fWorkers.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * While the matching is running, this does not count the matches that are
+     * still waiting to be processed.
+     */
+    @Override
+    public int countMatches() {
+        return fProcessingUnit.countMatches();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [ " + fProcessingUnit + " ]"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    private final class Worker extends Thread {
+
+        private final BlockingQueue<Object> fQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+        public Worker(int index) {
+            super("Match processing " + index); //$NON-NLS-1$
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Object match = fQueue.take();
+                    if (match == END) {
+                        return;
+                    }
+                    /* After an error, the matches are dropped so that the matching is not blocked */
+                    if (fError == null) {
+                        process((TmfEventDependency) match);
+                    }
+                }
+            } catch (InterruptedException e) {
+                /* Stopped */
+            }
+        }
+
+        private void process(TmfEventDependency match) {
+            try {
+                fProcessingUnit.addMatch(match);
+            } catch (RuntimeException e) {
+                Activator.logError("Error processing event match", e); //$NON-NLS-1$
+                fError = e;
+            }
+        }
+    }
+
+}
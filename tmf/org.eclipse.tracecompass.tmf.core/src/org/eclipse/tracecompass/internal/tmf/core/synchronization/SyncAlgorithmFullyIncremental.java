@@ -23,6 +23,7 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
@@ -61,7 +62,22 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
     /** @Serial */
     private final List<ConvexHull> fSyncs;
 
-    private transient SyncSpanningTree fTree = null;
+    /**
+     * The convex hulls of fSyncs by host pair, so that a match finds its hull
+     * without going through the list. Both are modified while holding the lock
+     * of fSyncs.
+     */
+    private transient Map<String, ConvexHull> fSyncIndex = new ConcurrentHashMap<>();
+
+    private transient volatile SyncSpanningTree fTree = null;
+
+    /**
+     * Whether the convex hulls changed since fTree was built. The matches set
+     * it without taking the lock of fSyncs, and only when it is not already
+     * set, so the tree is invalidated once for all the matches processed
+     * before it is built again.
+     */
+    private transient volatile boolean fTreeStale = true;
 
     /**
      * Initialization of the attributes
@@ -83,20 +99,30 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
     @Override
     public void init(Collection<ITmfTrace> traces) {
         ITmfTrace[] traceArr = traces.toArray(new ITmfTrace[traces.size()]);
-        fSyncs.clear();
-        /* Create a convex hull for all trace pairs */
-        // FIXME: is it necessary to make ConvexHull for every pairs up-front?
-        // The ConvexHull seems to be created on the fly in processMatch().
-        for (int i = 0; i < traceArr.length; i++) {
-            for (int j = i + 1; j < traceArr.length; j++) {
-                if (!traceArr[i].getHostId().equals(traceArr[j].getHostId())) {
-                    ConvexHull algo = new ConvexHull(traceArr[i], traceArr[j]);
-                    fSyncs.add(algo);
+        synchronized (fSyncs) {
+            fSyncs.clear();
+            fSyncIndex.clear();
+            /* Create a convex hull for all trace pairs */
+            // FIXME: is it necessary to make ConvexHull for every pairs up-front?
+            // The ConvexHull seems to be created on the fly in processMatch().
+            for (int i = 0; i < traceArr.length; i++) {
+                for (int j = i + 1; j < traceArr.length; j++) {
+                    if (!traceArr[i].getHostId().equals(traceArr[j].getHostId())) {
+                        getConvexHull(traceArr[i], traceArr[j]);
+                    }
                 }
             }
+            invalidateSyncGraph();
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Matches between different host pairs can be processed concurrently, but
+     * the matches of a host pair must be processed in order, by one thread at
+     * a time.
+     */
     @Override
     protected void processMatch(TmfEventDependency match) {
         ITmfTrace trace1 = match.getSourceEvent().getTrace();
@@ -110,22 +136,42 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
         }
 
         /* Check if a convex hull algorithm already exists for these 2 hosts */
-        ConvexHull algo = null;
-        for (ConvexHull traceSync : fSyncs) {
-            if (traceSync.isForHosts(host1, host2)) {
-                algo = traceSync;
+        ConvexHull algo = fSyncIndex.get(getHostPairKey(host1, host2));
+        if (algo == null) {
+            synchronized (fSyncs) {
+                algo = getConvexHull(trace1, trace2);
             }
         }
+        algo.processMatch(match);
+        invalidateSyncGraph();
+    }
+
+    /**
+     * Get the convex hull of two traces, creating it if it does not exist.
+     * Must be called while holding the lock of fSyncs.
+     */
+    private ConvexHull getConvexHull(ITmfTrace trace1, ITmfTrace trace2) {
+        String key = getHostPairKey(trace1.getHostId(), trace2.getHostId());
+        ConvexHull algo = fSyncIndex.get(key);
         if (algo == null) {
             algo = new ConvexHull(trace1, trace2);
             fSyncs.add(algo);
+            fSyncIndex.put(key, algo);
         }
-        algo.processMatch(match);
-        invalidateSyncGraph();
+        return algo;
+    }
+
+    /**
+     * Get the key of a pair of hosts, which is the same in both directions
+     */
+    private static String getHostPairKey(String host1, String host2) {
+        return (host1.compareTo(host2) > 0) ? host2 + '\0' + host1 : host1 + '\0' + host2;
     }
 
     private void invalidateSyncGraph() {
-        fTree = null;
+        if (!fTreeStale) {
+            fTreeStale = true;
+        }
     }
 
     @Override
@@ -155,26 +201,41 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
      * @return The synchronization spanning tree for this synchronization
      */
     private SyncSpanningTree getSyncTree() {
-        if (fTree == null) {
-            fTree = new SyncSpanningTree(getRootNode());
-            for (ConvexHull traceSync : fSyncs) {
-                SyncQuality q = traceSync.getQuality();
-                if (q == SyncQuality.ACCURATE || q == SyncQuality.APPROXIMATE || q == SyncQuality.FAIL) {
-                    String from = traceSync.getReferenceHost();
-                    String to = traceSync.getOtherHost();
-                    fTree.addSynchronization(from, to, traceSync.getTimestampTransform(to), traceSync.getAccuracy());
+        SyncSpanningTree tree = fTree;
+        if (tree != null && !fTreeStale) {
+            return tree;
+        }
+        synchronized (fSyncs) {
+            tree = fTree;
+            if (tree == null || fTreeStale) {
+                /*
+                 * Clear the flag before reading the convex hulls, so that a
+                 * match processed after its hull is read invalidates the tree
+                 * again.
+                 */
+                fTreeStale = false;
+                tree = new SyncSpanningTree(getRootNode());
+                for (ConvexHull traceSync : fSyncs) {
+                    synchronized (traceSync) {
+                        SyncQuality q = traceSync.getQuality();
+                        if (q == SyncQuality.ACCURATE || q == SyncQuality.APPROXIMATE || q == SyncQuality.FAIL) {
+                            String from = traceSync.getReferenceHost();
+                            String to = traceSync.getOtherHost();
+                            tree.addSynchronization(from, to, traceSync.getTimestampTransform(to), traceSync.getAccuracy());
+                        }
+                    }
                 }
+                fTree = tree;
             }
+            return tree;
         }
-        return fTree;
     }
 
     @Override
     public SyncQuality getSynchronizationQuality(ITmfTrace trace1, ITmfTrace trace2) {
-        for (ConvexHull traceSync : fSyncs) {
-            if (traceSync.isForHosts(trace1.getHostId(), trace2.getHostId())) {
-                return traceSync.getQuality();
-            }
+        ConvexHull traceSync = fSyncIndex.get(getHostPairKey(trace1.getHostId(), trace2.getHostId()));
+        if (traceSync != null) {
+            return traceSync.getQuality();
         }
         return SyncQuality.ABSENT;
     }
@@ -193,15 +254,30 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
          * tree instead
          */
         Map<String, Map<String, Object>> statmap = new LinkedHashMap<>();
-        for (ConvexHull traceSync : fSyncs) {
-            statmap.put(traceSync.getReferenceHost() + " <==> " + traceSync.getOtherHost(), traceSync.getStats()); //$NON-NLS-1$
+        synchronized (fSyncs) {
+            for (ConvexHull traceSync : fSyncs) {
+                statmap.put(traceSync.getReferenceHost() + " <==> " + traceSync.getOtherHost(), traceSync.getStats()); //$NON-NLS-1$
+            }
         }
         return statmap;
     }
 
     @Override
     public String toString() {
-        return getClass().getSimpleName() + ' ' + fSyncs.toString();
+        synchronized (fSyncs) {
+            return getClass().getSimpleName() + ' ' + fSyncs.toString();
+        }
+    }
+
+    private void readObject(ObjectInputStream stream)
+            throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+
+        /* Initialize transient fields */
+        fSyncIndex = new ConcurrentHashMap<>();
+        for (ConvexHull traceSync : fSyncs) {
+            fSyncIndex.put(getHostPairKey(traceSync.getReferenceHost(), traceSync.getOtherHost()), traceSync);
+        }
     }
 
     /**
@@ -276,7 +352,7 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
             fQuality = SyncQuality.ABSENT; // default quality
         }
 
-        protected void processMatch(TmfEventDependency match) {
+        protected synchronized void processMatch(TmfEventDependency match) {
 
             LinkedList<SyncPoint> boundList, otherBoundList;
 
@@ -455,7 +531,7 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
             boundList.addLast(p);
         }
 
-        public ITmfTimestampTransform getTimestampTransform(String hostId) {
+        public synchronized ITmfTimestampTransform getTimestampTransform(String hostId) {
             if (hostId.equals(fOtherHost) && (getQuality() == SyncQuality.ACCURATE || getQuality() == SyncQuality.APPROXIMATE || getQuality() == SyncQuality.FAIL)) {
                 /* alpha: beta => 1 / fAlpha, -1 * fBeta / fAlpha); */
                 return TimestampTransformFactory.createLinear(NonNullUtils.checkNotNull(BigDecimal.ONE.divide(fAlpha, fMc)), NonNullUtils.checkNotNull(BigDecimal.valueOf(-1).multiply(fBeta).divide(fAlpha, fMc)));
@@ -463,15 +539,15 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
             return TimestampTransformFactory.getDefaultTransform();
         }
 
-        public SyncQuality getQuality() {
+        public synchronized SyncQuality getQuality() {
             return fQuality;
         }
 
-        public BigDecimal getAccuracy() {
+        public synchronized BigDecimal getAccuracy() {
             return fAlphamax.subtract(fAlphamin);
         }
 
-        public Map<String, Object> getStats() {
+        public synchronized Map<String, Object> getStats() {
             if (fStats.size() == 0) {
                 String syncQuality;
                 switch (getQuality()) {
@@ -518,10 +594,6 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
             return fOtherHost;
         }
 
-        public boolean isForHosts(String hostId1, String hostId2) {
-            return ((fReferenceHost.equals(hostId1) && fOtherHost.equals(hostId2)) || (fReferenceHost.equals(hostId2) && fOtherHost.equals(hostId1)));
-        }
-
         private void readObject(ObjectInputStream stream)
                 throws IOException, ClassNotFoundException {
             stream.defaultReadObject();
@@ -535,14 +607,14 @@ public class SyncAlgorithmFullyIncremental extends SynchronizationAlgorithm {
         }
 
         @Override
-        public String toString() {
+        public synchronized String toString() {
             StringBuilder b = new StringBuilder();
             b.append("Between " + fReferenceHost + " and " + fOtherHost + " ["); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
             b.append(" alpha " + fAlpha + " beta " + fBeta + " ]"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
             return b.toString();
         }
 
-        private void setQuality(SyncQuality fQuality) {
+        private synchronized void setQuality(SyncQuality fQuality) {
             this.fQuality = fQuality;
         }
 
@@ -36,6 +36,7 @@ import org.eclipse.osgi.util.NLS;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
+import org.eclipse.tracecompass.internal.tmf.core.analysis.TmfAnalysisScheduler;
 import org.eclipse.tracecompass.tmf.core.analysis.requirements.TmfAbstractAnalysisRequirement;
 import org.eclipse.tracecompass.tmf.core.component.TmfComponent;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
@@ -268,8 +269,9 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent
      */
     @Override
     public final void cancel() {
+        Job job;
         synchronized (syncObj) {
-            Job job = fJob;
+            job = fJob;
             if (job != null) {
                 TmfCoreTracer.traceAnalysis(getId(), getTrace(), "cancelled by application"); //$NON-NLS-1$
                 job.cancel();
@@ -278,6 +280,10 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent
             }
             fStarted = false;
         }
+        if (job != null) {
+            /* The job may not have been started yet */
+            TmfAnalysisScheduler.getInstance().done(this, job);
+        }
     }
 
     /**
@@ -348,10 +354,12 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent
         fDependencyLevel = depLevel;
 
         /*
-         * Actual analysis will be run on a separate thread
+         * Actual analysis will be run on a separate thread, once the dependent
+         * analyses are started. It runs concurrently with them and waits for
+         * their completion at the end.
          */
         String jobName = checkNotNull(NLS.bind(Messages.TmfAbstractAnalysisModule_RunningAnalysis, getName()));
-        fJob = new Job(jobName) {
+        Job job = new Job(jobName) {
             @Override
             protected @Nullable IStatus run(final @Nullable IProgressMonitor monitor) {
                 IProgressMonitor mon = monitor;
@@ -375,6 +383,7 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent
                         setAnalysisCompleted();
                     }
                     TmfTraceManager.refreshSupplementaryFiles(trace);
+                    TmfAnalysisScheduler.getInstance().done(TmfAbstractAnalysisModule.this, this);
                 }
                 if (!fAnalysisCancelled) {
                     return Status.OK_STATUS;
@@ -391,7 +400,8 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent
             }
 
         };
-        fJob.schedule();
+        fJob = job;
+        TmfAnalysisScheduler.getInstance().submit(this, job, dependentAnalyses, trace);
     }
 
     @Override
@@ -428,6 +438,7 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent
             finishedLatch = fFinishedLatch;
             started = fStarted;
         }
+        TmfAnalysisScheduler.getInstance().waitingFor(this);
         try {
             if (started) {
                 finishedLatch.await();
@@ -440,6 +451,7 @@ public abstract class TmfAbstractAnalysisModule extends TmfComponent
 
     @Override
     public boolean waitForCompletion(IProgressMonitor monitor) {
+        TmfAnalysisScheduler.getInstance().waitingFor(this);
         try {
             while (!fFinishedLatch.await(500, TimeUnit.MILLISECONDS)) {
                 if (fAnalysisCancelled || monitor.isCanceled()) {
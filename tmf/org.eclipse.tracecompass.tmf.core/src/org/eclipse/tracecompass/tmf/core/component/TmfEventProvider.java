@@ -28,6 +28,7 @@ import java.util.TimerTask;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
+import org.eclipse.tracecompass.internal.tmf.core.component.TmfEventCache;
 import org.eclipse.tracecompass.internal.tmf.core.component.TmfEventThread;
 import org.eclipse.tracecompass.internal.tmf.core.component.TmfProviderManager;
 import org.eclipse.tracecompass.internal.tmf.core.request.TmfCoalescedEventRequest;
@@ -163,6 +164,7 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
             fChildren.clear();
         }
         clearPendingRequests();
+        TmfEventCache.getInstance().clear(this);
         super.dispose();
     }
 
@@ -428,6 +430,19 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
      */
     public abstract ITmfContext armRequest(ITmfEventRequest request);
 
+    /**
+     * Checks if the requests can get the events from the shared event cache
+     * instead of reading them with {@link #getNext(ITmfContext)}. Providers
+     * which rely on the side effects of reading every event should return
+     * false.
+     *
+     * @return true if the cached events can be used, false by default
+     * @since 2.3
+     */
+    public boolean canReadCachedEvents() {
+        return false;
+    }
+
     /**
      * Checks if the data meets the request completion criteria.
      *
@@ -38,12 +38,12 @@ public class TmfEventMatches implements IMatchProcessingUnit {
      * IMatchProcessingUnit overrides
      */
     @Override
-    public void init(Collection<ITmfTrace> fTraces) {
+    public synchronized void init(Collection<ITmfTrace> fTraces) {
         fMatchCount = 0;
     }
 
     @Override
-    public void addMatch(TmfEventDependency match) {
+    public synchronized void addMatch(TmfEventDependency match) {
         fMatchCount++;
     }
 
@@ -53,7 +53,7 @@ public class TmfEventMatches implements IMatchProcessingUnit {
     }
 
     @Override
-    public int countMatches() {
+    public synchronized int countMatches() {
         return fMatchCount;
     }
 
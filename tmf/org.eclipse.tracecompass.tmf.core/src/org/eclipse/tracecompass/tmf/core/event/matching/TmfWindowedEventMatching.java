@@ -0,0 +1,444 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.event.matching;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.tracecompass.internal.tmf.core.Activator;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+
+/**
+ * Event matching that runs in bounded memory, for processing units that only
+ * need the trace and the timestamp of the matched events, like the trace
+ * synchronization algorithms.
+ * <p>
+ * The events of each trace are read and filtered concurrently: only the key,
+ * timestamp and trace of the events that can be matched are kept. They are
+ * then matched in chronological order across all traces, and an unmatched
+ * event is dropped once it is older than the time window, as its companion
+ * would have been found already. The window must thus be larger than the
+ * largest time difference between two matching events, including the clock
+ * offset between the traces.
+ * <p>
+ * The events of the dependencies given to the processing unit are not the
+ * events of the traces: they only have their trace and timestamp.
+ *
+ * @since 2.3
+ */
+public class TmfWindowedEventMatching extends TmfEventMatching {
+
+    /** A window that never drops unmatched events */
+    public static final long UNBOUNDED_WINDOW = Long.MAX_VALUE;
+
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_SIZE = 16;
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private static final Comparator<Candidate> CHRONOLOGICAL = Comparator
+            .comparingLong((Candidate c) -> c.fNanos)
+            .thenComparingInt(c -> c.fTraceIndex);
+
+    private final long fWindow;
+
+    /* The individual traces, a candidate refers to its trace by index */
+    private final List<ITmfTrace> fTraceList = new ArrayList<>();
+
+    /* Unmatched candidates, in the order they were added, so oldest first */
+    private final Map<TraceKey, Candidate> fUnmatchedIn = new LinkedHashMap<>();
+    private final Map<TraceKey, Candidate> fUnmatchedOut = new LinkedHashMap<>();
+
+    private long fNbEvicted = 0;
+
+    private volatile boolean fStopped = false;
+
+    /**
+     * Constructor
+     *
+     * @param traces
+     *            The set of traces for which to match events
+     * @param tmfEventMatches
+     *            The match processing class
+     * @param window
+     *            The time window, in nanoseconds, after which an unmatched
+     *            event is dropped, or {@link #UNBOUNDED_WINDOW}
+     */
+    public TmfWindowedEventMatching(Collection<@NonNull ITmfTrace> traces, IMatchProcessingUnit tmfEventMatches, long window) {
+        super(traces, tmfEventMatches);
+        if (window <= 0) {
+            throw new IllegalArgumentException("Invalid window: " + window); //$NON-NLS-1$
+        }
+        fWindow = window;
+    }
+
+    @Override
+    public void initMatching() {
+        super.initMatching();
+        fTraceList.clear();
+        fTraceList.addAll(getIndividualTraces());
+        fUnmatchedIn.clear();
+        fUnmatchedOut.clear();
+        fNbEvicted = 0;
+        fStopped = false;
+    }
+
+    @Override
+    public String toString() {
+        final String cr = System.getProperty("line.separator"); //$NON-NLS-1$
+        StringBuilder b = new StringBuilder();
+        b.append(getProcessingUnit());
+        for (int i = 0; i < fTraceList.size(); i++) {
+            b.append("Trace " + i + ":" + cr + //$NON-NLS-1$ //$NON-NLS-2$
+                    "  " + countUnmatched(fUnmatchedIn, i) + " unmatched incoming events" + cr + //$NON-NLS-1$ //$NON-NLS-2$
+                    "  " + countUnmatched(fUnmatchedOut, i) + " unmatched outgoing events" + cr); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        b.append(fNbEvicted + " unmatched events dropped" + cr); //$NON-NLS-1$
+        return b.toString();
+    }
+
+    private static long countUnmatched(Map<TraceKey, Candidate> unmatched, int traceIndex) {
+        return unmatched.keySet().stream().filter(key -> key.fTraceIndex == traceIndex).count();
+    }
+
+    /**
+     * Matches one event. The events must be given in chronological order
+     * across all traces, or unmatched events may be dropped too early.
+     */
+    @Override
+    public void matchEvent(ITmfEvent event, ITmfTrace trace, @NonNull IProgressMonitor monitor) {
+        Candidate candidate = toCandidate(event, fTraceList.indexOf(event.getTrace()));
+        if (candidate != null) {
+            match(candidate, monitor);
+        }
+    }
+
+    @Override
+    public boolean matchEvents() {
+
+        /* Are there traces to match? If no, return false */
+        if (getTraces().isEmpty()) {
+            return false;
+        }
+
+        initMatching();
+
+        Job job = new Job(Messages.TmfEventMatching_MatchingEvents) {
+            @Override
+            protected IStatus run(final IProgressMonitor monitor) {
+                monitor.beginTask(Messages.TmfEventMatching_MatchingEvents, IProgressMonitor.UNKNOWN);
+                try {
+                    matchAll(monitor);
+                } catch (InterruptedException e) {
+                    Activator.logInfo(e.getMessage());
+                    return Status.CANCEL_STATUS;
+                }
+                return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+            }
+        };
+        job.schedule();
+        try {
+            job.join();
+        } catch (InterruptedException e) {
+
+        }
+
+        finalizeMatching();
+
+        return true;
+    }
+
+    /**
+     * Filter the events of all the traces concurrently, and match them in
+     * chronological order
+     */
+    private void matchAll(IProgressMonitor monitor) throws InterruptedException {
+        int nbTraces = fTraceList.size();
+        if (nbTraces == 0) {
+            return;
+        }
+        List<BlockingQueue<List<Candidate>>> queues = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(nbTraces);
+        try {
+            for (int i = 0; i < nbTraces; i++) {
+                BlockingQueue<List<Candidate>> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+                queues.add(queue);
+                int traceIndex = i;
+                executor.execute(() -> filterTrace(traceIndex, queue, monitor));
+            }
+
+            /* Merge the candidates of the traces, one batch per trace at a time */
+            PriorityQueue<CandidateIterator> heads = new PriorityQueue<>(Comparator.comparing(CandidateIterator::getNext, CHRONOLOGICAL));
+            for (BlockingQueue<List<Candidate>> queue : queues) {
+                CandidateIterator it = new CandidateIterator(queue);
+                if (it.advance(monitor)) {
+                    heads.add(it);
+                }
+            }
+            while (!heads.isEmpty() && !monitor.isCanceled()) {
+                CandidateIterator it = heads.poll();
+                match(it.getNext(), monitor);
+                if (it.advance(monitor)) {
+                    heads.add(it);
+                }
+            }
+        } finally {
+            fStopped = true;
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Read the events of a trace and queue, in batches, those that can be
+     * matched. An empty batch marks the end of the trace.
+     */
+    private void filterTrace(int traceIndex, BlockingQueue<List<Candidate>> queue, IProgressMonitor monitor) {
+        ITmfTrace trace = fTraceList.get(traceIndex);
+        List<Candidate> batch = new ArrayList<>(BATCH_SIZE);
+        ITmfContext context = trace.seekEvent(0L);
+        try {
+            ITmfEvent event = trace.getNext(context);
+            while (event != null && !fStopped && !monitor.isCanceled()) {
+                Candidate candidate = toCandidate(event, traceIndex);
+                if (candidate != null) {
+                    batch.add(candidate);
+                    if (batch.size() == BATCH_SIZE) {
+                        if (!put(queue, batch, monitor)) {
+                            return;
+                        }
+                        batch = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                event = trace.getNext(context);
+            }
+            if (!batch.isEmpty()) {
+                put(queue, batch, monitor);
+            }
+        } catch (RuntimeException e) {
+            Activator.logError("Error reading events of trace " + trace.getName(), e); //$NON-NLS-1$
+        } finally {
+            context.dispose();
+            put(queue, Collections.emptyList(), monitor);
+        }
+    }
+
+    private boolean put(BlockingQueue<List<Candidate>> queue, List<Candidate> batch, IProgressMonitor monitor) {
+        try {
+            while (!queue.offer(batch, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                if (fStopped || monitor.isCanceled()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private @Nullable Candidate toCandidate(ITmfEvent event, int traceIndex) {
+        if (traceIndex < 0) {
+            return null;
+        }
+        for (ITmfMatchEventDefinition def : getEventDefinitions(event.getTrace())) {
+            Direction direction = def.getDirection(event);
+            if (direction != null) {
+                IEventMatchingKey key = def.getEventKey(event);
+                if (key == null) {
+                    return null;
+                }
+                return new Candidate(key, event.getTimestamp(), traceIndex, direction);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Match a candidate with an unmatched candidate of the other direction, or
+     * keep it as unmatched
+     */
+    private void match(Candidate candidate, IProgressMonitor monitor) {
+        evict(candidate.fNanos);
+
+        Map<TraceKey, Candidate> unmatched;
+        Map<TraceKey, Candidate> companions;
+        switch (candidate.fDirection) {
+        case EFFECT:
+            unmatched = fUnmatchedIn;
+            companions = fUnmatchedOut;
+            break;
+        case CAUSE:
+            unmatched = fUnmatchedOut;
+            companions = fUnmatchedIn;
+            break;
+        default:
+            return;
+        }
+
+        Candidate companion = null;
+        for (int i = 0; i < fTraceList.size(); i++) {
+            Candidate found = companions.remove(new TraceKey(i, candidate.fKey));
+            if (found != null) {
+                companion = found;
+            }
+        }
+
+        if (companion != null) {
+            TmfEventDependency dep = (candidate.fDirection == Direction.EFFECT ?
+                    new TmfEventDependency(toEvent(companion), toEvent(candidate)) :
+                    new TmfEventDependency(toEvent(candidate), toEvent(companion)));
+            getProcessingUnit().addMatch(dep);
+            monitor.subTask(NLS.bind(Messages.TmfEventMatching_MatchesFound, getProcessingUnit().countMatches()));
+        } else {
+            /* Keep the first event chronologically, like TmfEventMatching */
+            unmatched.putIfAbsent(new TraceKey(candidate.fTraceIndex, candidate.fKey), candidate);
+        }
+    }
+
+    /**
+     * Drop the unmatched candidates that are older than the window
+     */
+    private void evict(long now) {
+        if (fWindow == UNBOUNDED_WINDOW || now - fWindow > now) {
+            return;
+        }
+        long limit = now - fWindow;
+        fNbEvicted += evict(fUnmatchedIn, limit) + evict(fUnmatchedOut, limit);
+    }
+
+    private static int evict(Map<TraceKey, Candidate> unmatched, long limit) {
+        int count = 0;
+        Iterator<Candidate> it = unmatched.values().iterator();
+        while (it.hasNext() && it.next().fNanos < limit) {
+            it.remove();
+            count++;
+        }
+        return count;
+    }
+
+    private ITmfEvent toEvent(Candidate candidate) {
+        return new TmfEvent(fTraceList.get(candidate.fTraceIndex), ITmfContext.UNKNOWN_RANK, candidate.fTimestamp, null, null);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper classes
+    // ------------------------------------------------------------------------
+
+    /**
+     * An event that can be matched, without the event itself
+     */
+    private static final class Candidate {
+        private final IEventMatchingKey fKey;
+        private final ITmfTimestamp fTimestamp;
+        private final long fNanos;
+        private final int fTraceIndex;
+        private final Direction fDirection;
+
+        public Candidate(IEventMatchingKey key, ITmfTimestamp timestamp, int traceIndex, Direction direction) {
+            fKey = key;
+            fTimestamp = timestamp;
+            fNanos = timestamp.toNanos();
+            fTraceIndex = traceIndex;
+            fDirection = direction;
+        }
+    }
+
+    /**
+     * The key of an unmatched event in a trace
+     */
+    private static final class TraceKey {
+        private final int fTraceIndex;
+        private final IEventMatchingKey fKey;
+
+        public TraceKey(int traceIndex, IEventMatchingKey key) {
+            fTraceIndex = traceIndex;
+            fKey = key;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fTraceIndex, fKey);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (!(obj instanceof TraceKey)) {
+                return false;
+            }
+            TraceKey other = (TraceKey) obj;
+            return fTraceIndex == other.fTraceIndex && fKey.equals(other.fKey);
+        }
+    }
+
+    /**
+     * Iterates the candidates of a trace from its queue of batches
+     */
+    private static final class CandidateIterator {
+        private final BlockingQueue<List<Candidate>> fQueue;
+        private Iterator<Candidate> fBatch = Collections.emptyIterator();
+        private @Nullable Candidate fNext;
+
+        public CandidateIterator(BlockingQueue<List<Candidate>> queue) {
+            fQueue = queue;
+        }
+
+        /**
+         * Move to the next candidate
+         *
+         * @return false if there are no more candidates
+         */
+        public boolean advance(IProgressMonitor monitor) throws InterruptedException {
+            while (!fBatch.hasNext()) {
+                List<Candidate> batch = fQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (monitor.isCanceled()) {
+                    return false;
+                }
+                if (batch != null) {
+                    if (batch.isEmpty()) {
+                        return false;
+                    }
+                    fBatch = batch.iterator();
+                }
+            }
+            fNext = fBatch.next();
+            return true;
+        }
+
+        public Candidate getNext() {
+            return checkNotNull(fNext);
+        }
+    }
+
+}
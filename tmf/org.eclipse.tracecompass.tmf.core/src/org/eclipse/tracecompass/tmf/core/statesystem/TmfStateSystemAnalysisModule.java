@@ -14,9 +14,14 @@
 package org.eclipse.tracecompass.tmf.core.statesystem;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
 
 import org.apache.commons.io.FileUtils;
@@ -26,8 +31,11 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
+import org.eclipse.tracecompass.internal.tmf.core.Activator;
+import org.eclipse.tracecompass.internal.tmf.core.analysis.TmfAnalysisScheduler;
 import org.eclipse.tracecompass.internal.tmf.core.statesystem.backends.partial.PartialHistoryBackend;
 import org.eclipse.tracecompass.internal.tmf.core.statesystem.backends.partial.PartialStateSystem;
+import org.eclipse.tracecompass.internal.tmf.core.statesystem.partitioned.PartitionedStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
@@ -65,8 +73,23 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
 
     private static final String EXTENSION = ".ht"; //$NON-NLS-1$
 
+    /**
+     * System property to suspend the build of the full history of an
+     * incomplete trace when it is closed, and resume it from the following
+     * events when the trace is opened again, instead of building it again from
+     * scratch. This requires the state provider to keep all of its state in
+     * the state system.
+     */
+    private static final String APPEND_PROPERTY = "org.eclipse.tracecompass.tmf.core.statesystem.append"; //$NON-NLS-1$
+    private static final boolean APPEND = Boolean.getBoolean(APPEND_PROPERTY);
+
+    /* File saved with a suspended history, with the number of events read */
+    private static final String RESUME_EXTENSION = ".resume"; //$NON-NLS-1$
+    private static final String RESUME_NB_READ = "nbRead"; //$NON-NLS-1$
+
     private final CountDownLatch fInitialized = new CountDownLatch(1);
     private final Object fRequestSyncObj = new Object();
+    private final Object fProcessSyncObj = new Object();
 
     private @Nullable ITmfStateSystemBuilder fStateSystem;
     private @Nullable ITmfEventRequest fRequest;
@@ -74,8 +97,10 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
 
     private int fNbRead = 0;
     private boolean fInitializationSucceeded;
+    private volatile boolean fSuspending = false;
 
     private volatile @Nullable ITmfStateProvider fStateProvider;
+    private volatile @Nullable PartitionedStateSystemBuilder fPartitionedBuilder;
 
     /**
      * State system backend types
@@ -166,6 +191,7 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
      */
     @Override
     public boolean waitForInitialization() {
+        TmfAnalysisScheduler.getInstance().waitingFor(this);
         try {
             fInitialized.await();
         } catch (InterruptedException e) {
@@ -191,6 +217,25 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
     // TmfAbstractAnalysisModule
     // ------------------------------------------------------------------------
 
+    /**
+     * Get the number of time partitions of the trace to process concurrently
+     * when building a new full history. Each partition is processed by a new
+     * instance of the state provider, see
+     * {@link ITmfStateProvider#getNewInstance()}.
+     * <p>
+     * The resulting state system is the same as when it is built sequentially
+     * only if the state provider keeps all of its state in the state system,
+     * does not depend on the existence of attributes that are null and have no
+     * sub-attributes, and only uses the basic state value types. The default
+     * is 1, to build the state system sequentially.
+     *
+     * @return The number of partitions
+     * @since 2.3
+     */
+    protected int getBuildPartitions() {
+        return 1;
+    }
+
     /**
      * Get the file where to save the results of the analysis
      *
@@ -278,10 +323,17 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         if ((req != null) && (!req.isCompleted())) {
             req.cancel();
         }
+        PartitionedStateSystemBuilder builder = fPartitionedBuilder;
+        if (builder != null) {
+            builder.cancel();
+        }
     }
 
     @Override
     public void dispose() {
+        if (APPEND) {
+            suspendHistory();
+        }
         super.dispose();
         if (fStateSystem != null) {
             fStateSystem.dispose();
@@ -303,7 +355,16 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         // TODO for now we assume it's complete. Might be a good idea to check
         // at least if its range matches the trace's range.
 
-        if (htFile.exists()) {
+        if (htFile.exists() && StateHistoryBackendFactory.isHistoryTreeSuspended(htFile)) {
+            /*
+             * The history of an incomplete trace was suspended when it was
+             * closed, resume it. Otherwise fall-through and build a new one
+             * from scratch.
+             */
+            if (APPEND && resumeFullHistory(id, provider, htFile)) {
+                return;
+            }
+        } else if (htFile.exists()) {
            /* Load an existing history */
             final int version = provider.getVersion();
             try {
@@ -328,6 +389,11 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
             IStateHistoryBackend backend = StateHistoryBackendFactory.createHistoryTreeBackendNewFile(
                     id, htFile, provider.getVersion(), provider.getStartTime(), QUEUE_SIZE);
             fStateSystem = StateSystemFactory.newStateSystem(backend);
+            int partitions = getBuildPartitions();
+            if (partitions > 1 && isCompleteTrace(provider.getTrace()) && PartitionedStateSystemBuilder.canBuild(provider)) {
+                buildPartitioned((AbstractTmfStateProvider) provider, partitions);
+                return;
+            }
             provider.assignTargetStateSystem(fStateSystem);
             build(provider);
         } catch (IOException e) {
@@ -339,6 +405,112 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         }
     }
 
+    /*
+     * Resume building a history that was suspended when the incomplete trace
+     * was closed, from the event following the last one that was processed.
+     */
+    private boolean resumeFullHistory(String id, ITmfStateProvider provider, File htFile) {
+        IStateHistoryBackend backend = null;
+        try {
+            int nbRead = readResumeFile(htFile);
+            backend = StateHistoryBackendFactory.createHistoryTreeBackendResumeFile(id, htFile, provider.getVersion());
+            ITmfStateSystemBuilder ss = StateSystemFactory.resumeStateSystem(backend);
+            fStateSystem = ss;
+            fNbRead = nbRead;
+            provider.assignTargetStateSystem(ss);
+        } catch (IOException e) {
+            if (backend != null) {
+                /* The history is not finished, this deletes it */
+                backend.dispose();
+            }
+            return false;
+        }
+        build(provider);
+        return true;
+    }
+
+    /*
+     * Suspend the build of the history of an incomplete trace, instead of
+     * deleting it, so that it is resumed when the trace is opened again.
+     */
+    private void suspendHistory() {
+        ITmfTrace trace = getTrace();
+        File htFile = getSsFile();
+        ITmfStateProvider provider = fStateProvider;
+        ITmfStateSystemBuilder ss = fStateSystem;
+        if (trace == null || isCompleteTrace(trace) || htFile == null || getBackendType() != StateSystemBackendType.FULL
+                || !(provider instanceof AbstractTmfStateProvider) || ss == null) {
+            return;
+        }
+
+        /* Stop processing the events and starting new requests */
+        ITmfEventRequest request;
+        synchronized (fRequestSyncObj) {
+            request = fRequest;
+            if (request != null && !(request instanceof StateSystemEventRequest)) {
+                return;
+            }
+            synchronized (fProcessSyncObj) {
+                fSuspending = true;
+                if (request != null) {
+                    ((StateSystemEventRequest) request).countRead();
+                }
+            }
+        }
+        if (request != null && !request.isCompleted()) {
+            request.cancel();
+        }
+        if (fStateProvider == null) {
+            /* The history was closed in the meantime */
+            return;
+        }
+
+        ((AbstractTmfStateProvider) provider).waitForEmptyQueue();
+        try {
+            ss.suspendHistory(provider.getLatestSafeTime());
+            writeResumeFile(htFile, fNbRead);
+        } catch (IOException e) {
+            Activator.logError("Error suspending the state history " + htFile, e); //$NON-NLS-1$
+            ss.removeFiles();
+            return;
+        }
+        /* The state system is suspended, the provider does not close it */
+        disposeProvider(false);
+    }
+
+    private static File getResumeFile(File htFile) {
+        return new File(htFile.getPath() + RESUME_EXTENSION);
+    }
+
+    private static int readResumeFile(File htFile) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(getResumeFile(htFile))) {
+            properties.load(in);
+        }
+        try {
+            return Integer.parseInt(properties.getProperty(RESUME_NB_READ));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid resume file", e); //$NON-NLS-1$
+        }
+    }
+
+    private static void writeResumeFile(File htFile, int nbRead) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(RESUME_NB_READ, Integer.toString(nbRead));
+        try (OutputStream out = new FileOutputStream(getResumeFile(htFile))) {
+            properties.store(out, null);
+        }
+    }
+
+    private static void deleteResumeFile(@Nullable File htFile) {
+        if (htFile != null) {
+            File resumeFile = getResumeFile(htFile);
+            if (resumeFile.exists() && !resumeFile.delete()) {
+                Activator.logError("Failed to delete " + resumeFile); //$NON-NLS-1$
+            }
+        }
+    }
+
     /*
      * Create a new state system backed with a partial history. A partial
      * history is similar to a "full" one (which you get with
@@ -494,6 +666,35 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         }
     }
 
+    private void buildPartitioned(AbstractTmfStateProvider provider, int partitions) {
+        ITmfStateSystemBuilder ss = fStateSystem;
+        if (ss == null) {
+            throw new IllegalArgumentException();
+        }
+        PartitionedStateSystemBuilder builder = new PartitionedStateSystemBuilder(provider, ss, partitions);
+        fPartitionedBuilder = builder;
+
+        /* The state system is filled in order, it can be queried already */
+        analysisReady(true);
+
+        boolean built = false;
+        try {
+            built = builder.build();
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } finally {
+            /* Also remove the partial history if a runtime exception escapes */
+            if (!built) {
+                ss.closeHistory(ss.getCurrentEndTime());
+                ss.removeFiles();
+            }
+            fPartitionedBuilder = null;
+        }
+    }
+
     /**
      * A request to build a state system from a state provider
      *
@@ -504,6 +705,10 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         private final ITmfStateProvider sci;
         private final ITmfTrace trace;
 
+        /* The events read until the history was suspended, if it was */
+        private int fNbProcessed = 0;
+        private boolean fCounted = false;
+
         /**
          * Constructor
          *
@@ -529,31 +734,51 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         @Override
         public void handleData(final ITmfEvent event) {
             super.handleData(event);
-            if (event.getTrace() == trace) {
-                sci.processEvent(event);
-            } else if (trace instanceof TmfExperiment) {
-                /*
-                 * If the request is for an experiment, check if the event is
-                 * from one of the child trace
-                 */
-                for (ITmfTrace childTrace : ((TmfExperiment) trace).getTraces()) {
-                    if (childTrace == event.getTrace()) {
-                        sci.processEvent(event);
+            synchronized (fProcessSyncObj) {
+                if (fSuspending) {
+                    return;
+                }
+                fNbProcessed++;
+                if (event.getTrace() == trace) {
+                    sci.processEvent(event);
+                } else if (trace instanceof TmfExperiment) {
+                    /*
+                     * If the request is for an experiment, check if the event
+                     * is from one of the child trace
+                     */
+                    for (ITmfTrace childTrace : ((TmfExperiment) trace).getTraces()) {
+                        if (childTrace == event.getTrace()) {
+                            sci.processEvent(event);
+                        }
                     }
                 }
             }
         }
 
+        /*
+         * Add the events read by this request to the events read by the
+         * module, only once. Must be called with fProcessSyncObj.
+         */
+        private void countRead() {
+            if (!fCounted) {
+                fCounted = true;
+                fNbRead += fNbProcessed;
+            }
+        }
+
         @Override
         public void handleSuccess() {
             super.handleSuccess();
             if (isCompleteTrace(trace)) {
                 disposeProvider(false);
+                deleteResumeFile(getSsFile());
             } else {
-                fNbRead += getNbRead();
+                synchronized (fProcessSyncObj) {
+                    countRead();
+                }
                 synchronized (fRequestSyncObj) {
                     final TmfTimeRange timeRange = fTimeRange;
-                    if (timeRange != null) {
+                    if (timeRange != null && !fSuspending) {
                         if (getRange().getEndTime().getValue() < timeRange.getEndTime().getValue()) {
                             startRequest();
                         }
@@ -565,7 +790,9 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         @Override
         public void handleCancel() {
             super.handleCancel();
-            disposeProvider(true);
+            if (!fSuspending) {
+                disposeProvider(true);
+            }
         }
 
         @Override
@@ -607,7 +834,7 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         fTimeRange = signal.getRange();
         ITmfStateProvider stateProvider = fStateProvider;
         synchronized (fRequestSyncObj) {
-            if (signal.getTrace() == getTrace() && stateProvider != null && stateProvider.getAssignedStateSystem() != null) {
+            if (signal.getTrace() == getTrace() && stateProvider != null && stateProvider.getAssignedStateSystem() != null && !fSuspending) {
                 ITmfEventRequest request = fRequest;
                 if ((request == null) || request.isCompleted()) {
                     startRequest();
@@ -18,9 +18,13 @@ import java.util.Collection;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
+import org.eclipse.tracecompass.internal.tmf.core.synchronization.HostPairMatchDispatcher;
+import org.eclipse.tracecompass.internal.tmf.core.synchronization.SyncAlgorithmFullyIncremental;
 import org.eclipse.tracecompass.tmf.core.component.TmfComponent;
+import org.eclipse.tracecompass.tmf.core.event.matching.IMatchProcessingUnit;
 import org.eclipse.tracecompass.tmf.core.event.matching.ITmfEventMatching;
 import org.eclipse.tracecompass.tmf.core.event.matching.TmfEventMatching;
+import org.eclipse.tracecompass.tmf.core.event.matching.TmfWindowedEventMatching;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 
 /**
@@ -31,6 +35,21 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
  */
 public abstract class SynchronizationManager extends TmfComponent {
 
+    /**
+     * System property for the time window, in nanoseconds, after which an
+     * unmatched event is dropped when matching events in bounded memory. If it
+     * is not set, all the unmatched events are kept.
+     */
+    private static final String MATCHING_WINDOW_PROPERTY = "org.eclipse.tracecompass.tmf.core.synchronization.window"; //$NON-NLS-1$
+
+    /**
+     * System property for the number of threads that process the matches of
+     * the fully incremental algorithm, the matches between two hosts being
+     * processed by the same thread. By default, they are processed by the
+     * matching thread.
+     */
+    private static final String SYNC_THREADS_PROPERTY = "org.eclipse.tracecompass.tmf.core.synchronization.threads"; //$NON-NLS-1$
+
     /**
      * Function called to synchronize traces using the fully incremental
      * synchronization algorithm
@@ -121,7 +140,15 @@ public abstract class SynchronizationManager extends TmfComponent {
 
     private static SynchronizationAlgorithm synchronize(final File syncFile,
             final Collection<@NonNull ITmfTrace> traces, SynchronizationAlgorithm syncAlgo) {
-        ITmfEventMatching matching = new TmfEventMatching(traces, syncAlgo);
+        IMatchProcessingUnit processingUnit = syncAlgo;
+        int nbThreads = Integer.getInteger(SYNC_THREADS_PROPERTY, 1);
+        if (nbThreads > 1 && syncAlgo instanceof SyncAlgorithmFullyIncremental) {
+            processingUnit = new HostPairMatchDispatcher(syncAlgo, nbThreads);
+        }
+        Long window = Long.getLong(MATCHING_WINDOW_PROPERTY);
+        ITmfEventMatching matching = (window == null || window <= 0) ?
+                new TmfEventMatching(traces, processingUnit) :
+                new TmfWindowedEventMatching(traces, processingUnit, window);
         matching.matchEvents();
 
         SynchronizationBackend syncBackend;
@@ -561,6 +561,17 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
         return event;
     }
 
+    /**
+     * The cached events were read with {@link #getNext(ITmfContext)}, which
+     * already updated the trace attributes, but the indexer needs to see every
+     * event while it builds the index.
+     */
+    @Override
+    public boolean canReadCachedEvents() {
+        ITmfTraceIndexer indexer = fIndexer;
+        return indexer != null && !indexer.isIndexing();
+    }
+
     /**
      * Update the trace attributes
      *
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ui.tests.views.callstack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.tracecompass.internal.tmf.ui.views.callstack.CallStackIntervalCache;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.StateSystemUtils;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the {@link CallStackIntervalCache} returns the same intervals as a
+ * range query of each stack level, whether the state system is built or not.
+ */
+public class CallStackIntervalCacheTest {
+
+    private static final String SSID = "callstack";
+    private static final long START_TIME = 0;
+    private static final long END_TIME = 10000;
+    private static final int NB_LEVELS = 4;
+    /*
+     * From the coarsest to the finest, so that each query is not covered by
+     * the intervals cached by the previous one
+     */
+    private static final long[] RESOLUTIONS = { 3000, 100, 7, 1 };
+
+    private ITmfStateSystemBuilder fSs;
+    private int[] fLevelQuarks;
+    private CallStackIntervalCache fCache;
+
+    /**
+     * Create the state system and the cache
+     */
+    @Before
+    public void setUp() {
+        fSs = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend(SSID, START_TIME));
+        fLevelQuarks = new int[NB_LEVELS];
+        for (int i = 0; i < NB_LEVELS; i++) {
+            fLevelQuarks[i] = fSs.getQuarkAbsoluteAndAdd("Threads", "1", "CallStack", Integer.toString(i + 1));
+        }
+        fCache = new CallStackIntervalCache();
+    }
+
+    /**
+     * Dispose the state system
+     */
+    @After
+    public void tearDown() {
+        fSs.dispose();
+    }
+
+    /**
+     * Test the intervals of a built state system, queried twice so that the
+     * second time they come from the cache
+     *
+     * @throws Exception
+     *             If the test fails
+     */
+    @Test
+    public void testBuilt() throws Exception {
+        insertStates(START_TIME, END_TIME);
+        fSs.closeHistory(END_TIME);
+        for (long resolution : RESOLUTIONS) {
+            verifyIntervals(START_TIME, END_TIME, resolution);
+            verifyIntervals(START_TIME, END_TIME, resolution);
+            /* A sub-range at a coarser resolution, covered by the cache */
+            verifyCoveredIntervals(START_TIME + 1234, END_TIME - 567, resolution * 2);
+        }
+    }
+
+    /**
+     * Test the intervals of a state system being built, which change as the
+     * states are inserted
+     *
+     * @throws Exception
+     *             If the test fails
+     */
+    @Test
+    public void testNotBuilt() throws Exception {
+        long middle = END_TIME / 2;
+        insertStates(START_TIME, middle);
+        for (long resolution : RESOLUTIONS) {
+            verifyIntervals(START_TIME, END_TIME, resolution);
+        }
+        insertStates(middle, END_TIME);
+        for (long resolution : RESOLUTIONS) {
+            verifyIntervals(START_TIME, END_TIME, resolution);
+        }
+        fSs.closeHistory(END_TIME);
+        for (long resolution : RESOLUTIONS) {
+            verifyIntervals(START_TIME, END_TIME, resolution);
+        }
+    }
+
+    /*
+     * Push and pop functions so that the stack depth goes up and down, each
+     * level having intervals of different lengths
+     */
+    private void insertStates(long start, long end) {
+        for (long t = start; t < end; t += 10) {
+            int depth = (int) ((t / 10) % (NB_LEVELS + 1));
+            for (int i = 0; i < NB_LEVELS; i++) {
+                ITmfStateValue value = (i < depth) ? TmfStateValue.newValueString("f" + i + '_' + (t / (30 * (i + 1)))) : TmfStateValue.nullValue();
+                fSs.modifyAttribute(t, value, fLevelQuarks[i]);
+            }
+        }
+    }
+
+    private void verifyIntervals(long start, long end, long resolution) throws Exception {
+        for (int quark : fLevelQuarks) {
+            List<ITmfStateInterval> expected = StateSystemUtils.queryHistoryRange(fSs, quark, start, end, resolution, null);
+            List<ITmfStateInterval> actual = fCache.getIntervals(fSs, quark, start, end, resolution, new NullProgressMonitor());
+            assertNotNull(actual);
+            String msg = "Quark " + quark + ", resolution " + resolution;
+            assertEquals(msg, expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(msg, expected.get(i).getStartTime(), actual.get(i).getStartTime());
+                assertEquals(msg, expected.get(i).getEndTime(), actual.get(i).getEndTime());
+                assertEquals(msg, expected.get(i).getStateValue(), actual.get(i).getStateValue());
+            }
+        }
+    }
+
+    /*
+     * The intervals returned from a query at a finer resolution are sampled at
+     * other points, so check that they are real intervals of the attribute,
+     * sorted and intersecting the time range.
+     */
+    private void verifyCoveredIntervals(long start, long end, long resolution) throws Exception {
+        for (int quark : fLevelQuarks) {
+            List<ITmfStateInterval> actual = fCache.getIntervals(fSs, quark, start, end, resolution, new NullProgressMonitor());
+            assertNotNull(actual);
+            String msg = "Quark " + quark + ", resolution " + resolution;
+            assertFalse(msg, actual.isEmpty());
+            long previousEnd = Long.MIN_VALUE;
+            for (ITmfStateInterval interval : actual) {
+                ITmfStateInterval expected = fSs.querySingleState(interval.getStartTime(), quark);
+                assertEquals(msg, expected.getStartTime(), interval.getStartTime());
+                assertEquals(msg, expected.getEndTime(), interval.getEndTime());
+                assertEquals(msg, expected.getStateValue(), interval.getStateValue());
+                assertTrue(msg, interval.getStartTime() > previousEnd);
+                assertTrue(msg, interval.getEndTime() >= start && interval.getStartTime() <= end);
+                previousEnd = interval.getEndTime();
+            }
+        }
+    }
+}
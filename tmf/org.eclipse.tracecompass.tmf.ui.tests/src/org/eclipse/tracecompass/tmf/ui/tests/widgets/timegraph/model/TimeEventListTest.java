@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ui.tests.widgets.timegraph.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.EventIterator;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeEvent;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.NullTimeEvent;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeEvent;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeEventList;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeGraphEntry;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+
+/**
+ * Test the {@link TimeEventList} class
+ */
+public class TimeEventListTest {
+
+    private final TimeGraphEntry fEntry = new TimeGraphEntry("name", SWT.DEFAULT, SWT.DEFAULT);
+
+    /**
+     * Test that the events read from the list are equal to the ones added
+     */
+    @Test
+    public void testAddGet() {
+        List<ITimeEvent> expected = Arrays.asList(
+                new TimeEvent(fEntry, 0, 10, 1),
+                new TimeEvent(fEntry, 10, 5),
+                new NullTimeEvent(fEntry, 15, 5),
+                new TimeEvent(fEntry, 20, 10, 2));
+        TimeEventList list = new TimeEventList(fEntry, 1);
+        list.addAll(expected);
+        assertEquals(expected, list);
+        assertEquals(NullTimeEvent.class, list.get(2).getClass());
+        assertEquals(15, list.getTime(2));
+        assertEquals(5, list.getDuration(2));
+        assertTrue(list.isSorted());
+    }
+
+    /**
+     * Test which events can be stored
+     */
+    @Test
+    public void testAccepts() {
+        TimeEventList list = new TimeEventList(fEntry);
+        TimeGraphEntry other = new TimeGraphEntry("other", SWT.DEFAULT, SWT.DEFAULT);
+        assertTrue(list.accepts(new TimeEvent(fEntry, 0, 10, 1)));
+        assertTrue(list.accepts(new NullTimeEvent(fEntry, 0, 10)));
+        assertFalse(list.accepts(new TimeEvent(other, 0, 10, 1)));
+        assertFalse(list.accepts(new TimeEvent(fEntry, 0, 10, 1) {
+        }));
+    }
+
+    /**
+     * Test that an entry keeps working when an event that can not be stored
+     * in compact form is added
+     */
+    @Test
+    public void testEntryExpand() {
+        ITimeEvent event1 = new TimeEvent(fEntry, 0, 10, 1);
+        ITimeEvent event2 = new TimeEvent(fEntry, 10, 10, 2) {
+        };
+        fEntry.addEvent(event1);
+        fEntry.addEvent(event2);
+        assertEquals(ImmutableList.of(event1, event2), ImmutableList.copyOf(fEntry.getTimeEventsIterator()));
+    }
+
+    /**
+     * Test the index of the first event that ends at or after a time
+     */
+    @Test
+    public void testGetIndex() {
+        TimeEventList list = new TimeEventList(fEntry);
+        list.add(new TimeEvent(fEntry, 0, 10, 1));
+        list.add(new TimeEvent(fEntry, 20, 10, 2));
+        list.add(new TimeEvent(fEntry, 30, 10, 3));
+        assertEquals(0, list.getIndex(-1));
+        assertEquals(0, list.getIndex(10));
+        assertEquals(1, list.getIndex(11));
+        assertEquals(1, list.getIndex(30));
+        assertEquals(2, list.getIndex(31));
+        assertEquals(3, list.getIndex(41));
+    }
+
+    /**
+     * Test that overlapping events are detected, and no longer once they are
+     * replaced or removed
+     */
+    @Test
+    public void testSorted() {
+        TimeEventList list = new TimeEventList(fEntry);
+        list.add(new TimeEvent(fEntry, 0, 10, 1));
+        list.add(new TimeEvent(fEntry, 20, 10, 2));
+        list.add(new TimeEvent(fEntry, 5, 10, 3));
+        assertFalse(list.isSorted());
+        list.set(2, new TimeEvent(fEntry, 30, 10, 3));
+        assertTrue(list.isSorted());
+        list.add(1, new TimeEvent(fEntry, 15, 10, 4));
+        assertFalse(list.isSorted());
+        list.remove(1);
+        assertTrue(list.isSorted());
+        assertEquals(Arrays.asList(
+                new TimeEvent(fEntry, 0, 10, 1),
+                new TimeEvent(fEntry, 20, 10, 2),
+                new TimeEvent(fEntry, 30, 10, 3)), list);
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    /**
+     * Test that iterating a time range of a compact list gives the same events
+     * as iterating a regular list
+     */
+    @Test
+    public void testIteratorRange() {
+        List<ITimeEvent> events = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            events.add(i % 3 == 0 ? new NullTimeEvent(fEntry, i * 10, 10) : new TimeEvent(fEntry, i * 10, 10, i));
+        }
+        List<ITimeEvent> zoomed = Arrays.asList(new TimeEvent(fEntry, 4005, 10, 1), new TimeEvent(fEntry, 4015, 50, 2));
+        TimeEventList list = new TimeEventList(fEntry);
+        list.addAll(events);
+        TimeEventList zoomedList = new TimeEventList(fEntry);
+        zoomedList.addAll(zoomed);
+        long[][] ranges = { { Long.MIN_VALUE, Long.MAX_VALUE }, { 3995, 4100 }, { 5000, 5000 }, { 9995, 20000 }, { -10, -1 } };
+        for (long[] range : ranges) {
+            assertIteratorsEqual(new EventIterator(events, zoomed, range[0], range[1]), new EventIterator(list, zoomedList, range[0], range[1]));
+            assertIteratorsEqual(new EventIterator(events, null, range[0], range[1]), new EventIterator(list, null, range[0], range[1]));
+        }
+    }
+
+    private static void assertIteratorsEqual(Iterator<ITimeEvent> expected, Iterator<ITimeEvent> actual) {
+        assertTrue(Iterators.elementsEqual(expected, actual));
+    }
+}
@@ -11,13 +11,12 @@
 package org.eclipse.tracecompass.internal.tmf.ui.symbols;
 
 import java.io.File;
-import java.util.Collections;
-import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.tmf.core.callstack.FunctionNameMapper;
+import org.eclipse.tracecompass.internal.tmf.core.callstack.SymbolTable;
 import org.eclipse.tracecompass.tmf.core.event.lookup.ITmfCallsite;
 import org.eclipse.tracecompass.tmf.core.event.lookup.TmfCallsite;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
@@ -35,7 +34,7 @@ public class BasicSymbolProvider implements ISymbolProvider {
 
     private final @NonNull ITmfTrace fTrace;
 
-    private @NonNull Map<String, String> fMapping = Collections.emptyMap();
+    private @Nullable SymbolTable fSymbols = null;
 
     private String fSource;
 
@@ -109,19 +108,12 @@ public class BasicSymbolProvider implements ISymbolProvider {
             synchronized (this) {
                 if (!fConfigured) {
                     try {
-                        fMapping = Collections.emptyMap();
+                        fSymbols = null;
                         if (fSource != null) {
                             File file = new File(fSource);
                             if (file.isFile()) {
-                                Map<String, String> result;
-                                if (fKind == SourceKind.BINARY) {
-                                    result = FunctionNameMapper.mapFromBinaryFile(file);
-                                } else {
-                                    result = FunctionNameMapper.mapFromNmTextFile(file);
-                                }
-                                if (result != null) {
-                                    fMapping = result;
-                                }
+                                /* The symbol table is shared with the other providers of the file */
+                                fSymbols = FunctionNameMapper.getSymbolTable(file, fKind == SourceKind.BINARY);
                             }
                         }
                     } finally {
@@ -135,7 +127,8 @@ public class BasicSymbolProvider implements ISymbolProvider {
     @Override
     public @Nullable String getSymbolText(long address) {
         loadConfiguration(null);
-        return fMapping.get(Long.toHexString(address));
+        SymbolTable symbols = fSymbols;
+        return (symbols == null) ? null : symbols.getName(address);
     }
 
     @Deprecated
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.ui.views.callstack;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.StateSystemUtils;
+import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.tmf.core.util.Pair;
+
+/**
+ * Query layer of the call stack view, which gets the intervals of all the
+ * stack levels of a thread together. The levels are sampled at the same
+ * resolution points, so one full query of the state system at each point
+ * returns the intervals of every level, instead of one query per level and
+ * per point.
+ * <p>
+ * The intervals of the recently queried threads are kept, and a query for a
+ * time range and resolution that a previous query of the thread covered is
+ * answered without reading the state system, for example when the view goes
+ * back to a previous zoom level or is redrawn.
+ * <p>
+ * Only the state systems that are completely built are swept and cached. While
+ * a state system is being built, its intervals change with every redraw, so
+ * each stack level is queried on its own with a range query instead.
+ */
+public final class CallStackIntervalCache {
+
+    /**
+     * Maximum number of intervals kept for all the threads. The view keeps
+     * about one interval per pixel and per stack level, so this is enough for
+     * a few zoom levels of the visible threads.
+     */
+    private static final int MAX_INTERVALS = 100000;
+
+    private final Map<Pair<ITmfStateSystem, Integer>, ThreadIntervals> fThreads = new LinkedHashMap<>(16, 0.75f, true);
+    private int fNbIntervals = 0;
+
+    /**
+     * Get the intervals of a stack level attribute in a time range, with at
+     * most one interval per resolution step, like
+     * {@link org.eclipse.tracecompass.statesystem.core.StateSystemUtils#queryHistoryRange(ITmfStateSystem, int, long, long, long, IProgressMonitor)}.
+     * The other levels of the same call stack are queried at the same time,
+     * if the state system is built.
+     *
+     * @param ss
+     *            The state system
+     * @param stackLevelQuark
+     *            The quark of the stack level attribute
+     * @param start
+     *            The start time of the range
+     * @param end
+     *            The end time of the range, inclusive
+     * @param resolution
+     *            The resolution
+     * @param monitor
+     *            The progress monitor
+     * @return The intervals of the stack level, or null if the monitor was
+     *         canceled
+     * @throws AttributeNotFoundException
+     *             If the attribute doesn't exist
+     * @throws StateSystemDisposedException
+     *             If the state system is disposed
+     */
+    public @Nullable List<ITmfStateInterval> getIntervals(ITmfStateSystem ss, int stackLevelQuark,
+            long start, long end, long resolution, IProgressMonitor monitor) throws AttributeNotFoundException, StateSystemDisposedException {
+        if (end < start || resolution <= 0) {
+            throw new TimeRangeException(ss.getSSID() + " Start:" + start + ", End:" + end + ", Resolution:" + resolution); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+        long tEnd = Math.min(end, ss.getCurrentEndTime());
+        if (!ss.waitUntilBuilt(0)) {
+            return StateSystemUtils.queryHistoryRange(ss, stackLevelQuark, start, tEnd, resolution, monitor);
+        }
+        int callStackQuark = ss.getParentAttributeQuark(stackLevelQuark);
+        Pair<ITmfStateSystem, Integer> key = new Pair<>(ss, callStackQuark);
+
+        synchronized (this) {
+            ThreadIntervals cached = fThreads.get(key);
+            if (cached != null && cached.covers(stackLevelQuark, start, tEnd, resolution)) {
+                return cached.getIntervals(stackLevelQuark, start, tEnd);
+            }
+        }
+
+        List<Integer> stackLevelQuarks = ss.getSubAttributes(callStackQuark, false);
+        if (!stackLevelQuarks.contains(stackLevelQuark)) {
+            stackLevelQuarks = new ArrayList<>(stackLevelQuarks);
+            stackLevelQuarks.add(stackLevelQuark);
+        }
+        ThreadIntervals thread = query(ss, stackLevelQuarks, start, tEnd, resolution, monitor);
+        if (thread == null) {
+            return null;
+        }
+        put(key, thread);
+        return thread.getIntervals(stackLevelQuark, start, tEnd);
+    }
+
+    /**
+     * Remove all the cached intervals
+     */
+    public synchronized void clear() {
+        fThreads.clear();
+        fNbIntervals = 0;
+    }
+
+    private synchronized void put(Pair<ITmfStateSystem, Integer> key, ThreadIntervals thread) {
+        ThreadIntervals previous = fThreads.put(key, thread);
+        if (previous != null) {
+            fNbIntervals -= previous.fNbIntervals;
+        }
+        fNbIntervals += thread.fNbIntervals;
+        /* Drop the least recently used threads, except this one */
+        Iterator<ThreadIntervals> iterator = fThreads.values().iterator();
+        while (fNbIntervals > MAX_INTERVALS && fThreads.size() > 1) {
+            fNbIntervals -= iterator.next().fNbIntervals;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Sweep the time range once, querying the full state at each resolution
+     * point where at least one of the stack levels needs a new interval
+     */
+    private static @Nullable ThreadIntervals query(ITmfStateSystem ss, List<Integer> quarks,
+            long start, long end, long resolution, IProgressMonitor monitor) throws StateSystemDisposedException {
+        int nbQuarks = quarks.size();
+        ThreadIntervals thread = new ThreadIntervals(quarks, start, end, resolution);
+        long[] next = new long[nbQuarks];
+        long ts = start;
+        while (ts <= end) {
+            if (monitor.isCanceled()) {
+                return null;
+            }
+            List<ITmfStateInterval> fullState = ss.queryFullState(ts);
+            long nextTs = Long.MAX_VALUE;
+            for (int i = 0; i < nbQuarks; i++) {
+                if (next[i] <= ts) {
+                    ITmfStateInterval interval = fullState.get(quarks.get(i));
+                    thread.add(i, interval);
+                    /* Skip the resolution points inside this interval */
+                    next[i] = ts + ((interval.getEndTime() - ts) / resolution + 1) * resolution;
+                }
+                nextTs = Math.min(nextTs, next[i]);
+            }
+            if (nextTs <= ts) {
+                /* Overflow at the end of the time range */
+                break;
+            }
+            ts = nextTs;
+        }
+
+        /* Add the intervals at the end time, if they weren't included already */
+        List<ITmfStateInterval> fullState = null;
+        for (int i = 0; i < nbQuarks; i++) {
+            ITmfStateInterval last = thread.getLast(i);
+            if (last != null && last.getEndTime() < end) {
+                if (fullState == null) {
+                    fullState = ss.queryFullState(end);
+                }
+                thread.add(i, fullState.get(quarks.get(i)));
+            }
+        }
+        return thread;
+    }
+
+    /**
+     * The intervals of the stack levels of one thread, for the time range and
+     * resolution of the query that got them
+     */
+    private static final class ThreadIntervals {
+
+        private final List<Integer> fQuarks;
+        private final List<List<ITmfStateInterval>> fIntervals;
+        private final long fStart;
+        private final long fEnd;
+        private final long fResolution;
+        private int fNbIntervals = 0;
+
+        public ThreadIntervals(List<Integer> quarks, long start, long end, long resolution) {
+            fQuarks = quarks;
+            fIntervals = new ArrayList<>(quarks.size());
+            for (int i = 0; i < quarks.size(); i++) {
+                fIntervals.add(new ArrayList<>());
+            }
+            fStart = start;
+            fEnd = end;
+            fResolution = resolution;
+        }
+
+        public void add(int index, ITmfStateInterval interval) {
+            fIntervals.get(index).add(interval);
+            fNbIntervals++;
+        }
+
+        public @Nullable ITmfStateInterval getLast(int index) {
+            List<ITmfStateInterval> intervals = fIntervals.get(index);
+            return intervals.isEmpty() ? null : intervals.get(intervals.size() - 1);
+        }
+
+        public boolean covers(int quark, long start, long end, long resolution) {
+            return fQuarks.contains(quark) && start >= fStart && end <= fEnd && resolution >= fResolution;
+        }
+
+        /**
+         * Get the intervals of a stack level that intersect a time range. The
+         * intervals are sorted, so the first and last ones are found by binary
+         * search.
+         */
+        public List<ITmfStateInterval> getIntervals(int quark, long start, long end) {
+            List<ITmfStateInterval> intervals = fIntervals.get(fQuarks.indexOf(quark));
+            int from = 0;
+            int to = intervals.size();
+            while (from < to) {
+                int mid = (from + to) >>> 1;
+                if (intervals.get(mid).getEndTime() < start) {
+                    from = mid + 1;
+                } else {
+                    to = mid;
+                }
+            }
+            to = intervals.size();
+            int low = from;
+            while (low < to) {
+                int mid = (low + to) >>> 1;
+                if (intervals.get(mid).getStartTime() <= end) {
+                    low = mid + 1;
+                } else {
+                    to = mid;
+                }
+            }
+            return new ArrayList<>(intervals.subList(from, to));
+        }
+    }
+}
@@ -22,6 +22,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.tracecompass.internal.tmf.core.filter.TmfCollapseFilter;
+import org.eclipse.tracecompass.internal.tmf.core.filter.TmfFilterCompiler;
 import org.eclipse.tracecompass.internal.tmf.ui.Activator;
 import org.eclipse.tracecompass.tmf.core.component.ITmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
@@ -182,7 +183,7 @@ public class TmfEventsCache {
      * @since 2.0
      */
     public void applyFilter(ITmfFilter filter, boolean collapseFilterEnabled) {
-        fFilter = filter;
+        fFilter = TmfFilterCompiler.compile(filter);
         fCollapseFilterEnabled = collapseFilterEnabled;
         clear();
     }
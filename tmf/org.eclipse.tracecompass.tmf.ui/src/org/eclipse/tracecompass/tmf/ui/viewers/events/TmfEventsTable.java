@@ -125,6 +125,7 @@ import org.eclipse.swt.widgets.TableItem;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
 import org.eclipse.tracecompass.internal.tmf.core.filter.TmfCollapseFilter;
+import org.eclipse.tracecompass.internal.tmf.core.filter.TmfFilterCompiler;
 import org.eclipse.tracecompass.internal.tmf.ui.Activator;
 import org.eclipse.tracecompass.internal.tmf.ui.Messages;
 import org.eclipse.tracecompass.internal.tmf.ui.commands.CopyToClipboardOperation;
@@ -2176,6 +2177,7 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
      */
     protected class FilterThread extends Thread {
         private final ITmfFilterTreeNode filter;
+        private final ITmfFilter compiledFilter;
         private TmfCollapseFilter collapseFilter = null;
         private TmfEventRequest request;
         private boolean refreshBusy = false;
@@ -2191,6 +2193,7 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
         public FilterThread(final ITmfFilterTreeNode filter) {
             super("Filter Thread"); //$NON-NLS-1$
             this.filter = filter;
+            this.compiledFilter = TmfFilterCompiler.compile(filter);
         }
 
         @Override
@@ -2214,7 +2217,7 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
                         return;
                     }
                     boolean refresh = false;
-                    if (filter.matches(event)) {
+                    if (compiledFilter.matches(event)) {
                         if (collapseFilter == null || collapseFilter.matches(event)) {
                             final long rank = fFilterCheckCount;
                             final int index = (int) fFilterMatchCount;
@@ -2383,6 +2386,8 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
 
         private ITmfFilterTreeNode searchFilter;
         private ITmfFilterTreeNode eventFilter;
+        private final ITmfFilter compiledSearchFilter;
+        private final ITmfFilter compiledEventFilter;
         private int startIndex;
         private int direction;
         private long rank;
@@ -2410,6 +2415,8 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
             super(Messages.TmfEventsTable_SearchingJobName);
             this.searchFilter = searchFilter;
             this.eventFilter = eventFilter;
+            this.compiledSearchFilter = TmfFilterCompiler.compile(searchFilter);
+            this.compiledEventFilter = TmfFilterCompiler.compile(eventFilter);
             this.startIndex = startIndex;
             this.rank = currentRank;
             this.direction = direction;
@@ -2438,7 +2445,7 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
                         break;
                     }
                     rank = event.rank;
-                    if (searchFilter.matches(event.event) && ((eventFilter == null) || eventFilter.matches(event.event))) {
+                    if (compiledSearchFilter.matches(event.event) && ((compiledEventFilter == null) || compiledEventFilter.matches(event.event))) {
                         foundRank = event.rank;
                         foundTimestamp = event.event.getTimestamp();
                         break;
@@ -2477,7 +2484,7 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
                     @Override
                     public void handleData(final ITmfEvent event) {
                         super.handleData(event);
-                        if (searchFilter.matches(event) && ((eventFilter == null) || eventFilter.matches(event))) {
+                        if (compiledSearchFilter.matches(event) && ((compiledEventFilter == null) || compiledEventFilter.matches(event))) {
                             foundRank = currentRank;
                             foundTimestamp = event.getTimestamp();
                             if (direction == Direction.FORWARD) {
@@ -48,8 +48,8 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.tracecompass.internal.tmf.ui.Activator;
 import org.eclipse.tracecompass.internal.tmf.ui.ITmfImageConstants;
 import org.eclipse.tracecompass.internal.tmf.ui.Messages;
+import org.eclipse.tracecompass.internal.tmf.ui.views.callstack.CallStackIntervalCache;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
-import org.eclipse.tracecompass.statesystem.core.StateSystemUtils;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
@@ -147,6 +147,8 @@ public class CallStackView extends AbstractTimeGraphView {
 
     private final Map<ITmfTrace, ISymbolProvider> fSymbolProviders = new HashMap<>();
 
+    private final CallStackIntervalCache fIntervalCache = new CallStackIntervalCache();
+
     // The next event action
     private Action fNextEventAction;
 
@@ -510,6 +512,7 @@ public class CallStackView extends AbstractTimeGraphView {
                 fSymbolProviders.remove(trace);
             }
         }
+        fIntervalCache.clear();
     }
 
     /**
@@ -587,6 +590,10 @@ public class CallStackView extends AbstractTimeGraphView {
                  */
                 List<Integer> processQuarks = ss.getQuarks(module.getProcessesPattern());
                 List<ITmfStateInterval> endStates = ss.queryFullState(end);
+                /*
+                 * Only query startStates if necessary (threadEntry == null)
+                 */
+                List<ITmfStateInterval> startStates = null;
                 for (int processQuark : processQuarks) {
 
                     /*
@@ -621,11 +628,6 @@ public class CallStackView extends AbstractTimeGraphView {
 
                     /* Create the threads under the process */
                     List<Integer> threadQuarks = ss.getQuarks(processQuark, module.getThreadsPattern());
-
-                    /*
-                     * Only query startStates if necessary (threadEntry == null)
-                     */
-                    List<ITmfStateInterval> startStates = null;
                     for (int threadQuark : threadQuarks) {
                         if (monitor.isCanceled()) {
                             return;
@@ -766,7 +768,10 @@ public class CallStackView extends AbstractTimeGraphView {
         boolean isZoomThread = Thread.currentThread() instanceof ZoomThread;
         List<ITimeEvent> eventList = null;
         try {
-            List<ITmfStateInterval> stackIntervals = StateSystemUtils.queryHistoryRange(ss, entry.getQuark(), start, end - 1, resolution, monitor);
+            List<ITmfStateInterval> stackIntervals = fIntervalCache.getIntervals(ss, entry.getQuark(), start, end - 1, resolution, monitor);
+            if (stackIntervals == null) {
+                return null;
+            }
             eventList = new ArrayList<>(stackIntervals.size());
             long lastEndTime = -1;
             boolean lastIsNull = false;
@@ -34,6 +34,10 @@ import org.eclipse.jdt.annotation.NonNull;
  * event list  [      A      ] [   B   ][C]
  * iterator    [A][D][E][F]       [G][B][C]
  * </pre>
+ *
+ * If an event list is a sorted {@link TimeEventList}, the iteration starts at
+ * the first visible event and the events that are not visible are skipped
+ * without being created.
  */
 public class EventIterator implements Iterator<@NonNull ITimeEvent> {
 
@@ -41,6 +45,7 @@ public class EventIterator implements Iterator<@NonNull ITimeEvent> {
     private final long fEndTime;
     private List<ITimeEvent> fEventList;
     private List<ITimeEvent> fZoomedEventList;
+    private final TimeEventList fCompactEventList;
     private long fZoomedStartTime;
     private long fZoomedEndTime;
     private int fIndex = 0;
@@ -88,12 +93,40 @@ public class EventIterator implements Iterator<@NonNull ITimeEvent> {
         }
         fStartTime = startTime;
         fEndTime = endTime;
+        fCompactEventList = getSortedList(eventList);
+        if (fCompactEventList != null) {
+            fIndex = fCompactEventList.getIndex(startTime);
+        }
+        TimeEventList compactZoomedEventList = getSortedList(zoomedEventList);
+        if (compactZoomedEventList != null) {
+            fZoomedIndex = compactZoomedEventList.getIndex(startTime);
+        }
+    }
+
+    private static TimeEventList getSortedList(List<ITimeEvent> eventList) {
+        if (eventList instanceof TimeEventList && ((TimeEventList) eventList).isSorted()) {
+            return (TimeEventList) eventList;
+        }
+        return null;
     }
 
     @Override
     public boolean hasNext() {
         if (fNext == null && fEventList != null) {
             while (fIndex < fEventList.size()) {
+                if (fCompactEventList != null) {
+                    long time = fCompactEventList.getTime(fIndex);
+                    if (time > fEndTime) {
+                        // the events are sorted, no further event is visible
+                        break;
+                    }
+                    long end = time + fCompactEventList.getDuration(fIndex);
+                    if (end < fStartTime || (time >= fZoomedStartTime && end <= fZoomedEndTime)) {
+                        // skip the event without creating it
+                        fIndex++;
+                        continue;
+                    }
+                }
                 ITimeEvent event = fEventList.get(fIndex++);
                 if (event.getTime() + event.getDuration() >= fStartTime && event.getTime() <= fEndTime &&
                         (event.getTime() < fZoomedStartTime || event.getTime() + event.getDuration() > fZoomedEndTime)) {
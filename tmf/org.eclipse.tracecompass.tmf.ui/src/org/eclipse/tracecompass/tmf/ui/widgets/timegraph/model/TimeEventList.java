@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.RandomAccess;
+
+/**
+ * A list of the time events of an entry, stored in compact form in primitive
+ * arrays instead of as individual event objects. The events are created when
+ * they are read, so only the events that are actually drawn exist as objects.
+ * <p>
+ * Only {@link TimeEvent} and {@link NullTimeEvent} events of the entry of the
+ * list can be stored, see {@link #accepts(ITimeEvent)}. Events of subclasses
+ * must be kept in a regular list.
+ * <p>
+ * When the events are added in time order and do not overlap, which is the
+ * case for the event lists of the time graph views, the
+ * {@link EventIterator} finds the first visible event by binary search and
+ * skips the events that are not visible without creating them.
+ *
+ * @since 2.3
+ */
+public class TimeEventList extends AbstractList<ITimeEvent> implements RandomAccess {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final ITimeGraphEntry fEntry;
+    private long[] fTimes;
+    private long[] fDurations;
+    private int[] fValues;
+    private final BitSet fNullEvents = new BitSet();
+    private int fSize = 0;
+    /* The number of events that start before the end of the previous one */
+    private int fNbUnsorted = 0;
+
+    /**
+     * Constructor
+     *
+     * @param entry
+     *            The entry of the events of this list
+     */
+    public TimeEventList(ITimeGraphEntry entry) {
+        this(entry, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param entry
+     *            The entry of the events of this list
+     * @param initialCapacity
+     *            The initial capacity of the list
+     */
+    public TimeEventList(ITimeGraphEntry entry, int initialCapacity) {
+        fEntry = entry;
+        int capacity = Math.max(1, initialCapacity);
+        fTimes = new long[capacity];
+        fDurations = new long[capacity];
+        fValues = new int[capacity];
+    }
+
+    /**
+     * Check if an event can be stored in this list. Only events of the
+     * {@link TimeEvent} and {@link NullTimeEvent} classes, and not of their
+     * subclasses, can be stored, and they must belong to the entry of this
+     * list.
+     *
+     * @param event
+     *            The time event
+     * @return True if the event can be stored in this list
+     */
+    public boolean accepts(ITimeEvent event) {
+        Class<?> type = event.getClass();
+        return (type == TimeEvent.class || type == NullTimeEvent.class) && event.getEntry() == fEntry;
+    }
+
+    @Override
+    public int size() {
+        return fSize;
+    }
+
+    @Override
+    public ITimeEvent get(int index) {
+        checkIndex(index, fSize);
+        if (fNullEvents.get(index)) {
+            return new NullTimeEvent(fEntry, fTimes[index], fDurations[index]);
+        }
+        return new TimeEvent(fEntry, fTimes[index], fDurations[index], fValues[index]);
+    }
+
+    /**
+     * Get the start time of an event, without creating the event
+     *
+     * @param index
+     *            The index of the event
+     * @return The start time of the event
+     */
+    public long getTime(int index) {
+        checkIndex(index, fSize);
+        return fTimes[index];
+    }
+
+    /**
+     * Get the duration of an event, without creating the event
+     *
+     * @param index
+     *            The index of the event
+     * @return The duration of the event
+     */
+    public long getDuration(int index) {
+        checkIndex(index, fSize);
+        return fDurations[index];
+    }
+
+    /**
+     * Check if the events are sorted by time and do not overlap, in which case
+     * {@link #getIndex(long)} can be used.
+     *
+     * @return True if the events are sorted and do not overlap
+     */
+    public boolean isSorted() {
+        return fNbUnsorted == 0;
+    }
+
+    /**
+     * Get the index of the first event that ends at or after a given time.
+     * This is only meaningful if the list {@link #isSorted()}.
+     *
+     * @param time
+     *            The time
+     * @return The index of the first event that ends at or after the time, or
+     *         the size of the list if there is none
+     */
+    public int getIndex(long time) {
+        int low = 0;
+        int high = fSize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (fTimes[mid] + fDurations[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public ITimeEvent set(int index, ITimeEvent event) {
+        checkIndex(index, fSize);
+        checkAccepted(event);
+        ITimeEvent previous = get(index);
+        fNbUnsorted -= countUnsorted(index) + countUnsorted(index + 1);
+        store(index, event);
+        fNbUnsorted += countUnsorted(index) + countUnsorted(index + 1);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, ITimeEvent event) {
+        checkIndex(index, fSize + 1);
+        checkAccepted(event);
+        if (fSize == fTimes.length) {
+            int capacity = fSize + (fSize >> 1) + 1;
+            fTimes = Arrays.copyOf(fTimes, capacity);
+            fDurations = Arrays.copyOf(fDurations, capacity);
+            fValues = Arrays.copyOf(fValues, capacity);
+        }
+        fNbUnsorted -= countUnsorted(index);
+        int moved = fSize - index;
+        if (moved > 0) {
+            System.arraycopy(fTimes, index, fTimes, index + 1, moved);
+            System.arraycopy(fDurations, index, fDurations, index + 1, moved);
+            System.arraycopy(fValues, index, fValues, index + 1, moved);
+            for (int i = fSize; i > index; i--) {
+                fNullEvents.set(i, fNullEvents.get(i - 1));
+            }
+        }
+        store(index, event);
+        fSize++;
+        fNbUnsorted += countUnsorted(index) + countUnsorted(index + 1);
+        modCount++;
+    }
+
+    @Override
+    public ITimeEvent remove(int index) {
+        checkIndex(index, fSize);
+        ITimeEvent previous = get(index);
+        fNbUnsorted -= countUnsorted(index) + countUnsorted(index + 1);
+        int moved = fSize - index - 1;
+        if (moved > 0) {
+            System.arraycopy(fTimes, index + 1, fTimes, index, moved);
+            System.arraycopy(fDurations, index + 1, fDurations, index, moved);
+            System.arraycopy(fValues, index + 1, fValues, index, moved);
+        }
+        for (int i = index; i < fSize - 1; i++) {
+            fNullEvents.set(i, fNullEvents.get(i + 1));
+        }
+        fNullEvents.clear(fSize - 1);
+        fSize--;
+        fNbUnsorted += countUnsorted(index);
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        fSize = 0;
+        fNbUnsorted = 0;
+        fNullEvents.clear();
+        modCount++;
+    }
+
+    private void store(int index, ITimeEvent event) {
+        fTimes[index] = event.getTime();
+        fDurations[index] = event.getDuration();
+        if (event instanceof NullTimeEvent) {
+            fValues[index] = 0;
+            fNullEvents.set(index);
+        } else {
+            fValues[index] = ((TimeEvent) event).getValue();
+            fNullEvents.clear(index);
+        }
+    }
+
+    /* 1 if the event at index starts before the end of the previous event */
+    private int countUnsorted(int index) {
+        if (index <= 0 || index >= fSize) {
+            return 0;
+        }
+        return fTimes[index] < fTimes[index - 1] + fDurations[index - 1] ? 1 : 0;
+    }
+
+    private void checkAccepted(ITimeEvent event) {
+        if (!accepts(event)) {
+            throw new IllegalArgumentException("Event can not be stored in compact form: " + event); //$NON-NLS-1$
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+}
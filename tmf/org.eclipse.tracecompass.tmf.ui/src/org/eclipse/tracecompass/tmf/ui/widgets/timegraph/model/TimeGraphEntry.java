@@ -40,8 +40,9 @@ public class TimeGraphEntry implements ITimeGraphEntry {
     private String fName;
     private long fStartTime = SWT.DEFAULT;
     private long fEndTime = SWT.DEFAULT;
-    private @NonNull List<ITimeEvent> fEventList = new ArrayList<>();
-    private @NonNull List<ITimeEvent> fZoomedEventList = new ArrayList<>();
+    private @NonNull List<ITimeEvent> fEventList = new TimeEventList(this);
+    private @NonNull List<ITimeEvent> fZoomedEventList = new TimeEventList(this);
+    private volatile long fTimeEventsRevision = 0;
     private Comparator<ITimeGraphEntry> fComparator;
 
     /**
@@ -141,6 +142,21 @@ public class TimeGraphEntry implements ITimeGraphEntry {
         return true;
     }
 
+    /**
+     * Get the revision of the time events of this entry. It changes whenever
+     * an event is added or an event list is set, so that the time events drawn
+     * for a given time range can be reused while it does not change.
+     * Subclasses that do not provide their time events from the event lists of
+     * this class should return a negative value.
+     *
+     * @return The revision of the time events, or a negative value if it is
+     *         unknown
+     * @since 2.3
+     */
+    public long getTimeEventsRevision() {
+        return fTimeEventsRevision;
+    }
+
     @Override
     public Iterator<@NonNull ITimeEvent> getTimeEventsIterator() {
         if (hasTimeEvents()) {
@@ -166,6 +182,8 @@ public class TimeGraphEntry implements ITimeGraphEntry {
      *            The time event to add
      */
     public void addEvent(ITimeEvent event) {
+        fEventList = expand(fEventList, event);
+        fTimeEventsRevision++;
         long start = event.getTime();
         long end = start + event.getDuration();
         int lastIndex = fEventList.size() - 1;
@@ -188,7 +206,8 @@ public class TimeGraphEntry implements ITimeGraphEntry {
 
     /**
      * Set the general event list of this entry. The list should be modifiable
-     * but will only increase in size over time.
+     * but will only increase in size over time. A {@link TimeEventList} keeps
+     * the events in compact form.
      *
      * @param eventList
      *            The modifiable list of time events, or null to clear the list
@@ -197,13 +216,15 @@ public class TimeGraphEntry implements ITimeGraphEntry {
         if (eventList != null) {
             fEventList = eventList;
         } else {
-            fEventList = new ArrayList<>();
+            fEventList = new TimeEventList(this);
         }
+        fTimeEventsRevision++;
     }
 
     /**
      * Set the zoomed event list of this entry. The list should be modifiable
-     * but will only increase in size over time.
+     * but will only increase in size over time. A {@link TimeEventList} keeps
+     * the events in compact form.
      *
      * @param eventList
      *            The modifiable list of time events, or null to clear the list
@@ -212,8 +233,20 @@ public class TimeGraphEntry implements ITimeGraphEntry {
         if (eventList != null) {
             fZoomedEventList = eventList;
         } else {
-            fZoomedEventList = new ArrayList<>();
+            fZoomedEventList = new TimeEventList(this);
+        }
+        fTimeEventsRevision++;
+    }
+
+    /*
+     * Replace a compact event list by a regular list if it can not store the
+     * event to add
+     */
+    private static @NonNull List<ITimeEvent> expand(@NonNull List<ITimeEvent> eventList, ITimeEvent event) {
+        if (eventList instanceof TimeEventList && !((TimeEventList) eventList).accepts(event)) {
+            return new ArrayList<>(eventList);
         }
+        return eventList;
     }
 
     /**
@@ -230,6 +263,8 @@ public class TimeGraphEntry implements ITimeGraphEntry {
      * @since 1.1
      */
     public void addZoomedEvent(ITimeEvent event) {
+        fZoomedEventList = expand(fZoomedEventList, event);
+        fTimeEventsRevision++;
         long start = event.getTime();
         long end = start + event.getDuration();
         int lastIndex = fZoomedEventList.size() - 1;
@@ -23,6 +23,7 @@ package org.eclipse.tracecompass.tmf.ui.widgets.timegraph.widgets;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -98,6 +99,7 @@ import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ILinkEvent;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.IMarkerEvent;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeEvent;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeGraphEntry;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeGraphEntry;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.widgets.Utils.Resolution;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.widgets.Utils.TimeFormat;
 
@@ -2038,6 +2040,10 @@ public class TimeGraphControl extends TimeGraphBaseControl
      */
     public void drawItems(Rectangle bounds, ITimeDataProvider timeProvider,
             Item[] items, int topIndex, int nameSpace, GC gc) {
+        for (int i = 0; i < Math.min(topIndex, items.length); i++) {
+            /* Only keep the coalesced events of the visible items */
+            items[i].fCoalescedEvents = null;
+        }
         for (int i = topIndex; i < items.length; i++) {
             Item item = items[i];
             drawItem(item, bounds, timeProvider, i, nameSpace, gc);
@@ -2063,6 +2069,7 @@ public class TimeGraphControl extends TimeGraphBaseControl
     protected void drawItem(Item item, Rectangle bounds, ITimeDataProvider timeProvider, int i, int nameSpace, GC gc) {
         Rectangle itemRect = getItemRect(bounds, i);
         if (itemRect.y >= bounds.y + bounds.height) {
+            item.fCoalescedEvents = null;
             return;
         }
 
@@ -2094,21 +2101,19 @@ public class TimeGraphControl extends TimeGraphBaseControl
             setFontForHeight(height, gc);
 
             long maxDuration = (timeProvider.getTimeSpace() == 0) ? Long.MAX_VALUE : 1 * (time1 - time0) / timeProvider.getTimeSpace();
-            Iterator<ITimeEvent> iterator = entry.getTimeEventsIterator(time0, time1, maxDuration);
+            CoalescedEvents events = getCoalescedEvents(item, rect, time0, time1, maxDuration, pixelsPerNanoSec);
 
             int lastX = -1;
-            while (iterator.hasNext()) {
-                ITimeEvent event = iterator.next();
-                int x = SaturatedArithmetic.add(rect.x, (int) ((event.getTime() - time0) * pixelsPerNanoSec));
-                int xEnd = SaturatedArithmetic.add(rect.x, (int) ((event.getTime() + event.getDuration() - time0) * pixelsPerNanoSec));
-                if (x >= rect.x + rect.width || xEnd < rect.x) {
-                    // event is out of bounds
-                    continue;
-                }
-                xEnd = Math.min(rect.x + rect.width, xEnd);
-                stateRect.x = Math.max(rect.x, x);
-                stateRect.width = Math.max(0, xEnd - stateRect.x + 1);
-                if (stateRect.x == lastX) {
+            for (int j = 0; j < events.fSize; j++) {
+                ITimeEvent event = events.fEvents[j];
+                stateRect.x = events.fX[j];
+                stateRect.width = events.fWidth[j];
+                if (events.fMerged.get(j)) {
+                    // several events in this pixel, the dominant one is drawn with the multiple states mark
+                    stateRect.width = 1;
+                    gc.setForeground(Display.getDefault().getSystemColor(SWT.COLOR_BLACK));
+                    gc.drawPoint(stateRect.x, stateRect.y - 2);
+                } else if (stateRect.x == lastX) {
                     stateRect.width -= 1;
                     if (stateRect.width > 0) {
                         gc.setForeground(Display.getDefault().getSystemColor(SWT.COLOR_BLACK));
@@ -2126,6 +2131,39 @@ public class TimeGraphControl extends TimeGraphBaseControl
         fTimeGraphProvider.postDrawEntry(entry, rect, gc);
     }
 
+    /**
+     * Get the events of an item to draw, where consecutive events that fall
+     * in the same pixel are coalesced into the longest of them. The result is
+     * reused until the time range, the bounds or the events of the item
+     * change.
+     */
+    private static CoalescedEvents getCoalescedEvents(Item item, Rectangle rect, long time0, long time1, long maxDuration, double pixelsPerNanoSec) {
+        ITimeGraphEntry entry = item.fEntry;
+        /* Get the revision before the events, in case they are being added */
+        long revision = (entry instanceof TimeGraphEntry) ? ((TimeGraphEntry) entry).getTimeEventsRevision() : -1;
+        CoalescedEvents events = item.fCoalescedEvents;
+        if (events != null && revision >= 0 && events.fRevision == revision && events.fTime0 == time0 && events.fTime1 == time1 &&
+                events.fBoundsX == rect.x && events.fBoundsWidth == rect.width) {
+            return events;
+        }
+        events = new CoalescedEvents(revision, time0, time1, rect.x, rect.width);
+        Iterator<ITimeEvent> iterator = entry.getTimeEventsIterator(time0, time1, maxDuration);
+        while (iterator.hasNext()) {
+            ITimeEvent event = iterator.next();
+            int x = SaturatedArithmetic.add(rect.x, (int) ((event.getTime() - time0) * pixelsPerNanoSec));
+            int xEnd = SaturatedArithmetic.add(rect.x, (int) ((event.getTime() + event.getDuration() - time0) * pixelsPerNanoSec));
+            if (x >= rect.x + rect.width || xEnd < rect.x) {
+                // event is out of bounds
+                continue;
+            }
+            xEnd = Math.min(rect.x + rect.width, xEnd);
+            x = Math.max(rect.x, x);
+            events.add(event, x, Math.max(0, xEnd - x + 1));
+        }
+        item.fCoalescedEvents = (revision >= 0) ? events : null;
+        return events;
+    }
+
     /**
      * Draw the links
      *
@@ -3478,6 +3516,54 @@ public class TimeGraphControl extends TimeGraphBaseControl
         }
     }
 
+    /**
+     * The events of an item to draw for a time range and bounds, with the
+     * consecutive events that fit in the same pixel coalesced, so that the
+     * number of events drawn is bounded by the number of pixels.
+     */
+    private static final class CoalescedEvents {
+        private final long fRevision;
+        private final long fTime0;
+        private final long fTime1;
+        private final int fBoundsX;
+        private final int fBoundsWidth;
+        private ITimeEvent[] fEvents = new ITimeEvent[16];
+        private int[] fX = new int[16];
+        private int[] fWidth = new int[16];
+        /* The events that are the longest of several coalesced events */
+        private final BitSet fMerged = new BitSet();
+        private int fSize = 0;
+
+        public CoalescedEvents(long revision, long time0, long time1, int boundsX, int boundsWidth) {
+            fRevision = revision;
+            fTime0 = time0;
+            fTime1 = time1;
+            fBoundsX = boundsX;
+            fBoundsWidth = boundsWidth;
+        }
+
+        public void add(ITimeEvent event, int x, int width) {
+            int last = fSize - 1;
+            if (width <= 1 && last >= 0 && fWidth[last] <= 1 && fX[last] == x) {
+                /* Keep the dominant state of the pixel */
+                if (event.getDuration() > fEvents[last].getDuration()) {
+                    fEvents[last] = event;
+                }
+                fMerged.set(last);
+                return;
+            }
+            if (fSize == fEvents.length) {
+                fEvents = Arrays.copyOf(fEvents, fSize * 2);
+                fX = Arrays.copyOf(fX, fSize * 2);
+                fWidth = Arrays.copyOf(fWidth, fSize * 2);
+            }
+            fEvents[fSize] = event;
+            fX[fSize] = x;
+            fWidth[fSize] = width;
+            fSize++;
+        }
+    }
+
     private class Item {
         private boolean fExpanded;
         private int fExpandedIndex;
@@ -3488,6 +3574,7 @@ public class TimeGraphControl extends TimeGraphBaseControl
         private final List<Item> fChildren;
         private final String fName;
         private final ITimeGraphEntry fEntry;
+        private CoalescedEvents fCoalescedEvents;
 
         public Item(ITimeGraphEntry entry, String name, int level) {
             this.fEntry = entry;